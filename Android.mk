@@ -91,6 +91,8 @@ include $(LOCAL_PATH)/version.mk
 
 LOCAL_AAPT_FLAGS += --version-name "$(version_name_package)"
 LOCAL_AAPT_FLAGS += --version-code $(version_code_package)
+# Keep the APN index uncompressed so that it can be memory mapped
+LOCAL_AAPT_FLAGS += -0 idx
 
 ifdef TARGET_BUILD_APPS
     LOCAL_JNI_SHARED_LIBRARIES := libframesequence libgiftranscode
@@ -111,6 +113,19 @@ LOCAL_PROGUARD_FLAG_FILES := proguard.flags
 
 LOCAL_PACKAGE_NAME := messaging
 
+# Generate the binary APN index read by ApnIndex from the apns.xml the app is built with,
+# which is the one in a product or device overlay if there is one
+apn_index_xml := $(firstword $(wildcard $(foreach overlay, \
+        $(PRODUCT_PACKAGE_OVERLAYS) $(DEVICE_PACKAGE_OVERLAYS), \
+        $(overlay)/$(LOCAL_PATH)/res/xml/apns.xml)) $(LOCAL_PATH)/res/xml/apns.xml)
+apn_index_dir := $(call intermediates-dir-for,APPS,$(LOCAL_PACKAGE_NAME),,COMMON)/apnindex
+apn_index := $(apn_index_dir)/apns.idx
+$(apn_index): PRIVATE_GENERATOR := $(LOCAL_PATH)/tools/genapnindex.py
+$(apn_index): $(apn_index_xml) $(LOCAL_PATH)/tools/genapnindex.py
+	python3 $(PRIVATE_GENERATOR) $< $@
+LOCAL_ASSET_DIR := $(LOCAL_PATH)/assets $(apn_index_dir)
+LOCAL_ADDITIONAL_DEPENDENCIES += $(apn_index)
+
 ifeq ($(strip $(TARGET_SIMULATOR)),true)
 LOCAL_PRODUCT_MODULE := true
 endif
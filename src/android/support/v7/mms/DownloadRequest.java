@@ -28,7 +28,9 @@ import android.os.Parcelable;
 import android.text.TextUtils;
 import android.util.Log;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -37,10 +39,33 @@ import java.util.concurrent.TimeUnit;
  * Request to download an MMS
  */
 class DownloadRequest extends MmsRequest {
+    private final int mSubId;
+    private final boolean mUserInitiated;
 
     DownloadRequest(final String locationUrl, final Uri pduUri,
             final PendingIntent sentIntent) {
+        this(locationUrl, pduUri, sentIntent, MmsManager.DEFAULT_SUB_ID,
+                false/*userInitiated*/);
+    }
+
+    /**
+     * @param subId the subscription id of the SIM to download with
+     * @param userInitiated whether the user asked for the download, which is then scheduled
+     *                      ahead of automatic ones
+     */
+    DownloadRequest(final String locationUrl, final Uri pduUri,
+            final PendingIntent sentIntent, final int subId, final boolean userInitiated) {
         super(locationUrl, pduUri, sentIntent);
+        mSubId = subId;
+        mUserInitiated = userInitiated;
+    }
+
+    int getSubId() {
+        return mSubId;
+    }
+
+    boolean isUserInitiated() {
+        return mUserInitiated;
     }
 
     @Override
@@ -58,10 +83,49 @@ class DownloadRequest extends MmsRequest {
     protected byte[] doHttp(Context context, MmsNetworkManager netMgr, ApnSettingsLoader.Apn apn,
             Bundle mmsConfig, String userAgent, String uaProfUrl) throws MmsHttpException {
         final MmsHttpClient httpClient = netMgr.getHttpClient();
-        return httpClient.execute(getHttpRequestUrl(apn), null/*pdu*/, MmsHttpClient.METHOD_GET,
-                !TextUtils.isEmpty(apn.getMmsProxy()), apn.getMmsProxy(), apn.getMmsProxyPort(),
-                mmsConfig, userAgent, uaProfUrl);
+        // Stream the PDU straight into the caller's file rather than holding it in memory
+        final OutputStream pduOut = openPduOutput(context);
+        if (pduOut == null) {
+            return httpClient.execute(getHttpRequestUrl(apn), null/*pdu*/,
+                    MmsHttpClient.METHOD_GET, !TextUtils.isEmpty(apn.getMmsProxy()),
+                    apn.getMmsProxy(), apn.getMmsProxyPort(), mmsConfig, userAgent, uaProfUrl);
+        }
+        try {
+            httpClient.execute(getHttpRequestUrl(apn), null/*pdu*/, MmsHttpClient.METHOD_GET,
+                    !TextUtils.isEmpty(apn.getMmsProxy()), apn.getMmsProxy(),
+                    apn.getMmsProxyPort(), mmsConfig, userAgent, uaProfUrl, pduOut);
+        } finally {
+            try {
+                pduOut.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+        // Already transferred
+        return null;
+    }
 
+    /**
+     * Open the caller's content uri for writing the downloaded PDU, truncating anything an
+     * earlier attempt wrote
+     *
+     * @return the stream, or null if the uri can't be opened
+     */
+    private OutputStream openPduOutput(final Context context) {
+        if (mPduUri == null) {
+            return null;
+        }
+        try {
+            final ParcelFileDescriptor pduFd =
+                    context.getContentResolver().openFileDescriptor(mPduUri, "w");
+            return pduFd != null ? new ParcelFileDescriptor.AutoCloseOutputStream(pduFd) : null;
+        } catch (FileNotFoundException e) {
+            Log.e(MmsService.TAG, "Writing PDU to downloader: can't open output", e);
+            return null;
+        } catch (SecurityException e) {
+            Log.e(MmsService.TAG, "Writing PDU to downloader: can't open output", e);
+            return null;
+        }
     }
 
     @Override
@@ -128,5 +192,14 @@ class DownloadRequest extends MmsRequest {
 
     private DownloadRequest(Parcel in) {
         super(in);
+        mSubId = in.readInt();
+        mUserInitiated = in.readByte() != 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel parcel, int flags) {
+        super.writeToParcel(parcel, flags);
+        parcel.writeInt(mSubId);
+        parcel.writeByte((byte) (mUserInitiated ? 1 : 0));
     }
 }
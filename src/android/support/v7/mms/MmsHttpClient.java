@@ -26,7 +26,6 @@ import android.text.TextUtils;
 import android.util.Base64;
 import android.util.Log;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -80,6 +79,9 @@ public class MmsHttpClient {
     // The possible NAI system property name
     private static final String NAI_PROPERTY = "persist.radio.cdma.nai";
 
+    // Size of the chunks the response body is copied in
+    private static final int RESPONSE_BUFFER_SIZE = 8 * 1024;
+
     private final Context mContext;
     private final TelephonyManager mTelephonyManager;
 
@@ -104,7 +106,7 @@ public class MmsHttpClient {
      * @param proxyHost The proxy host
      * @param proxyPort The proxy port
      * @param mmsConfig The MMS config to use
-     * @param userAgent The user agent header value
+     * @param userAgent The User-Agent header value
      * @param uaProfUrl The UA Prof URL header value
      * @return The HTTP response body
      * @throws MmsHttpException For any failures
@@ -112,11 +114,34 @@ public class MmsHttpClient {
     public byte[] execute(String urlString, byte[] pdu, String method, boolean isProxySet,
             String proxyHost, int proxyPort, Bundle mmsConfig, String userAgent, String uaProfUrl)
             throws MmsHttpException {
+        final ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
+        execute(urlString, pdu, method, isProxySet, proxyHost, proxyPort, mmsConfig, userAgent,
+                uaProfUrl, byteOut);
+        return byteOut.toByteArray();
+    }
+
+    /**
+     * Execute an MMS HTTP request, streaming the response body to an output stream rather than
+     * collecting it in memory.
+     *
+     * The connection is left open after a successful request, so that the platform keeps it
+     * alive for the next request to the same MMSC or proxy instead of setting up a new TCP
+     * connection for each message of a burst.
+     *
+     * @param responseBody The stream to write the HTTP response body to, which is left open
+     * @return The size of the HTTP response body
+     * @throws MmsHttpException For any failures, including failing to write the response body
+     * @see #execute(String, byte[], String, boolean, String, int, Bundle, String, String)
+     */
+    public long execute(String urlString, byte[] pdu, String method, boolean isProxySet,
+            String proxyHost, int proxyPort, Bundle mmsConfig, String userAgent, String uaProfUrl,
+            OutputStream responseBody) throws MmsHttpException {
         Log.d(MmsService.TAG, "HTTP: " + method + " " + Utils.redactUrlForNonVerbose(urlString)
                 + (isProxySet ? (", proxy=" + proxyHost + ":" + proxyPort) : "")
                 + ", PDU size=" + (pdu != null ? pdu.length : 0));
         checkMethod(method);
         HttpURLConnection connection = null;
+        boolean reusable = false;
         try {
             Proxy proxy = Proxy.NO_PROXY;
             if (isProxySet) {
@@ -191,18 +216,22 @@ public class MmsHttpClient {
             if (responseCode / 100 != 2) {
                 throw new MmsHttpException(responseCode, responseMessage);
             }
-            final InputStream in = new BufferedInputStream(connection.getInputStream());
-            final ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
-            final byte[] buf = new byte[4096];
+            final InputStream in = connection.getInputStream();
+            final byte[] buf = new byte[RESPONSE_BUFFER_SIZE];
+            long responseSize = 0;
             int count = 0;
-            while ((count = in.read(buf)) > 0) {
-                byteOut.write(buf, 0, count);
+            try {
+                while ((count = in.read(buf)) > 0) {
+                    responseBody.write(buf, 0, count);
+                    responseSize += count;
+                }
+            } finally {
+                in.close();
             }
-            in.close();
-            final byte[] responseBody = byteOut.toByteArray();
-            Log.d(MmsService.TAG, "HTTP: response size="
-                    + (responseBody != null ? responseBody.length : 0));
-            return responseBody;
+            // The whole body was read, so the connection can go back to the keep-alive pool
+            reusable = true;
+            Log.d(MmsService.TAG, "HTTP: response size=" + responseSize);
+            return responseSize;
         } catch (MalformedURLException e) {
             final String redactedUrl = Utils.redactUrlForNonVerbose(urlString);
             Log.e(MmsService.TAG, "HTTP: invalid URL " + redactedUrl, e);
@@ -215,7 +244,7 @@ public class MmsHttpClient {
             Log.e(MmsService.TAG, "HTTP: IO failure", e);
             throw new MmsHttpException(0/*statusCode*/, e);
         } finally {
-            if (connection != null) {
+            if (connection != null && !reusable) {
                 connection.disconnect();
             }
         }
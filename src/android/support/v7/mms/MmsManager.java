@@ -157,14 +157,32 @@ public class MmsManager {
      */
     public static void downloadMultimediaMessage(int subId, Context context, String locationUrl,
             Uri contentUri, PendingIntent downloadedIntent) {
+        downloadMultimediaMessage(subId, context, locationUrl, contentUri, downloadedIntent,
+                false/*userInitiated*/);
+    }
+
+    /**
+     * Download MMS via platform MMS API (if platform supports and not forced to
+     * use legacy APIs) or legacy APIs
+     *
+     * @param subId the subscription ID of the SIM to use
+     * @param context the Context to use
+     * @param contentUri the content URI of the PDU to be sent
+     * @param locationUrl the optional location URL to use for sending
+     * @param downloadedIntent the pending intent for returning results
+     * @param userInitiated whether the user asked for the download; the legacy APIs run these
+     *                      ahead of automatic downloads
+     */
+    public static void downloadMultimediaMessage(int subId, Context context, String locationUrl,
+            Uri contentUri, PendingIntent downloadedIntent, boolean userInitiated) {
         if (Utils.hasMmsApi() && !sForceLegacyMms) {
             subId = Utils.getEffectiveSubscriptionId(subId);
             final SmsManager smsManager = Utils.getSmsManager(subId);
             smsManager.downloadMultimediaMessage(context, locationUrl, contentUri,
                     getConfigOverrides(subId), downloadedIntent);
         } else {
-            MmsService.startRequest(context,
-                    new DownloadRequest(locationUrl, contentUri, downloadedIntent));
+            MmsService.startRequest(context, new DownloadRequest(locationUrl, contentUri,
+                    downloadedIntent, subId, userInitiated));
         }
     }
 
@@ -25,14 +25,15 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.os.Parcel;
 import android.os.Parcelable;
-import androidx.appcompat.mms.pdu.GenericPdu;
-import androidx.appcompat.mms.pdu.PduHeaders;
-import androidx.appcompat.mms.pdu.PduParser;
-import androidx.appcompat.mms.pdu.SendConf;
 import android.telephony.SmsManager;
 import android.text.TextUtils;
 import android.util.Log;
 
+import com.android.messaging.mmslib.pdu.GenericPdu;
+import com.android.messaging.mmslib.pdu.PduHeaders;
+import com.android.messaging.mmslib.pdu.PduParser;
+import com.android.messaging.mmslib.pdu.SendConf;
+
 import java.lang.reflect.Method;
 import java.net.Inet4Address;
 import java.net.InetAddress;
@@ -73,7 +74,8 @@ abstract class MmsRequest implements Parcelable {
      * @param mmsConfig The carrier configuration values to use
      * @param userAgent The User-Agent header value
      * @param uaProfUrl The UA Prof URL header value
-     * @return The HTTP response data
+     * @return The HTTP response data, or null if the request already transferred it to the
+     *         caller while receiving it
      * @throws MmsHttpException If any network error happens
      */
     protected abstract byte[] doHttp(Context context, MmsNetworkManager netMgr,
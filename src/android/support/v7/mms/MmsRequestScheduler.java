@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.appcompat.mms;
+
+import android.util.SparseIntArray;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs MMS requests on a thread pool, with a bound on the requests running at once for each SIM
+ * since they all share its MMS network. Requests the user asked for go ahead of the automatic
+ * ones still waiting, so a tap on "download" isn't stuck behind a burst of auto-downloads;
+ * otherwise requests start in the order they came in.
+ */
+class MmsRequestScheduler {
+    /**
+     * A request waiting for a thread
+     */
+    private static class PendingRequest {
+        final int mSubId;
+        final Runnable mRunnable;
+
+        PendingRequest(final int subId, final Runnable runnable) {
+            mSubId = subId;
+            mRunnable = runnable;
+        }
+    }
+
+    private final ExecutorService mExecutor;
+    private final int mThreadPoolSize;
+    private final int mMaxRequestsPerSub;
+
+    // Waiting requests, guarded by this
+    private final ArrayDeque<PendingRequest> mUserRequests = new ArrayDeque<>();
+    private final ArrayDeque<PendingRequest> mAutoRequests = new ArrayDeque<>();
+    // Running request counts, in total and by subscription id, guarded by this
+    private int mRunningCount;
+    private final SparseIntArray mRunningCountBySub = new SparseIntArray();
+    private boolean mShutdown;
+
+    /**
+     * @param threadPoolSize the most requests to run at once
+     * @param maxRequestsPerSub the most requests to run at once on the same SIM
+     */
+    MmsRequestScheduler(final int threadPoolSize, final int maxRequestsPerSub) {
+        mExecutor = Executors.newFixedThreadPool(threadPoolSize);
+        mThreadPoolSize = threadPoolSize;
+        mMaxRequestsPerSub = maxRequestsPerSub;
+    }
+
+    /**
+     * Schedule a request
+     *
+     * @param subId the subscription id of the SIM the request uses
+     * @param userInitiated whether the user asked for the request, rather than it being made
+     *                      automatically
+     * @param runnable runs the request
+     * @throws RejectedExecutionException if the scheduler was shut down
+     */
+    synchronized void execute(final int subId, final boolean userInitiated,
+            final Runnable runnable) {
+        if (mShutdown) {
+            throw new RejectedExecutionException("Scheduler shut down");
+        }
+        final PendingRequest request = new PendingRequest(subId, runnable);
+        if (userInitiated) {
+            mUserRequests.add(request);
+        } else {
+            mAutoRequests.add(request);
+        }
+        dispatch();
+    }
+
+    /**
+     * Stop taking requests. Requests already scheduled still run.
+     */
+    synchronized void shutdown() {
+        mShutdown = true;
+        if (mUserRequests.isEmpty() && mAutoRequests.isEmpty()) {
+            mExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Start waiting requests while there are free threads for them
+     */
+    private synchronized void dispatch() {
+        while (mRunningCount < mThreadPoolSize) {
+            PendingRequest request = pollRunnable(mUserRequests);
+            if (request == null) {
+                request = pollRunnable(mAutoRequests);
+            }
+            if (request == null) {
+                break;
+            }
+            start(request);
+        }
+        if (mShutdown && mUserRequests.isEmpty() && mAutoRequests.isEmpty()) {
+            mExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Take the first request whose SIM isn't already running as many requests as it may
+     */
+    private PendingRequest pollRunnable(final ArrayDeque<PendingRequest> requests) {
+        final Iterator<PendingRequest> iterator = requests.iterator();
+        while (iterator.hasNext()) {
+            final PendingRequest request = iterator.next();
+            if (mRunningCountBySub.get(request.mSubId) < mMaxRequestsPerSub) {
+                iterator.remove();
+                return request;
+            }
+        }
+        return null;
+    }
+
+    private void start(final PendingRequest request) {
+        mRunningCount++;
+        mRunningCountBySub.put(request.mSubId, mRunningCountBySub.get(request.mSubId) + 1);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    request.mRunnable.run();
+                } finally {
+                    finish(request);
+                }
+            }
+        });
+    }
+
+    private synchronized void finish(final PendingRequest request) {
+        mRunningCount--;
+        mRunningCountBySub.put(request.mSubId, mRunningCountBySub.get(request.mSubId) - 1);
+        dispatch();
+    }
+}
@@ -38,6 +38,8 @@ public class MmsService extends Service {
 
     //The default number of threads allowed to run MMS requests
     private static final int DEFAULT_THREAD_POOL_SIZE = 4;
+    // The most downloads to run at once on the MMS network of one SIM
+    private static final int MAX_DOWNLOADS_PER_SUB = 3;
     // Delay before stopping the service
     private static final int SERVICE_STOP_DELAY_MILLIS = 2000;
 
@@ -235,10 +237,11 @@ public class MmsService extends Service {
         return pid == getMyPid();
     }
 
-    // Request execution thread pools. One thread pool for sending and one for downloading.
-    // The size of the thread pool controls the parallelism of request execution.
+    // Request execution thread pools. One thread pool for sending and one scheduler for
+    // downloading. The size of the thread pool controls the parallelism of request execution.
     // See {@link setThreadPoolSize}
-    private ExecutorService[] mExecutors = new ExecutorService[2];
+    private ExecutorService mSendExecutor;
+    private MmsRequestScheduler mDownloadScheduler;
 
     // Active request count
     private int mActiveRequestCount;
@@ -285,9 +288,9 @@ public class MmsService extends Service {
 
         ensureLoaders(this);
 
-        for (int i = 0; i < mExecutors.length; i++) {
-            mExecutors[i] = Executors.newFixedThreadPool(sThreadPoolSize);
-        }
+        mSendExecutor = Executors.newFixedThreadPool(sThreadPoolSize);
+        mDownloadScheduler = new MmsRequestScheduler(sThreadPoolSize,
+                Math.min(sThreadPoolSize, MAX_DOWNLOADS_PER_SUB));
 
         mNetworkManager = new MmsNetworkManager(this);
 
@@ -301,9 +304,8 @@ public class MmsService extends Service {
     public void onDestroy() {
         super.onDestroy();
 
-        for (ExecutorService executor : mExecutors) {
-            executor.shutdown();
-        }
+        mSendExecutor.shutdown();
+        mDownloadScheduler.shutdown();
     }
 
     @Override
@@ -379,9 +381,14 @@ public class MmsService extends Service {
      * @param runnable The runnable to run the request in thread pool
      */
     private void retainService(final MmsRequest request, final Runnable runnable) {
-        final ExecutorService executor = getRequestExecutor(request);
         synchronized (this) {
-            executor.execute(runnable);
+            if (request instanceof DownloadRequest) {
+                final DownloadRequest downloadRequest = (DownloadRequest) request;
+                mDownloadScheduler.execute(downloadRequest.getSubId(),
+                        downloadRequest.isUserInitiated(), runnable);
+            } else {
+                mSendExecutor.execute(runnable);
+            }
             mActiveRequestCount++;
         }
     }
@@ -448,16 +455,6 @@ public class MmsService extends Service {
         }
     }
 
-    private ExecutorService getRequestExecutor(final MmsRequest request) {
-        if (request instanceof SendRequest) {
-            // Send
-            return mExecutors[0];
-        } else {
-            // Download
-            return mExecutors[1];
-        }
-    }
-
     @Override
     public IBinder onBind(Intent intent) {
         return null;
@@ -50,6 +50,7 @@ import com.android.messaging.util.LogUtil;
 import com.android.messaging.util.OsUtil;
 import com.android.messaging.util.PendingIntentConstants;
 import com.android.messaging.util.PhoneUtils;
+import com.android.messaging.util.StartupScheduler;
 import com.android.messaging.util.Trace;
 import com.google.common.annotations.VisibleForTesting;
 import com.sprd.messaging.smart.ISmartSdk;
@@ -154,19 +155,62 @@ public class BugleApplication extends Application implements UncaughtExceptionHa
 
         maybeStartProfiling();
 
-        BugleApplication.updateAppConfig(context);
-
+        // Only what must be set up before anything else in the app runs is critical. Config
+        // that receivers and the first screen read loads right after it in the background, the
+        // rest waits for the first frame so that it doesn't slow down showing the UI
+        final StartupScheduler scheduler = new StartupScheduler();
+        scheduler.add("updateAppConfig", StartupScheduler.CRITICAL, new Runnable() {
+            @Override
+            public void run() {
+                BugleApplication.updateAppConfig(context);
+            }
+        });
         // Initialize MMS lib
-        initMmsLib(context, bugleGservices, carrierConfigValuesLoader);
+        scheduler.add("initMmsLib", StartupScheduler.CRITICAL, new Runnable() {
+            @Override
+            public void run() {
+                initMmsLib(context, bugleGservices, carrierConfigValuesLoader);
+            }
+        });
         // Initialize APN database
-        ApnDatabase.initializeAppContext(context);
-        // Fixup messages in flight if we crashed and send any pending
-        dataModel.onApplicationCreated();
+        scheduler.add("apnDatabase", StartupScheduler.CRITICAL, new Runnable() {
+            @Override
+            public void run() {
+                ApnDatabase.initializeAppContext(context);
+            }
+        });
         // Register carrier config change receiver
         if (OsUtil.isAtLeastM()) {
-            registerCarrierConfigChangeReceiver(context);
+            scheduler.add("carrierConfigReceiver", StartupScheduler.CRITICAL, new Runnable() {
+                @Override
+                public void run() {
+                    registerCarrierConfigChangeReceiver(context);
+                }
+            });
         }
+        // Handle shared prefs upgrade & Load MMS Configuration
+        scheduler.add("prefsUpgrade", StartupScheduler.EARLY_BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                maybeHandleSharedPrefsUpgrade(factory);
+            }
+        });
+        scheduler.add("mmsConfig", StartupScheduler.EARLY_BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                MmsConfig.load();
+            }
+        }, "prefsUpgrade");
+        scheduler.add("smartSdk", StartupScheduler.DEFERRED_BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                initSmartSdk();//by smart message
+            }
+        });
+        // Fixup messages in flight if we crashed and send any pending
+        dataModel.onApplicationCreated(scheduler);
 
+        scheduler.runCriticalTasks();
         Trace.endSection();
     }
 
@@ -217,16 +261,6 @@ public class BugleApplication extends Application implements UncaughtExceptionHa
         SmsReceiver.updateSmsReceiveHandler(context);
     }
 
-    // Called from thread started in FactoryImpl.register() (i.e. not run in tests)
-    public void initializeAsync(final Factory factory) {
-        // Handle shared prefs upgrade & Load MMS Configuration
-        Trace.beginSection("app.initializeAsync");
-        maybeHandleSharedPrefsUpgrade(factory);
-        MmsConfig.load();
-        initSmartSdk();//by smart message
-        Trace.endSection();
-    }
-
     @Override
     public void onLowMemory() {
         super.onLowMemory();
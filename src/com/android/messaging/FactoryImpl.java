@@ -17,7 +17,6 @@
 package com.android.messaging;
 
 import android.content.Context;
-import android.os.Process;
 import android.telephony.SmsManager;
 import android.util.CheckTime;
 import android.util.SparseArray;
@@ -149,15 +148,6 @@ class FactoryImpl extends Factory {
         sInitialized = true;
 
         mApplication.initializeSync(this);
-
-        final Thread asyncInitialization = new Thread() {
-            @Override
-            public void run() {
-                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
-                mApplication.initializeAsync(FactoryImpl.this);
-            }
-        };
-        asyncInitialization.start();
     }
 
     @Override
@@ -20,10 +20,15 @@ import android.content.Context;
 import android.content.CursorLoader;
 import android.net.Uri;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Extension to basic cursor loader that has an attached binding id
  */
 public class BoundCursorLoader extends CursorLoader {
+    // Number of content changes delivered to loaders, each of which makes a started loader requery
+    private static final AtomicLong sContentChangedCount = new AtomicLong();
+
     private final String mBindingId;
 
     /**
@@ -43,4 +48,14 @@ public class BoundCursorLoader extends CursorLoader {
     public String getBindingId() {
         return mBindingId;
     }
+
+    @Override
+    public void onContentChanged() {
+        sContentChangedCount.incrementAndGet();
+        super.onContentChanged();
+    }
+
+    static long getContentChangedCount() {
+        return sContentChangedCount.get();
+    }
 }
@@ -25,7 +25,6 @@ import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
 import android.os.ParcelFileDescriptor;
-import androidx.collection.ArrayMap;
 import androidx.collection.SimpleArrayMap;
 import android.text.TextUtils;
 import android.util.Log;
@@ -41,6 +40,7 @@ import com.android.messaging.datamodel.data.ConversationListItemData;
 import com.android.messaging.datamodel.data.MessageData;
 import com.android.messaging.datamodel.data.MessagePartData;
 import com.android.messaging.datamodel.data.ParticipantData;
+import com.android.messaging.datamodel.media.MediaDiskCache;
 import com.android.messaging.sms.MmsUtils;
 import com.android.messaging.ui.UIIntents;
 import com.android.messaging.util.Assert;
@@ -62,6 +62,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 //add for bug 504075 begin
@@ -84,9 +85,6 @@ public class BugleDatabaseOperations {
 
     private static final String TAG = LogUtil.BUGLE_DATABASE_TAG;
 
-    // Global cache of phone numbers -> participant id mapping since this call is expensive.
-    private static final ArrayMap<String, String> sNormalizedPhoneNumberToParticipantIdCache =
-            new ArrayMap<String, String>();
 
     /**
      * Convert list of recipient strings (email/phone number) into list of ConversationParticipants
@@ -555,15 +553,20 @@ public class BugleDatabaseOperations {
             // Delete existing messages
             if (cutoffTimestamp == Long.MAX_VALUE) {
                 // Delete parts and messages
+                invalidateCachedPartMedia(dbWrapper, PartColumns.CONVERSATION_ID + "=?",
+                        new String[] { conversationId });
                 dbWrapper.delete(DatabaseHelper.MESSAGES_TABLE,
                         MessageColumns.CONVERSATION_ID + "=?", new String[] { conversationId });
                 conversationMessagesDeleted = true;
             } else {
                 // Delete all messages prior to the cutoff
-                dbWrapper.delete(DatabaseHelper.MESSAGES_TABLE,
-                        MessageColumns.CONVERSATION_ID + "=? AND "
-                                + MessageColumns.RECEIVED_TIMESTAMP + "<=?",
-                                new String[] { conversationId, Long.toString(cutoffTimestamp) });
+                final String cutoffSelection = MessageColumns.CONVERSATION_ID + "=? AND "
+                        + MessageColumns.RECEIVED_TIMESTAMP + "<=?";
+                final String[] cutoffArgs =
+                        new String[] { conversationId, Long.toString(cutoffTimestamp) };
+                invalidateCachedPartMedia(dbWrapper, getPartsOfMessagesSelection(cutoffSelection),
+                        cutoffArgs);
+                dbWrapper.delete(DatabaseHelper.MESSAGES_TABLE, cutoffSelection, cutoffArgs);
 
                 // Delete any draft message. The delete above may not always include the draft,
                 // because under certain scenarios (e.g. sending messages in progress), the draft
@@ -571,12 +574,14 @@ public class BugleDatabaseOperations {
                 // sort timestamp. Because of how the sms/mms provider works on some newer
                 // devices, it's important that we never delete all the messages in a conversation
                 // without also deleting the conversation itself (see b/20262204 for details).
-                dbWrapper.delete(DatabaseHelper.MESSAGES_TABLE,
-                        MessageColumns.STATUS + "=? AND " + MessageColumns.CONVERSATION_ID + "=?",
-                        new String[] {
-                            Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_DRAFT),
-                            conversationId
-                        });
+                final String[] draftArgs = new String[] {
+                    Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_DRAFT),
+                    conversationId
+                };
+                invalidateCachedPartMedia(dbWrapper,
+                        getPartsOfMessagesSelection(DRAFT_MESSAGE_SELECTION), draftArgs);
+                dbWrapper.delete(DatabaseHelper.MESSAGES_TABLE, DRAFT_MESSAGE_SELECTION,
+                        draftArgs);
 
                 // Check to see if there are any messages left in the conversation
                 final long count = dbWrapper.queryNumEntries(DatabaseHelper.MESSAGES_TABLE,
@@ -690,8 +695,15 @@ public class BugleDatabaseOperations {
         return conversationCnt;
     }
 
+    private static final String DRAFT_MESSAGE_SELECTION =
+            MessageColumns.STATUS + "=? AND " + MessageColumns.CONVERSATION_ID + "=?";
+
+    private static final String DELETE_CONVERSATION_MESSAGES_SQL =
+            "DELETE FROM " + DatabaseHelper.MESSAGES_TABLE
+            + " WHERE " + MessageColumns.CONVERSATION_ID + "=?";
+
     @DoesNotRunOnMainThread
-    public static boolean deleteMultiConversation(final DatabaseWrapper dbWrapper, String[] conversationIds, final long cutoffTimestamp, long smax, long mmax) {
+    public static boolean deleteMultiConversation(final DatabaseWrapper dbWrapper, final String[] conversationIds, final long cutoffTimestamp, long smax, long mmax) {
         Assert.isNotMainThread();
         dbWrapper.beginTransaction();
         boolean conversationDeleted = false;
@@ -704,6 +716,8 @@ public class BugleDatabaseOperations {
 
         try {
             if(szConversationIdCondition == null ){
+                invalidateCachedPartMedia(dbWrapper,
+                        getPartsOfMessagesSelection("conversation_id <= ?"), szMax);
                 dbWrapper.delete( DatabaseHelper.MESSAGES_TABLE,  "conversation_id <= ?" ,   szMax);
                 long count = dbWrapper.queryNumEntries(DatabaseHelper.MESSAGES_TABLE,
                         "conversation_id <= ?",  szMax);
@@ -720,17 +734,30 @@ public class BugleDatabaseOperations {
                     showToast(R.string.conversation_deleteAll_failed);
                 }
             }else{
+                for (final String szCondition : szConversationIdCondition) {
+                    if (!TextUtils.isEmpty(szCondition)) {
+                        invalidateCachedPartMedia(dbWrapper,
+                                PartColumns.CONVERSATION_ID + " in (" + szCondition + ")", null);
+                    }
+                }
+                // Delete the messages of all conversations with one compiled statement, the
+                // chunked IN conditions below are only used to check and delete conversations
+                dbWrapper.executeUpdateDeleteBatchInTransaction(DELETE_CONVERSATION_MESSAGES_SQL,
+                        conversationIds.length, new DatabaseWrapper.BatchBinder() {
+                            @Override
+                            public void bindRow(final SQLiteStatement statement, final int row) {
+                                statement.bindString(1, conversationIds[row]);
+                            }
+                        });
                 for( String szCondition  : szConversationIdCondition){
                     if( !TextUtils.isEmpty(szCondition)){
                         long count;
                         if(smax == 0 && mmax == 0){
                             szSingleConversationIdCondition = " conversation_id  in (" + szCondition + ")" ;
-                            dbWrapper.delete(DatabaseHelper.MESSAGES_TABLE,  szSingleConversationIdCondition,  null);
                             count = dbWrapper.queryNumEntries(DatabaseHelper.MESSAGES_TABLE,
                                     szSingleConversationIdCondition, null);
                         }else {
                             szSingleConversationIdCondition = " conversation_id  in (" + szCondition +")  and conversation_id <= ?" ;
-                            dbWrapper.delete(DatabaseHelper.MESSAGES_TABLE,  szSingleConversationIdCondition,  szMax);
                             count = dbWrapper.queryNumEntries(DatabaseHelper.MESSAGES_TABLE,
                                     szSingleConversationIdCondition, szMax);
                         }
@@ -1286,9 +1313,17 @@ public class BugleDatabaseOperations {
     @DoesNotRunOnMainThread
     public static void clearParticipantIdCache() {
         Assert.isNotMainThread();
-        synchronized (sNormalizedPhoneNumberToParticipantIdCache) {
-            sNormalizedPhoneNumberToParticipantIdCache.clear();
-        }
+        ParticipantIdCache.get().clear();
+    }
+
+    /**
+     * Fill the phone number to participant id cache from the participants table, so that the
+     * first messages received after startup don't each have to query it.
+     */
+    @DoesNotRunOnMainThread
+    public static void warmParticipantIdCache(final DatabaseWrapper dbWrapper) {
+        Assert.isNotMainThread();
+        ParticipantIdCache.get().warm(dbWrapper);
     }
 
     @DoesNotRunOnMainThread
@@ -1622,12 +1657,79 @@ public class BugleDatabaseOperations {
      */
     public static void deletePartsForMessage(final DatabaseWrapper dbWrapper,
             final String messageId) {
+        invalidateCachedPartMedia(dbWrapper, PartColumns.MESSAGE_ID + "=?",
+                new String[] { messageId });
         final int cnt = dbWrapper.delete(DatabaseHelper.PARTS_TABLE,
                 PartColumns.MESSAGE_ID + " =?",
                 new String[] { messageId });
         Assert.inRange(cnt, 0, Integer.MAX_VALUE);
     }
 
+    /**
+     * Drop the on-disk thumbnails of the parts matching the selection, ahead of deleting the
+     * parts. Only the content uris are read here, the cache files are deleted in the background.
+     */
+    private static void invalidateCachedPartMedia(final DatabaseWrapper dbWrapper,
+            final String selection, final String[] selectionArgs) {
+        invalidateCachedPartMedia(dbWrapper, selection, selectionArgs, null);
+    }
+
+    /**
+     * Drop the on-disk thumbnails of the parts matching the selection, except those of the
+     * content uris to keep
+     */
+    private static void invalidateCachedPartMedia(final DatabaseWrapper dbWrapper,
+            final String selection, final String[] selectionArgs, final Set<Uri> keepUris) {
+        final ArrayList<Uri> uris = new ArrayList<Uri>();
+        Cursor cursor = null;
+        try {
+            cursor = dbWrapper.query(DatabaseHelper.PARTS_TABLE,
+                    new String[] { PartColumns.CONTENT_URI },
+                    "(" + selection + ") AND " + PartColumns.CONTENT_URI + " IS NOT NULL",
+                    selectionArgs, null, null, null);
+            while (cursor.moveToNext()) {
+                final Uri uri = Uri.parse(cursor.getString(0));
+                if (keepUris == null || !keepUris.contains(uri)) {
+                    uris.add(uri);
+                }
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        MediaDiskCache.get().invalidateInBackground(uris);
+    }
+
+    /**
+     * Selection of the parts of the messages matching a selection on the messages table, so
+     * the thumbnails dropped are those of exactly the messages about to be deleted
+     */
+    private static String getPartsOfMessagesSelection(final String messageSelection) {
+        return PartColumns.MESSAGE_ID + " IN (SELECT " + MessageColumns._ID + " FROM "
+                + DatabaseHelper.MESSAGES_TABLE + " WHERE " + messageSelection + ")";
+    }
+
+    /**
+     * Drop the on-disk thumbnails of the parts of the messages, ahead of deleting the messages
+     * (which cascade deletes their parts)
+     */
+    public static void invalidateCachedMessageMedia(final DatabaseWrapper dbWrapper,
+            final long[] messageIds) {
+        for (int start = 0; start < messageIds.length; start += MAX_LIMIT) {
+            final StringBuilder selection = new StringBuilder(PartColumns.MESSAGE_ID + " IN (");
+            final int end = Math.min(start + MAX_LIMIT, messageIds.length);
+            for (int i = start; i < end; i++) {
+                if (i > start) {
+                    selection.append(',');
+                }
+                selection.append(messageIds[i]);
+            }
+            selection.append(')');
+            invalidateCachedPartMedia(dbWrapper, selection.toString(), null);
+        }
+    }
+
     /**
      * Delete one message and update the conversation (if necessary).
      *
@@ -1644,6 +1746,8 @@ public class BugleDatabaseOperations {
             int count = 0;
             if (message != null) {
                 final String conversationId = message.getConversationId();
+                invalidateCachedPartMedia(dbWrapper, PartColumns.MESSAGE_ID + "=?",
+                        new String[] { messageId });
                 // Delete message
                 count = dbWrapper.delete(DatabaseHelper.MESSAGES_TABLE,
                         MessageColumns._ID + "=?", new String[] { messageId });
@@ -1804,7 +1908,6 @@ public class BugleDatabaseOperations {
             final DatabaseWrapper db, final String conversationId) {
         Assert.isNotMainThread();
         final SQLiteStatement query = db.getStatementInTransaction(
-                DatabaseWrapper.INDEX_QUERY_CONVERSATIONS_LATEST_MESSAGE,
                 QUERY_CONVERSATIONS_LATEST_MESSAGE_SQL);
         query.clearBindings();
         query.bindString(1, conversationId);
@@ -1826,7 +1929,6 @@ public class BugleDatabaseOperations {
             final DatabaseWrapper db, final String conversationId) {
         Assert.isNotMainThread();
         final SQLiteStatement query = db.getStatementInTransaction(
-                DatabaseWrapper.INDEX_QUERY_MESSAGES_LATEST_MESSAGE,
                 QUERY_MESSAGES_LATEST_MESSAGE_SQL);
         query.clearBindings();
         query.bindString(1, conversationId);
@@ -1946,13 +2048,23 @@ public class BugleDatabaseOperations {
                 BugleDatabaseOperations.deletePartsForMessage(dbWrapper, message.getMessageId());
             }
             /* Add by SPRD for bug 563344 End */
-            // Delete existing draft (cascade deletes parts)
-            dbWrapper.delete(DatabaseHelper.MESSAGES_TABLE,
-                    MessageColumns.STATUS + "=? AND " + MessageColumns.CONVERSATION_ID + "=?",
-                    new String[] {
-                        Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_DRAFT),
-                        conversationId
-                    });
+            // Delete existing draft (cascade deletes parts), keeping the thumbnails of the
+            // attachments the new draft still has
+            final String[] draftArgs = new String[] {
+                Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_DRAFT),
+                conversationId
+            };
+            final Set<Uri> keepUris = new HashSet<Uri>();
+            if (message != null) {
+                for (final MessagePartData part : message.getParts()) {
+                    if (part.getContentUri() != null) {
+                        keepUris.add(part.getContentUri());
+                    }
+                }
+            }
+            invalidateCachedPartMedia(dbWrapper,
+                    getPartsOfMessagesSelection(DRAFT_MESSAGE_SELECTION), draftArgs, keepUris);
+            dbWrapper.delete(DatabaseHelper.MESSAGES_TABLE, DRAFT_MESSAGE_SELECTION, draftArgs);
 
             // Write new draft
             if (updateMode == UPDATE_MODE_ADD_DRAFT && message != null
@@ -2059,7 +2171,7 @@ public class BugleDatabaseOperations {
     /**
      * Get string used as canonical recipient for participant cache for sub id
      */
-    private static String getCanonicalRecipientFromSubId(final int subId) {
+    static String getCanonicalRecipientFromSubId(final int subId) {
         return "SELF(" + subId + ")";
     }
 
@@ -2073,10 +2185,7 @@ public class BugleDatabaseOperations {
     private static String getParticipantId(final DatabaseWrapper dbWrapper,
             final int subId, final String canonicalRecipient) {
         // First check our memory cache for the participant Id
-        String participantId;
-        synchronized (sNormalizedPhoneNumberToParticipantIdCache) {
-            participantId = sNormalizedPhoneNumberToParticipantIdCache.get(canonicalRecipient);
-        }
+        String participantId = ParticipantIdCache.get().get(canonicalRecipient);
 
         if (participantId != null) {
             return participantId;
@@ -2114,11 +2223,8 @@ public class BugleDatabaseOperations {
                 // We found an existing participant in the database
                 participantId = cursor.getString(0);
 
-                synchronized (sNormalizedPhoneNumberToParticipantIdCache) {
-                    // Add it to the cache for next time
-                    sNormalizedPhoneNumberToParticipantIdCache.put(canonicalRecipient,
-                            participantId);
-                }
+                // Add it to the cache for next time
+                ParticipantIdCache.get().put(canonicalRecipient, participantId);
             }
         } finally {
             if (cursor != null) {
@@ -2232,10 +2338,8 @@ public class BugleDatabaseOperations {
         participantId = Long.toString(participantRow);
         Assert.notNull(canonicalRecipient);
 
-        synchronized (sNormalizedPhoneNumberToParticipantIdCache) {
-            // Now that we've inserted it, add it to our cache
-            sNormalizedPhoneNumberToParticipantIdCache.put(canonicalRecipient, participantId);
-        }
+        // Now that we've inserted it, add it to our cache
+        ParticipantIdCache.get().put(canonicalRecipient, participantId);
 
         return participantId;
     }
@@ -2251,6 +2355,8 @@ public class BugleDatabaseOperations {
                         ParticipantColumns.SUB_ID + "=?",
                 new String[] { destination, Integer.toString(
                         ParticipantData.OTHER_THAN_SELF_SUB_ID) });
+        // Let the next lookup read the participant again
+        ParticipantIdCache.get().remove(destination);
     }
     @DoesNotRunOnMainThread
     public static void updateParticipant(final DatabaseWrapper dbWrapper,
@@ -2555,7 +2661,13 @@ public class BugleDatabaseOperations {
             final DatabaseWrapper db = DataModel.get().getDatabase();
             String EscaseString = charEscaseEncode(searchstring);
             LogUtil.d(TAG, "4QureyMessaging EscaseString:["+EscaseString+"]");
-            cursor = db.rawQuery(QUREY_MESSAGING_SQL, new String []{"%"+EscaseString+"%"});
+            if (MessageSearchIndex.canUseIndex(searchstring)) {
+                cursor = db.rawQuery(MessageSearchIndex.SEARCH_SQL, new String []{
+                        "%"+EscaseString+"%",
+                        MessageSearchIndex.buildMatchExpression(searchstring)});
+            } else {
+                cursor = db.rawQuery(QUREY_MESSAGING_SQL, new String []{"%"+EscaseString+"%"});
+            }
         }catch(Exception e){
             LogUtil.e("QureyMessaging", "QureyMessaging",e);
         }
@@ -2564,7 +2676,8 @@ public class BugleDatabaseOperations {
 
     private static  final String UNUSEFULS = " NULL AS thread_id , NULL AS _id, NULL AS sub, NULL AS msg_type, NULL AS box_type, NULL AS address ";
 
-    private static  final String QUREY_MESSAGING_SQL =
+    @VisibleForTesting
+    static  final String QUREY_MESSAGING_SQL =
 //Contact
         " SELECT conversations._id AS conv_id, conversations.name AS name, participants.send_destination AS body, NULL AS messages_id, " + UNUSEFULS
         +" FROM conversations"
@@ -2601,7 +2714,14 @@ public class BugleDatabaseOperations {
             final DatabaseWrapper db = DataModel.get().getDatabase();
             String EscaseString = charEscaseEncode(searchstring);
             LogUtil.d(TAG, "4QureyMessagingSuggest EscaseString:["+EscaseString+"]");
-            cursor = db.rawQuery(QUREY_MESSAGING_SUGGEST_SQL, new String []{"%"+EscaseString+"%"});
+            if (MessageSearchIndex.canUseIndex(searchstring)) {
+                cursor = db.rawQuery(QUREY_MESSAGING_SUGGEST_INDEXED_SQL, new String []{
+                        "%"+EscaseString+"%",
+                        MessageSearchIndex.buildMatchExpression(searchstring)});
+            } else {
+                cursor = db.rawQuery(QUREY_MESSAGING_SUGGEST_SQL,
+                        new String []{"%"+EscaseString+"%"});
+            }
         }catch(Exception e){
             LogUtil.e("QureyMessagingSuggest", "QureyMessagingSuggest",e);
         }
@@ -2614,7 +2734,7 @@ public class BugleDatabaseOperations {
     private static  final String SEARCH_FIELDS_3 = "messages.mms_subject";
     private static  final String SEARCH_FIELDS_4 = "parts.text";
 
-    private static  final String QUREY_MESSAGING_SUGGEST_SQL =
+    private static  final String QUREY_MESSAGING_SUGGEST_PARTICIPANTS_SQL =
         " SELECT "+ SEARCH_FIELDS_0 +" AS snippet"
         +" FROM conversations"
         +" LEFT JOIN conversation_participants ON (conversations._id = conversation_participants.conversation_id)"
@@ -2634,7 +2754,10 @@ public class BugleDatabaseOperations {
         +" LEFT JOIN conversation_participants ON (conversations._id = conversation_participants.conversation_id)"
         +" LEFT JOIN participants ON (conversation_participants.participant_id = participants._id)"
         +" WHERE conversations.sort_timestamp > 0 AND "+ SEARCH_FIELDS_2 +" LIKE ?1 escape '/' "
-        +" GROUP BY  "+ SEARCH_FIELDS_2
+        +" GROUP BY  "+ SEARCH_FIELDS_2;
+
+    private static  final String QUREY_MESSAGING_SUGGEST_SQL =
+        QUREY_MESSAGING_SUGGEST_PARTICIPANTS_SQL
         +" UNION"
         +" SELECT "+ SEARCH_FIELDS_3 +" AS snippet"
         +" FROM conversations"
@@ -2651,6 +2774,13 @@ public class BugleDatabaseOperations {
         +" GROUP BY  "+ SEARCH_FIELDS_4
         +" LIMIT 20";
 
+    // Same as QUREY_MESSAGING_SUGGEST_SQL, with message text and subjects from the search index
+    private static  final String QUREY_MESSAGING_SUGGEST_INDEXED_SQL =
+        QUREY_MESSAGING_SUGGEST_PARTICIPANTS_SQL
+        +" UNION"
+        + MessageSearchIndex.SUGGEST_MESSAGES_SQL
+        +" LIMIT 20";
+
     private static String charEscaseEncode(String text) {
         if (TextUtils.isEmpty(text)) {
             return "";
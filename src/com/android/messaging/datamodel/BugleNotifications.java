@@ -53,6 +53,7 @@ import android.text.style.ForegroundColorSpan;
 import android.text.style.StyleSpan;
 import android.text.style.TextAppearanceSpan;
 import android.util.Log;
+import android.util.LruCache;
 
 import androidx.collection.SimpleArrayMap;
 import androidx.core.app.NotificationCompat;
@@ -104,6 +105,7 @@ import com.android.messaging.util.RingtoneUtil;
 import com.android.messaging.util.ThreadUtil;
 import com.android.messaging.util.UriUtil;
 
+import java.io.PrintWriter;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -163,6 +165,18 @@ public class BugleNotifications {
 
     private static final Object mLock = new Object();
 
+    // Copies of the avatars shown with recent notifications, keyed by avatar uri and size, so a
+    // burst of messages from the same senders loads each avatar once. Bitmaps handed to the
+    // NotificationManager are never recycled, so they can be shared between notifications.
+    private static final int AVATAR_CACHE_MAX_BYTES = 2 * 1024 * 1024;
+    private static final LruCache<String, Bitmap> sAvatarCache =
+            new LruCache<String, Bitmap>(AVATAR_CACHE_MAX_BYTES) {
+                @Override
+                protected int sizeOf(final String key, final Bitmap value) {
+                    return value.getByteCount();
+                }
+            };
+
     // sLastMessageDingTime is a map between a conversation id and a time. It's used to keep track
     // of the time we last dinged a message for this conversation. When messages are coming in
     // at flurry, we don't want to over-ding the user.
@@ -210,7 +224,19 @@ public class BugleNotifications {
         }
     /*SPRD: modified for bug 499870 end*/
         Assert.isNotMainThread();
+        NotificationUpdateQueue.get().enqueue(silent, conversationId, coverage, subId);
+    }
+
+    /**
+     * Rebuild and post the notifications for one or more merged update requests, on the
+     * {@link NotificationUpdateQueue} thread.
+     * @param dirtyConversationIds Conversations whose messages or participants may have changed
+     * since the last update, or null if any may have
+     */
+    static void updateNow(final boolean silent, final String conversationId,
+            final int coverage, final int subId, final Set<String> dirtyConversationIds) {
         checkInitialized();
+        MessageNotificationState.invalidateFirstNames(dirtyConversationIds);
 
         if (MmsConfig.notifyAsSimColor()) {
             final SubscriptionManager subscriptionManager = SubscriptionManager.from(Factory.get().getApplicationContext());
@@ -631,61 +657,117 @@ public class BugleNotifications {
 
         if (state.mParticipantAvatarsUris != null) {
             final Uri avatarUri = state.mParticipantAvatarsUris.get(0);
-            final AvatarRequestDescriptor descriptor = new AvatarRequestDescriptor(avatarUri,
-                    sIconWidth, sIconHeight, OsUtil.isAtLeastL());
-            final MediaRequest<ImageResource> imageRequest = descriptor.buildSyncMediaRequest(
-                    context);
 
             synchronized (sPendingNotifications) {
                 sPendingNotifications.add(state);
             }
 
-            // Synchronously load the avatar.
-            final ImageResource avatarImage =
-                    MediaResourceManager.get().requestMediaResourceSync(imageRequest);
-            if (avatarImage != null) {
-                ImageResource avatarHiRes = null;
-                try {
-                    if (isWearCompanionAppInstalled()) {
-                        // For Wear users, we need to request a high-res avatar image to use as the
-                        // notification card background. If the sender has a contact photo, we'll
-                        // request the display photo from the Contacts provider. Otherwise, we ask
-                        // the local content provider for a hi-res version of the generic avatar
-                        // (e.g. letter with colored background).
-                        avatarHiRes = requestContactDisplayPhoto(context,
-                                getDisplayPhotoUri(avatarUri));
-                        if (avatarHiRes == null) {
-                            final AvatarRequestDescriptor hiResDesc =
-                                    new AvatarRequestDescriptor(avatarUri,
-                                    sWearableImageWidth,
-                                    sWearableImageHeight,
-                                    false /* cropToCircle */,
-                                    true /* isWearBackground */);
-                            avatarHiRes = MediaResourceManager.get().requestMediaResourceSync(
-                                    hiResDesc.buildSyncMediaRequest(context));
-                        }
-                    }
-
-                    // We have to make copies of the bitmaps to hand to the NotificationManager
-                    // because the bitmap in the ImageResource is managed and will automatically
-                    // get released.
-                    Bitmap avatarBitmap = Bitmap.createBitmap(avatarImage.getBitmap());
-                    Bitmap avatarHiResBitmap = (avatarHiRes != null) ?
-                            Bitmap.createBitmap(avatarHiRes.getBitmap()) : null;
-                    sendNotification(state, avatarBitmap, avatarHiResBitmap);
-                    return;
-                } finally {
-                    avatarImage.release();
-                    if (avatarHiRes != null) {
-                        avatarHiRes.release();
-                    }
-                }
+            final Bitmap avatarBitmap = getAvatarBitmap(context, avatarUri);
+            if (avatarBitmap != null) {
+                // For Wear users, we need a high-res avatar image to use as the notification
+                // card background.
+                final Bitmap avatarHiResBitmap = isWearCompanionAppInstalled() ?
+                        getAvatarHiResBitmap(context, avatarUri) : null;
+                sendNotification(state, avatarBitmap, avatarHiResBitmap);
+                return;
             }
         }
         // We have no avatar. Post the notification anyway.
         sendNotification(state, null, null);
     }
 
+    /**
+     * Returns the avatar to show as the notification icon, loading it synchronously unless it was
+     * shown with a recent notification.
+     */
+    private static Bitmap getAvatarBitmap(final Context context, final Uri avatarUri) {
+        final String key = getAvatarCacheKey(avatarUri, sIconWidth, sIconHeight);
+        Bitmap bitmap = sAvatarCache.get(key);
+        if (bitmap == null) {
+            final AvatarRequestDescriptor descriptor = new AvatarRequestDescriptor(avatarUri,
+                    sIconWidth, sIconHeight, OsUtil.isAtLeastL());
+            bitmap = copyAndRelease(MediaResourceManager.get().requestMediaResourceSync(
+                    descriptor.buildSyncMediaRequest(context)));
+            if (bitmap != null) {
+                sAvatarCache.put(key, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Returns the high-res avatar for the wearable card background. If the sender has a contact
+     * photo, we'll request the display photo from the Contacts provider. Otherwise, we ask the
+     * local content provider for a hi-res version of the generic avatar (e.g. letter with colored
+     * background).
+     */
+    private static Bitmap getAvatarHiResBitmap(final Context context, final Uri avatarUri) {
+        final String key = getAvatarCacheKey(avatarUri, sWearableImageWidth,
+                sWearableImageHeight);
+        Bitmap bitmap = sAvatarCache.get(key);
+        if (bitmap == null) {
+            ImageResource avatarHiRes = requestContactDisplayPhoto(context,
+                    getDisplayPhotoUri(avatarUri));
+            if (avatarHiRes == null) {
+                final AvatarRequestDescriptor hiResDesc =
+                        new AvatarRequestDescriptor(avatarUri,
+                        sWearableImageWidth,
+                        sWearableImageHeight,
+                        false /* cropToCircle */,
+                        true /* isWearBackground */);
+                avatarHiRes = MediaResourceManager.get().requestMediaResourceSync(
+                        hiResDesc.buildSyncMediaRequest(context));
+            }
+            bitmap = copyAndRelease(avatarHiRes);
+            if (bitmap != null) {
+                sAvatarCache.put(key, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    private static String getAvatarCacheKey(final Uri avatarUri, final int width,
+            final int height) {
+        return avatarUri + "#" + width + "x" + height;
+    }
+
+    /**
+     * We have to make copies of the bitmaps to hand to the NotificationManager because the
+     * bitmap in the ImageResource is managed and will automatically get released.
+     */
+    private static Bitmap copyAndRelease(final ImageResource imageResource) {
+        if (imageResource == null) {
+            return null;
+        }
+        try {
+            final Bitmap bitmap = imageResource.getBitmap();
+            if (bitmap == null) {
+                return null;
+            }
+            Config config = bitmap.getConfig();
+            if (config == null) {
+                config = Bitmap.Config.ARGB_8888;
+            }
+            return bitmap.copy(config, false /* isMutable */);
+        } finally {
+            imageResource.release();
+        }
+    }
+
+    /**
+     * Forget the avatars and participant names kept for notifications, as contacts changed.
+     */
+    static void onParticipantsChanged() {
+        sAvatarCache.evictAll();
+        MessageNotificationState.invalidateFirstNames(null /* conversationIds */);
+    }
+
+    public static void dump(final PrintWriter writer) {
+        NotificationUpdateQueue.get().dump(writer);
+        writer.println("Notification avatars: " + sAvatarCache.size() / 1024 + "KB, "
+                + sAvatarCache.hitCount() + " hits, " + sAvatarCache.missCount() + " loaded");
+    }
+
     /**
      * Returns the thumbnailUri from the avatar URI, or null if avatar URI does not have thumbnail.
      */
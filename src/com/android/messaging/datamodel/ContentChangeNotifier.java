@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel;
+
+import android.net.Uri;
+
+import com.android.messaging.Factory;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the provider's content change notifications, holding them back while the calling thread
+ * is inside a database transaction or a bulk operation. When the outermost of those ends, each
+ * uri is notified once, and uris under another uri that is also being notified are dropped since
+ * notifying a uri already reaches observers of the uris under it. Holding notifications until
+ * the transaction ends also means loaders requery only once the changes are committed.
+ */
+public class ContentChangeNotifier {
+    private static class Batch {
+        int mDepth;
+        final LinkedHashSet<Uri> mUris = new LinkedHashSet<Uri>();
+    }
+
+    private static final ThreadLocal<Batch> sBatch = new ThreadLocal<Batch>() {
+        @Override
+        protected Batch initialValue() {
+            return new Batch();
+        }
+    };
+
+    private static final AtomicLong sRequestedCount = new AtomicLong();
+    private static final AtomicLong sDeliveredCount = new AtomicLong();
+
+    private ContentChangeNotifier() {
+    }
+
+    /**
+     * Hold back notifications on this thread until the matching {@link #endBatch}. Batches may
+     * nest; notifications go out when the outermost one ends.
+     */
+    public static void beginBatch() {
+        sBatch.get().mDepth++;
+    }
+
+    /**
+     * End a batch started by {@link #beginBatch}, sending the notifications collected during it
+     * if it was the outermost one.
+     */
+    public static void endBatch() {
+        final Batch batch = sBatch.get();
+        if (batch.mDepth == 0) {
+            return;
+        }
+        if (--batch.mDepth == 0 && !batch.mUris.isEmpty()) {
+            final List<Uri> uris = coalesce(batch.mUris);
+            batch.mUris.clear();
+            for (final Uri uri : uris) {
+                deliver(uri);
+            }
+        }
+    }
+
+    /**
+     * Notify observers of the uri, now or when the current batch ends
+     */
+    public static void notifyChange(final Uri uri) {
+        sRequestedCount.incrementAndGet();
+        final Batch batch = sBatch.get();
+        if (batch.mDepth > 0) {
+            batch.mUris.add(uri);
+        } else {
+            deliver(uri);
+        }
+    }
+
+    private static void deliver(final Uri uri) {
+        sDeliveredCount.incrementAndGet();
+        Factory.get().getApplicationContext().getContentResolver().notifyChange(uri, null);
+    }
+
+    /**
+     * Drop the uris that are under another uri of the set, keeping the order of the rest
+     */
+    @VisibleForTesting
+    static List<Uri> coalesce(final Set<Uri> uris) {
+        final HashSet<String> notified = new HashSet<String>(uris.size());
+        for (final Uri uri : uris) {
+            notified.add(withoutTrailingSlash(uri.toString()));
+        }
+        final ArrayList<Uri> coalesced = new ArrayList<Uri>(uris.size());
+        for (final Uri uri : uris) {
+            if (!hasNotifiedAncestor(uri, notified)) {
+                coalesced.add(uri);
+            }
+        }
+        return coalesced;
+    }
+
+    private static boolean hasNotifiedAncestor(final Uri uri, final Set<String> notified) {
+        final Uri.Builder ancestor = new Uri.Builder().scheme(uri.getScheme())
+                .encodedAuthority(uri.getEncodedAuthority());
+        final List<String> segments = uri.getPathSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            if (notified.contains(ancestor.build().toString())) {
+                return true;
+            }
+            ancestor.appendPath(segments.get(i));
+        }
+        return false;
+    }
+
+    private static String withoutTrailingSlash(final String uri) {
+        return uri.endsWith("/") ? uri.substring(0, uri.length() - 1) : uri;
+    }
+
+    @VisibleForTesting
+    static long getRequestedCount() {
+        return sRequestedCount.get();
+    }
+
+    @VisibleForTesting
+    static long getDeliveredCount() {
+        return sDeliveredCount.get();
+    }
+
+    /**
+     * Dump how many notifications were asked for and sent, and how often loaders requeried
+     */
+    public static void dump(final PrintWriter writer) {
+        writer.println("Content changes: " + sRequestedCount.get() + " requested, "
+                + sDeliveredCount.get() + " notified, "
+                + BoundCursorLoader.getContentChangedCount() + " loader requeries");
+    }
+}
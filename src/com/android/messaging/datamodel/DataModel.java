@@ -51,6 +51,7 @@ import com.android.messaging.datamodel.data.SubscriptionListData;
 import com.android.messaging.datamodel.data.VCardContactItemData;
 import com.android.messaging.util.Assert.DoesNotRunOnMainThread;
 import com.android.messaging.util.ConnectivityUtil;
+import com.android.messaging.util.StartupScheduler;
 
 public abstract class DataModel {
     private String mFocusedConversation;
@@ -150,7 +151,10 @@ public abstract class DataModel {
                 || isFocusedConversation(conversationId);
     }
 
-    public abstract void onApplicationCreated();
+    /**
+     * Add the data model's startup work to the app's startup tasks
+     */
+    public abstract void onApplicationCreated(StartupScheduler scheduler);
 
     public abstract ConnectivityUtil getConnectivityUtil();
 
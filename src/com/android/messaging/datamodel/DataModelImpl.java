@@ -22,6 +22,7 @@ import android.net.Uri;
 import android.telephony.SubscriptionManager;
 
 import com.android.messaging.datamodel.action.ActionService;
+import com.android.messaging.datamodel.action.BackfillSearchIndexAction;
 import com.android.messaging.datamodel.action.BackgroundWorker;
 import com.android.messaging.datamodel.action.FixupMessageStatusOnStartupAction;
 import com.android.messaging.datamodel.action.ProcessPendingMessagesAction;
@@ -54,8 +55,10 @@ import com.android.messaging.util.Assert;
 import com.android.messaging.util.Assert.DoesNotRunOnMainThread;
 import com.android.messaging.util.ConnectivityUtil;
 import com.android.messaging.util.LogUtil;
+import com.android.messaging.util.MessageLinksCache;
 import com.android.messaging.util.OsUtil;
 import com.android.messaging.util.PhoneUtils;
+import com.android.messaging.util.StartupScheduler;
 import com.android.messaging.sms.MmsConfig;
 
 public class DataModelImpl extends DataModel {
@@ -214,6 +217,8 @@ public class DataModelImpl extends DataModel {
         LogUtil.w(LogUtil.BUGLE_TAG, "Rebuilt databases: reseting related state");
         // Clear other things that implicitly reference the DB
         SyncManager.resetLastSyncTimestamps();
+        ParticipantIdCache.get().clear();
+        MessageLinksCache.get().clear();
     }
 
     @Override
@@ -227,25 +232,72 @@ public class DataModelImpl extends DataModel {
     }
 
     @Override
-    public void onApplicationCreated() {
-        FixupMessageStatusOnStartupAction.fixupMessageStatus();
-        ProcessPendingMessagesAction.processFirstPendingMessage();
-        SyncManager.immediateSync();
+    public void onApplicationCreated(final StartupScheduler scheduler) {
+        // Critical so that the fixup action is queued ahead of any action that starts a send or
+        // download, e.g. a WAP push auto-download or a quick reply, which it would mark failed.
+        // It only queues the action, the database work runs on the action worker.
+        scheduler.add("fixupMessageStatus", StartupScheduler.CRITICAL,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        FixupMessageStatusOnStartupAction.fixupMessageStatus();
+                    }
+                });
+        // Queue the pending messages behind the fixup so that it sees the messages it reset, and
+        // both sending and sync behind the MMS config they read
+        scheduler.add("processPendingMessages", StartupScheduler.DEFERRED_BACKGROUND,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        ProcessPendingMessagesAction.processFirstPendingMessage();
+                    }
+                }, "fixupMessageStatus", "mmsConfig");
+        scheduler.add("immediateSync", StartupScheduler.DEFERRED_BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                SyncManager.immediateSync();
+            }
+        }, "mmsConfig");
+        scheduler.add("backfillSearchIndex", StartupScheduler.DEFERRED_BACKGROUND,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        BackfillSearchIndexAction.backfillIfNeeded();
+                    }
+                });
+        scheduler.add("warmParticipantIdCache", StartupScheduler.DEFERRED_BACKGROUND,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        BugleDatabaseOperations.warmParticipantIdCache(getDatabase());
+                    }
+                });
 
         if (OsUtil.isAtLeastL_MR1()) {
-            // Start listening for subscription change events for refreshing self participants.
-            PhoneUtils.getDefault().toLMr1().registerOnSubscriptionsChangedListener(
-                    new SubscriptionManager.OnSubscriptionsChangedListener() {
+            // The listener gets its callbacks on the looper of the thread creating it
+            scheduler.add("subscriptionListener", StartupScheduler.DEFERRED_MAIN_THREAD,
+                    new Runnable() {
                         @Override
-                        public void onSubscriptionsChanged() {
-                            // TODO: This dynamically changes the mms config that app is
-                            // currently using. It may cause inconsistency in some cases. We need
-                            // to check the usage of mms config and handle the dynamic change
-                            // gracefully
-                            MmsConfig.loadAsync();
-                            ParticipantRefresh.refreshSelfParticipants();
+                        public void run() {
+                            registerSubscriptionsChangedListener();
                         }
                     });
         }
     }
+
+    private void registerSubscriptionsChangedListener() {
+        // Start listening for subscription change events for refreshing self participants.
+        PhoneUtils.getDefault().toLMr1().registerOnSubscriptionsChangedListener(
+                new SubscriptionManager.OnSubscriptionsChangedListener() {
+                    @Override
+                    public void onSubscriptionsChanged() {
+                        // TODO: This dynamically changes the mms config that app is
+                        // currently using. It may cause inconsistency in some cases. We need
+                        // to check the usage of mms config and handle the dynamic change
+                        // gracefully
+                        MmsConfig.loadAsync();
+                        ParticipantRefresh.refreshSelfParticipants();
+                    }
+                });
+    }
 }
@@ -316,6 +316,16 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                     + MessageColumns.STATUS + ", "
                     + MessageColumns.RECEIVED_TIMESTAMP + ")";
 
+    // Message list index : by conversation id, received timestamp and id, the order the list
+    // pages in, so a page of the newest messages is read straight off the index without sorting
+    // the whole conversation
+    private static final String MESSAGES_TABLE_CONVERSATION_RECEIVED_INDEX_SQL =
+            "CREATE INDEX index_" + MESSAGES_TABLE + "_conversation_received ON "
+                    + MESSAGES_TABLE + "("
+                    + MessageColumns.CONVERSATION_ID + ", "
+                    + MessageColumns.RECEIVED_TIMESTAMP + ", "
+                    + MessageColumns._ID + ")";
+
     private static final String MESSAGES_TABLE_STATUS_SEEN_INDEX_SQL =
             "CREATE INDEX index_" + MESSAGES_TABLE + "_status_seen ON " +  MESSAGES_TABLE + "("
                     + MessageColumns.STATUS + ", "
@@ -776,6 +786,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         CONVERSATIONS_TABLE_ARCHIVE_STATUS_INDEX_SQL,
         CONVERSATIONS_TABLE_SORT_TIMESTAMP_INDEX_SQL,
         MESSAGES_TABLE_SORT_INDEX_SQL,
+        MESSAGES_TABLE_CONVERSATION_RECEIVED_INDEX_SQL,
         MESSAGES_TABLE_STATUS_SEEN_INDEX_SQL,
         PARTS_TABLE_MESSAGE_INDEX_SQL,
         CONVERSATION_PARTICIPANTS_TABLE_CONVERSATION_ID_INDEX_SQL,
@@ -875,7 +886,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
      */
     public static void rebuildTables(final SQLiteDatabase db) {
         Log.d("DatabaseHelper", "rebuildTables");
-        // Drop tables first, then views, and indices.
+        // Drop the search index first so its FTS shadow tables go with it, then the other
+        // tables, views, and indices.
+        MessageSearchIndex.dropIndex(db);
         dropAllTables(db);
         dropAllViews(db);
         dropAllIndexes(db);
@@ -903,6 +916,27 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         db.execSQL("ALTER TABLE parts add COLUMN iscompressed INTEGER DEFAULT -1");
     }
      // add for bug 725726 end
+
+    public static void upgradeDatabaseToVersion5(final SQLiteDatabase db) {
+        Log.d("DatabaseHelper", "upgradeDatabaseToVersion5");
+        // Existing rows are indexed later by BackfillSearchIndexAction
+        MessageSearchIndex.createIndex(db);
+    }
+
+    public static void upgradeDatabaseToVersion6(final SQLiteDatabase db) {
+        Log.d("DatabaseHelper", "upgradeDatabaseToVersion6");
+        for (final String sql : ConversationListItemData.getConversationListSummarySqls()) {
+            db.execSQL(sql);
+        }
+        // From here on the triggers keep the summary up to date
+        db.execSQL(ConversationListItemData.getPopulateConversationListSummarySql());
+    }
+
+    public static void upgradeDatabaseToVersion7(final SQLiteDatabase db) {
+        Log.d("DatabaseHelper", "upgradeDatabaseToVersion7");
+        db.execSQL(MESSAGES_TABLE_CONVERSATION_RECEIVED_INDEX_SQL);
+    }
+
     /**
      * Drop and rebuild a given view.
      */
@@ -1053,6 +1087,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
             db.execSQL(sql);
         }
 
+        MessageSearchIndex.createIndex(db);
+
+        for (final String sql : ConversationListItemData.getConversationListSummarySqls()) {
+            db.execSQL(sql);
+        }
+
         // Enable foreign key constraints
         db.execSQL("PRAGMA foreign_keys=ON;");
 
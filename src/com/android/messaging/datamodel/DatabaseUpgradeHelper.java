@@ -84,8 +84,50 @@ public class DatabaseUpgradeHelper {
                 }finally {
                       db.endTransaction();
                 }
-                return;
            // add for bug 725726 end
+            case 4:
+                if (newVersion <= 4) {
+                    return;
+                }
+                db.beginTransaction();
+                try {
+                    DatabaseHelper.upgradeDatabaseToVersion5(db);
+                    db.setTransactionSuccessful();
+                } catch (Throwable ex) {
+                    Log.e(TAG, ex.getMessage(), ex);
+                    break;
+                } finally {
+                    db.endTransaction();
+                }
+            case 5:
+                if (newVersion <= 5) {
+                    return;
+                }
+                db.beginTransaction();
+                try {
+                    DatabaseHelper.upgradeDatabaseToVersion6(db);
+                    db.setTransactionSuccessful();
+                } catch (Throwable ex) {
+                    Log.e(TAG, ex.getMessage(), ex);
+                    break;
+                } finally {
+                    db.endTransaction();
+                }
+            case 6:
+                if (newVersion <= 6) {
+                    return;
+                }
+                db.beginTransaction();
+                try {
+                    DatabaseHelper.upgradeDatabaseToVersion7(db);
+                    db.setTransactionSuccessful();
+                } catch (Throwable ex) {
+                    Log.e(TAG, ex.getMessage(), ex);
+                    break;
+                } finally {
+                    db.endTransaction();
+                }
+                return;
             default :
                 Log.e(TAG, "default ");
                 return ;
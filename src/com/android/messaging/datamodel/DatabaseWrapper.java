@@ -24,7 +24,7 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteFullException;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.database.sqlite.SQLiteStatement;
-import android.util.SparseArray;
+import android.util.LruCache;
 
 import com.android.messaging.Factory;
 import com.android.messaging.R;
@@ -33,6 +33,7 @@ import com.android.messaging.util.BugleGservicesKeys;
 import com.android.messaging.util.DebugUtils;
 import com.android.messaging.util.LogUtil;
 import com.android.messaging.util.UiUtils;
+import com.google.common.annotations.VisibleForTesting;
 
 import java.util.Locale;
 import java.util.Stack;
@@ -54,12 +55,24 @@ public class DatabaseWrapper {
     //sprd add for #543230 end 2016.3.21
     private static final int sTimingThreshold = 50;        // in milliseconds
 
-    public static final int INDEX_INSERT_MESSAGE_PART = 0;
-    public static final int INDEX_INSERT_MESSAGE = 1;
-    public static final int INDEX_QUERY_CONVERSATIONS_LATEST_MESSAGE = 2;
-    public static final int INDEX_QUERY_MESSAGES_LATEST_MESSAGE = 3;
+    // Maximum number of compiled statements kept open. Statements evicted from the cache are
+    // closed, so callers should not hold on to a statement beyond their current transaction.
+    @VisibleForTesting
+    static final int MAX_COMPILED_STATEMENTS = 64;
 
-    private final SparseArray<SQLiteStatement> mCompiledStatements;
+    // Compiled statements keyed by SQL text, so repeated inserts/updates/queries skip parsing
+    private final LruCache<String, SQLiteStatement> mCompiledStatements;
+
+    /**
+     * Binds the arguments of one row of a batch statement
+     */
+    public interface BatchBinder {
+        /**
+         * @param statement statement with its bindings cleared
+         * @param row index of the row to bind, from 0 to the batch row count - 1
+         */
+        void bindRow(SQLiteStatement statement, int row);
+    }
 
     static class TransactionData {
         long time;
@@ -93,21 +106,79 @@ public class DatabaseWrapper {
         //sprd add for #543230 end 2016.3.21
         mDatabase = db;
         mContext = context;
-        mCompiledStatements = new SparseArray<SQLiteStatement>();
+        mCompiledStatements = new LruCache<String, SQLiteStatement>(MAX_COMPILED_STATEMENTS) {
+            @Override
+            protected void entryRemoved(final boolean evicted, final String sql,
+                    final SQLiteStatement oldValue, final SQLiteStatement newValue) {
+                if (oldValue != newValue) {
+                    oldValue.close();
+                }
+            }
+        };
     }
 
-    public SQLiteStatement getStatementInTransaction(final int index, final String statement) {
+    /**
+     * Get a compiled statement for the given SQL, compiling and caching it on first use.
+     * Note this is not thread safe so callers need to make sure they own the wrapper + statements
+     * (by being in a transaction) while they use the returned statement.
+     */
+    public SQLiteStatement getStatementInTransaction(final String statement) {
         // Use transaction to serialize access to statements
         Assert.isTrue(mDatabase.inTransaction());
-        SQLiteStatement compiled = mCompiledStatements.get(index);
+        SQLiteStatement compiled = mCompiledStatements.get(statement);
         if (compiled == null) {
             compiled = mDatabase.compileStatement(statement);
             Assert.isTrue(compiled.toString().contains(statement.trim()));
-            mCompiledStatements.put(index, compiled);
+            mCompiledStatements.put(statement, compiled);
         }
         return compiled;
     }
 
+    /**
+     * Execute an UPDATE or DELETE statement once per id, binding the id as its only argument.
+     * Must be called in a transaction.
+     * @return total number of rows changed
+     */
+    public int executeUpdateDeleteBatchInTransaction(final String sql, final long[] ids) {
+        return executeUpdateDeleteBatchInTransaction(sql, ids.length, new BatchBinder() {
+            @Override
+            public void bindRow(final SQLiteStatement statement, final int row) {
+                statement.bindLong(1, ids[row]);
+            }
+        });
+    }
+
+    /**
+     * Execute an UPDATE or DELETE statement once per row, with the binder supplying the
+     * arguments of each row. Must be called in a transaction.
+     * @return total number of rows changed
+     */
+    public int executeUpdateDeleteBatchInTransaction(final String sql, final int rowCount,
+            final BatchBinder binder) {
+        long t1 = 0;
+        if (mLog) {
+            t1 = System.currentTimeMillis();
+        }
+        maybePlayDebugNoise();
+        final SQLiteStatement statement = getStatementInTransaction(sql);
+        int rowsUpdated = 0;
+        try {
+            for (int row = 0; row < rowCount; row++) {
+                statement.clearBindings();
+                binder.bindRow(statement, row);
+                rowsUpdated += statement.executeUpdateDelete();
+            }
+        } catch (SQLiteFullException ex) {
+            LogUtil.e(TAG, "Database full, unable to executeUpdateDeleteBatch", ex);
+            UiUtils.showToastAtBottom(R.string.db_full);
+        }
+        if (mLog) {
+            printTiming(t1, String.format(Locale.US, "executeUpdateDeleteBatch %d rows %s ==> %d",
+                    rowCount, sql, rowsUpdated));
+        }
+        return rowsUpdated;
+    }
+
     private void maybePlayDebugNoise() {
         DebugUtils.maybePlayDebugNoise(mContext, DebugUtils.DEBUG_SOUND_DB_OP);
     }
@@ -137,6 +208,8 @@ public class DatabaseWrapper {
         sTransactionDepth.get().push(f);
 
         mDatabase.beginTransaction();
+        // Hold back content change notifications until the transaction is over
+        ContentChangeNotifier.beginBatch();
     }
 
     public void setTransactionSuccessful() {
@@ -164,6 +237,8 @@ public class DatabaseWrapper {
         } catch (SQLiteFullException ex) {
             LogUtil.e(TAG, "Database full, unable to endTransaction", ex);
             UiUtils.showToastAtBottom(R.string.db_full);
+        } finally {
+            ContentChangeNotifier.endBatch();
         }
         if (mLog) {
             printTiming(t1, String.format(Locale.US,
@@ -66,6 +66,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Collections;
 import java.util.Comparator;
 
@@ -102,6 +103,11 @@ public abstract class MessageNotificationState extends NotificationState {
 
     private static final int REPLY_INTENT_REQUEST_CODE_OFFSET = 0;
     private static final int NUM_EXTRA_REQUEST_CODES_NEEDED = 1;
+
+    // First names counted by scanFirstNames for the conversations in the notification, kept
+    // between notification updates until the conversation changes
+    private static final HashMap<String, HashMap<String, Integer>> sFirstNamesCache =
+            new HashMap<String, HashMap<String, Integer>>();
     protected String mTickerSender = null;
     protected CharSequence mTickerText = null;
     protected String mTitle = null;
@@ -717,6 +723,31 @@ public abstract class MessageNotificationState extends NotificationState {
         }
     }
 
+    /**
+     * Forget the first names counted for the given conversations, or for all conversations if
+     * conversationIds is null, so they are scanned again on the next notification update.
+     */
+    static void invalidateFirstNames(final Set<String> conversationIds) {
+        synchronized (sFirstNamesCache) {
+            if (conversationIds == null) {
+                sFirstNamesCache.clear();
+            } else {
+                sFirstNamesCache.keySet().removeAll(conversationIds);
+            }
+        }
+    }
+
+    private static HashMap<String, Integer> getFirstNames(final String conversationId) {
+        synchronized (sFirstNamesCache) {
+            HashMap<String, Integer> firstNames = sFirstNamesCache.get(conversationId);
+            if (firstNames == null) {
+                firstNames = scanFirstNames(conversationId);
+                sFirstNamesCache.put(conversationId, firstNames);
+            }
+            return firstNames;
+        }
+    }
+
     private static HashMap<String, Integer> scanFirstNames(final String conversationId) {
         final Context context = Factory.get().getApplicationContext();
         final Uri uri =
@@ -789,7 +820,7 @@ public abstract class MessageNotificationState extends NotificationState {
             final ConversationMessageData convMessageData =
                     new ConversationMessageData();
 
-            final HashMap<String, Integer> firstNames = scanFirstNames(conversationId);
+            final HashMap<String, Integer> firstNames = getFirstNames(conversationId);
             do {
                 convMessageData.bind(convMessageCursor);
 
@@ -1012,7 +1043,7 @@ public abstract class MessageNotificationState extends NotificationState {
                         } else {
                             // don't recompute this if we don't need to
                             if (!TextUtils.equals(conversationIdForFirstNames, convId)) {
-                                firstNames = scanFirstNames(convId);
+                                firstNames = getFirstNames(convId);
                                 conversationIdForFirstNames = convId;
                             }
                             if (firstNames != null) {
@@ -1084,6 +1115,10 @@ public abstract class MessageNotificationState extends NotificationState {
                 convMessageCursor.close();
             }
         }
+        // Only keep the first names of the conversations still notified about
+        synchronized (sFirstNamesCache) {
+            sFirstNamesCache.keySet().retainAll(convLineInfos.keySet());
+        }
         // bug 478514: Add for MmsFolderView Feature -- Begin
         if (messageCount == 1) {
             resentSingleMessageData(PendingIntentConstants.SMS_NOTIFICATION_ID);
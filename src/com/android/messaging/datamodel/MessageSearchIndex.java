@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.text.TextUtils;
+
+import com.android.messaging.datamodel.DatabaseHelper.ConversationColumns;
+import com.android.messaging.datamodel.DatabaseHelper.MessageColumns;
+import com.android.messaging.datamodel.DatabaseHelper.PartColumns;
+import com.android.messaging.util.Assert;
+import com.android.messaging.util.Assert.DoesNotRunOnMainThread;
+import com.android.messaging.util.BuglePrefs;
+import com.android.messaging.util.BuglePrefsKeys;
+import com.android.messaging.util.LogUtil;
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Full-text index over message text parts and MMS subjects, used by message search instead of
+ * scanning the messages and parts tables with LIKE.
+ *
+ * <p>The index is an FTS4 table kept in sync with the parts and messages tables by triggers, so
+ * every insert path (sync, receive, send, drafts) is covered without touching the callers. Text
+ * parts are stored with docid = parts._id and MMS subjects with docid = -messages._id, which keeps
+ * the two kinds of rows apart without an extra column. Rows that existed before the index was
+ * created are filled in incrementally by
+ * {@link com.android.messaging.datamodel.action.BackfillSearchIndexAction}; until that completes
+ * search keeps using the LIKE queries.
+ *
+ * <p>The index matches words from their start: "din" finds "dinner", but "nner" no longer finds
+ * it as the LIKE '%nner%' query did. A query of several words matches them as a phrase, in
+ * order, with the last word as a prefix. Queries containing digits keep using the LIKE queries
+ * so that part of a phone number or code still finds it anywhere in the text.
+ */
+public class MessageSearchIndex {
+    private static final String TAG = LogUtil.BUGLE_DATABASE_TAG;
+
+    public static final String TABLE_NAME = "message_search_fts";
+
+    public static class Columns {
+        /* Indexed text: the part text or the MMS subject */
+        public static final String BODY = "body";
+
+        /* Message the indexed text belongs to, not indexed for full-text matching */
+        public static final String MESSAGE_ID = "message_id";
+    }
+
+    // Backfill state cached from BuglePrefsKeys.SEARCH_INDEX_BACKFILL_COMPLETE, null until read
+    private static volatile Boolean sBackfillComplete;
+
+    /** Number of messages covered by each backfill batch */
+    public static final int BACKFILL_BATCH_SIZE = 500;
+
+    // Characters past this point (CJK, Thai, etc.) have no word boundaries the unicode61
+    // tokenizer can use, so a prefix MATCH would miss substrings that LIKE used to find.
+    private static final char MAX_TOKENIZABLE_CHAR = '\u052F';
+
+    private static final String CREATE_TABLE_SQL =
+            "CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLE_NAME + " USING fts4("
+            + Columns.BODY + ", "
+            + Columns.MESSAGE_ID + ", "
+            + "notindexed=" + Columns.MESSAGE_ID + ", "
+            + "tokenize=unicode61)";
+
+    private static final String INSERT_PART_TEXT_SQL =
+            "INSERT INTO " + TABLE_NAME + "(docid, " + Columns.BODY + ", " + Columns.MESSAGE_ID
+            + ") SELECT NEW." + PartColumns._ID + ", NEW." + PartColumns.TEXT + ", NEW."
+            + PartColumns.MESSAGE_ID + " WHERE NEW." + PartColumns.TEXT + " IS NOT NULL AND NEW."
+            + PartColumns.TEXT + " != ''; ";
+
+    private static final String DELETE_PART_TEXT_SQL =
+            "DELETE FROM " + TABLE_NAME + " WHERE docid = OLD." + PartColumns._ID + "; ";
+
+    private static final String INSERT_SUBJECT_SQL =
+            "INSERT INTO " + TABLE_NAME + "(docid, " + Columns.BODY + ", " + Columns.MESSAGE_ID
+            + ") SELECT -NEW." + MessageColumns._ID + ", NEW." + MessageColumns.MMS_SUBJECT
+            + ", NEW." + MessageColumns._ID + " WHERE NEW." + MessageColumns.MMS_SUBJECT
+            + " IS NOT NULL AND NEW." + MessageColumns.MMS_SUBJECT + " != ''; ";
+
+    private static final String DELETE_SUBJECT_SQL =
+            "DELETE FROM " + TABLE_NAME + " WHERE docid = -OLD." + MessageColumns._ID + "; ";
+
+    private static final String CREATE_PARTS_INSERT_TRIGGER_SQL =
+            "CREATE TRIGGER IF NOT EXISTS " + TABLE_NAME + "_parts_insert AFTER INSERT ON "
+            + DatabaseHelper.PARTS_TABLE + " FOR EACH ROW BEGIN "
+            + INSERT_PART_TEXT_SQL + "END";
+
+    private static final String CREATE_PARTS_UPDATE_TRIGGER_SQL =
+            "CREATE TRIGGER IF NOT EXISTS " + TABLE_NAME + "_parts_update AFTER UPDATE OF "
+            + PartColumns.TEXT + " ON " + DatabaseHelper.PARTS_TABLE + " FOR EACH ROW BEGIN "
+            + DELETE_PART_TEXT_SQL + INSERT_PART_TEXT_SQL + "END";
+
+    private static final String CREATE_PARTS_DELETE_TRIGGER_SQL =
+            "CREATE TRIGGER IF NOT EXISTS " + TABLE_NAME + "_parts_delete AFTER DELETE ON "
+            + DatabaseHelper.PARTS_TABLE + " FOR EACH ROW BEGIN "
+            + DELETE_PART_TEXT_SQL + "END";
+
+    private static final String CREATE_MESSAGES_INSERT_TRIGGER_SQL =
+            "CREATE TRIGGER IF NOT EXISTS " + TABLE_NAME + "_messages_insert AFTER INSERT ON "
+            + DatabaseHelper.MESSAGES_TABLE + " FOR EACH ROW BEGIN "
+            + INSERT_SUBJECT_SQL + "END";
+
+    private static final String CREATE_MESSAGES_UPDATE_TRIGGER_SQL =
+            "CREATE TRIGGER IF NOT EXISTS " + TABLE_NAME + "_messages_update AFTER UPDATE OF "
+            + MessageColumns.MMS_SUBJECT + " ON " + DatabaseHelper.MESSAGES_TABLE
+            + " FOR EACH ROW BEGIN "
+            + DELETE_SUBJECT_SQL + INSERT_SUBJECT_SQL + "END";
+
+    private static final String CREATE_MESSAGES_DELETE_TRIGGER_SQL =
+            "CREATE TRIGGER IF NOT EXISTS " + TABLE_NAME + "_messages_delete AFTER DELETE ON "
+            + DatabaseHelper.MESSAGES_TABLE + " FOR EACH ROW BEGIN "
+            + DELETE_SUBJECT_SQL + "END";
+
+    private static final String[] TRIGGER_NAMES = new String[] {
+        TABLE_NAME + "_parts_insert",
+        TABLE_NAME + "_parts_update",
+        TABLE_NAME + "_parts_delete",
+        TABLE_NAME + "_messages_insert",
+        TABLE_NAME + "_messages_update",
+        TABLE_NAME + "_messages_delete",
+    };
+
+    private static final String[] CREATE_TRIGGER_SQLS = new String[] {
+        CREATE_PARTS_INSERT_TRIGGER_SQL,
+        CREATE_PARTS_UPDATE_TRIGGER_SQL,
+        CREATE_PARTS_DELETE_TRIGGER_SQL,
+        CREATE_MESSAGES_INSERT_TRIGGER_SQL,
+        CREATE_MESSAGES_UPDATE_TRIGGER_SQL,
+        CREATE_MESSAGES_DELETE_TRIGGER_SQL,
+    };
+
+    // Backfill of rows written before the index existed. Rows already indexed by the triggers
+    // are skipped through a docid (rowid) lookup, so a batch can safely overlap new inserts.
+    // ?1 and ?2 bound the (exclusive, inclusive] range of message ids covered by the batch.
+    private static final String BACKFILL_PART_TEXT_SQL =
+            "INSERT INTO " + TABLE_NAME + "(docid, " + Columns.BODY + ", " + Columns.MESSAGE_ID
+            + ") SELECT " + PartColumns._ID + ", " + PartColumns.TEXT + ", "
+            + PartColumns.MESSAGE_ID + " FROM " + DatabaseHelper.PARTS_TABLE
+            + " WHERE " + PartColumns.MESSAGE_ID + " > ?1 AND " + PartColumns.MESSAGE_ID
+            + " <= ?2 AND " + PartColumns.TEXT + " IS NOT NULL AND " + PartColumns.TEXT + " != ''"
+            + " AND NOT EXISTS (SELECT 1 FROM " + TABLE_NAME + " WHERE docid = "
+            + DatabaseHelper.PARTS_TABLE + "." + PartColumns._ID + ")";
+
+    private static final String BACKFILL_SUBJECT_SQL =
+            "INSERT INTO " + TABLE_NAME + "(docid, " + Columns.BODY + ", " + Columns.MESSAGE_ID
+            + ") SELECT -" + MessageColumns._ID + ", " + MessageColumns.MMS_SUBJECT + ", "
+            + MessageColumns._ID + " FROM " + DatabaseHelper.MESSAGES_TABLE
+            + " WHERE " + MessageColumns._ID + " > ?1 AND " + MessageColumns._ID + " <= ?2 AND "
+            + MessageColumns.MMS_SUBJECT + " IS NOT NULL AND " + MessageColumns.MMS_SUBJECT
+            + " != '' AND NOT EXISTS (SELECT 1 FROM " + TABLE_NAME + " WHERE docid = -"
+            + DatabaseHelper.MESSAGES_TABLE + "." + MessageColumns._ID + ")";
+
+    private static final String MAX_MESSAGE_ID_SQL =
+            "SELECT MAX(" + MessageColumns._ID + ") FROM " + DatabaseHelper.MESSAGES_TABLE;
+
+    private static final String NULL_SEARCH_COLUMNS =
+            " NULL AS thread_id, NULL AS _id, NULL AS sub, NULL AS msg_type, NULL AS box_type,"
+            + " NULL AS address ";
+
+    // Same columns as BugleDatabaseOperations' LIKE based search; ?1 is the LIKE pattern for the
+    // participants (a small table that keeps the substring semantics) and ?2 the MATCH expression.
+    // Message hits come back most recent first with a short snippet around the matched terms.
+    @VisibleForTesting
+    static final String SEARCH_SQL =
+            "SELECT * FROM ("
+            + " SELECT conversations._id AS conv_id, conversations.name AS name,"
+            + " participants.send_destination AS body, NULL AS messages_id,"
+            + " participants.send_destination AS snippet, " + NULL_SEARCH_COLUMNS
+            + " FROM conversations"
+            + " LEFT JOIN conversation_participants"
+            + " ON (conversations._id = conversation_participants.conversation_id)"
+            + " LEFT JOIN participants"
+            + " ON (conversation_participants.participant_id = participants._id)"
+            + " WHERE"
+            + " (participants.send_destination LIKE ?1 escape '/'"
+            + " OR participants.normalized_destination LIKE ?1 escape '/'"
+            + " OR participants.full_name LIKE ?1 escape '/'"
+            + " OR participants.first_name LIKE ?1 escape '/')"
+            + " AND conversations.sort_timestamp > 0 GROUP BY conversations._id)"
+            + " UNION ALL"
+            + " SELECT * FROM ("
+            + " SELECT messages." + MessageColumns.CONVERSATION_ID + " AS conv_id,"
+            + " conversations." + ConversationColumns.NAME + " AS name,"
+            + " " + TABLE_NAME + "." + Columns.BODY + " AS body,"
+            + " messages." + MessageColumns._ID + " AS messages_id,"
+            + " snippet(" + TABLE_NAME + ", '', '', '...', -1, 12) AS snippet, "
+            + NULL_SEARCH_COLUMNS
+            + " FROM " + TABLE_NAME
+            + " JOIN messages ON (messages." + MessageColumns._ID + " = "
+            + TABLE_NAME + "." + Columns.MESSAGE_ID + ")"
+            + " JOIN conversations ON (conversations." + ConversationColumns._ID
+            + " = messages." + MessageColumns.CONVERSATION_ID + ")"
+            + " WHERE " + TABLE_NAME + " MATCH ?2 AND conversations."
+            + ConversationColumns.SORT_TIMESTAMP + " > 0"
+            + " ORDER BY messages." + MessageColumns.RECEIVED_TIMESTAMP + " DESC)";
+
+    // Suggestions from message text and subjects; ?2 is the MATCH expression. Meant to be
+    // combined through UNION with the participant suggestions.
+    static final String SUGGEST_MESSAGES_SQL =
+            " SELECT " + TABLE_NAME + "." + Columns.BODY + " AS snippet"
+            + " FROM " + TABLE_NAME
+            + " JOIN messages ON (messages." + MessageColumns._ID + " = "
+            + TABLE_NAME + "." + Columns.MESSAGE_ID + ")"
+            + " JOIN conversations ON (conversations." + ConversationColumns._ID
+            + " = messages." + MessageColumns.CONVERSATION_ID + ")"
+            + " WHERE " + TABLE_NAME + " MATCH ?2 AND conversations."
+            + ConversationColumns.SORT_TIMESTAMP + " > 0"
+            + " GROUP BY " + TABLE_NAME + "." + Columns.BODY;
+
+    /**
+     * Create the index table and the triggers that keep it up to date.
+     */
+    static void createIndex(final SQLiteDatabase db) {
+        db.execSQL(CREATE_TABLE_SQL);
+        for (final String sql : CREATE_TRIGGER_SQLS) {
+            db.execSQL(sql);
+        }
+    }
+
+    /**
+     * Drop the index table and its triggers. The virtual table is dropped by name so that FTS
+     * removes its shadow tables along with it, which dropping them one by one from sqlite_master
+     * may not manage.
+     */
+    static void dropIndex(final SQLiteDatabase db) {
+        for (final String trigger : TRIGGER_NAMES) {
+            db.execSQL("DROP TRIGGER IF EXISTS " + trigger);
+        }
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
+    }
+
+    /**
+     * Index the next batch of messages written before the index existed.
+     * @return true if there may be more messages left to index
+     */
+    @DoesNotRunOnMainThread
+    public static boolean backfillNextBatch(final DatabaseWrapper db) {
+        Assert.isNotMainThread();
+        final BuglePrefs prefs = BuglePrefs.getApplicationPrefs();
+        final long watermark = prefs.getLong(BuglePrefsKeys.SEARCH_INDEX_BACKFILL_WATERMARK,
+                BuglePrefsKeys.SEARCH_INDEX_BACKFILL_WATERMARK_DEFAULT);
+        final long maxMessageId =
+                DatabaseUtils.longForQuery(db.getDatabase(), MAX_MESSAGE_ID_SQL, null);
+        if (watermark >= maxMessageId) {
+            prefs.putBoolean(BuglePrefsKeys.SEARCH_INDEX_BACKFILL_COMPLETE, true);
+            sBackfillComplete = true;
+            LogUtil.i(TAG, "MessageSearchIndex: backfill complete up to message " + watermark);
+            return false;
+        }
+
+        final long upperBound = Math.min(maxMessageId, watermark + BACKFILL_BATCH_SIZE);
+        final String[] args = new String[] {
+                Long.toString(watermark), Long.toString(upperBound) };
+        db.beginTransaction();
+        try {
+            db.execSQL(BACKFILL_PART_TEXT_SQL, args);
+            db.execSQL(BACKFILL_SUBJECT_SQL, args);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        prefs.putLong(BuglePrefsKeys.SEARCH_INDEX_BACKFILL_WATERMARK, upperBound);
+        return true;
+    }
+
+    /**
+     * @return true once rows written before the index existed have all been indexed
+     */
+    public static boolean isBackfillComplete() {
+        // Search checks this on every keystroke, so the pref is only read once per process;
+        // after that only backfillNextBatch changes it
+        Boolean complete = sBackfillComplete;
+        if (complete == null) {
+            complete = BuglePrefs.getApplicationPrefs().getBoolean(
+                    BuglePrefsKeys.SEARCH_INDEX_BACKFILL_COMPLETE,
+                    BuglePrefsKeys.SEARCH_INDEX_BACKFILL_COMPLETE_DEFAULT);
+            sBackfillComplete = complete;
+        }
+        return complete;
+    }
+
+    @VisibleForTesting
+    static void resetBackfillComplete() {
+        sBackfillComplete = null;
+    }
+
+    /**
+     * Whether the search term can be answered by the full-text index. Terms written in scripts
+     * without spaces between words are left to the LIKE queries, since the tokenizer would treat
+     * a whole run of such text as a single token, and so are terms with digits, which are
+     * usually part of a longer number.
+     */
+    static boolean canUseIndex(final String searchString) {
+        if (TextUtils.isEmpty(searchString) || !isBackfillComplete()) {
+            return false;
+        }
+        boolean hasToken = false;
+        for (int i = 0; i < searchString.length(); i++) {
+            final char c = searchString.charAt(i);
+            if (c > MAX_TOKENIZABLE_CHAR || Character.isDigit(c)) {
+                return false;
+            }
+            hasToken |= Character.isLetterOrDigit(c);
+        }
+        return hasToken;
+    }
+
+    /**
+     * Build the MATCH expression for a user typed search string: its whitespace separated words
+     * become one quoted phrase, with the last word matched as a prefix, like the LIKE queries
+     * match the typed text as a whole.
+     */
+    @VisibleForTesting
+    static String buildMatchExpression(final String searchString) {
+        final StringBuilder sb = new StringBuilder();
+        for (final String word : searchString.trim().split("\\s+")) {
+            final String term = word.replace("\"", "");
+            if (term.isEmpty()) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(term);
+        }
+        return sb.length() > 0 ? "\"" + sb + "*\"" : "";
+    }
+}
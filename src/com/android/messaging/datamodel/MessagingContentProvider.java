@@ -35,6 +35,7 @@ import android.text.TextUtils;
 
 import com.android.messaging.BugleApplication;
 import com.android.messaging.Factory;
+import com.android.messaging.datamodel.action.ActionTimings;
 import com.android.messaging.datamodel.action.CertainTypeMessageAllDelAction;
 import com.android.messaging.datamodel.DatabaseHelper.ConversationColumns;
 import com.android.messaging.datamodel.DatabaseHelper.ConversationParticipantsColumns;
@@ -45,8 +46,10 @@ import com.android.messaging.datamodel.data.MessageData;
 import com.android.messaging.datamodel.data.ParticipantData;
 import com.android.messaging.util.Assert;
 import com.android.messaging.util.LogUtil;
+import com.android.messaging.util.MessageLinksCache;
 import com.android.messaging.util.OsUtil;
 import com.android.messaging.util.PhoneUtils;
+import com.android.messaging.util.StartupScheduler;
 import com.android.messaging.widget.BugleWidgetProvider;
 import com.android.messaging.widget.WidgetConversationProvider;
 import com.google.common.annotations.VisibleForTesting;
@@ -96,6 +99,12 @@ public class MessagingContentProvider extends ContentProvider {
     public static final Uri CONVERSATION_MESSAGES_URI = Uri.parse(CONTENT_AUTHORITY +
             MESSAGES_QUERY + "/conversation");
 
+    // Optional parameters of a conversation messages uri that narrow it to the newest messages:
+    // at most a limit of them, or those at or after a (received timestamp, message id) position
+    private static final String MESSAGES_PARAM_LIMIT = "limit";
+    private static final String MESSAGES_PARAM_SINCE_TIMESTAMP = "since_timestamp";
+    private static final String MESSAGES_PARAM_SINCE_ID = "since_id";
+
     // Conversation participants query
     private static final String PARTICIPANTS_QUERY = "participants";
 
@@ -137,8 +146,7 @@ public class MessagingContentProvider extends ContentProvider {
     public static void notifyEverythingChanged() {
         final Uri uri = Uri.parse(CONTENT_AUTHORITY);
         final Context context = Factory.get().getApplicationContext();
-        final ContentResolver cr = context.getContentResolver();
-        cr.notifyChange(uri, null);
+        ContentChangeNotifier.notifyChange(uri);
 
         // Notify any conversations widgets the conversation list has changed.
         BugleWidgetProvider.notifyConversationListChanged(context);
@@ -158,18 +166,15 @@ public class MessagingContentProvider extends ContentProvider {
 
     public static void notifyParticipantsChanged(final String conversationId) {
         final Uri uri = buildConversationParticipantsUri(conversationId);
-        final ContentResolver cr = Factory.get().getApplicationContext().getContentResolver();
-        cr.notifyChange(uri, null);
+        ContentChangeNotifier.notifyChange(uri);
     }
 
     public static void notifyAllMessagesChanged() {
-        final ContentResolver cr = Factory.get().getApplicationContext().getContentResolver();
-        cr.notifyChange(CONVERSATION_MESSAGES_URI, null);
+        ContentChangeNotifier.notifyChange(CONVERSATION_MESSAGES_URI);
     }
 
     public static void notifyAllParticipantsChanged() {
-        final ContentResolver cr = Factory.get().getApplicationContext().getContentResolver();
-        cr.notifyChange(CONVERSATION_PARTICIPANTS_URI, null);
+        ContentChangeNotifier.notifyChange(CONVERSATION_PARTICIPANTS_URI);
     }
 
     // Default value for unknown dimension of image
@@ -256,6 +261,30 @@ public class MessagingContentProvider extends ContentProvider {
         return builder.build();
     }
 
+    /**
+     * Build a messages uri for at most the given number of the newest messages of a
+     * conversation.
+     */
+    public static Uri buildConversationMessagesUri(final String conversationId,
+            final int limit) {
+        return buildConversationMessagesUri(conversationId).buildUpon()
+                .appendQueryParameter(MESSAGES_PARAM_LIMIT, Integer.toString(limit))
+                .build();
+    }
+
+    /**
+     * Build a messages uri for the messages of a conversation that are newer than or at the
+     * given message, in (received timestamp, message id) order.
+     */
+    public static Uri buildConversationMessagesUri(final String conversationId,
+            final long sinceTimestamp, final long sinceMessageId) {
+        return buildConversationMessagesUri(conversationId).buildUpon()
+                .appendQueryParameter(MESSAGES_PARAM_SINCE_TIMESTAMP,
+                        Long.toString(sinceTimestamp))
+                .appendQueryParameter(MESSAGES_PARAM_SINCE_ID, Long.toString(sinceMessageId))
+                .build();
+    }
+
     //Bug 888919 begin
     public static void notifyWidgetMessagesAndConversationListChanged() {
         final Context context = Factory.get().getApplicationContext();
@@ -272,8 +301,7 @@ public class MessagingContentProvider extends ContentProvider {
     public static void notifyMessagesChanged(final String conversationId) {
         final Uri uri = buildConversationMessagesUri(conversationId);
         final Context context = Factory.get().getApplicationContext();
-        final ContentResolver cr = context.getContentResolver();
-        cr.notifyChange(uri, null);
+        ContentChangeNotifier.notifyChange(uri);
         notifyConversationListChanged();
 
         /* Add by SPRD for optimization broadcast 2016.09.18 Start */
@@ -286,9 +314,7 @@ public class MessagingContentProvider extends ContentProvider {
     //Bug 888919 begin
     public static void notifyMessagesChangedOnly(final String conversationId) {
         final Uri uri = buildConversationMessagesUri(conversationId);
-        final Context context = Factory.get().getApplicationContext();
-        final ContentResolver cr = context.getContentResolver();
-        cr.notifyChange(uri, null);
+        ContentChangeNotifier.notifyChange(uri);
     }
     //Bug 888919 end
 
@@ -303,28 +329,24 @@ public class MessagingContentProvider extends ContentProvider {
 
     public static void notifyConversationMetadataChanged(final String conversationId) {
         final Uri uri = buildConversationMetadataUri(conversationId);
-        final ContentResolver cr = Factory.get().getApplicationContext().getContentResolver();
-        cr.notifyChange(uri, null);
+        ContentChangeNotifier.notifyChange(uri);
         notifyConversationListChanged();
     }
 
     //Bug 888919 begin
     public static void notifyConversationMetadataChangedOnly(final String conversationId) {
         final Uri uri = buildConversationMetadataUri(conversationId);
-        final ContentResolver cr = Factory.get().getApplicationContext().getContentResolver();
-        cr.notifyChange(uri, null);
+        ContentChangeNotifier.notifyChange(uri);
     }
     //Bug 888919 end
 
     public static void notifyPartsChanged() {
-        final ContentResolver cr = Factory.get().getApplicationContext().getContentResolver();
-        cr.notifyChange(PARTS_URI, null);
+        ContentChangeNotifier.notifyChange(PARTS_URI);
     }
 
     public static void notifyConversationListChanged() {
         final Context context = Factory.get().getApplicationContext();
-        final ContentResolver cr = context.getContentResolver();
-        cr.notifyChange(CONVERSATIONS_URI, null);
+        ContentChangeNotifier.notifyChange(CONVERSATIONS_URI);
 
         // bug 478514: Add for MmsFolderView Feature -- Begin
         notifyMessageListViewChanged();
@@ -339,9 +361,7 @@ public class MessagingContentProvider extends ContentProvider {
 
     //Bug 888919 begin
     public static void notifyConversationListChangedOnly() {
-        final Context context = Factory.get().getApplicationContext();
-        final ContentResolver cr = context.getContentResolver();
-        cr.notifyChange(CONVERSATIONS_URI, null);
+        ContentChangeNotifier.notifyChange(CONVERSATIONS_URI);
         notifyMessageListViewChanged();
     }
     //Bug 888919 end
@@ -358,9 +378,7 @@ public class MessagingContentProvider extends ContentProvider {
     public static final Uri SINGLE_MESSAGES_URI = Uri.parse(CONTENT_AUTHORITY + MESSAGES_QUERY
             + "/message");
     public static void notifyMessageListViewChanged() {
-        final Context context = Factory.get().getApplicationContext();
-        final ContentResolver cr = context.getContentResolver();
-        cr.notifyChange(MESSAGE_LIST_VIEW_URI, null);
+        ContentChangeNotifier.notifyChange(MESSAGE_LIST_VIEW_URI);
     }
     public static Uri buildSingleMessageUri(final String messageId) {
         final Uri.Builder builder = SINGLE_MESSAGES_URI.buildUpon();
@@ -571,11 +589,27 @@ public class MessagingContentProvider extends ContentProvider {
         return cursor;
     }
 
-    private Cursor queryConversationMessages(final String conversationId, final Uri notifyUri) {
-        final String[] queryArgs = { conversationId };
-        final Cursor cursor = getDatabaseWrapper().rawQuery(
-                ConversationMessageData.getConversationMessagesQuerySql(), queryArgs);
-        cursor.setNotificationUri(getContext().getContentResolver(), notifyUri);
+    private Cursor queryConversationMessages(final String conversationId, final Uri uri) {
+        final String limit = uri.getQueryParameter(MESSAGES_PARAM_LIMIT);
+        final String sinceTimestamp = uri.getQueryParameter(MESSAGES_PARAM_SINCE_TIMESTAMP);
+        final String sinceId = uri.getQueryParameter(MESSAGES_PARAM_SINCE_ID);
+        if ((sinceTimestamp == null) != (sinceId == null)) {
+            throw new IllegalArgumentException("Malformed URI " + uri);
+        }
+        final Cursor cursor;
+        try {
+            cursor = ConversationMessageData.queryConversationMessages(getDatabaseWrapper(),
+                    conversationId,
+                    sinceTimestamp != null
+                            ? Long.parseLong(sinceTimestamp) : ConversationMessageData.NO_BOUND,
+                    sinceId != null ? Long.parseLong(sinceId) : ConversationMessageData.NO_BOUND,
+                    limit != null ? Integer.parseInt(limit) : ConversationMessageData.NO_LIMIT);
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed URI " + uri, e);
+        }
+        // Windows of the list change along with the whole list
+        cursor.setNotificationUri(getContext().getContentResolver(),
+                buildConversationMessagesUri(conversationId));
         return cursor;
     }
 
@@ -716,6 +750,12 @@ public class MessagingContentProvider extends ContentProvider {
         writer.println("Default SMS app: " + defaultSmsApp);
         // Now dump logs
         LogUtil.dump(writer);
+        ActionTimings.dump(writer);
+        ContentChangeNotifier.dump(writer);
+        ParticipantIdCache.get().dump(writer);
+        MessageLinksCache.get().dump(writer);
+        BugleNotifications.dump(writer);
+        StartupScheduler.dump(writer);
     }
 
     @Override
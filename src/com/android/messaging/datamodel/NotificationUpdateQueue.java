@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel;
+
+import android.content.Intent;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+
+import com.android.messaging.Factory;
+import com.android.messaging.util.LogUtil;
+import com.android.messaging.util.WakeLockHelper;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Runs the updates of the message notifications requested through
+ * {@link BugleNotifications#update} one at a time on a worker thread, merging the requests that
+ * arrive while an update is pending or running into a single update. A burst of incoming messages
+ * then rebuilds the notifications a few times rather than once per message.
+ *
+ * Updates for a newly received message that may ring start as soon as the worker is free; quiet
+ * updates, such as after marking messages read, wait a little for more requests to merge with.
+ * A wakelock is held from each request until its merged update has been posted, so that the
+ * device doesn't sleep in between once the action that requested it is done.
+ */
+class NotificationUpdateQueue {
+    private static final String TAG = BugleNotifications.TAG;
+
+    private static final long QUIET_UPDATE_DELAY_MS = 250;
+
+    private static final NotificationUpdateQueue sInstance = new NotificationUpdateQueue();
+
+    private static final String WAKELOCK_ID = "bugle_notification_update_wakelock";
+    private static final int WAKELOCK_OP = 0;
+
+    /**
+     * The merged arguments of the update requests waiting to run
+     */
+    @VisibleForTesting
+    static class Request {
+        boolean mSilent = true;
+        int mCoverage = BugleNotifications.UPDATE_NONE;
+        // The conversation of the most recent request naming one, and its subscription. Once a
+        // request would ring, only later requests that would ring change them.
+        String mConversationId;
+        int mSubId;
+        // Conversations whose notification lines may have changed, or null for all of them
+        Set<String> mDirtyConversationIds = new HashSet<String>();
+        final long mFirstRequestTime;
+        int mRequestCount;
+
+        Request(final long requestTime, final int subId) {
+            mFirstRequestTime = requestTime;
+            mSubId = subId;
+        }
+
+        void merge(final boolean silent, final String conversationId, final int coverage,
+                final int subId) {
+            // Ring if any of the merged requests would have, for the conversation and SIM of the
+            // latest one that would have. The first ringing request replaces the conversation of
+            // quiet ones even if it names none.
+            if (!silent ? (conversationId != null || mSilent)
+                    : (mSilent && conversationId != null)) {
+                mConversationId = conversationId;
+                mSubId = subId;
+            }
+            mSilent &= silent;
+            mCoverage |= coverage;
+            if (conversationId != null) {
+                if (mDirtyConversationIds != null) {
+                    mDirtyConversationIds.add(conversationId);
+                }
+            } else {
+                mDirtyConversationIds = null;
+            }
+            mRequestCount++;
+        }
+
+        boolean isUrgent() {
+            return !mSilent && mConversationId != null;
+        }
+    }
+
+    private final Object mLock = new Object();
+    private final WakeLockHelper mWakeLock = new WakeLockHelper(WAKELOCK_ID);
+    // Only identifies this process to the wakelock helper
+    private final Intent mWakeLockIntent = new Intent();
+    private Handler mHandler;
+    private Request mPending;
+
+    private long mRequestCount;
+    private long mUpdateCount;
+    private long mTotalLatencyMs;
+    private long mMaxLatencyMs;
+    private long mTotalUpdateMs;
+
+    private final Runnable mRunPending = new Runnable() {
+        @Override
+        public void run() {
+            runPending();
+        }
+    };
+
+    static NotificationUpdateQueue get() {
+        return sInstance;
+    }
+
+    void enqueue(final boolean silent, final String conversationId, final int coverage,
+            final int subId) {
+        synchronized (mLock) {
+            // Released once for each merged request after the update has run. Acquired under
+            // the lock since the helper writes to the shared intent.
+            mWakeLock.acquire(Factory.get().getApplicationContext(), mWakeLockIntent,
+                    WAKELOCK_OP);
+            final boolean wasScheduled = (mPending != null);
+            if (mPending == null) {
+                mPending = new Request(SystemClock.elapsedRealtime(), subId);
+            }
+            mPending.merge(silent, conversationId, coverage, subId);
+            mRequestCount++;
+
+            final Handler handler = getHandlerLocked();
+            if (mPending.isUrgent()) {
+                handler.removeCallbacks(mRunPending);
+                handler.post(mRunPending);
+            } else if (!wasScheduled) {
+                handler.postDelayed(mRunPending, QUIET_UPDATE_DELAY_MS);
+            }
+        }
+    }
+
+    private Handler getHandlerLocked() {
+        if (mHandler == null) {
+            final HandlerThread thread = new HandlerThread("BugleNotifications",
+                    Process.THREAD_PRIORITY_BACKGROUND);
+            thread.start();
+            mHandler = new Handler(thread.getLooper());
+        }
+        return mHandler;
+    }
+
+    private void runPending() {
+        final Request request;
+        synchronized (mLock) {
+            request = mPending;
+            mPending = null;
+        }
+        if (request == null) {
+            return;
+        }
+
+        final long start = SystemClock.elapsedRealtime();
+        try {
+            BugleNotifications.updateNow(request.mSilent, request.mConversationId,
+                    request.mCoverage, request.mSubId, request.mDirtyConversationIds);
+        } catch (final Exception e) {
+            LogUtil.e(TAG, "NotificationUpdateQueue: failed to update notifications", e);
+        } finally {
+            for (int i = 0; i < request.mRequestCount; i++) {
+                mWakeLock.release(mWakeLockIntent, WAKELOCK_OP);
+            }
+        }
+        final long end = SystemClock.elapsedRealtime();
+        final long latencyMs = end - request.mFirstRequestTime;
+        synchronized (mLock) {
+            mUpdateCount++;
+            mTotalLatencyMs += latencyMs;
+            mMaxLatencyMs = Math.max(mMaxLatencyMs, latencyMs);
+            mTotalUpdateMs += end - start;
+        }
+        if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
+            LogUtil.d(TAG, "NotificationUpdateQueue: updated for " + request.mRequestCount
+                    + " requests in " + (end - start) + "ms, " + latencyMs
+                    + "ms after the first request");
+        }
+    }
+
+    /**
+     * Dump how many requests were merged and how long after being requested updates were done
+     */
+    void dump(final PrintWriter writer) {
+        synchronized (mLock) {
+            writer.println("Notification updates: " + mRequestCount + " requested, "
+                    + mUpdateCount + " run"
+                    + (mUpdateCount > 0 ? ", " + mTotalUpdateMs / mUpdateCount + "ms each, "
+                            + mTotalLatencyMs / mUpdateCount + "ms average and "
+                            + mMaxLatencyMs + "ms max from request to posted" : ""));
+        }
+    }
+}
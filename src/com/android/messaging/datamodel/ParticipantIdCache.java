@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel;
+
+import android.database.Cursor;
+import android.text.TextUtils;
+
+import com.android.messaging.datamodel.DatabaseHelper.ParticipantColumns;
+import com.android.messaging.datamodel.data.ParticipantData;
+import com.android.messaging.util.LogUtil;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Maps the normalized destination of a participant, or the SELF(subId) key of a self
+ * participant, to its participant id. The entries are split over segments by key, each guarded
+ * by its own lock, so receiving a burst of messages doesn't queue every lookup on one lock. Each
+ * segment is kept in access order and evicts its least recently used entries once it is over its
+ * share of the size limit. Sizes are estimated from the lengths of the key and the id.
+ */
+class ParticipantIdCache {
+    private static final String TAG = LogUtil.BUGLE_DATABASE_TAG;
+
+    // Default number of independently locked segments
+    private static final int DEFAULT_SEGMENT_COUNT = 8;
+
+    // Default size limit for all segments together, in bytes
+    private static final int DEFAULT_MAX_SIZE_BYTES = 256 * 1024;
+
+    // Rough cost of a map entry and the two strings it holds, besides their characters
+    @VisibleForTesting
+    static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private static final ParticipantIdCache sInstance =
+            new ParticipantIdCache(DEFAULT_SEGMENT_COUNT, DEFAULT_MAX_SIZE_BYTES);
+
+    private final Segment[] mSegments;
+    private final int mMaxSegmentSizeBytes;
+    private final int mMaxSizeBytes;
+
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+    private final AtomicLong mEvictionCount = new AtomicLong();
+
+    /**
+     * A slice of the cache; all access to its members is synchronized on the segment.
+     */
+    private static class Segment {
+        final LinkedHashMap<String, String> mEntries =
+                new LinkedHashMap<String, String>(16, 0.75f, true /* accessOrder */);
+        // Estimated size of the entries in this segment, in bytes
+        int mSizeBytes;
+    }
+
+    static ParticipantIdCache get() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    ParticipantIdCache(final int segmentCount, final int maxSizeBytes) {
+        mSegments = new Segment[Math.max(1, segmentCount)];
+        for (int i = 0; i < mSegments.length; i++) {
+            mSegments[i] = new Segment();
+        }
+        mMaxSizeBytes = maxSizeBytes;
+        mMaxSegmentSizeBytes = Math.max(1, maxSizeBytes / mSegments.length);
+    }
+
+    private Segment getSegment(final String key) {
+        return mSegments[(key.hashCode() & Integer.MAX_VALUE) % mSegments.length];
+    }
+
+    @VisibleForTesting
+    static int sizeOf(final String key, final String participantId) {
+        return ENTRY_OVERHEAD_BYTES + 2 * (key.length() + participantId.length());
+    }
+
+    /**
+     * @return the participant id for the key, or null if it is not cached
+     */
+    String get(final String key) {
+        final Segment segment = getSegment(key);
+        final String participantId;
+        synchronized (segment) {
+            participantId = segment.mEntries.get(key);
+        }
+        if (participantId != null) {
+            mHitCount.incrementAndGet();
+        } else {
+            mMissCount.incrementAndGet();
+        }
+        return participantId;
+    }
+
+    void put(final String key, final String participantId) {
+        final Segment segment = getSegment(key);
+        int evicted = 0;
+        synchronized (segment) {
+            final String previous = segment.mEntries.put(key, participantId);
+            segment.mSizeBytes += sizeOf(key, participantId)
+                    - (previous != null ? sizeOf(key, previous) : 0);
+            final Iterator<Map.Entry<String, String>> eldest =
+                    segment.mEntries.entrySet().iterator();
+            while (segment.mSizeBytes > mMaxSegmentSizeBytes && eldest.hasNext()) {
+                final Map.Entry<String, String> entry = eldest.next();
+                if (entry.getKey().equals(key)) {
+                    // Always keep the entry just added
+                    continue;
+                }
+                segment.mSizeBytes -= sizeOf(entry.getKey(), entry.getValue());
+                eldest.remove();
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            mEvictionCount.addAndGet(evicted);
+        }
+    }
+
+    void remove(final String key) {
+        final Segment segment = getSegment(key);
+        synchronized (segment) {
+            final String removed = segment.mEntries.remove(key);
+            if (removed != null) {
+                segment.mSizeBytes -= sizeOf(key, removed);
+            }
+        }
+    }
+
+    void clear() {
+        for (final Segment segment : mSegments) {
+            synchronized (segment) {
+                segment.mEntries.clear();
+                segment.mSizeBytes = 0;
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int size() {
+        int size = 0;
+        for (final Segment segment : mSegments) {
+            synchronized (segment) {
+                size += segment.mEntries.size();
+            }
+        }
+        return size;
+    }
+
+    @VisibleForTesting
+    int getSizeBytes() {
+        int sizeBytes = 0;
+        for (final Segment segment : mSegments) {
+            synchronized (segment) {
+                sizeBytes += segment.mSizeBytes;
+            }
+        }
+        return sizeBytes;
+    }
+
+    @VisibleForTesting
+    long getHitCount() {
+        return mHitCount.get();
+    }
+
+    @VisibleForTesting
+    long getMissCount() {
+        return mMissCount.get();
+    }
+
+    /**
+     * Load the most recently created participants, as many as are expected to fit.
+     */
+    void warm(final DatabaseWrapper db) {
+        final int limit = mMaxSizeBytes / (ENTRY_OVERHEAD_BYTES + 64);
+        final ArrayList<String[]> entries = new ArrayList<String[]>();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(DatabaseHelper.PARTICIPANTS_TABLE,
+                    new String[] {
+                            ParticipantColumns._ID,
+                            ParticipantColumns.SUB_ID,
+                            ParticipantColumns.NORMALIZED_DESTINATION },
+                    null, null, null, null, ParticipantColumns._ID + " DESC",
+                    Integer.toString(limit));
+            while (cursor.moveToNext()) {
+                final int subId = cursor.getInt(1);
+                final String key = subId != ParticipantData.OTHER_THAN_SELF_SUB_ID
+                        ? BugleDatabaseOperations.getCanonicalRecipientFromSubId(subId)
+                        : cursor.getString(2);
+                if (!TextUtils.isEmpty(key)) {
+                    entries.add(new String[] { key, cursor.getString(0) });
+                }
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        // Add the oldest first so the newest participants are the last to be evicted
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            final String[] entry = entries.get(i);
+            put(entry[0], entry[1]);
+        }
+        if (LogUtil.isLoggable(TAG, LogUtil.VERBOSE)) {
+            LogUtil.v(TAG, "ParticipantIdCache: warmed with " + entries.size() + " participants");
+        }
+    }
+
+    /**
+     * Dump the size and hit rate of the cache
+     */
+    void dump(final PrintWriter writer) {
+        final long hits = mHitCount.get();
+        final long lookups = hits + mMissCount.get();
+        writer.println(String.format(Locale.US,
+                "Participant id cache: %d entries, %d/%d bytes, %d/%d hits (%.1f%%), "
+                        + "%d evictions",
+                size(), getSizeBytes(), mMaxSizeBytes, hits, lookups,
+                lookups > 0 ? 100f * hits / lookups : 0f, mEvictionCount.get()));
+    }
+}
@@ -16,18 +16,22 @@
 
 package com.android.messaging.datamodel;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.database.ContentObserver;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteStatement;
 import android.graphics.Color;
 import android.net.ConnectivityManager;
 import android.net.Uri;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
+import android.provider.ContactsContract;
 import android.provider.ContactsContract.CommonDataKinds.Phone;
+import android.provider.ContactsContract.Contacts;
+import android.provider.ContactsContract.DeletedContacts;
 import android.telephony.SubscriptionInfo;
 import android.text.TextUtils;
 import android.util.Log;
@@ -43,6 +47,8 @@ import com.android.messaging.datamodel.data.ParticipantData.ParticipantsQuery;
 import com.android.messaging.sms.MmsConfig;
 import com.android.messaging.ui.UIIntents;
 import com.android.messaging.util.Assert;
+import com.android.messaging.util.BuglePrefs;
+import com.android.messaging.util.BuglePrefsKeys;
 import com.android.messaging.util.ConnectivityUtil.ConnectivityListener;
 import com.android.messaging.util.ContactUtil;
 import com.android.messaging.util.LogUtil;
@@ -56,11 +62,16 @@ import com.sprd.messaging.smart.ServiceInfoImpl;
 import com.sprd.messaging.smart.SmartSdkUtils;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import android.app.ActivityManager;
 
@@ -74,6 +85,8 @@ import android.app.ActivityManager;
  *        change is detected.
  *     2. Partial refresh, this is triggered when a participant is added to a conversation. This
  *        normally happens during SMS sync.
+ *     3. Delta refresh, this is triggered when contacts change while the app is running. Only
+ *        participants matching contacts updated or deleted since the last refresh are refreshed.
  */
 @VisibleForTesting
 public class ParticipantRefresh {
@@ -103,6 +116,18 @@ public class ParticipantRefresh {
     //UNISOC: Add for Bug#1403736
     private static final int CONVERSATION_ID_MAX = 20;
 
+    // Wait for a burst of contact changes (e.g. an account sync) to settle before refreshing
+    private static final long DELTA_REFRESH_DELAY_MS = 500;
+
+    // Keep IN clauses well below SQLite's limit of 999 bound arguments
+    private static final int MAX_SELECTION_ARGS = 500;
+
+    // How many refreshes ran and how long they took, for logging
+    private static final AtomicLong sFullRefreshCount = new AtomicLong();
+    private static final AtomicLong sFullRefreshMillis = new AtomicLong();
+    private static final AtomicLong sDeltaRefreshCount = new AtomicLong();
+    private static final AtomicLong sDeltaRefreshMillis = new AtomicLong();
+
     public static class ConversationParticipantsQuery {
         public static final String[] PROJECTION = new String[] {
             ConversationParticipantsColumns._ID,
@@ -145,6 +170,15 @@ public class ParticipantRefresh {
             // add for bug 543691 end
         }
     };
+    private static final AtomicBoolean sDeltaRefreshScheduled = new AtomicBoolean(false);
+    private static final Runnable sDeltaRefreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final boolean oldScheduled = sDeltaRefreshScheduled.getAndSet(false);
+            Assert.isTrue(oldScheduled);
+            refreshChangedContacts();
+        }
+    };
     private static final Runnable sSelfOnlyRefreshRunnable = new Runnable() {
         @Override
         public void run() {
@@ -176,7 +210,7 @@ public class ParticipantRefresh {
             if (LogUtil.isLoggable(TAG, LogUtil.VERBOSE)) {
                 LogUtil.v(TAG, "Contacts changed");
             }
-            mContactChanged = true;
+            // Changed contacts are picked up by a delta refresh rather than a full one
             //Bug 894985 begin
             if (contactUpdateHandler != null) {
                 contactUpdateHandler.sendEmptyMessage(REFRESH_CONTACTS);
@@ -209,7 +243,7 @@ public class ParticipantRefresh {
     private static Runnable invalidateCache = new Runnable() {
         @Override
         public void run() {
-            startFullRefresh();
+            startDeltaRefresh();
         }
     };
 
@@ -221,7 +255,7 @@ public class ParticipantRefresh {
                     if (null != invalidateCache && hasCallbacks(invalidateCache)) {
                         removeCallbacks(invalidateCache);
                     }
-                    postDelayed(invalidateCache, 0);
+                    postDelayed(invalidateCache, DELTA_REFRESH_DELAY_MS);
                     break;
                 default:
                     Log.e(TAG, "Unkown message, message.what " + msg.what);
@@ -348,6 +382,15 @@ public class ParticipantRefresh {
         }
     }
 
+    private static void startDeltaRefresh() {
+        if (sDeltaRefreshScheduled.compareAndSet(false, true)) {
+            if (LogUtil.isLoggable(TAG, LogUtil.VERBOSE)) {
+                LogUtil.v(TAG, "Started delta participant refresh");
+            }
+            SafeAsyncTask.executeOnThreadPool(sDeltaRefreshRunnable);
+        }
+    }
+
     private static void startFullRefresh() {
         final ContactContentObserver observer = Factory.get().getContactContentObserver();
         if (observer != null) {
@@ -414,6 +457,14 @@ public class ParticipantRefresh {
             return;
         }
 
+        final long startTime = SystemClock.elapsedRealtime();
+        long contactsWatermark = BuglePrefsKeys.CONTACTS_REFRESH_WATERMARK_DEFAULT;
+        if (refreshMode == REFRESH_MODE_FULL) {
+            // Contacts updated from here on are picked up again by the next delta refresh
+            contactsWatermark =
+                    queryContactsWatermark(DataModel.get().getDatabase().getContext());
+        }
+
         if(MmsConfig.supportSmartSdk()){//by smart message
             if(DataModel.get().getServicePortConnectivityUtil()!=null){
                 mHasNet = DataModel.get().getServicePortConnectivityUtil().hasNet();
@@ -457,6 +508,7 @@ public class ParticipantRefresh {
         final DatabaseWrapper db = DataModel.get().getDatabase();
         Cursor cursor = null;
         boolean selfUpdated = false;
+        final ArrayList<ParticipantData> participantsToUpdate = new ArrayList<ParticipantData>();
         ArrayList<ParticipantData> participantDataArrayList = new ArrayList<ParticipantData>();
         try {
             cursor = db.query(DatabaseHelper.PARTICIPANTS_TABLE,
@@ -470,9 +522,7 @@ public class ParticipantRefresh {
                             if (participantData.isSelf()) {
                                 selfUpdated = true;
                             }
-                            updateParticipant(db, participantData);
-                            final String id = participantData.getId();
-                            changedParticipants.add(id);
+                            participantsToUpdate.add(participantData);
                         }
                         /*smart message, begin*/
                         if(refreshMode != REFRESH_MODE_SELF_ONLY  && !participantData.isSelf()
@@ -494,6 +544,14 @@ public class ParticipantRefresh {
             }
         }
 
+        // Write all changed participants in one transaction once the cursor is closed
+        if (participantsToUpdate.size() > 0) {
+            updateParticipants(db, participantsToUpdate);
+            for (final ParticipantData participantData : participantsToUpdate) {
+                changedParticipants.add(participantData.getId());
+            }
+        }
+
         if (LogUtil.isLoggable(TAG, LogUtil.VERBOSE)) {
             LogUtil.v(TAG, "Number of participants refreshed:" + changedParticipants.size());
         }
@@ -501,6 +559,7 @@ public class ParticipantRefresh {
         // Refresh conversations for participants that are changed.
         if (changedParticipants.size() > 0) {
             BugleDatabaseOperations.refreshConversationsForParticipants(changedParticipants);
+            BugleNotifications.onParticipantsChanged();
         }
         if (selfUpdated) {
             // Boom
@@ -514,6 +573,267 @@ public class ParticipantRefresh {
              updateParticipantDataIfSmart(db.getContext(),participantData);
          }
          /*smart message,end*/
+
+        if (refreshMode == REFRESH_MODE_FULL) {
+            if (contactsWatermark != BuglePrefsKeys.CONTACTS_REFRESH_WATERMARK_DEFAULT) {
+                BuglePrefs.getApplicationPrefs().putLong(
+                        BuglePrefsKeys.CONTACTS_REFRESH_WATERMARK, contactsWatermark);
+            }
+            final long elapsed = SystemClock.elapsedRealtime() - startTime;
+            sFullRefreshCount.incrementAndGet();
+            sFullRefreshMillis.addAndGet(elapsed);
+            LogUtil.i(TAG, "ParticipantRefresh: full refresh updated "
+                    + changedParticipants.size() + " participants in " + elapsed + "ms ("
+                    + sFullRefreshCount.get() + " full refreshes, "
+                    + sFullRefreshMillis.get() + "ms total)");
+        }
+    }
+
+    /**
+     * Refresh the participants matching contacts updated or deleted since the last refresh.
+     * Falls back to a full refresh if there is nothing to compare against yet.
+     */
+    private synchronized static void refreshChangedContacts() {
+        if (!ContactUtil.hasReadContactsPermission() || !OsUtil.hasPhonePermission()) {
+            if (LogUtil.isLoggable(TAG, LogUtil.VERBOSE)) {
+                LogUtil.v(TAG, "Skipping participant referesh because of permissions");
+            }
+            return;
+        }
+
+        final BuglePrefs prefs = BuglePrefs.getApplicationPrefs();
+        final long watermark = prefs.getLong(BuglePrefsKeys.CONTACTS_REFRESH_WATERMARK,
+                BuglePrefsKeys.CONTACTS_REFRESH_WATERMARK_DEFAULT);
+        if (watermark == BuglePrefsKeys.CONTACTS_REFRESH_WATERMARK_DEFAULT
+                || !OsUtil.isAtLeastJB_MR2()) {
+            startFullRefresh();
+            return;
+        }
+
+        final long startTime = SystemClock.elapsedRealtime();
+        final Context context = DataModel.get().getDatabase().getContext();
+        final Set<String> contactIds = new HashSet<String>();
+        final Set<String> lookupKeys = new HashSet<String>();
+        final Set<String> destinations = new HashSet<String>();
+        final long newWatermark;
+        try {
+            newWatermark = queryChangedContacts(context, watermark, contactIds, lookupKeys);
+            queryContactDestinations(context, contactIds, destinations);
+        } catch (final Exception exception) {
+            // A failed contacts query leaves the watermark alone so the next change retries
+            LogUtil.e(TAG, "ParticipantRefresh: failed to query changed contacts", exception);
+            return;
+        }
+
+        final int updatedCount = contactIds.isEmpty() ? 0
+                : refreshChangedParticipants(contactIds, lookupKeys, destinations);
+        prefs.putLong(BuglePrefsKeys.CONTACTS_REFRESH_WATERMARK, newWatermark);
+
+        final long elapsed = SystemClock.elapsedRealtime() - startTime;
+        sDeltaRefreshCount.incrementAndGet();
+        sDeltaRefreshMillis.addAndGet(elapsed);
+        LogUtil.i(TAG, "ParticipantRefresh: delta refresh of " + contactIds.size()
+                + " changed contacts updated " + updatedCount + " participants in " + elapsed
+                + "ms (" + sDeltaRefreshCount.get() + " delta refreshes, "
+                + sDeltaRefreshMillis.get() + "ms total)");
+    }
+
+    /**
+     * Refresh the participants linked to any of the given contacts, lookup keys or normalized
+     * destinations, and the conversations they are in.
+     *
+     * @return the number of participants that changed
+     */
+    @VisibleForTesting
+    static int refreshChangedParticipants(final Collection<String> contactIds,
+            final Collection<String> lookupKeys, final Collection<String> destinations) {
+        final DatabaseWrapper db = DataModel.get().getDatabase();
+        final LinkedHashMap<String, ParticipantData> participants =
+                new LinkedHashMap<String, ParticipantData>();
+        queryParticipantsIn(db, ParticipantColumns.CONTACT_ID, contactIds, participants);
+        queryParticipantsIn(db, ParticipantColumns.LOOKUP_KEY, lookupKeys, participants);
+        queryParticipantsIn(db, ParticipantColumns.NORMALIZED_DESTINATION, destinations,
+                participants);
+
+        boolean selfUpdated = false;
+        final ArrayList<ParticipantData> participantsToUpdate = new ArrayList<ParticipantData>();
+        for (final ParticipantData participantData : participants.values()) {
+            try {
+                if (refreshParticipant(db, participantData)) {
+                    if (participantData.isSelf()) {
+                        selfUpdated = true;
+                    }
+                    participantsToUpdate.add(participantData);
+                }
+            } catch (final Exception exception) {
+                // Failure to update one participant shouldn't cancel the entire refresh.
+                LogUtil.e(TAG, "ParticipantRefresh: Failed to update participant", exception);
+            }
+        }
+
+        final ArrayList<String> changedParticipants = new ArrayList<String>();
+        if (participantsToUpdate.size() > 0) {
+            updateParticipants(db, participantsToUpdate);
+            for (final ParticipantData participantData : participantsToUpdate) {
+                changedParticipants.add(participantData.getId());
+            }
+            BugleDatabaseOperations.refreshConversationsForParticipants(changedParticipants);
+            BugleNotifications.onParticipantsChanged();
+        }
+        if (selfUpdated) {
+            MessagingContentProvider.notifyAllParticipantsChanged();
+            MessagingContentProvider.notifyAllMessagesChanged();
+        }
+
+        /*smart message,begin*/
+        for (final ParticipantData participantData : participants.values()) {
+            if (!participantData.isSelf()
+                    && !TextUtils.isEmpty(participantData.getSendDestination())) {
+                updateParticipantDataIfSmart(db.getContext(), participantData);
+            }
+        }
+        /*smart message,end*/
+        return changedParticipants.size();
+    }
+
+    /**
+     * Add the participants whose column matches one of the values, batching the IN clauses.
+     */
+    private static void queryParticipantsIn(final DatabaseWrapper db, final String column,
+            final Collection<String> values, final Map<String, ParticipantData> participants) {
+        final ArrayList<String> valueList = new ArrayList<String>(values);
+        for (int start = 0; start < valueList.size(); start += MAX_SELECTION_ARGS) {
+            final List<String> batch = valueList.subList(start,
+                    Math.min(start + MAX_SELECTION_ARGS, valueList.size()));
+            Cursor cursor = null;
+            try {
+                cursor = db.query(DatabaseHelper.PARTICIPANTS_TABLE,
+                        ParticipantsQuery.PROJECTION,
+                        column + " IN (" + getPlaceholders(batch.size()) + ")",
+                        batch.toArray(new String[batch.size()]), null, null, null);
+                while (cursor.moveToNext()) {
+                    final ParticipantData participantData = ParticipantData.getFromCursor(cursor);
+                    if (!participants.containsKey(participantData.getId())) {
+                        participants.put(participantData.getId(), participantData);
+                    }
+                }
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Collect the contacts updated or deleted after the watermark.
+     *
+     * @return the new watermark
+     */
+    private static long queryChangedContacts(final Context context, final long watermark,
+            final Set<String> contactIds, final Set<String> lookupKeys) {
+        long newWatermark = watermark;
+        final String[] selectionArgs = new String[] { String.valueOf(watermark) };
+        Cursor cursor = context.getContentResolver().query(Contacts.CONTENT_URI,
+                new String[] {
+                        Contacts._ID,
+                        Contacts.LOOKUP_KEY,
+                        Contacts.CONTACT_LAST_UPDATED_TIMESTAMP },
+                Contacts.CONTACT_LAST_UPDATED_TIMESTAMP + " > ?", selectionArgs, null);
+        try {
+            while (cursor != null && cursor.moveToNext()) {
+                contactIds.add(cursor.getString(0));
+                if (!cursor.isNull(1)) {
+                    lookupKeys.add(cursor.getString(1));
+                }
+                newWatermark = Math.max(newWatermark, cursor.getLong(2));
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        cursor = context.getContentResolver().query(DeletedContacts.CONTENT_URI,
+                new String[] {
+                        DeletedContacts.CONTACT_ID,
+                        DeletedContacts.CONTACT_DELETED_TIMESTAMP },
+                DeletedContacts.CONTACT_DELETED_TIMESTAMP + " > ?", selectionArgs, null);
+        try {
+            while (cursor != null && cursor.moveToNext()) {
+                contactIds.add(cursor.getString(0));
+                newWatermark = Math.max(newWatermark, cursor.getLong(1));
+            }
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return newWatermark;
+    }
+
+    /**
+     * Collect the normalized phone numbers of the contacts, batching the IN clauses.
+     */
+    private static void queryContactDestinations(final Context context,
+            final Set<String> contactIds, final Set<String> destinations) {
+        final ArrayList<String> idList = new ArrayList<String>(contactIds);
+        for (int start = 0; start < idList.size(); start += MAX_SELECTION_ARGS) {
+            final List<String> batch = idList.subList(start,
+                    Math.min(start + MAX_SELECTION_ARGS, idList.size()));
+            final Cursor cursor = context.getContentResolver().query(Phone.CONTENT_URI,
+                    new String[] { Phone.NUMBER, Phone.NORMALIZED_NUMBER },
+                    Phone.CONTACT_ID + " IN (" + getPlaceholders(batch.size()) + ")",
+                    batch.toArray(new String[batch.size()]), null);
+            try {
+                while (cursor != null && cursor.moveToNext()) {
+                    final String normalizedNumber = cursor.getString(1);
+                    final String destination = !TextUtils.isEmpty(normalizedNumber)
+                            ? normalizedNumber
+                            : PhoneUtils.getDefault().getCanonicalBySystemLocale(
+                                    cursor.getString(0));
+                    if (!TextUtils.isEmpty(destination)) {
+                        destinations.add(destination);
+                    }
+                }
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the latest contact update time, or CONTACTS_REFRESH_WATERMARK_DEFAULT if unknown
+     */
+    private static long queryContactsWatermark(final Context context) {
+        if (!OsUtil.isAtLeastJB_MR2()) {
+            return BuglePrefsKeys.CONTACTS_REFRESH_WATERMARK_DEFAULT;
+        }
+        Cursor cursor = null;
+        try {
+            final Uri uri = Contacts.CONTENT_URI.buildUpon()
+                    .appendQueryParameter(ContactsContract.LIMIT_PARAM_KEY, "1").build();
+            cursor = context.getContentResolver().query(uri,
+                    new String[] { Contacts.CONTACT_LAST_UPDATED_TIMESTAMP }, null, null,
+                    Contacts.CONTACT_LAST_UPDATED_TIMESTAMP + " DESC");
+            if (cursor != null) {
+                // No contacts at all yet, so any contact added later is newer
+                return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+            }
+        } catch (final Exception exception) {
+            LogUtil.e(TAG, "ParticipantRefresh: failed to query contacts watermark", exception);
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return BuglePrefsKeys.CONTACTS_REFRESH_WATERMARK_DEFAULT;
+    }
+
+    private static String getPlaceholders(final int count) {
+        return TextUtils.join(",", Collections.nCopies(count, "?"));
     }
 
     private static final String SELF_PARTICIPANTS_CLAUSE = ParticipantColumns.SUB_ID
@@ -829,37 +1149,110 @@ public class ParticipantRefresh {
         return updated;
     }
 
+    private static final String UPDATE_PARTICIPANT_CONTACT_COLUMNS =
+            ParticipantColumns.CONTACT_ID + "=?, "
+            + ParticipantColumns.LOOKUP_KEY + "=?, "
+            + ParticipantColumns.FULL_NAME + "=?, "
+            + ParticipantColumns.FIRST_NAME + "=?, "
+            + ParticipantColumns.PROFILE_PHOTO_URI + "=?, "
+            + ParticipantColumns.CONTACT_DESTINATION + "=?, "
+            + ParticipantColumns.SEND_DESTINATION + "=?";
+
+    private static final String UPDATE_PARTICIPANT_SQL =
+            "UPDATE " + DatabaseHelper.PARTICIPANTS_TABLE + " SET "
+            + UPDATE_PARTICIPANT_CONTACT_COLUMNS
+            + " WHERE " + ParticipantColumns._ID + "=?";
+
+    // Self participants can also refresh their normalized phone numbers
+    private static final String UPDATE_SELF_PARTICIPANT_SQL =
+            "UPDATE " + DatabaseHelper.PARTICIPANTS_TABLE + " SET "
+            + UPDATE_PARTICIPANT_CONTACT_COLUMNS + ", "
+            + ParticipantColumns.NORMALIZED_DESTINATION + "=?, "
+            + ParticipantColumns.DISPLAY_DESTINATION + "=?"
+            + " WHERE " + ParticipantColumns._ID + "=?";
+
     /**
      * Update participant with matching contact's contactId, displayName and photoUri.
      */
     private static void updateParticipant(final DatabaseWrapper db,
             final ParticipantData participantData) {
-        final ContentValues values = new ContentValues();
-        if (participantData.isSelf()) {
-            // Self participants can refresh their normalized phone numbers
-            values.put(ParticipantColumns.NORMALIZED_DESTINATION,
-                    participantData.getNormalizedDestination());
-            values.put(ParticipantColumns.DISPLAY_DESTINATION,
-                    participantData.getDisplayDestination());
-        }
-        values.put(ParticipantColumns.CONTACT_ID, participantData.getContactId());
-        values.put(ParticipantColumns.LOOKUP_KEY, participantData.getLookupKey());
-        values.put(ParticipantColumns.FULL_NAME, participantData.getFullName());
-        values.put(ParticipantColumns.FIRST_NAME, participantData.getFirstName());
-        values.put(ParticipantColumns.PROFILE_PHOTO_URI, participantData.getProfilePhotoUri());
-        values.put(ParticipantColumns.CONTACT_DESTINATION, participantData.getContactDestination());
-        values.put(ParticipantColumns.SEND_DESTINATION, participantData.getSendDestination());
+        final ArrayList<ParticipantData> participants = new ArrayList<ParticipantData>(1);
+        participants.add(participantData);
+        updateParticipants(db, participants);
+    }
+
+    /**
+     * Update participants with matching contacts' contactId, displayName and photoUri, using
+     * compiled statements in a single transaction.
+     */
+    private static void updateParticipants(final DatabaseWrapper db,
+            final List<ParticipantData> participants) {
+        // Self and other participants update different columns, so they run as two batches
+        final ArrayList<ParticipantData> selfParticipants = new ArrayList<ParticipantData>();
+        final ArrayList<ParticipantData> otherParticipants = new ArrayList<ParticipantData>();
+        for (final ParticipantData participantData : participants) {
+            if (participantData.isSelf()) {
+                selfParticipants.add(participantData);
+            } else {
+                otherParticipants.add(participantData);
+            }
+        }
 
         db.beginTransaction();
         try {
-            db.update(DatabaseHelper.PARTICIPANTS_TABLE, values, ParticipantColumns._ID + "=?",
-                    new String[] { participantData.getId() });
+            if (selfParticipants.size() > 0) {
+                db.executeUpdateDeleteBatchInTransaction(UPDATE_SELF_PARTICIPANT_SQL,
+                        selfParticipants.size(), new ParticipantBinder(selfParticipants));
+            }
+            if (otherParticipants.size() > 0) {
+                db.executeUpdateDeleteBatchInTransaction(UPDATE_PARTICIPANT_SQL,
+                        otherParticipants.size(), new ParticipantBinder(otherParticipants));
+            }
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
         }
     }
 
+    /**
+     * Binds the arguments of UPDATE_PARTICIPANT_SQL, or UPDATE_SELF_PARTICIPANT_SQL for self
+     * participants
+     */
+    private static class ParticipantBinder implements DatabaseWrapper.BatchBinder {
+        private final List<ParticipantData> mParticipants;
+
+        ParticipantBinder(final List<ParticipantData> participants) {
+            mParticipants = participants;
+        }
+
+        @Override
+        public void bindRow(final SQLiteStatement statement, final int row) {
+            final ParticipantData participantData = mParticipants.get(row);
+            int index = 1;
+            statement.bindLong(index++, participantData.getContactId());
+            bindString(statement, index++, participantData.getLookupKey());
+            bindString(statement, index++, participantData.getFullName());
+            bindString(statement, index++, participantData.getFirstName());
+            bindString(statement, index++, participantData.getProfilePhotoUri());
+            bindString(statement, index++, participantData.getContactDestination());
+            bindString(statement, index++, participantData.getSendDestination());
+            if (participantData.isSelf()) {
+                bindString(statement, index++, participantData.getNormalizedDestination());
+                bindString(statement, index++, participantData.getDisplayDestination());
+            }
+            statement.bindString(index, participantData.getId());
+        }
+
+        private static void bindString(final SQLiteStatement statement, final int index,
+                final String value) {
+            if (value == null) {
+                statement.bindNull(index);
+            } else {
+                statement.bindString(index, value);
+            }
+        }
+    }
+
     /**
      * Get a list of inactive self ids in the participants table.
      */
@@ -97,6 +97,14 @@ public class SyncManager {
      */
     private long mMaxRecentChangeTimestamp = -1L;
 
+    /**
+     * Number of local messages added or deleted by the in progress sync, and the time spent
+     * scanning and writing them - used to report sync throughput
+     */
+    private int mSyncMessagesUpdated;
+    private long mSyncScanTimeMillis;
+    private long mSyncWriteTimeMillis;
+
     private final ThreadInfoCache mThreadInfoCache = new ThreadInfoCache();
 
     /**
@@ -214,10 +222,33 @@ public class SyncManager {
         }
 
         mSyncInProgressTimestamp = startTimestamp;
+        mSyncMessagesUpdated = 0;
+        mSyncScanTimeMillis = 0;
+        mSyncWriteTimeMillis = 0;
 
         return true;
     }
 
+    /**
+     * Called from data model thread once a sync batch has been written to the local database
+     * @param messagesUpdated number of local messages added or deleted by the batch
+     * @param scanTimeMillis time spent comparing local and telephony messages for the batch
+     * @param writeTimeMillis time spent writing the batch to the local database
+     */
+    public synchronized void onSyncBatchCompleted(final int messagesUpdated,
+            final long scanTimeMillis, final long writeTimeMillis) {
+        mSyncMessagesUpdated += messagesUpdated;
+        mSyncScanTimeMillis += scanTimeMillis;
+        mSyncWriteTimeMillis += writeTimeMillis;
+    }
+
+    /**
+     * Throughput in messages per second over a period of time, for logging
+     */
+    public static long messagesPerSecond(final int messages, final long timeMillis) {
+        return timeMillis > 0 ? messages * 1000L / timeMillis : 0;
+    }
+
     /**
      * Return delay (in ms) until allowed to run a full sync (0 meaning can run immediately)
      * @param startTimestamp Timestamp used to start the sync
@@ -276,6 +307,16 @@ public class SyncManager {
             LogUtil.d(TAG, "SyncManager: Sync started at " + mSyncInProgressTimestamp
                     + " marked as complete");
         }
+        if (mSyncMessagesUpdated > 0) {
+            final long totalTimeMillis = mSyncScanTimeMillis + mSyncWriteTimeMillis;
+            LogUtil.i(TAG, "SyncManager: Sync updated " + mSyncMessagesUpdated + " messages in "
+                    + totalTimeMillis + " ms (scan " + mSyncScanTimeMillis + " ms, write "
+                    + mSyncWriteTimeMillis + " ms, "
+                    + messagesPerSecond(mSyncMessagesUpdated, totalTimeMillis) + " messages/s)");
+        }
+        mSyncMessagesUpdated = 0;
+        mSyncScanTimeMillis = 0;
+        mSyncWriteTimeMillis = 0;
         mSyncInProgressTimestamp = -1L;
         // Conversation customization only used once
         mCustomization = null;
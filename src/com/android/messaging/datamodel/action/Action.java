@@ -19,6 +19,7 @@ package com.android.messaging.datamodel.action;
 import android.os.Bundle;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.os.SystemClock;
 import android.text.TextUtils;
 
 import com.android.messaging.datamodel.DataModel;
@@ -48,6 +49,13 @@ public abstract class Action implements Parcelable {
     // This does not get written to the parcel
     private final List<Action> mBackgroundActions = new LinkedList<Action>();
 
+    // Time the action was last handed to the action service or background worker (0 if unknown).
+    // This does not get written to the parcel; the services carry it next to the action
+    private long mQueuedTimeMs;
+
+    // Start of the stage currently being timed on this side of the parcel
+    private long mStageStartTimeMs;
+
     /**
      * Process the action locally - runs on action service thread.
      * TODO: Currently, there is no way for this method to indicate failure
@@ -88,6 +96,10 @@ public abstract class Action implements Parcelable {
      * Send queued actions to the background worker provided
      */
     public void sendBackgroundActions(final BackgroundWorker worker) {
+        final long now = SystemClock.elapsedRealtime();
+        for (final Action action : mBackgroundActions) {
+            action.mQueuedTimeMs = now;
+        }
         worker.queueBackgroundWork(mBackgroundActions);
         mBackgroundActions.clear();
     }
@@ -120,6 +132,22 @@ public abstract class Action implements Parcelable {
         return null;
     }
 
+    /**
+     * Whether the action may be handed straight to the in-process executor instead of being
+     * parceled to the ActionService. Only return true for short actions that do not need to run
+     * in order with other queued actions.
+     */
+    protected boolean canExecuteInProcess() {
+        return false;
+    }
+
+    /**
+     * Priority of the action in the in-process executor queue, higher runs first
+     */
+    protected int getInProcessPriority() {
+        return InProcessActionExecutor.PRIORITY_NORMAL;
+    }
+
     /**
      * Constructor
      */
@@ -162,6 +190,7 @@ public abstract class Action implements Parcelable {
      * Called when action queues ActionService intent
      */
     protected final void markStart() {
+        mQueuedTimeMs = SystemClock.elapsedRealtime();
         ActionMonitor.setState(this, ActionMonitor.STATE_CREATED,
                 ActionMonitor.STATE_QUEUED);
     }
@@ -170,6 +199,8 @@ public abstract class Action implements Parcelable {
      * Mark the beginning of local action execution
      */
     protected final void markBeginExecute() {
+        mStageStartTimeMs = SystemClock.elapsedRealtime();
+        recordSinceQueued(ActionTimings.PHASE_QUEUE_WAIT, mStageStartTimeMs);
         ActionMonitor.setState(this, ActionMonitor.STATE_QUEUED,
                 ActionMonitor.STATE_EXECUTING);
     }
@@ -179,6 +210,8 @@ public abstract class Action implements Parcelable {
      * background actions
      */
     protected final void markEndExecute(final Object result) {
+        ActionTimings.record(this, ActionTimings.PHASE_EXECUTE,
+                SystemClock.elapsedRealtime() - mStageStartTimeMs);
         final boolean hasBackgroundActions = hasBackgroundActions();
         ActionMonitor.setExecutedState(this, ActionMonitor.STATE_EXECUTING,
                 hasBackgroundActions, result);
@@ -192,6 +225,8 @@ public abstract class Action implements Parcelable {
      * Update action state to indicate that the background worker is starting
      */
     protected final void markBackgroundWorkStarting() {
+        mStageStartTimeMs = SystemClock.elapsedRealtime();
+        recordSinceQueued(ActionTimings.PHASE_BACKGROUND_QUEUE_WAIT, mStageStartTimeMs);
         ActionMonitor.setState(this,
                 ActionMonitor.STATE_BACKGROUND_ACTIONS_QUEUED,
                 ActionMonitor.STATE_EXECUTING_BACKGROUND_ACTION);
@@ -202,6 +237,9 @@ public abstract class Action implements Parcelable {
      * (or failure) to the Action service
      */
     protected final void markBackgroundCompletionQueued() {
+        mQueuedTimeMs = SystemClock.elapsedRealtime();
+        ActionTimings.record(this, ActionTimings.PHASE_BACKGROUND_WORK,
+                mQueuedTimeMs - mStageStartTimeMs);
         ActionMonitor.setState(this,
                 ActionMonitor.STATE_EXECUTING_BACKGROUND_ACTION,
                 ActionMonitor.STATE_BACKGROUND_COMPLETION_QUEUED);
@@ -211,6 +249,7 @@ public abstract class Action implements Parcelable {
      * Update action state to indicate the background action failed but is being re-queued for retry
      */
     protected final void markBackgroundWorkQueued() {
+        mQueuedTimeMs = SystemClock.elapsedRealtime();
         ActionMonitor.setState(this,
                 ActionMonitor.STATE_EXECUTING_BACKGROUND_ACTION,
                 ActionMonitor.STATE_BACKGROUND_ACTIONS_QUEUED);
@@ -225,6 +264,7 @@ public abstract class Action implements Parcelable {
                 ActionMonitor.STATE_BACKGROUND_COMPLETION_QUEUED,
                 ActionMonitor.STATE_PROCESSING_BACKGROUND_RESPONSE);
         final Object result = processBackgroundResponse(response);
+        recordSinceQueued(ActionTimings.PHASE_COMPLETION, SystemClock.elapsedRealtime());
         ActionMonitor.setCompleteState(this,
                 ActionMonitor.STATE_PROCESSING_BACKGROUND_RESPONSE, result, true);
     }
@@ -234,10 +274,32 @@ public abstract class Action implements Parcelable {
      */
     protected final void processBackgroundWorkFailure() {
         final Object result = processBackgroundFailure();
+        recordSinceQueued(ActionTimings.PHASE_COMPLETION, SystemClock.elapsedRealtime());
         ActionMonitor.setCompleteState(this, ActionMonitor.STATE_UNDEFINED,
                 result, false);
     }
 
+    /**
+     * Time the action was last queued, for the services to pass along with the parceled action
+     */
+    final long getQueuedTimeMs() {
+        return mQueuedTimeMs;
+    }
+
+    /**
+     * Restore the queued time passed along with the parceled action
+     */
+    final void setQueuedTimeMs(final long queuedTimeMs) {
+        mQueuedTimeMs = queuedTimeMs;
+    }
+
+    private void recordSinceQueued(final int phase, final long now) {
+        // Actions started from a pending intent or alarm were never marked as queued
+        if (mQueuedTimeMs > 0) {
+            ActionTimings.record(this, phase, now - mQueuedTimeMs);
+        }
+    }
+
     private static final Object sLock = new Object();
     private static long sActionIdx = System.currentTimeMillis() * 1000;
 
@@ -56,11 +56,17 @@ public class ActionServiceImpl extends JobIntentService {
      * @param action - action to start
      */
     protected static void startAction(final Action action) {
+        if (InProcessActionExecutor.shouldExecuteInProcess(action)) {
+            // Skip parceling the action while the app is in the foreground
+            InProcessActionExecutor.get().startAction(action);
+            return;
+        }
         final Intent intent = makeIntent(OP_START_ACTION);
         final Bundle actionBundle = new Bundle();
         actionBundle.putParcelable(BUNDLE_ACTION, action);
         intent.putExtra(EXTRA_ACTION_BUNDLE, actionBundle);
         action.markStart();
+        intent.putExtra(EXTRA_QUEUED_TIME, action.getQueuedTimeMs());
         startServiceWithIntent(intent);
     }
 
@@ -93,6 +99,7 @@ public class ActionServiceImpl extends JobIntentService {
         actionBundle.putParcelable(BUNDLE_ACTION, action);
         intent.putExtra(EXTRA_ACTION_BUNDLE, actionBundle);
         intent.putExtra(EXTRA_WORKER_RESPONSE, response);
+        intent.putExtra(EXTRA_QUEUED_TIME, action.getQueuedTimeMs());
 
         startServiceWithIntent(intent);
     }
@@ -109,6 +116,7 @@ public class ActionServiceImpl extends JobIntentService {
         actionBundle.putParcelable(BUNDLE_ACTION, action);
         intent.putExtra(EXTRA_ACTION_BUNDLE, actionBundle);
         intent.putExtra(EXTRA_WORKER_EXCEPTION, exception);
+        intent.putExtra(EXTRA_QUEUED_TIME, action.getQueuedTimeMs());
 
         startServiceWithIntent(intent);
     }
@@ -134,6 +142,8 @@ public class ActionServiceImpl extends JobIntentService {
     protected static final String EXTRA_WORKER_UPDATE = "worker_update";
     @VisibleForTesting
     protected static final String BUNDLE_ACTION = "bundle_action";
+    // Kept out of the action parcel, whose layout pending intents may still hold
+    private static final String EXTRA_QUEUED_TIME = "queued_time";
 
     private BackgroundWorker mBackgroundWorker;
     private ConnectivityUtil mConnectivityUtil;
@@ -262,6 +272,7 @@ public class ActionServiceImpl extends JobIntentService {
         switch(opcode) {
             case OP_START_ACTION: {
                 action = (Action) actionBundle.getParcelable(BUNDLE_ACTION);
+                action.setQueuedTimeMs(intent.getLongExtra(EXTRA_QUEUED_TIME, 0));
                 LogUtil.d(TAG,"acton:"+action.getClass().getName());
                 executeAction(action);
                 break;
@@ -269,6 +280,7 @@ public class ActionServiceImpl extends JobIntentService {
 
             case OP_RECEIVE_BACKGROUND_RESPONSE: {
                 action = (Action) actionBundle.getParcelable(BUNDLE_ACTION);
+                action.setQueuedTimeMs(intent.getLongExtra(EXTRA_QUEUED_TIME, 0));
                 LogUtil.d(TAG,"acton:"+action.getClass().getName());
                 final Bundle response = intent.getBundleExtra(EXTRA_WORKER_RESPONSE);
                 processBackgroundResponse(action, response);
@@ -277,6 +289,7 @@ public class ActionServiceImpl extends JobIntentService {
 
             case OP_RECEIVE_BACKGROUND_FAILURE: {
                 action = (Action) actionBundle.getParcelable(BUNDLE_ACTION);
+                action.setQueuedTimeMs(intent.getLongExtra(EXTRA_QUEUED_TIME, 0));
                 LogUtil.d(TAG,"acton:"+action.getClass().getName());
                 processBackgroundFailure(action);
                 break;
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel.action;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per action class latency histograms for each stage an action goes through in the action
+ * service and background worker. Recording is lock free so it can be done from any thread
+ * without adding contention to the services being measured. The histograms are included in the
+ * app's dumpsys output along with the saved logs.
+ */
+public class ActionTimings {
+    /** Time from queueing an action until the action service starts executing it */
+    public static final int PHASE_QUEUE_WAIT = 0;
+    /** Time spent in {@link Action#executeAction} */
+    public static final int PHASE_EXECUTE = 1;
+    /** Time from queueing background work until the background worker starts it */
+    public static final int PHASE_BACKGROUND_QUEUE_WAIT = 2;
+    /** Time spent in {@link Action#doBackgroundWork} */
+    public static final int PHASE_BACKGROUND_WORK = 3;
+    /**
+     * Time from the background worker posting its response (or failure) until the action
+     * service has processed it
+     */
+    public static final int PHASE_COMPLETION = 4;
+    private static final int PHASE_COUNT = 5;
+
+    private static final String[] PHASE_NAMES = new String[] {
+        "queue", "execute", "bg-queue", "bg-work", "completion",
+    };
+
+    // Bucket 0 counts samples under 1ms, bucket i samples in [2^(i-1), 2^i) ms and the last
+    // bucket everything from 2^(BUCKET_COUNT-2) ms (~4.4 minutes) up
+    @VisibleForTesting
+    static final int BUCKET_COUNT = 20;
+
+    // Per phase slots in the histogram array: the buckets, then the total and max durations
+    private static final int SLOT_TOTAL = BUCKET_COUNT;
+    private static final int SLOT_MAX = BUCKET_COUNT + 1;
+    private static final int SLOTS_PER_PHASE = BUCKET_COUNT + 2;
+
+    private static final ConcurrentMap<String, AtomicLongArray> sHistograms =
+            new ConcurrentHashMap<String, AtomicLongArray>();
+
+    private ActionTimings() {
+    }
+
+    /**
+     * Record how long one stage of an action took
+     * @param action the action, used to pick the histogram by its class
+     * @param phase one of the PHASE_* constants
+     * @param durationMs duration of the stage, negative durations are ignored
+     */
+    static void record(final Action action, final int phase, final long durationMs) {
+        if (durationMs < 0) {
+            return;
+        }
+        final AtomicLongArray histogram = getHistogram(action.getClass().getSimpleName());
+        final int base = phase * SLOTS_PER_PHASE;
+        histogram.incrementAndGet(base + getBucket(durationMs));
+        histogram.addAndGet(base + SLOT_TOTAL, durationMs);
+        long max = histogram.get(base + SLOT_MAX);
+        while (durationMs > max && !histogram.compareAndSet(base + SLOT_MAX, max, durationMs)) {
+            max = histogram.get(base + SLOT_MAX);
+        }
+    }
+
+    private static AtomicLongArray getHistogram(final String actionName) {
+        AtomicLongArray histogram = sHistograms.get(actionName);
+        if (histogram == null) {
+            final AtomicLongArray created = new AtomicLongArray(PHASE_COUNT * SLOTS_PER_PHASE);
+            histogram = sHistograms.putIfAbsent(actionName, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    @VisibleForTesting
+    static int getBucket(final long durationMs) {
+        if (durationMs < 1) {
+            return 0;
+        }
+        final int bucket = 64 - Long.numberOfLeadingZeros(durationMs);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * @return the upper bound in ms of the durations counted in a bucket
+     */
+    private static long getBucketUpperBound(final int bucket) {
+        return 1L << bucket;
+    }
+
+    @VisibleForTesting
+    static void reset() {
+        sHistograms.clear();
+    }
+
+    /**
+     * Get the approximate percentile of one phase of an action, i.e. the upper bound of the
+     * bucket containing it
+     * @return the percentile in ms, or -1 if nothing was recorded
+     */
+    @VisibleForTesting
+    static long getPercentile(final String actionName, final int phase, final int percentile) {
+        final AtomicLongArray histogram = sHistograms.get(actionName);
+        if (histogram == null) {
+            return -1;
+        }
+        return getPercentile(histogram, phase * SLOTS_PER_PHASE, percentile);
+    }
+
+    private static long getPercentile(final AtomicLongArray histogram, final int base,
+            final int percentile) {
+        final long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            counts[bucket] = histogram.get(base + bucket);
+            count += counts[bucket];
+        }
+        if (count == 0) {
+            return -1;
+        }
+        final long rank = (count * percentile + 99) / 100;
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(getBucketUpperBound(bucket), histogram.get(base + SLOT_MAX));
+            }
+        }
+        return histogram.get(base + SLOT_MAX);
+    }
+
+    /**
+     * Dump a summary line per action and phase: sample count, mean, approximate percentiles and
+     * max, all in ms
+     */
+    public static void dump(final PrintWriter writer) {
+        final ArrayList<String> actionNames = new ArrayList<String>(sHistograms.keySet());
+        Collections.sort(actionNames);
+        writer.println("Action timings (count mean p50 p90 p99 max, ms):");
+        for (final String actionName : actionNames) {
+            final AtomicLongArray histogram = sHistograms.get(actionName);
+            writer.println("  " + actionName);
+            for (int phase = 0; phase < PHASE_COUNT; phase++) {
+                final int base = phase * SLOTS_PER_PHASE;
+                long count = 0;
+                for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                    count += histogram.get(base + bucket);
+                }
+                if (count == 0) {
+                    continue;
+                }
+                writer.println(String.format(Locale.US, "    %-10s %6d %6d %6d %6d %6d %6d",
+                        PHASE_NAMES[phase], count, histogram.get(base + SLOT_TOTAL) / count,
+                        getPercentile(histogram, base, 50), getPercentile(histogram, base, 90),
+                        getPercentile(histogram, base, 99), histogram.get(base + SLOT_MAX)));
+            }
+        }
+    }
+}
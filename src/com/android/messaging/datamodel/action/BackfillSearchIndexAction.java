@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel.action;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.android.messaging.datamodel.DataModel;
+import com.android.messaging.datamodel.MessageSearchIndex;
+
+/**
+ * Action used to add messages written before the search index existed to the index. Each run
+ * indexes one batch and queues the next one, so the work is spread out and picks up where it
+ * left off if the process is killed.
+ */
+public class BackfillSearchIndexAction extends Action implements Parcelable {
+    /**
+     * Start indexing older messages unless that has already been done.
+     */
+    public static void backfillIfNeeded() {
+        if (!MessageSearchIndex.isBackfillComplete()) {
+            final BackfillSearchIndexAction action = new BackfillSearchIndexAction();
+            action.start();
+        }
+    }
+
+    private BackfillSearchIndexAction() {
+    }
+
+    @Override
+    protected Object executeAction() {
+        if (MessageSearchIndex.backfillNextBatch(DataModel.get().getDatabase())) {
+            // Queue the next batch rather than looping so other actions can run in between
+            final BackfillSearchIndexAction action = new BackfillSearchIndexAction();
+            action.start();
+        }
+        return null;
+    }
+
+    private BackfillSearchIndexAction(final Parcel in) {
+        super(in);
+    }
+
+    public static final Parcelable.Creator<BackfillSearchIndexAction> CREATOR
+            = new Parcelable.Creator<BackfillSearchIndexAction>() {
+        @Override
+        public BackfillSearchIndexAction createFromParcel(final Parcel in) {
+            return new BackfillSearchIndexAction(in);
+        }
+
+        @Override
+        public BackfillSearchIndexAction[] newArray(final int size) {
+            return new BackfillSearchIndexAction[size];
+        }
+    };
+
+    @Override
+    public void writeToParcel(final Parcel parcel, final int flags) {
+        writeActionToParcel(parcel, flags);
+    }
+}
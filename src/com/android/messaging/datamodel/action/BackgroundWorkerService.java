@@ -91,6 +91,8 @@ public class BackgroundWorkerService extends JobIntentService {
     protected static final String EXTRA_ACTION = "action";
     @VisibleForTesting
     protected static final String EXTRA_ATTEMPT = "retry_attempt";
+    // Kept out of the action parcel, whose layout pending intents may still hold
+    private static final String EXTRA_QUEUED_TIME = "queued_time";
 
     /**
      * Queue action intent to the BackgroundWorkerService after acquiring wake lock
@@ -100,6 +102,7 @@ public class BackgroundWorkerService extends JobIntentService {
         final Intent intent = new Intent();
         intent.putExtra(EXTRA_ACTION, action);
         intent.putExtra(EXTRA_ATTEMPT, retryCount);
+        intent.putExtra(EXTRA_QUEUED_TIME, action.getQueuedTimeMs());
         //bug 633234 : six queues begin
         final Context context = Factory.get().getApplicationContext();
         int op_process_request=0;
@@ -184,6 +187,7 @@ public class BackgroundWorkerService extends JobIntentService {
             case OP_PROCESS_REQUEST_SIM2MMS:
                 final Action action = intent.getParcelableExtra(EXTRA_ACTION);
                 final int attempt = intent.getIntExtra(EXTRA_ATTEMPT, -1);
+                action.setQueuedTimeMs(intent.getLongExtra(EXTRA_QUEUED_TIME, 0));
                 doBackgroundWork(action, attempt);
                 break;
 
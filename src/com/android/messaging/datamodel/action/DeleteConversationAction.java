@@ -26,6 +26,7 @@ import android.text.TextUtils;
 import com.android.messaging.Factory;
 import com.android.messaging.datamodel.BugleDatabaseOperations;
 import com.android.messaging.datamodel.BugleNotifications;
+import com.android.messaging.datamodel.ContentChangeNotifier;
 import com.android.messaging.datamodel.DataModel;
 import com.android.messaging.datamodel.DataModelException;
 import com.android.messaging.datamodel.DatabaseHelper;
@@ -88,11 +89,17 @@ public class DeleteConversationAction extends Action implements Parcelable {
     @Override
     protected Bundle doBackgroundWork() throws DataModelException {
         final String[] conversationIds = actionParameters.getStringArray(KEY_CONVERSATION_IDS);
-        if(conversationIds == null ){
-            return doSingleBackgroundWork();
-        }
-        else{
-            return doMultiBackgroundWork();
+        // Send one notification per uri once everything is deleted
+        ContentChangeNotifier.beginBatch();
+        try {
+            if(conversationIds == null ){
+                return doSingleBackgroundWork();
+            }
+            else{
+                return doMultiBackgroundWork();
+            }
+        } finally {
+            ContentChangeNotifier.endBatch();
         }
     }
     protected Bundle doSingleBackgroundWork() throws DataModelException {
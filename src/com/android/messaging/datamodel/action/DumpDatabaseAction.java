@@ -31,10 +31,12 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintWriter;
 
 public class DumpDatabaseAction extends Action implements Parcelable {
     private static final String TAG = LogUtil.BUGLE_DATAMODEL_TAG;
     public static final String DUMP_NAME = "db_copy.db";
+    public static final String TIMINGS_DUMP_NAME = "action_timings.txt";
     private static final int BUFFER_SIZE = 16384;
 
     /**
@@ -97,9 +99,31 @@ public class DumpDatabaseAction extends Action implements Parcelable {
                         ", copy size: " + totalBytes);
             }
         }
+        dumpActionTimings();
         return null;
     }
 
+    /**
+     * Write the action latency histograms next to the database copy
+     */
+    private static void dumpActionTimings() {
+        final File outFile = DebugUtils.getDebugFile(TIMINGS_DUMP_NAME, true);
+        if (outFile != null) {
+            PrintWriter writer = null;
+            try {
+                writer = new PrintWriter(new FileOutputStream(outFile));
+                ActionTimings.dump(writer);
+            } catch (final IOException e) {
+                LogUtil.w(TAG, "Exception writing action timings", e);
+            } finally {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+            DebugUtils.ensureReadable(outFile);
+        }
+    }
+
     private DumpDatabaseAction(final Parcel in) {
         super(in);
     }
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel.action;
+
+import android.app.ActivityManager;
+import android.app.ActivityManager.RunningAppProcessInfo;
+import android.os.Process;
+
+import com.android.messaging.datamodel.DataModel;
+import com.android.messaging.util.BugleGservices;
+import com.android.messaging.util.BugleGservicesKeys;
+import com.android.messaging.util.LogUtil;
+import com.android.messaging.util.OsUtil;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executes actions on a dedicated thread in this process, handing off the live Action objects
+ * through a priority queue instead of parceling them into an Intent for the ActionService.
+ * Only used while the app is in the foreground, since unlike the ActionService nothing keeps
+ * the process alive for queued work. Background work requested by the actions still goes to the
+ * background worker.
+ */
+public class InProcessActionExecutor {
+    private static final String TAG = LogUtil.BUGLE_DATAMODEL_TAG;
+
+    public static final int PRIORITY_LOW = -1;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 1;
+
+    private static InProcessActionExecutor sInstance;
+
+    private final BackgroundWorker mBackgroundWorker;
+    private final PriorityBlockingQueue<QueuedAction> mQueue =
+            new PriorityBlockingQueue<QueuedAction>();
+    // Keeps actions of equal priority in the order they were queued
+    private final AtomicLong mSequence = new AtomicLong();
+
+    private static class QueuedAction implements Comparable<QueuedAction> {
+        final Action mAction;
+        final int mPriority;
+        final long mSequence;
+
+        QueuedAction(final Action action, final long sequence) {
+            mAction = action;
+            mPriority = action.getInProcessPriority();
+            mSequence = sequence;
+        }
+
+        @Override
+        public int compareTo(final QueuedAction other) {
+            if (mPriority != other.mPriority) {
+                return mPriority > other.mPriority ? -1 : 1;
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+    }
+
+    /**
+     * Get the process wide executor, starting its thread on first use
+     */
+    static synchronized InProcessActionExecutor get() {
+        if (sInstance == null) {
+            sInstance = new InProcessActionExecutor(
+                    DataModel.get().getBackgroundWorkerForActionService());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    InProcessActionExecutor(final BackgroundWorker backgroundWorker) {
+        mBackgroundWorker = backgroundWorker;
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                while (true) {
+                    try {
+                        executeAction(mQueue.take().mAction);
+                    } catch (final InterruptedException e) {
+                        LogUtil.w(TAG, "InProcessActionExecutor: interrupted", e);
+                    }
+                }
+            }
+        }, "InProcessActionExecutor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Whether the action should skip the ActionService and run in process
+     */
+    static boolean shouldExecuteInProcess(final Action action) {
+        return action.canExecuteInProcess()
+                && BugleGservices.get().getBoolean(BugleGservicesKeys.IN_PROCESS_ACTIONS_ENABLED,
+                        BugleGservicesKeys.IN_PROCESS_ACTIONS_ENABLED_DEFAULT)
+                && isProcessInForeground();
+    }
+
+    private static boolean isProcessInForeground() {
+        final RunningAppProcessInfo processInfo = new RunningAppProcessInfo();
+        ActivityManager.getMyMemoryState(processInfo);
+        return processInfo.importance <= RunningAppProcessInfo.IMPORTANCE_VISIBLE;
+    }
+
+    /**
+     * Queue an action for execution on the executor thread
+     */
+    void startAction(final Action action) {
+        action.markStart();
+        mQueue.add(new QueuedAction(action, mSequence.getAndIncrement()));
+    }
+
+    /**
+     * Local execution of action on the executor thread, mirroring the ActionService. As there,
+     * actions are dropped without the SMS permission, and an exception thrown by an action is
+     * not caught, so it crashes the app instead of leaving the action's monitor executing.
+     */
+    private void executeAction(final Action action) {
+        if (!OsUtil.hasSmsPermission()) {
+            LogUtil.w(TAG, "InProcessActionExecutor: no SMS permission, dropping "
+                    + action.getClass().getSimpleName());
+            return;
+        }
+        action.markBeginExecute();
+        final Object result = action.executeAction();
+        action.markEndExecute(result);
+        action.sendBackgroundActions(mBackgroundWorker);
+    }
+}
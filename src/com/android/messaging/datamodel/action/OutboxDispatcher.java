@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel.action;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.util.SparseIntArray;
+
+import com.android.messaging.datamodel.BugleDatabaseOperations;
+import com.android.messaging.datamodel.DatabaseHelper;
+import com.android.messaging.datamodel.DatabaseHelper.MessageColumns;
+import com.android.messaging.datamodel.DatabaseWrapper;
+import com.android.messaging.datamodel.MessagingContentProvider;
+import com.android.messaging.datamodel.data.MessageData;
+import com.android.messaging.datamodel.data.ParticipantData;
+import com.android.messaging.util.BugleGservices;
+import com.android.messaging.util.BugleGservicesKeys;
+import com.android.messaging.util.LogUtil;
+import com.android.messaging.util.OsUtil;
+import com.android.messaging.util.PhoneUtils;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Picks the outgoing messages to send next. The whole outbox is read with one query and split
+ * into a lane for each SIM and protocol. Each SMS lane may have several messages sending at
+ * once, so the next message is already queued with the sender when the radio reports on the
+ * previous one. How many is driven by those reports: each success lets the lane have one more
+ * in flight, up to a maximum, and a failure drops it back to one. MMS lanes keep to one at a
+ * time. Messages of a conversation are always picked in the order they were written.
+ */
+class OutboxDispatcher {
+    private static final String TAG = LogUtil.BUGLE_DATAMODEL_TAG;
+
+    private static final int MAX_MMS_IN_FLIGHT = 1;
+
+    private static OutboxDispatcher sInstance;
+
+    private final int mMaxSmsInFlight;
+    // Current number of SMS each subscription may have sending, guarded by this
+    private final SparseIntArray mSmsWindows = new SparseIntArray();
+
+    static synchronized OutboxDispatcher get() {
+        if (sInstance == null) {
+            sInstance = new OutboxDispatcher(BugleGservices.get().getInt(
+                    BugleGservicesKeys.MAX_SMS_IN_FLIGHT_PER_SUB,
+                    BugleGservicesKeys.MAX_SMS_IN_FLIGHT_PER_SUB_DEFAULT));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    OutboxDispatcher(final int maxSmsInFlight) {
+        mMaxSmsInFlight = Math.max(1, maxSmsInFlight);
+    }
+
+    /**
+     * The outgoing messages of one subscription and protocol
+     */
+    private static class Lane {
+        final int mSubId;
+        int mInFlight;
+        final ArrayList<MessageData> mPending = new ArrayList<MessageData>();
+
+        Lane(final int subId) {
+            mSubId = subId;
+        }
+    }
+
+    /**
+     * Record the radio's result for an SMS so later picks can widen or narrow the window
+     *
+     * @param subId the subscription the message was sent on
+     * @param succeeded whether the message was sent
+     */
+    synchronized void onSmsSendResult(final int subId, final boolean succeeded) {
+        final int window = getSmsWindow(subId);
+        mSmsWindows.put(subId, succeeded ? Math.min(window + 1, mMaxSmsInFlight) : 1);
+    }
+
+    @VisibleForTesting
+    synchronized int getSmsWindow(final int subId) {
+        return mSmsWindows.get(subId, mMaxSmsInFlight);
+    }
+
+    /**
+     * Find the messages that can start sending now. Pending messages that have been waiting
+     * longer than the resend window are marked failed along the way.
+     *
+     * @param db the database
+     * @param now the current time
+     * @return the messages to send, oldest first for each subscription and protocol
+     */
+    List<MessageData> selectMessagesToSend(final DatabaseWrapper db, final long now) {
+        final LinkedHashMap<Long, Lane> lanes = new LinkedHashMap<Long, Lane>();
+        final HashMap<String, Integer> sendingSubIds = new HashMap<String, Integer>();
+        int expiredCnt = 0;
+        db.beginTransaction();
+        Cursor cursor = null;
+        try {
+            cursor = db.query(DatabaseHelper.MESSAGES_TABLE,
+                    MessageData.getProjection(),
+                    MessageColumns.STATUS + " IN (?, ?, ?, ?) AND "
+                            + MessageColumns.PROTOCOL + " IN (?, ?)",
+                    new String[] {
+                            Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_SENDING),
+                            Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_RESENDING),
+                            Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_YET_TO_SEND),
+                            Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_AWAITING_RETRY),
+                            Integer.toString(MessageData.PROTOCOL_SMS),
+                            Integer.toString(MessageData.PROTOCOL_MMS)
+                    },
+                    null,
+                    null,
+                    MessageColumns.RECEIVED_TIMESTAMP + " ASC");
+
+            final ContentValues values = new ContentValues();
+            values.put(MessageColumns.STATUS, MessageData.BUGLE_STATUS_OUTGOING_FAILED);
+            while (cursor.moveToNext()) {
+                final MessageData message = new MessageData();
+                message.bind(cursor);
+                final int subId = getSendingSubId(db, message, sendingSubIds);
+                final long laneKey = ((long) subId << 32) | message.getProtocol();
+                Lane lane = lanes.get(laneKey);
+                if (lane == null) {
+                    lane = new Lane(subId);
+                    lanes.put(laneKey, lane);
+                }
+                if (!message.canSendMessage()) {
+                    lane.mInFlight++;
+                } else if (message.getInResendWindow(now)) {
+                    lane.mPending.add(message);
+                } else {
+                    expiredCnt++;
+
+                    // Mark message as failed
+                    BugleDatabaseOperations.updateMessageRow(db, message.getMessageId(), values);
+                    MessagingContentProvider.notifyMessagesChanged(message.getConversationId());
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+
+        final ArrayList<MessageData> toSend = new ArrayList<MessageData>();
+        for (final Lane lane : lanes.values()) {
+            if (lane.mPending.isEmpty()) {
+                continue;
+            }
+            final MessageData first = lane.mPending.get(0);
+            final int window = first.getProtocol() == MessageData.PROTOCOL_SMS
+                    ? getSmsWindow(lane.mSubId) : MAX_MMS_IN_FLIGHT;
+            int available = window - lane.mInFlight;
+            // Retries only wait for conversations that have a new message to send next. A
+            // conversation whose oldest message is a retry must not hold up its own retry.
+            boolean hasYetToSend = false;
+            final Set<String> seenConversations = new HashSet<String>();
+            for (final MessageData message : lane.mPending) {
+                if (seenConversations.add(message.getConversationId())
+                        && message.getYetToSend()) {
+                    hasYetToSend = true;
+                    break;
+                }
+            }
+            // Conversations with an older message that isn't going out in this pass
+            final Set<String> heldConversations = new HashSet<String>();
+            for (final MessageData message : lane.mPending) {
+                if (available <= 0) {
+                    break;
+                }
+                final String conversationId = message.getConversationId();
+                if (heldConversations.contains(conversationId)) {
+                    continue;
+                }
+                // New messages go ahead of retries, but not within a conversation
+                if (hasYetToSend && !message.getYetToSend()) {
+                    heldConversations.add(conversationId);
+                    continue;
+                }
+                toSend.add(message);
+                available--;
+            }
+        }
+
+        LogUtil.d(TAG, "OutboxDispatcher: " + toSend.size() + " messages to send from "
+                + lanes.size() + " lanes, " + expiredCnt + " failed messages");
+        return toSend;
+    }
+
+    /**
+     * Get the subscription a message will go out on. Messages whose self is no longer active are
+     * switched to the default SMS subscription when they are queued, so they share its lane.
+     *
+     * @param cache subscriptions already looked up in this pass, by self participant id
+     */
+    private static int getSendingSubId(final DatabaseWrapper db, final MessageData message,
+            final HashMap<String, Integer> cache) {
+        if (!OsUtil.isAtLeastL_MR1() || message.getSelfId() == null) {
+            return message.getSubId();
+        }
+        Integer subId = cache.get(message.getSelfId());
+        if (subId == null) {
+            final ParticipantData self =
+                    BugleDatabaseOperations.getExistingParticipant(db, message.getSelfId());
+            if (self == null) {
+                subId = message.getSubId();
+            } else if (self.isActiveSubscription()) {
+                subId = self.getSubId();
+            } else {
+                subId = PhoneUtils.getDefault().getDefaultSmsSubscriptionId();
+            }
+            cache.put(message.getSelfId(), subId);
+        }
+        return subId;
+    }
+}
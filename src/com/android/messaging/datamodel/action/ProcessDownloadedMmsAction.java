@@ -243,31 +243,18 @@ public class ProcessDownloadedMmsAction extends Action {
             if (resultCode == Activity.RESULT_OK) {
                 final Uri contentUri = actionParameters.getParcelable(KEY_CONTENT_URI);
                 final File downloadedFile = MmsFileProvider.getFile(contentUri);
-                byte[] downloadedData = null;
                 try {
-                    downloadedData = Files.toByteArray(downloadedFile);
-                } catch (final FileNotFoundException e) {
-                    LogUtil.e(TAG, "ProcessDownloadedMmsAction: MMS download file not found: "
-                            + downloadedFile.getAbsolutePath());
-                } catch (final IOException e) {
-                    LogUtil.e(TAG, "ProcessDownloadedMmsAction: Error reading MMS download file: "
-                            + downloadedFile.getAbsolutePath(), e);
-                }
-
-                // Can delete the temp file now
-                if (downloadedFile.exists()) {
-                    downloadedFile.delete();
-                    if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
-                        LogUtil.d(TAG, "ProcessDownloadedMmsAction: Deleted temp file with "
-                                + "downloaded MMS pdu: " + downloadedFile.getAbsolutePath());
+                    // Parse the pdu in place: its large parts are copied from the file when the
+                    // message is persisted, so the file is only deleted after that
+                    RetrieveConf retrieveConf = null;
+                    if (downloadedFile.exists()) {
+                        retrieveConf = MmsSender.parseRetrieveConf(downloadedFile, subId);
+                    } else {
+                        LogUtil.e(TAG, "ProcessDownloadedMmsAction: MMS download file not found: "
+                                + downloadedFile.getAbsolutePath());
                     }
-                }
-
-                if (downloadedData != null) {
-                    final RetrieveConf retrieveConf =
-                            MmsSender.parseRetrieveConf(downloadedData, subId);
                     if (MmsUtils.isDumpMmsEnabled()) {
-                        MmsUtils.dumpPdu(downloadedData, retrieveConf);
+                        dumpDownloadedPdu(downloadedFile, retrieveConf);
                     }
                     if (retrieveConf != null) {
                         // Insert the downloaded MMS into telephony
@@ -293,12 +280,18 @@ public class ProcessDownloadedMmsAction extends Action {
                         rawStatus = result.rawStatus;
                         mmsUri = result.uri;
                     } else {
-                        // Invalid response PDU
+                        // Missing download file or invalid response PDU
                         status = MmsUtils.MMS_REQUEST_MANUAL_RETRY;
                     }
-                } else {
-                    // Failed to read download file
-                    status = MmsUtils.MMS_REQUEST_MANUAL_RETRY;
+                } finally {
+                    // Can delete the temp file now
+                    if (downloadedFile.exists()) {
+                        downloadedFile.delete();
+                        if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
+                            LogUtil.d(TAG, "ProcessDownloadedMmsAction: Deleted temp file with "
+                                    + "downloaded MMS pdu: " + downloadedFile.getAbsolutePath());
+                        }
+                    }
                 }
             } else {
                 LogUtil.w(TAG, "ProcessDownloadedMmsAction: Platform returned error resultCode: "
@@ -321,6 +314,19 @@ public class ProcessDownloadedMmsAction extends Action {
         return response;
     }
 
+    private static void dumpDownloadedPdu(final File downloadedFile,
+            final RetrieveConf retrieveConf) {
+        try {
+            MmsUtils.dumpPdu(Files.toByteArray(downloadedFile), retrieveConf);
+        } catch (final FileNotFoundException e) {
+            LogUtil.e(TAG, "ProcessDownloadedMmsAction: MMS download file not found: "
+                    + downloadedFile.getAbsolutePath());
+        } catch (final IOException e) {
+            LogUtil.e(TAG, "ProcessDownloadedMmsAction: Error reading MMS download file: "
+                    + downloadedFile.getAbsolutePath(), e);
+        }
+    }
+
     @Override
     protected Object processBackgroundResponse(final Bundle response) {
         if (response == null) {
@@ -44,15 +44,13 @@ import com.android.messaging.util.LogUtil;
 import com.android.messaging.util.OsUtil;
 import com.android.messaging.util.PhoneUtils;
 
-import java.util.HashSet;
-import java.util.Set;
-//bug 633234 : six queues begin
-import java.util.ArrayList;
-//bug 633234 : six queues end
+import java.util.List;
+
 /**
  * Action used to lookup any messages in the pending send/download state and either fail them or
- * retry their action. This action only initiates one retry at a time - further retries should be
- * triggered by successful sending of a message, network status change or exponential backoff timer.
+ * retry their action. This action initiates as many sends as {@link OutboxDispatcher} allows and
+ * one download at a time - further retries should be triggered by successful sending of a
+ * message, network status change or exponential backoff timer.
  */
 public class ProcessPendingMessagesAction extends Action implements Parcelable {
     private static final String TAG = LogUtil.BUGLE_DATAMODEL_TAG;
@@ -219,41 +217,22 @@ public class ProcessPendingMessagesAction extends Action implements Parcelable {
     private static boolean getHavePendingMessages() {
         final DatabaseWrapper db = DataModel.get().getDatabase();
         final long now = System.currentTimeMillis();
-//bug 633234 : six queues begin
-        ArrayList<Integer>subIds=MmsUtils.getSubIds();
-		if(subIds==null){
+        if (MmsUtils.getSubIds() == null) {
             LogUtil.d(TAG, "getHavePendingMessages subIds null");
             return false;
         }
-        String toSendMessageId=null;
-        for(int j = 0; j < 2; j++) {
-            toSendMessageId = findNextMessageToSendNotCurrentSubid(db, now,subIds,j);
-            if (toSendMessageId != null) {
-                LogUtil.d(TAG, "getHavePendingMessages  NotCurrentSubid SmsOrMms:["+j+"]");
-                return true;
-            }
-        }
-        for(int i = 0; i < subIds.size(); i++) {
-            for(int j = 0; j < 2; j++) {
-                toSendMessageId = findNextMessageToSend(db, now,subIds.get(i),j);
-                if (toSendMessageId != null) {
-                    LogUtil.d(TAG, "getHavePendingMessages  Subid:["+subIds.get(i)+"] SmsOrMms:["+j+"]");
-                    return true;
-                }
-            }
-        }
 
+        if (!OutboxDispatcher.get().selectMessagesToSend(db, now).isEmpty()) {
+            return true;
+        }
 
         final String toDownloadMessageId = findNextMessageToDownload(db, now);
         if (toDownloadMessageId != null) {
-            LogUtil.d(TAG, "getHavePendingMessages  toDownload:["+toDownloadMessageId);
             return true;
         }
 
         // Messages may be in the process of sending/downloading even when there are no pending
         // messages...
-        LogUtil.d(TAG, "getHavePendingMessages  noPending");
-//bug 633234 : six queues end
         return false;
     }
 
@@ -266,52 +245,31 @@ public class ProcessPendingMessagesAction extends Action implements Parcelable {
         final DatabaseWrapper db = DataModel.get().getDatabase();
         final long now = System.currentTimeMillis();
         boolean succeeded = true;
-
-        // Will queue no more than one message to send plus one message to download
-        // This keeps outgoing messages "in order" but allow downloads to happen even if sending
-        //  gets blocked until messages time out.  Manual resend bumps messages to head of queue.
-        //bug 633234 : six queues begin
-	    ArrayList<Integer>subIds=MmsUtils.getSubIds();
-        if(subIds==null){
+        if (MmsUtils.getSubIds() == null) {
             LogUtil.d(TAG, "queueActions subIds null");
             return false;
         }
-        String toSendMessageId=null;
-        for(int j = 0; j < 2; j++) {
-            toSendMessageId = findNextMessageToSendNotCurrentSubid(db, now,subIds,j);
-            if (toSendMessageId != null) {
-                LogUtil.d(TAG, "findNextMessageToSendNotCurrentSubid: Queueing message " + toSendMessageId
-                        + " for sending");
-                // This could queue nothing
-                if (!SendMessageAction.queueForSendInBackground(toSendMessageId, processingAction)) {
-                    LogUtil.w(TAG, "findNextMessageToSendNotCurrentSubid: Failed to queue message "
-                            + toSendMessageId + " for sending ");
-                    succeeded = false;
-                }
-            }else{
-                 if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
-                    LogUtil.d(TAG, "findNextMessageToSendNotCurrentSubid:  No messages to  send");
-                }
+
+        // Queues as many messages to send as the outbox dispatcher allows on each SIM, plus one
+        // message to download. Messages of a conversation go out in order, and downloads can
+        // happen even if sending gets blocked until messages time out. Manual resend bumps
+        // messages to head of queue.
+        final List<MessageData> toSend = OutboxDispatcher.get().selectMessagesToSend(db, now);
+        for (final MessageData message : toSend) {
+            final String toSendMessageId = message.getMessageId();
+            switchToActiveSelfIfNeeded(db, message);
+            LogUtil.i(TAG, "ProcessPendingMessagesAction: Queueing message " + toSendMessageId
+                    + " for sending");
+            // This could queue nothing
+            if (!SendMessageAction.queueForSendInBackground(toSendMessageId, processingAction)) {
+                LogUtil.w(TAG, "ProcessPendingMessagesAction: Failed to queue message "
+                        + toSendMessageId + " for sending");
+                succeeded = false;
             }
         }
-        for(int i = 0; i < subIds.size(); i++) {
-            for(int j = 0; j < 2; j++) {
-                LogUtil.d(TAG, "queueActions  findNextMessageToSend for subid["+i+"]:["+subIds.get(i)+"]");
-                toSendMessageId = findNextMessageToSend(db, now,subIds.get(i),j);
-                if (toSendMessageId != null) {
-                    LogUtil.d(TAG, "ProcessPendingMessagesAction: Queueing message " + toSendMessageId
-                            + " for sending");
-                    // This could queue nothing
-                    if (!SendMessageAction.queueForSendInBackground(toSendMessageId, processingAction)) {
-                        LogUtil.w(TAG, "ProcessPendingMessagesAction: Failed to queue message "
-                                + toSendMessageId + " for sending subid["+i+"]:["+subIds.get(i)+"]");
-                        succeeded = false;
-                    }
-                }else{
-                     if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
-                        LogUtil.d(TAG, "ProcessPendingMessagesAction: subid["+i+"]:["+subIds.get(i)+"] No messages to  send");
-                    }
-                }
+        if (toSend.isEmpty()) {
+            if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
+                LogUtil.d(TAG, "ProcessPendingMessagesAction: No messages to send");
             }
         }
 
@@ -334,7 +292,6 @@ public class ProcessPendingMessagesAction extends Action implements Parcelable {
                 LogUtil.d(TAG, "ProcessPendingMessagesAction: No messages to  download");
             }
         }
-        //bug 633234 : six queues end
         return succeeded;
     }
 
@@ -354,380 +311,32 @@ public class ProcessPendingMessagesAction extends Action implements Parcelable {
 
         return null;
     }
-    //bug 633234 : six queues begin
-    private static String findNextMessageToSendNotCurrentSubid(final DatabaseWrapper db, final long now,final ArrayList<Integer> subIds,int protocol) {
-        String toSendMessageId = null;
-        db.beginTransaction();
-        Cursor sending = null;
-        Cursor cursorYesToSend = null;
-        Cursor cursorAwaitingRetry = null;
-        int sendingCnt = 0;
-        int pendingYesToSendCnt = 0;
-        int pendingAwaitingRetry = 0;
-        int failedCnt = 0;
-        boolean otherSubid =false;
-        switch(protocol){
-            case MessageData.PROTOCOL_SMS:
-                break;
-            case MessageData.PROTOCOL_MMS:
-                break;
-            default:return null;
-        }
-        try {
-            // First check to see if we have any messages already sending
-            String notInString;
-            String inProtocolString;
-            String notInStringSubid;
-            String sendingQueryString[];
-            String YesToSendAwaitingRetryQueryString[];
-            LogUtil.d(TAG, "findNextMessageToSendNotCurrentSubid  subIds.size(): "+subIds.size());
-
-            switch(subIds.size()){
-                case 1:
-                    inProtocolString=" AND "+DatabaseHelper.MessageColumns.PROTOCOL+" IN (?)";
-                    notInString=" AND "+DatabaseHelper.MessageColumns.SUB_ID+" NOT IN (?)";
-                    sendingQueryString=new String[]{Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_SENDING),
-                            Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_RESENDING),
-                            Integer.toString(protocol),
-                            Integer.toString(subIds.get(0)),
-                            };
-                    YesToSendAwaitingRetryQueryString=new String[]{
-                            Integer.toString(protocol),
-                            Integer.toString(subIds.get(0)),
-                            };
-                    break;
-                case 2:
-                    inProtocolString=" AND "+DatabaseHelper.MessageColumns.PROTOCOL+" IN (?)";
-                    notInString=" AND "+DatabaseHelper.MessageColumns.SUB_ID+" NOT IN (?,?)";
-
-                    sendingQueryString=new String[]{Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_SENDING),
-                            Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_RESENDING),
-                            Integer.toString(protocol),
-                            Integer.toString(subIds.get(0)),
-                            Integer.toString(subIds.get(1)),
-                            };
-                    YesToSendAwaitingRetryQueryString=new String[]{
-                            Integer.toString(protocol),
-                            Integer.toString(subIds.get(0)),
-                            Integer.toString(subIds.get(1)),
-                            };
-                    break;
-                default:
-                    inProtocolString="";
-                    notInString="";
-                    notInStringSubid="";
-                    sendingQueryString=null;
-                    YesToSendAwaitingRetryQueryString=null;
-            }
-            sending = db.query(DatabaseHelper.MESSAGES_TABLE,
-                    MessageData.getProjection(),
-                    DatabaseHelper.MessageColumns.STATUS + " IN (?, ?) "+inProtocolString+notInString,
-                    sendingQueryString,
-                    null,
-                    null,
-                    DatabaseHelper.MessageColumns.RECEIVED_TIMESTAMP + " ASC");
-            final boolean messageCurrentlySending = sending.moveToNext();
-            sendingCnt = sending.getCount();
-            // Look for messages we could send
-            final ContentValues values = new ContentValues();
-            values.put(DatabaseHelper.MessageColumns.STATUS,
-                    MessageData.BUGLE_STATUS_OUTGOING_FAILED);
-            cursorYesToSend = db.query(DatabaseHelper.MESSAGES_TABLE,
-                    MessageData.getProjection(),
-                    DatabaseHelper.MessageColumns.STATUS + " IN ("
-                            + MessageData.BUGLE_STATUS_OUTGOING_YET_TO_SEND
-                            + ") "+inProtocolString+notInString,
-                    YesToSendAwaitingRetryQueryString,
-                    null,
-                    null,
-                    DatabaseHelper.MessageColumns.RECEIVED_TIMESTAMP + " ASC");
-            pendingYesToSendCnt = cursorYesToSend.getCount();
-            cursorAwaitingRetry = db.query(DatabaseHelper.MESSAGES_TABLE,
-                    MessageData.getProjection(),
-                    DatabaseHelper.MessageColumns.STATUS + " IN ("
-                            + MessageData.BUGLE_STATUS_OUTGOING_AWAITING_RETRY + ") "+inProtocolString+notInString,
-                    YesToSendAwaitingRetryQueryString,
-                    null,
-                    null,
-                    DatabaseHelper.MessageColumns.RECEIVED_TIMESTAMP + " ASC");
-            pendingAwaitingRetry = cursorAwaitingRetry.getCount();
-            if (pendingYesToSendCnt > 0) {
-                while (cursorYesToSend.moveToNext()) {
-                    final MessageData message = new MessageData();
-                    message.bind(cursorYesToSend);
-                    if (message.getInResendWindow(now)) {
-                        // If no messages currently sending
-                        if (!messageCurrentlySending) {
-                            // Resend this message
-                            toSendMessageId = message.getMessageId();
-                            // Before queuing the message for resending, check if the message's self is
-                            // active. If not, switch back to the system's default subscription.
-                            if (OsUtil.isAtLeastL_MR1()) {
-                                final ParticipantData messageSelf = BugleDatabaseOperations
-                                        .getExistingParticipant(db, message.getSelfId());
-                                if (messageSelf == null || !messageSelf.isActiveSubscription()) {
-                                    final ParticipantData defaultSelf = BugleDatabaseOperations
-                                            .getOrCreateSelf(db, PhoneUtils.getDefault()
-                                                    .getDefaultSmsSubscriptionId());
-                                    if (defaultSelf != null) {
-                                        message.bindSelfId(defaultSelf.getId());
-                                        final ContentValues selfValues = new ContentValues();
-                                        selfValues.put(MessageColumns.SELF_PARTICIPANT_ID,
-                                                defaultSelf.getId());
-                                        BugleDatabaseOperations.updateMessageRow(db,
-                                                message.getMessageId(), selfValues);
-                                        MessagingContentProvider.notifyMessagesChanged(
-                                                message.getConversationId());
-                                    }
-                                }
-                            }
-                        }
-                        break;
-                    } else {
-                        failedCnt++;
-
-                        // Mark message as failed
-                        BugleDatabaseOperations.updateMessageRow(db, message.getMessageId(), values);
-                        MessagingContentProvider.notifyMessagesChanged(message.getConversationId());
-                    }
-                }
-            } else {
-                while (cursorAwaitingRetry.moveToNext()) {
-                    final MessageData message = new MessageData();
-                    message.bind(cursorAwaitingRetry);
-                    if (message.getInResendWindow(now)) {
-                        // If no messages currently sending
-                        if (!messageCurrentlySending) {
-                            // Resend this message
-                            toSendMessageId = message.getMessageId();
-                            // Before queuing the message for resending, check if the message's self is
-                            // active. If not, switch back to the system's default subscription.
-                            if (OsUtil.isAtLeastL_MR1()) {
-                                final ParticipantData messageSelf = BugleDatabaseOperations
-                                        .getExistingParticipant(db, message.getSelfId());
-                                if (messageSelf == null || !messageSelf.isActiveSubscription()) {
-                                    final ParticipantData defaultSelf = BugleDatabaseOperations
-                                            .getOrCreateSelf(db, PhoneUtils.getDefault()
-                                                    .getDefaultSmsSubscriptionId());
-                                    if (defaultSelf != null) {
-                                        message.bindSelfId(defaultSelf.getId());
-                                        final ContentValues selfValues = new ContentValues();
-                                        selfValues.put(MessageColumns.SELF_PARTICIPANT_ID,
-                                                defaultSelf.getId());
-                                        BugleDatabaseOperations.updateMessageRow(db,
-                                                message.getMessageId(), selfValues);
-                                        MessagingContentProvider.notifyMessagesChanged(
-                                                message.getConversationId());
-                                    }
-                                }
-                            }
-                        }
-                        break;
-                    } else {
-                        failedCnt++;
-
-                        // Mark message as failed
-                        BugleDatabaseOperations.updateMessageRow(db, message.getMessageId(), values);
-                        MessagingContentProvider.notifyMessagesChanged(message.getConversationId());
-                    }
-                }
-            }
-
-            db.setTransactionSuccessful();
-        } finally {
-            db.endTransaction();
-            if (cursorYesToSend != null) {
-                cursorYesToSend.close();
-            }
-            if (cursorAwaitingRetry != null) {
-                cursorAwaitingRetry.close();
-            }
-            if (sending != null) {
-                sending.close();
-            }
-        }
-
-       // if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
-            LogUtil.d(TAG, "ProcessPendingMessagesAction findNextMessageToSendNotCurrentSubid: "
-                    + sendingCnt + " messages already sending, "
-                    + pendingYesToSendCnt + " yesToSend messages to send, "
-                    + pendingAwaitingRetry + "awaitingRetry messages to send,"
-                    + failedCnt + " failed messages");
-        //}
-
-        return toSendMessageId;
-    }
 
-
-    private static String findNextMessageToSend(final DatabaseWrapper db, final long now,final int subid,int protocol) {
-        String toSendMessageId = null;
-        db.beginTransaction();
-        Cursor sending = null;
-        Cursor cursorYesToSend = null;
-        Cursor cursorAwaitingRetry = null;
-        int sendingCnt = 0;
-        int pendingYesToSendCnt = 0;
-        int pendingAwaitingRetry = 0;
-        int failedCnt = 0;
-        String inProtocolString="";
-        inProtocolString=" AND "+DatabaseHelper.MessageColumns.PROTOCOL+" IN (?)";
-        switch(protocol){
-            case MessageData.PROTOCOL_SMS:
-                break;
-            case MessageData.PROTOCOL_MMS:
-                break;
-            default:return null;
+    /**
+     * Before queuing a message for sending, check if the message's self is active. If not,
+     * switch back to the system's default subscription.
+     */
+    private static void switchToActiveSelfIfNeeded(final DatabaseWrapper db,
+            final MessageData message) {
+        if (!OsUtil.isAtLeastL_MR1()) {
+            return;
         }
-        try {
-            // First check to see if we have any messages already sending
-            sending = db.query(DatabaseHelper.MESSAGES_TABLE,
-                    MessageData.getProjection(),
-                    DatabaseHelper.MessageColumns.STATUS + " IN (?, ?) AND "+DatabaseHelper.MessageColumns.SUB_ID+"=?"+inProtocolString,
-                    new String[]{Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_SENDING),
-                            Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_RESENDING),
-                            Integer.toString(subid),
-                            Integer.toString(protocol),
-                            },
-                    null,
-                    null,
-                    DatabaseHelper.MessageColumns.RECEIVED_TIMESTAMP + " ASC");
-            final boolean messageCurrentlySending = sending.moveToNext();
-            sendingCnt = sending.getCount();
-            // Look for messages we could send
-            final ContentValues values = new ContentValues();
-            values.put(DatabaseHelper.MessageColumns.STATUS,
-                    MessageData.BUGLE_STATUS_OUTGOING_FAILED);
-            cursorYesToSend = db.query(DatabaseHelper.MESSAGES_TABLE,
-                    MessageData.getProjection(),
-                    DatabaseHelper.MessageColumns.STATUS + " IN ("
-                            + MessageData.BUGLE_STATUS_OUTGOING_YET_TO_SEND
-                            + ") AND "+DatabaseHelper.MessageColumns.SUB_ID+"=?"+inProtocolString,
-                    new String[]{
-                            Integer.toString(subid),
-                            Integer.toString(protocol),
-                            },
-                    null,
-                    null,
-                    DatabaseHelper.MessageColumns.RECEIVED_TIMESTAMP + " ASC");
-            pendingYesToSendCnt = cursorYesToSend.getCount();
-            cursorAwaitingRetry = db.query(DatabaseHelper.MESSAGES_TABLE,
-                    MessageData.getProjection(),
-                    DatabaseHelper.MessageColumns.STATUS + " IN ("
-                            + MessageData.BUGLE_STATUS_OUTGOING_AWAITING_RETRY + ") AND "+DatabaseHelper.MessageColumns.SUB_ID+"=?"+inProtocolString,
-                    new String[]{
-                            Integer.toString(subid),
-                            Integer.toString(protocol),
-                            },
-                    null,
-                    null,
-                    DatabaseHelper.MessageColumns.RECEIVED_TIMESTAMP + " ASC");
-            pendingAwaitingRetry = cursorAwaitingRetry.getCount();
-            if (pendingYesToSendCnt > 0) {
-                while (cursorYesToSend.moveToNext()) {
-                    final MessageData message = new MessageData();
-                    message.bind(cursorYesToSend);
-                    if (message.getInResendWindow(now)) {
-                        // If no messages currently sending
-                        if (!messageCurrentlySending) {
-                            // Resend this message
-                            toSendMessageId = message.getMessageId();
-                            // Before queuing the message for resending, check if the message's self is
-                            // active. If not, switch back to the system's default subscription.
-                            if (OsUtil.isAtLeastL_MR1()) {
-                                final ParticipantData messageSelf = BugleDatabaseOperations
-                                        .getExistingParticipant(db, message.getSelfId());
-                                if (messageSelf == null || !messageSelf.isActiveSubscription()) {
-                                    final ParticipantData defaultSelf = BugleDatabaseOperations
-                                            .getOrCreateSelf(db, PhoneUtils.getDefault()
-                                                    .getDefaultSmsSubscriptionId());
-                                    if (defaultSelf != null) {
-                                        message.bindSelfId(defaultSelf.getId());
-                                        final ContentValues selfValues = new ContentValues();
-                                        selfValues.put(MessageColumns.SELF_PARTICIPANT_ID,
-                                                defaultSelf.getId());
-                                        BugleDatabaseOperations.updateMessageRow(db,
-                                                message.getMessageId(), selfValues);
-                                        MessagingContentProvider.notifyMessagesChanged(
-                                                message.getConversationId());
-                                    }
-                                }
-                            }
-                        }
-                        break;
-                    } else {
-                        failedCnt++;
-
-                        // Mark message as failed
-                        BugleDatabaseOperations.updateMessageRow(db, message.getMessageId(), values);
-                        MessagingContentProvider.notifyMessagesChanged(message.getConversationId());
-                    }
-                }
-            } else {
-                while (cursorAwaitingRetry.moveToNext()) {
-                    final MessageData message = new MessageData();
-                    message.bind(cursorAwaitingRetry);
-                    if (message.getInResendWindow(now)) {
-                        // If no messages currently sending
-                        if (!messageCurrentlySending) {
-                            // Resend this message
-                            toSendMessageId = message.getMessageId();
-                            // Before queuing the message for resending, check if the message's self is
-                            // active. If not, switch back to the system's default subscription.
-                            if (OsUtil.isAtLeastL_MR1()) {
-                                final ParticipantData messageSelf = BugleDatabaseOperations
-                                        .getExistingParticipant(db, message.getSelfId());
-                                if (messageSelf == null || !messageSelf.isActiveSubscription()) {
-                                    final ParticipantData defaultSelf = BugleDatabaseOperations
-                                            .getOrCreateSelf(db, PhoneUtils.getDefault()
-                                                    .getDefaultSmsSubscriptionId());
-                                    if (defaultSelf != null) {
-                                        message.bindSelfId(defaultSelf.getId());
-                                        final ContentValues selfValues = new ContentValues();
-                                        selfValues.put(MessageColumns.SELF_PARTICIPANT_ID,
-                                                defaultSelf.getId());
-                                        BugleDatabaseOperations.updateMessageRow(db,
-                                                message.getMessageId(), selfValues);
-                                        MessagingContentProvider.notifyMessagesChanged(
-                                                message.getConversationId());
-                                    }
-                                }
-                            }
-                        }
-                        break;
-                    } else {
-                        failedCnt++;
-
-                        // Mark message as failed
-                        BugleDatabaseOperations.updateMessageRow(db, message.getMessageId(), values);
-                        MessagingContentProvider.notifyMessagesChanged(message.getConversationId());
-                    }
-                }
-            }
-
-            db.setTransactionSuccessful();
-        } finally {
-            db.endTransaction();
-            if (cursorYesToSend != null) {
-                cursorYesToSend.close();
-            }
-            if (cursorAwaitingRetry != null) {
-                cursorAwaitingRetry.close();
-            }
-            if (sending != null) {
-                sending.close();
+        final ParticipantData messageSelf =
+                BugleDatabaseOperations.getExistingParticipant(db, message.getSelfId());
+        if (messageSelf == null || !messageSelf.isActiveSubscription()) {
+            final ParticipantData defaultSelf = BugleDatabaseOperations.getOrCreateSelf(db,
+                    PhoneUtils.getDefault().getDefaultSmsSubscriptionId());
+            if (defaultSelf != null) {
+                message.bindSelfId(defaultSelf.getId());
+                final ContentValues selfValues = new ContentValues();
+                selfValues.put(MessageColumns.SELF_PARTICIPANT_ID, defaultSelf.getId());
+                BugleDatabaseOperations.updateMessageRow(db, message.getMessageId(), selfValues);
+                MessagingContentProvider.notifyMessagesChanged(message.getConversationId());
             }
         }
+    }
 
-       // if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
-            LogUtil.d(TAG, "ProcessPendingMessagesAction: "
-                    + sendingCnt + " messages already sending, "
-                    + pendingYesToSendCnt + " yesToSend messages to send, "
-                    + pendingAwaitingRetry + "awaitingRetry messages to send,"
-                    + failedCnt + " failed messages");
-        //}
 
-        return toSendMessageId;
-    }
     //bug 633234 : six queues end
     private static String findNextMessageToDownload(final DatabaseWrapper db, final long now) {
         String toDownloadMessageId = null;
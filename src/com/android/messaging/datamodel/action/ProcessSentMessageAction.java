@@ -309,6 +309,11 @@ public class ProcessSentMessageAction extends Action {
                 + " in conversation " + conversationId
                 + "; status is " + MmsUtils.getRequestStatusDescription(status));
 
+        if (isSms) {
+            OutboxDispatcher.get().onSmsSendResult(subId,
+                    status == MmsUtils.MMS_REQUEST_SUCCEEDED);
+        }
+
         // Whether we succeeded or failed we will check and maybe schedule some more work
         ProcessPendingMessagesAction.scheduleProcessPendingMessagesAction(
                 status != MmsUtils.MMS_REQUEST_SUCCEEDED, processingAction);
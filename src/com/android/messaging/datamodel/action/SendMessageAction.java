@@ -39,6 +39,7 @@ import com.android.messaging.datamodel.SyncManager;
 import com.android.messaging.datamodel.data.MessageData;
 import com.android.messaging.datamodel.data.ParticipantData;
 import com.android.messaging.sms.MmsUtils;
+import com.android.messaging.sms.SmsSender;
 import com.android.messaging.util.Assert;
 import com.android.messaging.util.LogUtil;
 import com.sprd.messaging.ui.smsc.SmscManager;
@@ -233,8 +234,26 @@ public class SendMessageAction extends Action implements Parcelable {
             final String smsServiceCenter = getSmsServiceCenter(subId);//sprd add for smsc
             final boolean deliveryReportRequired = MmsUtils.isDeliveryReportRequired(subId);
 
+            // Don't hold up the worker waiting for the radio, so the messages queued behind this
+            // one can be handed over while it is still going out
+            final Uri smsMessageUri = messageUri;
+            final int smsSubId = subId;
             status = MmsUtils.sendSmsMessage(recipient, messageText, messageUri, subId,
-                    smsServiceCenter, deliveryReportRequired);
+                    smsServiceCenter, deliveryReportRequired, new SmsSender.SendCallback() {
+                        @Override
+                        public void onSendComplete(final SmsSender.SendResult result) {
+                            ProcessSentMessageAction.processMessageSentFastFailed(messageId,
+                                    smsMessageUri, null /* updatedMessageUri */, smsSubId,
+                                    true /* isSms */, MmsUtils.getSmsSendStatus(result),
+                                    MessageData.RAW_TELEPHONY_STATUS_UNDEFINED,
+                                    MessageData.UNKNOWN_RESULT_CODE);
+                        }
+                    });
+            if (status == MmsUtils.SMS_REQUEST_PENDING) {
+                LogUtil.d(TAG, "SendMessageAction: Sending SMS message " + messageId
+                        + " asynchronously; waiting for callback to finish processing");
+                return null;
+            }
         } else {
             final Context context = Factory.get().getApplicationContext();
             final ArrayList<String> recipients =
@@ -38,13 +38,13 @@ import com.android.messaging.sms.DatabaseMessages.MmsMessage;
 import com.android.messaging.sms.DatabaseMessages.SmsMessage;
 import com.android.messaging.sms.MmsUtils;
 import com.android.messaging.util.Assert;
+import com.android.messaging.util.BugleGservices;
+import com.android.messaging.util.BugleGservicesKeys;
 import com.android.messaging.util.LogUtil;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * Update local database with a batch of messages to add/delete in one transaction
@@ -75,26 +75,59 @@ class SyncMessageBatch {
         mConversationsToUpdate = new HashSet<String>();
     }
 
+    /**
+     * @return number of local database changes (messages added or deleted) in this batch
+     */
+    int getUpdateCount() {
+        return mSmsToAdd.size() + mMmsToAdd.size() + mMessagesToDelete.size();
+    }
+
+    int getSmsToAddCount() {
+        return mSmsToAdd.size();
+    }
+
+    int getMmsToAddCount() {
+        return mMmsToAdd.size();
+    }
+
+    int getMessagesToDeleteCount() {
+        return mMessagesToDelete.size();
+    }
+
     void updateLocalDatabase() {
-        // Perform local database changes in one transaction
+        final int chunkSize = Math.max(1, BugleGservices.get().getInt(
+                BugleGservicesKeys.SMS_SYNC_WRITE_CHUNK_SIZE,
+                BugleGservicesKeys.SMS_SYNC_WRITE_CHUNK_SIZE_DEFAULT));
+        // Perform local database changes in transactions of chunkSize messages, so other writers
+        // get the database between chunks. Conversations touched by a chunk are brought up to
+        // date before it is committed, so each committed chunk leaves the database consistent
+        // should the process die mid-batch; the next sync skips the messages already stored.
         final DatabaseWrapper db = DataModel.get().getDatabase();
         db.beginTransaction();
         try {
+            int written = 0;
             // Store all the SMS messages
             for (final SmsMessage sms : mSmsToAdd) {
                 storeSms(db, sms);
+                if (++written % chunkSize == 0) {
+                    commitChunk(db);
+                }
             }
             // Store all the MMS messages
             for (final MmsMessage mms : mMmsToAdd) {
                 storeMms(db, mms);
+                if (++written % chunkSize == 0) {
+                    commitChunk(db);
+                }
             }
             // Keep track of conversations with messages deleted
             for (final LocalDatabaseMessage message : mMessagesToDelete) {
                 mConversationsToUpdate.add(message.getConversationId());
             }
-            // Batch delete local messages
-            batchDelete(db, DatabaseHelper.MESSAGES_TABLE, MessageColumns._ID,
-                    messageListToIds(mMessagesToDelete));
+            // Batch delete local messages, dropping the cached thumbnails of their parts first
+            final long[] messageIdsToDelete = messageListToIds(mMessagesToDelete);
+            BugleDatabaseOperations.invalidateCachedMessageMedia(db, messageIdsToDelete);
+            db.executeUpdateDeleteBatchInTransaction(DELETE_MESSAGE_SQL, messageIdsToDelete);
 
             for (final LocalDatabaseMessage message : mMessagesToDelete) {
                 if (LogUtil.isLoggable(TAG, LogUtil.VERBOSE)) {
@@ -113,10 +146,21 @@ class SyncMessageBatch {
         }
     }
 
-    private static String[] messageListToIds(final List<LocalDatabaseMessage> messagesToDelete) {
-        final String[] ids = new String[messagesToDelete.size()];
+    private void commitChunk(final DatabaseWrapper db) {
+        updateConversations(db);
+        mConversationsToUpdate.clear();
+        db.setTransactionSuccessful();
+        db.endTransaction();
+        db.beginTransaction();
+    }
+
+    private static final String DELETE_MESSAGE_SQL = "DELETE FROM "
+            + DatabaseHelper.MESSAGES_TABLE + " WHERE " + MessageColumns._ID + "=?";
+
+    private static long[] messageListToIds(final List<LocalDatabaseMessage> messagesToDelete) {
+        final long[] ids = new long[messagesToDelete.size()];
         for (int i = 0; i < ids.length; i++) {
-            ids[i] = Long.toString(messagesToDelete.get(i).getLocalId());
+            ids[i] = messagesToDelete.get(i).getLocalId();
         }
         return ids;
     }
@@ -351,36 +395,4 @@ class SyncMessageBatch {
                     conversationId, true /*shouldAutoSwitchSelfId*/, archived /*keepArchived*/);
         }
     }
-
-
-    /**
-     * Batch delete database rows by matching a column with a list of values, usually some
-     * kind of IDs.
-     *
-     * @param table
-     * @param column
-     * @param ids
-     * @return Total number of deleted messages
-     */
-    private static int batchDelete(final DatabaseWrapper db, final String table,
-            final String column, final String[] ids) {
-        int totalDeleted = 0;
-        final int totalIds = ids.length;
-        for (int start = 0; start < totalIds; start += MmsUtils.MAX_IDS_PER_QUERY) {
-            final int end = Math.min(start + MmsUtils.MAX_IDS_PER_QUERY, totalIds); //excluding
-            final int count = end - start;
-            final String batchSelection = String.format(
-                    Locale.US,
-                    "%s IN %s",
-                    column,
-                    MmsUtils.getSqlInOperand(count));
-            final String[] batchSelectionArgs = Arrays.copyOfRange(ids, start, end);
-            final int deleted = db.delete(
-                    table,
-                    batchSelection,
-                    batchSelectionArgs);
-            totalDeleted += deleted;
-        }
-        return totalDeleted;
-    }
 }
@@ -27,6 +27,7 @@ import android.provider.Telephony.Mms;
 import androidx.collection.LongSparseArray;
 
 import com.android.messaging.Factory;
+import com.android.messaging.datamodel.ContentChangeNotifier;
 import com.android.messaging.datamodel.DataModel;
 import com.android.messaging.datamodel.DatabaseWrapper;
 import com.android.messaging.datamodel.MessagingContentProvider;
@@ -65,9 +66,16 @@ public class SyncMessagesAction extends Action implements Parcelable {
     private static final String KEY_LOWER_BOUND = "lower_bound";
     private static final String KEY_UPPER_BOUND = "upper_bound";
     private static final String BUNDLE_KEY_LAST_TIMESTAMP = "last_timestamp";
-    private static final String BUNDLE_KEY_SMS_MESSAGES = "sms_to_add";
-    private static final String BUNDLE_KEY_MMS_MESSAGES = "mms_to_add";
-    private static final String BUNDLE_KEY_MESSAGES_TO_DELETE = "messages_to_delete";
+    private static final String BUNDLE_KEY_SCAN_TIME_MILLIS = "scan_time_millis";
+
+    /**
+     * Changes found by the background scan of the current batch, handed over to the action
+     * service thread in process rather than parceled through the response Bundle (only one
+     * batch is ever in flight). Keyed by the upper bound of the batch they belong to.
+     */
+    private static final Object sPendingBatchLock = new Object();
+    private static SyncMessageBatch sPendingBatch;      // Protected by sPendingBatchLock
+    private static long sPendingBatchUpperBound = -1;   // Protected by sPendingBatchLock
 
     /**
      * Start a full sync (backed off a few seconds to avoid pulling sending/receiving messages).
@@ -82,6 +90,8 @@ public class SyncMessagesAction extends Action implements Parcelable {
         // TODO: Could base this off most recent message in db but now should be okay...
         final long startTimestamp = now - smsSyncBackoffTimeMillis;
 
+        // A full sync covers any unfinished one
+        clearCheckpoint();
         final SyncMessagesAction action = new SyncMessagesAction(-1L, startTimestamp,
                 0, startTimestamp);
         action.start();
@@ -122,6 +132,25 @@ public class SyncMessagesAction extends Action implements Parcelable {
         }
 
         final BuglePrefs prefs = BuglePrefs.getApplicationPrefs();
+        final long checkpointUpperBound = prefs.getLong(
+                BuglePrefsKeys.SYNC_CHECKPOINT_UPPER_BOUND,
+                BuglePrefsKeys.SYNC_CHECKPOINT_DEFAULT);
+        if (checkpointUpperBound >= 0) {
+            // A previous sync did not finish (process killed); continue from its next batch. Its
+            // completion checks for anything that changed after it started.
+            final long checkpointLowerBound = prefs.getLong(
+                    BuglePrefsKeys.SYNC_CHECKPOINT_LOWER_BOUND,
+                    BuglePrefsKeys.SYNC_CHECKPOINT_DEFAULT);
+            final long checkpointStartTimestamp = prefs.getLong(
+                    BuglePrefsKeys.SYNC_CHECKPOINT_START_TIMESTAMP, startTimestamp);
+            LogUtil.i(TAG, "SyncMessagesAction: Resuming sync of messages from "
+                    + checkpointLowerBound + " to " + checkpointUpperBound);
+            final SyncMessagesAction action = new SyncMessagesAction(checkpointLowerBound,
+                    checkpointUpperBound, 0, checkpointStartTimestamp);
+            action.start();
+            return;
+        }
+
         // Lower bound is end of previous sync
         final long syncLowerBoundTimeMillis = prefs.getLong(BuglePrefsKeys.LAST_SYNC_TIME,
                     BuglePrefsKeys.LAST_SYNC_TIME_DEFAULT);
@@ -235,6 +264,7 @@ public class SyncMessagesAction extends Action implements Parcelable {
                 new ArrayList<LocalDatabaseMessage>();
 
         long lastTimestampMillis = SYNC_FAILED;
+        final long scanStartTimeMillis = SystemClock.elapsedRealtime();
         if (syncManager.isSyncing(upperBoundTimeMillis)) {
             // Cursors
             final SyncCursorPair cursors = new SyncCursorPair(lowerBoundTimeMillis,
@@ -246,7 +276,7 @@ public class SyncMessagesAction extends Action implements Parcelable {
         }
         final Bundle response = new Bundle();
 
-        // If comparison succeeds bundle up the changes for processing in ActionService
+        // If comparison succeeds hand the changes over for processing in ActionService
         if (lastTimestampMillis > SYNC_FAILED) {
             final ArrayList<MmsMessage> mmsToAddList = new ArrayList<MmsMessage>();
             for (int i = 0; i < mmsToAdd.size(); i++) {
@@ -254,15 +284,56 @@ public class SyncMessagesAction extends Action implements Parcelable {
                 mmsToAddList.add(mms);
             }
 
-            response.putParcelableArrayList(BUNDLE_KEY_SMS_MESSAGES, smsToAdd);
-            response.putParcelableArrayList(BUNDLE_KEY_MMS_MESSAGES, mmsToAddList);
-            response.putParcelableArrayList(BUNDLE_KEY_MESSAGES_TO_DELETE, messagesToDelete);
+            setPendingBatch(upperBoundTimeMillis, new SyncMessageBatch(smsToAdd, mmsToAddList,
+                    messagesToDelete, cache));
         }
         response.putLong(BUNDLE_KEY_LAST_TIMESTAMP, lastTimestampMillis);
+        response.putLong(BUNDLE_KEY_SCAN_TIME_MILLIS,
+                SystemClock.elapsedRealtime() - scanStartTimeMillis);
 
         return response;
     }
 
+    private static void setPendingBatch(final long upperBoundTimeMillis,
+            final SyncMessageBatch batch) {
+        synchronized (sPendingBatchLock) {
+            sPendingBatch = batch;
+            sPendingBatchUpperBound = upperBoundTimeMillis;
+        }
+    }
+
+    /**
+     * Take the changes scanned for the batch with the given upper bound
+     * @return the batch, or null if none was scanned in this process for that batch
+     */
+    private static SyncMessageBatch takePendingBatch(final long upperBoundTimeMillis) {
+        synchronized (sPendingBatchLock) {
+            final SyncMessageBatch batch =
+                    (sPendingBatchUpperBound == upperBoundTimeMillis ? sPendingBatch : null);
+            sPendingBatch = null;
+            sPendingBatchUpperBound = -1;
+            return batch;
+        }
+    }
+
+    /**
+     * Remember the next batch of an unfinished sync so it can be resumed after a restart
+     */
+    private static void saveCheckpoint(final long lowerBoundTimeMillis,
+            final long upperBoundTimeMillis, final long startTimestamp) {
+        final BuglePrefs prefs = BuglePrefs.getApplicationPrefs();
+        prefs.putLong(BuglePrefsKeys.SYNC_CHECKPOINT_LOWER_BOUND, lowerBoundTimeMillis);
+        prefs.putLong(BuglePrefsKeys.SYNC_CHECKPOINT_START_TIMESTAMP, startTimestamp);
+        prefs.putLong(BuglePrefsKeys.SYNC_CHECKPOINT_UPPER_BOUND, upperBoundTimeMillis);
+    }
+
+    private static void clearCheckpoint() {
+        final BuglePrefs prefs = BuglePrefs.getApplicationPrefs();
+        prefs.remove(BuglePrefsKeys.SYNC_CHECKPOINT_UPPER_BOUND);
+        prefs.remove(BuglePrefsKeys.SYNC_CHECKPOINT_LOWER_BOUND);
+        prefs.remove(BuglePrefsKeys.SYNC_CHECKPOINT_START_TIMESTAMP);
+    }
+
     /**
      * Compare messages based on timestamp and uri
      * @param db local database wrapper
@@ -357,6 +428,8 @@ public class SyncMessagesAction extends Action implements Parcelable {
         final long upperBoundTimeMillis = actionParameters.getLong(KEY_UPPER_BOUND);
         final int maxMessagesToUpdate = actionParameters.getInt(KEY_MAX_UPDATE);
         final long startTimestamp = actionParameters.getLong(KEY_START_TIMESTAMP);
+        final long scanTimeMillis = response.getLong(BUNDLE_KEY_SCAN_TIME_MILLIS);
+        final SyncMessageBatch batch = takePendingBatch(upperBoundTimeMillis);
 
         // Check with the sync manager if any conflicting updates have been made to databases
         final SyncManager syncManager = DataModel.get().getSyncManager();
@@ -378,11 +451,13 @@ public class SyncMessagesAction extends Action implements Parcelable {
                 prefs.putLong(BuglePrefsKeys.LAST_SYNC_TIME, startTimestamp);
                 // Remember last full sync so that don't start background full sync right away
                 prefs.putLong(BuglePrefsKeys.LAST_FULL_SYNC_TIME, startTimestamp);
+                clearCheckpoint();
 
                 syncManager.complete();
-            } else if (dirty) {
-                LogUtil.w(TAG, "SyncMessagesAction: Redoing dirty sync batch of messages from "
-                        + lowerBoundTimeMillis + " to " + upperBoundTimeMillis);
+            } else if (dirty || batch == null) {
+                LogUtil.w(TAG, "SyncMessagesAction: Redoing " + (dirty ? "dirty" : "unscanned")
+                        + " sync batch of messages from " + lowerBoundTimeMillis + " to "
+                        + upperBoundTimeMillis);
 
                 // Redo this batch
                 final SyncMessagesAction nextBatch =
@@ -393,33 +468,32 @@ public class SyncMessagesAction extends Action implements Parcelable {
                 requestBackgroundWork(nextBatch);
             } else {
                 // Succeeded
-                final ArrayList<SmsMessage> smsToAdd =
-                        response.getParcelableArrayList(BUNDLE_KEY_SMS_MESSAGES);
-                final ArrayList<MmsMessage> mmsToAdd =
-                        response.getParcelableArrayList(BUNDLE_KEY_MMS_MESSAGES);
-                final ArrayList<LocalDatabaseMessage> messagesToDelete =
-                        response.getParcelableArrayList(BUNDLE_KEY_MESSAGES_TO_DELETE);
+                final int messagesUpdated = batch.getUpdateCount();
 
-                final int messagesUpdated = smsToAdd.size() + mmsToAdd.size()
-                        + messagesToDelete.size();
-
-                // Perform local database changes in one transaction
+                // Perform local database changes, committed in chunks
                 long txnTimeMillis = 0;
                 if (messagesUpdated > 0) {
                     final long startTimeMillis = SystemClock.elapsedRealtime();
-                    final SyncMessageBatch batch = new SyncMessageBatch(smsToAdd, mmsToAdd,
-                            messagesToDelete, syncManager.getThreadInfoCache());
-                    batch.updateLocalDatabase();
-                    final long endTimeMillis = SystemClock.elapsedRealtime();
-                    txnTimeMillis = endTimeMillis - startTimeMillis;
-
-                    LogUtil.i(TAG, "SyncMessagesAction: Updated local database "
-                            + "(took " + txnTimeMillis + " ms). Added "
-                            + smsToAdd.size() + " SMS, added " + mmsToAdd.size() + " MMS, deleted "
-                            + messagesToDelete.size() + " messages.");
-
-                    // TODO: Investigate whether we can make this more fine-grained.
-                    MessagingContentProvider.notifyEverythingChanged();
+                    // Everything is notified below, so drop the per conversation notifications
+                    ContentChangeNotifier.beginBatch();
+                    try {
+                        batch.updateLocalDatabase();
+                        final long endTimeMillis = SystemClock.elapsedRealtime();
+                        txnTimeMillis = endTimeMillis - startTimeMillis;
+
+                        LogUtil.i(TAG, "SyncMessagesAction: Updated local database "
+                                + "(took " + txnTimeMillis + " ms, scan took " + scanTimeMillis
+                                + " ms, " + SyncManager.messagesPerSecond(messagesUpdated,
+                                        txnTimeMillis + scanTimeMillis)
+                                + " messages/s). Added " + batch.getSmsToAddCount()
+                                + " SMS, added " + batch.getMmsToAddCount() + " MMS, deleted "
+                                + batch.getMessagesToDeleteCount() + " messages.");
+
+                        // TODO: Investigate whether we can make this more fine-grained.
+                        MessagingContentProvider.notifyEverythingChanged();
+                    } finally {
+                        ContentChangeNotifier.endBatch();
+                    }
                 } else {
                     if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
                         LogUtil.d(TAG, "SyncMessagesAction: No local database updates to make");
@@ -433,6 +507,8 @@ public class SyncMessagesAction extends Action implements Parcelable {
                         MessagingContentProvider.notifyPartsChanged();
                     }
                 }
+                syncManager.onSyncBatchCompleted(messagesUpdated, scanTimeMillis, txnTimeMillis);
+
                 // Determine if there are more messages that need to be scanned
                 if (lastTimestampMillis >= 0 && lastTimestampMillis >= lowerBoundTimeMillis) {
                     if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
@@ -448,6 +524,7 @@ public class SyncMessagesAction extends Action implements Parcelable {
                     final SyncMessagesAction nextBatch =
                             new SyncMessagesAction(lowerBoundTimeMillis, newUpperBoundTimeMillis,
                                     newMaxMessagesToUpdate, startTimestamp);
+                    saveCheckpoint(lowerBoundTimeMillis, newUpperBoundTimeMillis, startTimestamp);
 
                     // Proceed with next batch
                     syncManager.startSyncBatch(newUpperBoundTimeMillis);
@@ -456,6 +533,7 @@ public class SyncMessagesAction extends Action implements Parcelable {
                     final BuglePrefs prefs = BuglePrefs.getApplicationPrefs();
                     // Save sync completion time so next sync will start from here
                     prefs.putLong(BuglePrefsKeys.LAST_SYNC_TIME, startTimestamp);
+                    clearCheckpoint();
                     if (lowerBoundTimeMillis < 0) {
                         // Remember last full sync so that don't start another full sync right away
                         prefs.putLong(BuglePrefsKeys.LAST_FULL_SYNC_TIME, startTimestamp);
@@ -54,6 +54,13 @@ public class UpdateMessagePartSizeAction extends Action implements Parcelable {
         actionParameters.putInt(KEY_HEIGHT, height);
     }
 
+    @Override
+    protected boolean canExecuteInProcess() {
+        // A single row update that tolerates the part being gone, so it doesn't matter whether it
+        // runs before or after other queued actions
+        return true;
+    }
+
     @Override
     protected Object executeAction() {
         final String partId = actionParameters.getString(KEY_PART_ID);
@@ -56,6 +56,7 @@ import com.android.messaging.util.OsUtil;
 import com.android.messaging.util.PhoneUtils;
 import com.android.messaging.util.SafeAsyncTask;
 import com.android.messaging.widget.WidgetConversationProvider;
+import com.google.common.annotations.VisibleForTesting;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -69,6 +70,12 @@ public class ConversationData extends BindableData {
     private static final String BINDING_ID = "bindingId";
     private static final long LAST_MESSAGE_TIMESTAMP_NaN = -1;
     private static final int MESSAGE_COUNT_NaN = -1;
+    private static final int NO_PAGE_LIMIT = -1;
+
+    // Number of messages in the first page of the message list, and in each older page loaded
+    // as the user scrolls back
+    @VisibleForTesting
+    static final int MESSAGES_PAGE_SIZE = 100;
 
     /**
      * Takes a conversation id and a list of message ids and computes the positions
@@ -261,8 +268,11 @@ public class ConversationData extends BindableData {
             final String bindingId = args.getString(BINDING_ID);
             // Check if data still bound to the requesting ui element
             if (isBound(bindingId)) {
-                final Uri uri =
-                        MessagingContentProvider.buildConversationMessagesUri(mConversationId);
+                // Start with the newest page only; older pages are loaded on demand
+                mPageLimit = MESSAGES_PAGE_SIZE;
+                mHasOlderMessages = false;
+                final Uri uri = MessagingContentProvider.buildConversationMessagesUri(
+                        mConversationId, mPageLimit);
                 loader = new BoundCursorLoader(bindingId, mContext, uri,
                         ConversationMessageData.getProjection(), null, null, null);
                 mLastMessageTimestamp = LAST_MESSAGE_TIMESTAMP_NaN;
@@ -310,6 +320,9 @@ public class ConversationData extends BindableData {
                     } else {
                         mLastMessageTimestamp = LAST_MESSAGE_TIMESTAMP_NaN;
                     }
+                    if (mPageLimit != NO_PAGE_LIMIT) {
+                        pinLoadedMessages(loader, data);
+                    }
                 } else {
                     mMessageCount = MESSAGE_COUNT_NaN;
                 }
@@ -332,12 +345,36 @@ public class ConversationData extends BindableData {
                         false);
                 mLastMessageTimestamp = LAST_MESSAGE_TIMESTAMP_NaN;
                 mMessageCount = MESSAGE_COUNT_NaN;
+                mHasOlderMessages = false;
             } else {
                 LogUtil.w(TAG, "Messages loader reset after unbinding mConversationId = " +
                         mConversationId);
             }
         }
 
+        /**
+         * After loading a page, point the loader at the messages from the oldest one loaded
+         * onwards. Later changes then reload just those messages plus any new ones, instead of
+         * the whole conversation, and loading the page doesn't drop older messages again.
+         */
+        private void pinLoadedMessages(final BoundCursorLoader loader, final Cursor data) {
+            mHasOlderMessages = data.getCount() >= mPageLimit;
+            mPageLimit = NO_PAGE_LIMIT;
+            final Uri uri;
+            if (mHasOlderMessages && data.moveToFirst()) {
+                final ConversationMessageData oldestMessage = new ConversationMessageData();
+                oldestMessage.bind(data);
+                data.moveToPosition(-1);
+                uri = MessagingContentProvider.buildConversationMessagesUri(mConversationId,
+                        oldestMessage.getReceivedTimeStamp(),
+                        Long.parseLong(oldestMessage.getMessageId()));
+            } else {
+                // The whole conversation is loaded
+                uri = MessagingContentProvider.buildConversationMessagesUri(mConversationId);
+            }
+            loader.setUri(uri);
+        }
+
         private ConversationMessageData getLastMessage(final Cursor cursor) {
             if (cursor != null && cursor.getCount() > 0) {
                 final int position = cursor.getPosition();
@@ -478,6 +515,9 @@ public class ConversationData extends BindableData {
     private long mLastMessageTimestamp = LAST_MESSAGE_TIMESTAMP_NaN;
     private int mMessageCount = MESSAGE_COUNT_NaN;
     private String mLastMessageId;
+    // Limit of the page being loaded, or NO_PAGE_LIMIT once the loaded messages are pinned
+    private int mPageLimit = NO_PAGE_LIMIT;
+    private boolean mHasOlderMessages;
 
     public ConversationData(final Context context, final ConversationDataListener listener,
             final String conversationId) {
@@ -534,6 +574,34 @@ public class ConversationData extends BindableData {
         return isBound() && DataModel.get().isFocusedConversation(mConversationId);
     }
 
+    /**
+     * @return whether the conversation has messages older than those loaded
+     */
+    public boolean hasOlderMessages() {
+        return mHasOlderMessages;
+    }
+
+    /**
+     * Start loading the page of messages before the oldest one loaded, unless there are none or
+     * a page is already loading. The loaded messages are delivered again with the page prepended,
+     * the same way as after a message sync.
+     */
+    @RunsOnMainThread
+    public void loadOlderMessages() {
+        Assert.isMainThread();
+        if (!mHasOlderMessages || mPageLimit != NO_PAGE_LIMIT || mLoaderManager == null) {
+            return;
+        }
+        final Loader<Cursor> loader = mLoaderManager.getLoader(CONVERSATION_MESSAGES_LOADER);
+        if (loader == null) {
+            return;
+        }
+        mPageLimit = mMessageCount + MESSAGES_PAGE_SIZE;
+        ((BoundCursorLoader) loader).setUri(MessagingContentProvider.buildConversationMessagesUri(
+                mConversationId, mPageLimit));
+        loader.forceLoad();
+    }
+
     private static final int CONVERSATION_META_DATA_LOADER = 1;
     private static final int CONVERSATION_MESSAGES_LOADER = 2;
     private static final int PARTICIPANT_LOADER = 3;
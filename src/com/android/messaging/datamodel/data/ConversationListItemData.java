@@ -275,16 +275,33 @@ public class ConversationListItemData {
     }
 
     /**
-     * Get the name of the view for this data item
+     * Get the name of the table to read this data item from. This is the conversation list
+     * summary table, which holds the same columns as the conversation list view.
      */
     public static final String getConversationListView() {
-        return CONVERSATION_LIST_VIEW;
+        return CONVERSATION_LIST_SUMMARY_TABLE;
     }
 
     public static final String getConversationListViewSql() {
         return CONVERSATION_LIST_VIEW_SQL;
     }
 
+    /**
+     * Get the statements that create the conversation list summary table, its indices and the
+     * triggers that keep it in sync. The table is left empty; see
+     * {@link #getPopulateConversationListSummarySql()}.
+     */
+    public static final String[] getConversationListSummarySqls() {
+        return CONVERSATION_LIST_SUMMARY_SQLS;
+    }
+
+    /**
+     * Get the statement that fills the conversation list summary table from the conversations
+     */
+    public static final String getPopulateConversationListSummarySql() {
+        return POPULATE_CONVERSATION_LIST_SUMMARY_SQL;
+    }
+
     private static final String CONVERSATION_LIST_VIEW = "conversation_list_view";
 
     private static final String CONVERSATION_LIST_VIEW_PROJECTION =
@@ -352,23 +369,151 @@ public class ConversationListItemData {
             + '=' + DatabaseHelper.PARTICIPANTS_TABLE + '.' + DatabaseHelper.ParticipantColumns._ID
             + ") ";
 
-    // View that makes latest message read flag available with rest of conversation data.
-    private static final String CONVERSATION_LIST_VIEW_SQL = "CREATE VIEW " +
-            CONVERSATION_LIST_VIEW + " AS SELECT "
-            + CONVERSATION_LIST_VIEW_PROJECTION + ", "
+    private static final String CONVERSATION_LIST_COLUMNS =
+            CONVERSATION_LIST_VIEW_PROJECTION + ", "
             // Snippet not part of the base projection shared with search view
             + DatabaseHelper.CONVERSATIONS_TABLE + '.' + ConversationColumns.SNIPPET_TEXT
             + " as " + ConversationListViewColumns.SNIPPET_TEXT + ", "
             + DatabaseHelper.CONVERSATIONS_TABLE + '.' + ConversationColumns.SUBJECT_TEXT
-            + " as " + ConversationListViewColumns.SUBJECT_TEXT + " "
-            + " FROM " + DatabaseHelper.CONVERSATIONS_TABLE
+            + " as " + ConversationListViewColumns.SUBJECT_TEXT + " ";
+
+    private static final String CONVERSATION_LIST_FROM =
+            " FROM " + DatabaseHelper.CONVERSATIONS_TABLE
             + " LEFT JOIN " + DatabaseHelper.MESSAGES_TABLE + " ON ("
             + DatabaseHelper.CONVERSATIONS_TABLE + '.' +  ConversationColumns.LATEST_MESSAGE_ID
             + '=' + DatabaseHelper.MESSAGES_TABLE + '.' + MessageColumns._ID + ") "
-            + JOIN_PARTICIPANTS
+            + JOIN_PARTICIPANTS;
+
+    // View that makes latest message read flag available with rest of conversation data.
+    private static final String CONVERSATION_LIST_VIEW_SQL = "CREATE VIEW " +
+            CONVERSATION_LIST_VIEW + " AS SELECT "
+            + CONVERSATION_LIST_COLUMNS
+            + CONVERSATION_LIST_FROM
             + "ORDER BY " + DatabaseHelper.CONVERSATIONS_TABLE + '.'
             + ConversationColumns.SORT_TIMESTAMP + " DESC";
 
+    // Table holding one row of the conversation list view per conversation, so that loading
+    // the conversation list is a range scan over an index instead of a join. Triggers refresh a
+    // row whenever the conversation, its latest message or that message's sender changes.
+    private static final String CONVERSATION_LIST_SUMMARY_TABLE = "conversation_list_summary";
+
+    // Sender of the latest message, used to find the rows to update when a participant changes
+    private static final String SNIPPET_SENDER_ID = "snippet_sender_id";
+
+    private static final String CREATE_CONVERSATION_LIST_SUMMARY_TABLE_SQL =
+            "CREATE TABLE " + CONVERSATION_LIST_SUMMARY_TABLE + "("
+            + ConversationListViewColumns._ID + " INTEGER PRIMARY KEY, "
+            + ConversationListViewColumns.NAME + " TEXT, "
+            + ConversationListViewColumns.CURRENT_SELF_ID + " TEXT, "
+            + ConversationListViewColumns.ARCHIVE_STATUS + " INT, "
+            + ConversationListViewColumns.READ + " INT, "
+            + ConversationListViewColumns.ICON + " TEXT, "
+            + ConversationListViewColumns.PARTICIPANT_CONTACT_ID + " INT, "
+            + ConversationListViewColumns.PARTICIPANT_LOOKUP_KEY + " TEXT, "
+            + ConversationListViewColumns.OTHER_PARTICIPANT_NORMALIZED_DESTINATION + " TEXT, "
+            + ConversationListViewColumns.SORT_TIMESTAMP + " INT, "
+            + ConversationListViewColumns.SHOW_DRAFT + " INT, "
+            + ConversationListViewColumns.DRAFT_SNIPPET_TEXT + " TEXT, "
+            + ConversationListViewColumns.DRAFT_PREVIEW_URI + " TEXT, "
+            + ConversationListViewColumns.DRAFT_SUBJECT_TEXT + " TEXT, "
+            + ConversationListViewColumns.DRAFT_PREVIEW_CONTENT_TYPE + " TEXT, "
+            + ConversationListViewColumns.PREVIEW_URI + " TEXT, "
+            + ConversationListViewColumns.PREVIEW_CONTENT_TYPE + " TEXT, "
+            + ConversationListViewColumns.PARTICIPANT_COUNT + " INT, "
+            + ConversationListViewColumns.NOTIFICATION_ENABLED + " INT, "
+            + ConversationListViewColumns.NOTIFICATION_SOUND_URI + " TEXT, "
+            + ConversationListViewColumns.NOTIFICATION_VIBRATION + " INT, "
+            + ConversationListViewColumns.INCLUDE_EMAIL_ADDRESS + " INT, "
+            + ConversationListViewColumns.MESSAGE_STATUS + " INT, "
+            + ConversationListViewColumns.MESSAGE_RAW_TELEPHONY_STATUS + " INT, "
+            + ConversationListViewColumns.MESSAGE_ID + " INT, "
+            + ConversationListViewColumns.SNIPPET_SENDER_FIRST_NAME + " TEXT, "
+            + ConversationListViewColumns.SNIPPET_SENDER_DISPLAY_DESTINATION + " TEXT, "
+            + ConversationListViewColumns.SNIPPET_TEXT + " TEXT, "
+            + ConversationListViewColumns.SUBJECT_TEXT + " TEXT, "
+            + SNIPPET_SENDER_ID + " INT"
+            + ");";
+
+    // The conversation list is read by archive status, newest first
+    private static final String CONVERSATION_LIST_SUMMARY_SORT_INDEX_SQL =
+            "CREATE INDEX index_" + CONVERSATION_LIST_SUMMARY_TABLE + "_sort ON "
+            + CONVERSATION_LIST_SUMMARY_TABLE + "(" + ConversationListViewColumns.ARCHIVE_STATUS
+            + ", " + ConversationListViewColumns.SORT_TIMESTAMP + ")";
+
+    private static final String CONVERSATION_LIST_SUMMARY_SENDER_INDEX_SQL =
+            "CREATE INDEX index_" + CONVERSATION_LIST_SUMMARY_TABLE + "_" + SNIPPET_SENDER_ID
+            + " ON " + CONVERSATION_LIST_SUMMARY_TABLE + "(" + SNIPPET_SENDER_ID + ")";
+
+    // Rows of the summary table; the column order matches the table definition
+    private static final String SELECT_CONVERSATION_LIST_SUMMARY_SQL = "SELECT "
+            + CONVERSATION_LIST_COLUMNS + ", "
+            + DatabaseHelper.MESSAGES_TABLE + '.' + MessageColumns.SENDER_PARTICIPANT_ID
+            + CONVERSATION_LIST_FROM;
+
+    private static final String POPULATE_CONVERSATION_LIST_SUMMARY_SQL =
+            "INSERT OR REPLACE INTO " + CONVERSATION_LIST_SUMMARY_TABLE + " "
+            + SELECT_CONVERSATION_LIST_SUMMARY_SQL;
+
+    // Delete and insert rather than INSERT OR REPLACE, since the conflict resolution of the
+    // statement firing a trigger overrides the one of the statements in the trigger
+    private static String refreshConversationListSummarySql(final String conversationId) {
+        return "DELETE FROM " + CONVERSATION_LIST_SUMMARY_TABLE + " WHERE "
+                + ConversationListViewColumns._ID + "=" + conversationId + "; "
+                + "INSERT INTO " + CONVERSATION_LIST_SUMMARY_TABLE + " "
+                + SELECT_CONVERSATION_LIST_SUMMARY_SQL + " WHERE "
+                + DatabaseHelper.CONVERSATIONS_TABLE + '.' + ConversationColumns._ID + "="
+                + conversationId + "; ";
+    }
+
+    private static final String CONVERSATION_LIST_SUMMARY_INSERT_TRIGGER_SQL =
+            "CREATE TRIGGER " + CONVERSATION_LIST_SUMMARY_TABLE + "_conversations_insert"
+            + " AFTER INSERT ON " + DatabaseHelper.CONVERSATIONS_TABLE + " FOR EACH ROW BEGIN "
+            + refreshConversationListSummarySql("NEW." + ConversationColumns._ID) + "END";
+
+    private static final String CONVERSATION_LIST_SUMMARY_UPDATE_TRIGGER_SQL =
+            "CREATE TRIGGER " + CONVERSATION_LIST_SUMMARY_TABLE + "_conversations_update"
+            + " AFTER UPDATE ON " + DatabaseHelper.CONVERSATIONS_TABLE + " FOR EACH ROW BEGIN "
+            + refreshConversationListSummarySql("NEW." + ConversationColumns._ID) + "END";
+
+    private static final String CONVERSATION_LIST_SUMMARY_DELETE_TRIGGER_SQL =
+            "CREATE TRIGGER " + CONVERSATION_LIST_SUMMARY_TABLE + "_conversations_delete"
+            + " AFTER DELETE ON " + DatabaseHelper.CONVERSATIONS_TABLE + " FOR EACH ROW BEGIN "
+            + "DELETE FROM " + CONVERSATION_LIST_SUMMARY_TABLE + " WHERE "
+            + ConversationListViewColumns._ID + "=OLD." + ConversationColumns._ID + "; END";
+
+    // Only changes to the latest message of a conversation show up in the list
+    private static final String CONVERSATION_LIST_SUMMARY_MESSAGES_TRIGGER_SQL =
+            "CREATE TRIGGER " + CONVERSATION_LIST_SUMMARY_TABLE + "_messages_update"
+            + " AFTER UPDATE OF " + MessageColumns.READ + ", " + MessageColumns.STATUS + ", "
+            + MessageColumns.RAW_TELEPHONY_STATUS + ", " + MessageColumns.SENDER_PARTICIPANT_ID
+            + " ON " + DatabaseHelper.MESSAGES_TABLE + " FOR EACH ROW WHEN NEW."
+            + MessageColumns._ID + "=(SELECT " + ConversationColumns.LATEST_MESSAGE_ID + " FROM "
+            + DatabaseHelper.CONVERSATIONS_TABLE + " WHERE " + ConversationColumns._ID + "=NEW."
+            + MessageColumns.CONVERSATION_ID + ") BEGIN "
+            + refreshConversationListSummarySql("NEW." + MessageColumns.CONVERSATION_ID) + "END";
+
+    private static final String CONVERSATION_LIST_SUMMARY_PARTICIPANTS_TRIGGER_SQL =
+            "CREATE TRIGGER " + CONVERSATION_LIST_SUMMARY_TABLE + "_participants_update"
+            + " AFTER UPDATE OF " + ParticipantColumns.FIRST_NAME + ", "
+            + ParticipantColumns.DISPLAY_DESTINATION + " ON " + DatabaseHelper.PARTICIPANTS_TABLE
+            + " FOR EACH ROW BEGIN UPDATE " + CONVERSATION_LIST_SUMMARY_TABLE + " SET "
+            + ConversationListViewColumns.SNIPPET_SENDER_FIRST_NAME + "=NEW."
+            + ParticipantColumns.FIRST_NAME + ", "
+            + ConversationListViewColumns.SNIPPET_SENDER_DISPLAY_DESTINATION + "=NEW."
+            + ParticipantColumns.DISPLAY_DESTINATION + " WHERE " + SNIPPET_SENDER_ID + "=NEW."
+            + ParticipantColumns._ID + "; END";
+
+    private static final String[] CONVERSATION_LIST_SUMMARY_SQLS = new String[] {
+        CREATE_CONVERSATION_LIST_SUMMARY_TABLE_SQL,
+        CONVERSATION_LIST_SUMMARY_SORT_INDEX_SQL,
+        CONVERSATION_LIST_SUMMARY_SENDER_INDEX_SQL,
+        CONVERSATION_LIST_SUMMARY_INSERT_TRIGGER_SQL,
+        CONVERSATION_LIST_SUMMARY_UPDATE_TRIGGER_SQL,
+        CONVERSATION_LIST_SUMMARY_DELETE_TRIGGER_SQL,
+        CONVERSATION_LIST_SUMMARY_MESSAGES_TRIGGER_SQL,
+        CONVERSATION_LIST_SUMMARY_PARTICIPANTS_TRIGGER_SQL,
+    };
+
     public static class ConversationListViewColumns implements BaseColumns {
         public static final String _ID = ConversationColumns._ID;
         static final String NAME = ConversationColumns.NAME;
@@ -21,21 +21,25 @@ import android.provider.BaseColumns;
 import android.provider.ContactsContract;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
+import androidx.collection.LongSparseArray;
 
 import com.android.messaging.Factory;
 import com.android.messaging.datamodel.DatabaseHelper;
 import com.android.messaging.datamodel.DatabaseHelper.MessageColumns;
 import com.android.messaging.datamodel.DatabaseHelper.PartColumns;
 import com.android.messaging.datamodel.DatabaseHelper.ParticipantColumns;
+import com.android.messaging.datamodel.DatabaseWrapper;
 //add for bug 566254 begin
 import com.android.messaging.datamodel.data.MessageData;
 //add for bug 566254 end
 import com.android.messaging.util.Assert;
+import com.android.messaging.util.Assert.DoesNotRunOnMainThread;
 import com.android.messaging.util.BugleGservices;
 import com.android.messaging.util.BugleGservicesKeys;
 import com.android.messaging.util.ContentType;
 import com.android.messaging.util.Dates;
 import com.android.messaging.util.LogUtil;
+import com.android.messaging.util.MessageLinksCache;
 import com.android.messaging.util.SprdLogUtil;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Predicate;
@@ -99,17 +103,25 @@ public class ConversationMessageData {
         mMessageId = cursor.getString(INDEX_MESSAGE_ID);
         mConversationId = cursor.getString(INDEX_CONVERSATION_ID);
         mParticipantId = cursor.getString(INDEX_PARTICIPANT_ID);
-        mPartsCount = cursor.getInt(INDEX_PARTS_COUNT);
-
-        mParts = makeParts(
-                cursor.getString(INDEX_PARTS_IDS),
-                cursor.getString(INDEX_PARTS_CONTENT_TYPES),
-                cursor.getString(INDEX_PARTS_CONTENT_URIS),
-                cursor.getString(INDEX_PARTS_WIDTHS),
-                cursor.getString(INDEX_PARTS_HEIGHTS),
-                cursor.getString(INDEX_PARTS_TEXTS),
-                mPartsCount,
-                mMessageId);
+
+        final ConversationMessagePartsCursor partsCursor =
+                ConversationMessagePartsCursor.find(cursor);
+        if (partsCursor != null) {
+            // The message list query loaded the parts of all of its messages up front
+            mParts = partsCursor.getParts(cursor.getLong(INDEX_MESSAGE_ID));
+            mPartsCount = mParts.size();
+        } else {
+            mPartsCount = cursor.getInt(INDEX_PARTS_COUNT);
+            mParts = makeParts(
+                    cursor.getString(INDEX_PARTS_IDS),
+                    cursor.getString(INDEX_PARTS_CONTENT_TYPES),
+                    cursor.getString(INDEX_PARTS_CONTENT_URIS),
+                    cursor.getString(INDEX_PARTS_WIDTHS),
+                    cursor.getString(INDEX_PARTS_HEIGHTS),
+                    cursor.getString(INDEX_PARTS_TEXTS),
+                    mPartsCount,
+                    mMessageId);
+        }
 
         if (mParts != null) {
             for (MessagePartData part : mParts) {
@@ -282,6 +294,22 @@ public class ConversationMessageData {
             final String contentHeight,
             final String text,
             final String messageId) {
+        // Only media parts carry a size
+        final boolean isMedia = !ContentType.isTextType(contentType) && contentUriString != null;
+        return makePartData(partId, contentType, contentUriString,
+                isMedia ? Integer.parseInt(contentWidth) : 0,
+                isMedia ? Integer.parseInt(contentHeight) : 0,
+                text, messageId);
+    }
+
+    private static MessagePartData makePartData(
+            final String partId,
+            final String contentType,
+            final String contentUriString,
+            final int width,
+            final int height,
+            final String text,
+            final String messageId) {
         if (ContentType.isTextType(contentType)) {
             final MessagePartData textPart = MessagePartData.createTextMessagePart(text);
             textPart.updatePartId(partId);
@@ -290,8 +318,6 @@ public class ConversationMessageData {
         } else {
             if(contentUriString != null){
                  final Uri contentUri = Uri.parse(contentUriString);
-                 final int width = Integer.parseInt(contentWidth);
-                 final int height = Integer.parseInt(contentHeight);
                  final MessagePartData attachmentPart = MessagePartData.createMediaMessagePart(
                           contentType, contentUri, width, height);
                  attachmentPart.updatePartId(partId);
@@ -685,7 +711,65 @@ public class ConversationMessageData {
 
     // Data definitions
 
+    /** Passed as the since timestamp to query the messages back to the start */
+    public static final long NO_BOUND = -1;
+
+    /** Passed as the limit to query all messages in the bound */
+    public static final int NO_LIMIT = 0;
+
     public static final String getConversationMessagesQuerySql() {
+        return getConversationMessagesQuerySql(false /* bounded */, NO_LIMIT);
+    }
+
+    /**
+     * @param bounded whether to keep only the messages at or after a (received timestamp,
+     *     message id) position, given as three more args: the timestamp twice, then the id
+     * @param limit the most messages to return, the newest first, or {@link #NO_LIMIT}
+     */
+    @VisibleForTesting
+    static String getConversationMessagesQuerySql(final boolean bounded,
+            final int limit) {
+        return CONVERSATION_MESSAGES_LIST_QUERY_SQL
+                + " AND "
+                // Inject the conversation id
+                + DatabaseHelper.MESSAGES_TABLE + "." + MessageColumns.CONVERSATION_ID + "=?"
+                + (bounded ? getKeysetSelection(DatabaseHelper.MESSAGES_TABLE + ".") : "")
+                + ")"
+                + CONVERSATION_MESSAGES_LIST_QUERY_SQL_ORDER_BY
+                + getLimitClause(limit);
+    }
+
+    @VisibleForTesting
+    static String getConversationMessagesPartsQuerySql(final boolean bounded,
+            final int limit) {
+        return CONVERSATION_MESSAGES_LIST_PARTS_QUERY_SQL_PREFIX
+                + (bounded ? getKeysetSelection("") : "")
+                + (limit != NO_LIMIT
+                        ? CONVERSATION_MESSAGES_LIST_PARTS_QUERY_SQL_KEYSET_ORDER_BY
+                                + getLimitClause(limit)
+                        : "")
+                + CONVERSATION_MESSAGES_LIST_PARTS_QUERY_SQL_SUFFIX;
+    }
+
+    // Selects the messages that sort at or after a message in the list order, without needing
+    // row values, which older SQLite versions don't support. The leading >= on the timestamp
+    // lets the conversation index range scan from the position instead of reading every message.
+    private static String getKeysetSelection(final String tablePrefix) {
+        return " AND " + tablePrefix + MessageColumns.RECEIVED_TIMESTAMP + ">=?"
+                + " AND (" + tablePrefix + MessageColumns.RECEIVED_TIMESTAMP + ">?"
+                + " OR " + tablePrefix + MessageColumns._ID + ">=?)";
+    }
+
+    private static String getLimitClause(final int limit) {
+        return limit != NO_LIMIT ? " LIMIT " + limit : "";
+    }
+
+    /**
+     * The message list query as it was before the parts moved to a side query, with the parts
+     * of each message packed into group_concat'ed columns
+     */
+    @VisibleForTesting
+    static final String getPackedConversationMessagesQuerySql() {
         return CONVERSATION_MESSAGES_QUERY_SQL
                 + " AND "
                 // Inject the conversation id
@@ -698,9 +782,100 @@ public class ConversationMessageData {
                 + " AND "
                 // Inject the conversation id
                 + DatabaseHelper.MESSAGES_TABLE + "." + MessageColumns.CONVERSATION_ID + "=?)"
-                + CONVERSATION_MESSAGES_QUERY_SQL_GROUP_BY;
+                + CONVERSATION_MESSAGES_LIST_QUERY_SQL_ORDER_BY;
+    }
+
+    /**
+     * Query the messages of a conversation for the message list. The parts of all the messages
+     * are read with one more query and handed to {@link #bind} through the returned cursor, so
+     * binding a row doesn't have to unpack them from the row itself.
+     */
+    @DoesNotRunOnMainThread
+    public static Cursor queryConversationMessages(final DatabaseWrapper db,
+            final String conversationId) {
+        return queryConversationMessages(db, conversationId, NO_BOUND, NO_BOUND, NO_LIMIT);
+    }
+
+    /**
+     * Query a window of the newest messages of a conversation for the message list, like
+     * {@link #queryConversationMessages(DatabaseWrapper, String)}. The list is ordered by
+     * (received timestamp, message id), so that position is a stable key to page by.
+     *
+     * @param sinceTimestamp with sinceMessageId, the oldest position to include, or
+     *     {@link #NO_BOUND} to include messages back to the start of the conversation
+     * @param sinceMessageId the message id part of the oldest position to include
+     * @param limit the most messages to return, the newest first, or {@link #NO_LIMIT}
+     */
+    @DoesNotRunOnMainThread
+    public static Cursor queryConversationMessages(final DatabaseWrapper db,
+            final String conversationId, final long sinceTimestamp, final long sinceMessageId,
+            final int limit) {
+        Assert.isNotMainThread();
+        final boolean bounded = sinceTimestamp != NO_BOUND;
+        final String[] queryArgs = bounded
+                ? new String[] { conversationId, Long.toString(sinceTimestamp),
+                        Long.toString(sinceTimestamp), Long.toString(sinceMessageId) }
+                : new String[] { conversationId };
+        final Cursor cursor = db.rawQuery(getConversationMessagesQuerySql(bounded, limit),
+                queryArgs);
+        // Fill the cursor window before reading the parts, so that every message in the window
+        // has its parts in the snapshot. Later changes trigger a reload of the whole list.
+        cursor.getCount();
+
+        final LongSparseArray<List<MessagePartData>> partsByMessageId =
+                new LongSparseArray<List<MessagePartData>>();
+        final Cursor partsCursor = db.rawQuery(
+                getConversationMessagesPartsQuerySql(bounded, limit), queryArgs);
+        try {
+            long currentMessageId = -1;
+            String currentMessageIdString = null;
+            List<MessagePartData> currentParts = null;
+            while (partsCursor.moveToNext()) {
+                final long messageId = partsCursor.getLong(INDEX_LIST_PART_MESSAGE_ID);
+                if (currentParts == null || messageId != currentMessageId) {
+                    currentMessageId = messageId;
+                    currentMessageIdString = Long.toString(messageId);
+                    currentParts = new ArrayList<MessagePartData>(1);
+                    // Rows come ordered by message id, which makes this an append
+                    partsByMessageId.put(messageId, currentParts);
+                }
+                currentParts.add(makePartData(
+                        partsCursor.getString(INDEX_LIST_PART_ID),
+                        partsCursor.getString(INDEX_LIST_PART_CONTENT_TYPE),
+                        partsCursor.getString(INDEX_LIST_PART_CONTENT_URI),
+                        partsCursor.getInt(INDEX_LIST_PART_WIDTH),
+                        partsCursor.getInt(INDEX_LIST_PART_HEIGHT),
+                        partsCursor.getString(INDEX_LIST_PART_TEXT),
+                        currentMessageIdString));
+            }
+        } finally {
+            partsCursor.close();
+        }
+        final ConversationMessagePartsCursor messagesCursor =
+                new ConversationMessagePartsCursor(cursor, partsByMessageId);
+        precomputeLinks(messagesCursor);
+        return messagesCursor;
+    }
+
+    /**
+     * Find the links in the newest messages of the list while still off the main thread, so
+     * their bubbles can show them as soon as they are bound. Messages whose links are already
+     * cached, which is most of them when the list reloads, are skipped.
+     */
+    private static void precomputeLinks(final Cursor cursor) {
+        final ConversationMessageData data = new ConversationMessageData();
+        final MessageLinksCache linksCache = MessageLinksCache.get();
+        int count = 0;
+        while (count++ < LINKS_PRECOMPUTE_COUNT && cursor.moveToNext()) {
+            data.bind(cursor);
+            linksCache.precompute(data.getMessageId(), data.getText());
+        }
+        cursor.moveToPosition(-1);
     }
 
+    // Number of the newest messages of a list whose links are found as it loads
+    private static final int LINKS_PRECOMPUTE_COUNT = 100;
+
     public static final String getNotificationQuerySql() {
         return CONVERSATION_MESSAGES_QUERY_SQL
                 + " AND "
@@ -768,15 +943,16 @@ public class ConversationMessageData {
 
     private static final String EMPTY_STRING = "";
 
-    private static final String CONVERSATION_MESSAGES_QUERY_PROJECTION_SQL =
+    private static final String CONVERSATION_MESSAGES_QUERY_ID_COLUMNS_SQL =
             DatabaseHelper.MESSAGES_TABLE + '.' + MessageColumns._ID
             + " as " + ConversationMessageViewColumns._ID + ", "
             + DatabaseHelper.MESSAGES_TABLE + '.' + MessageColumns.CONVERSATION_ID
             + " as " + ConversationMessageViewColumns.CONVERSATION_ID + ", "
             + DatabaseHelper.MESSAGES_TABLE + '.' + MessageColumns.SENDER_PARTICIPANT_ID
-            + " as " + ConversationMessageViewColumns.PARTICIPANT_ID + ", "
+            + " as " + ConversationMessageViewColumns.PARTICIPANT_ID + ", ";
 
-            + makeCaseWhenString(PartColumns._ID, false,
+    private static final String CONVERSATION_MESSAGES_QUERY_PACKED_PARTS_COLUMNS_SQL =
+            makeCaseWhenString(PartColumns._ID, false,
                     ConversationMessageViewColumns.PARTS_IDS) + ", "
             + makeCaseWhenString(PartColumns.CONTENT_TYPE, true,
                     ConversationMessageViewColumns.PARTS_CONTENT_TYPES) + ", "
@@ -790,9 +966,21 @@ public class ConversationMessageData {
                     ConversationMessageViewColumns.PARTS_TEXTS) + ", "
 
             + CONVERSATION_MESSAGE_VIEW_PARTS_COUNT
-            + " as " + ConversationMessageViewColumns.PARTS_COUNT + ", "
-
-            + DatabaseHelper.MESSAGES_TABLE + '.' + MessageColumns.SENT_TIMESTAMP
+            + " as " + ConversationMessageViewColumns.PARTS_COUNT + ", ";
+
+    // The message list reads its parts with a separate batched query, so it leaves the packed
+    // parts columns empty to keep the column layout shared with the other queries.
+    private static final String CONVERSATION_MESSAGES_LIST_PARTS_COLUMNS_SQL =
+            "NULL as " + ConversationMessageViewColumns.PARTS_IDS + ", "
+            + "NULL as " + ConversationMessageViewColumns.PARTS_CONTENT_TYPES + ", "
+            + "NULL as " + ConversationMessageViewColumns.PARTS_CONTENT_URIS + ", "
+            + "NULL as " + ConversationMessageViewColumns.PARTS_WIDTHS + ", "
+            + "NULL as " + ConversationMessageViewColumns.PARTS_HEIGHTS + ", "
+            + "NULL as " + ConversationMessageViewColumns.PARTS_TEXTS + ", "
+            + "0 as " + ConversationMessageViewColumns.PARTS_COUNT + ", ";
+
+    private static final String CONVERSATION_MESSAGES_QUERY_MESSAGE_COLUMNS_SQL =
+            DatabaseHelper.MESSAGES_TABLE + '.' + MessageColumns.SENT_TIMESTAMP
             + " as " + ConversationMessageViewColumns.SENT_TIMESTAMP + ", "
             + DatabaseHelper.MESSAGES_TABLE + '.' + MessageColumns.RECEIVED_TIMESTAMP
             + " as " + ConversationMessageViewColumns.RECEIVED_TIMESTAMP + ", "
@@ -837,6 +1025,16 @@ public class ConversationMessageData {
             + DatabaseHelper.PARTICIPANTS_TABLE + '.' + ParticipantColumns.LOOKUP_KEY
             + " as " + ConversationMessageViewColumns.SENDER_CONTACT_LOOKUP_KEY + " ";
 
+    private static final String CONVERSATION_MESSAGES_QUERY_PROJECTION_SQL =
+            CONVERSATION_MESSAGES_QUERY_ID_COLUMNS_SQL
+            + CONVERSATION_MESSAGES_QUERY_PACKED_PARTS_COLUMNS_SQL
+            + CONVERSATION_MESSAGES_QUERY_MESSAGE_COLUMNS_SQL;
+
+    private static final String CONVERSATION_MESSAGES_LIST_PROJECTION_SQL =
+            CONVERSATION_MESSAGES_QUERY_ID_COLUMNS_SQL
+            + CONVERSATION_MESSAGES_LIST_PARTS_COLUMNS_SQL
+            + CONVERSATION_MESSAGES_QUERY_MESSAGE_COLUMNS_SQL;
+
     private static final String CONVERSATION_MESSAGES_QUERY_FROM_WHERE_SQL =
             " FROM " + DatabaseHelper.MESSAGES_TABLE
             + " LEFT JOIN " + DatabaseHelper.PARTS_TABLE
@@ -856,6 +1054,54 @@ public class ConversationMessageData {
             + CONVERSATION_MESSAGES_QUERY_PROJECTION_SQL
             + CONVERSATION_MESSAGES_QUERY_FROM_WHERE_SQL;
 
+    // The message list doesn't join the parts table, which also saves grouping the rows. Each
+    // message without parts, like an MMS not downloaded yet, is its own row. The packed query's
+    // GROUP BY parts.message_id folds all of them into a single row, so that query shows only
+    // one of them.
+    private static final String CONVERSATION_MESSAGES_LIST_FROM_WHERE_SQL =
+            " FROM " + DatabaseHelper.MESSAGES_TABLE
+            + " LEFT JOIN " + DatabaseHelper.PARTICIPANTS_TABLE
+            + " ON (" + DatabaseHelper.MESSAGES_TABLE + '.' +  MessageColumns.SENDER_PARTICIPANT_ID
+            + '=' + DatabaseHelper.PARTICIPANTS_TABLE + '.' + ParticipantColumns._ID + ")"
+            // Exclude draft messages from main view
+            + " WHERE (" + DatabaseHelper.MESSAGES_TABLE + "." + MessageColumns.STATUS
+            + " <> " + MessageData.BUGLE_STATUS_OUTGOING_DRAFT;
+
+    private static final String CONVERSATION_MESSAGES_LIST_QUERY_SQL = "SELECT "
+            + CONVERSATION_MESSAGES_LIST_PROJECTION_SQL
+            + CONVERSATION_MESSAGES_LIST_FROM_WHERE_SQL;
+
+    // Reads the parts of all messages of the list in one go, grouped by message. The message
+    // selection is completed with the same bound and limit as the list itself.
+    private static final String CONVERSATION_MESSAGES_LIST_PARTS_QUERY_SQL_PREFIX = "SELECT "
+            + PartColumns.MESSAGE_ID + ", "
+            + PartColumns._ID + ", "
+            + PartColumns.CONTENT_TYPE + ", "
+            + PartColumns.CONTENT_URI + ", "
+            + PartColumns.WIDTH + ", "
+            + PartColumns.HEIGHT + ", "
+            + PartColumns.TEXT
+            + " FROM " + DatabaseHelper.PARTS_TABLE
+            + " WHERE " + PartColumns.MESSAGE_ID + " IN (SELECT " + MessageColumns._ID
+            + " FROM " + DatabaseHelper.MESSAGES_TABLE
+            + " WHERE " + MessageColumns.CONVERSATION_ID + "=?"
+            + " AND " + MessageColumns.STATUS + " <> " + MessageData.BUGLE_STATUS_OUTGOING_DRAFT;
+
+    private static final String CONVERSATION_MESSAGES_LIST_PARTS_QUERY_SQL_KEYSET_ORDER_BY =
+            " ORDER BY " + MessageColumns.RECEIVED_TIMESTAMP + " DESC, "
+            + MessageColumns._ID + " DESC";
+
+    private static final String CONVERSATION_MESSAGES_LIST_PARTS_QUERY_SQL_SUFFIX = ")"
+            + " ORDER BY " + PartColumns.MESSAGE_ID + ", " + PartColumns._ID;
+
+    private static final int INDEX_LIST_PART_MESSAGE_ID   = 0;
+    private static final int INDEX_LIST_PART_ID           = 1;
+    private static final int INDEX_LIST_PART_CONTENT_TYPE = 2;
+    private static final int INDEX_LIST_PART_CONTENT_URI  = 3;
+    private static final int INDEX_LIST_PART_WIDTH        = 4;
+    private static final int INDEX_LIST_PART_HEIGHT       = 5;
+    private static final int INDEX_LIST_PART_TEXT         = 6;
+
     // bug 478514: Add for MmsFolderView Feature -- Begin
     private static final String SINGLE_MESSAGES_QUERY_FROM_WHERE_SQL = " FROM "
             + DatabaseHelper.MESSAGES_TABLE + " LEFT JOIN " + DatabaseHelper.PARTS_TABLE + " ON ("
@@ -873,9 +1119,10 @@ public class ConversationMessageData {
             DatabaseHelper.MESSAGES_TABLE + '.' + MessageColumns._ID
                     + " as " + ConversationMessageViewColumns._ID + " ";
 
+    // Must select the same rows, in the same order, as the message list query
     private static final String CONVERSATION_MESSAGES_IDS_QUERY_SQL = "SELECT "
             + CONVERSATION_MESSAGE_IDS_PROJECTION_SQL
-            + CONVERSATION_MESSAGES_QUERY_FROM_WHERE_SQL;
+            + CONVERSATION_MESSAGES_LIST_FROM_WHERE_SQL;
 
     // Note that we sort DESC and ConversationData reverses the cursor.  This is a performance
     // issue (improvement) for large cursors.
@@ -884,6 +1131,13 @@ public class ConversationMessageData {
           + " ORDER BY "
           + DatabaseHelper.MESSAGES_TABLE + '.' + MessageColumns.RECEIVED_TIMESTAMP + " DESC";
 
+    // The message id breaks ties between messages received at the same time, so that a
+    // (received timestamp, message id) position can bound a window of the list
+    private static final String CONVERSATION_MESSAGES_LIST_QUERY_SQL_ORDER_BY =
+            " ORDER BY "
+          + DatabaseHelper.MESSAGES_TABLE + '.' + MessageColumns.RECEIVED_TIMESTAMP + " DESC, "
+          + DatabaseHelper.MESSAGES_TABLE + '.' + MessageColumns._ID + " DESC";
+
     private static final String NOTIFICATION_QUERY_SQL_GROUP_BY =
             " GROUP BY " + DatabaseHelper.PARTS_TABLE + '.' + PartColumns.MESSAGE_ID
           + " ORDER BY "
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.messaging.datamodel.data;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import androidx.collection.LongSparseArray;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A conversation message list cursor carrying the parts of its messages, which were read with a
+ * single batched query when the list was loaded. {@link ConversationMessageData#bind} picks the
+ * parts up from here instead of unpacking group_concat'ed columns for every row it binds.
+ */
+class ConversationMessagePartsCursor extends CursorWrapper {
+    private final LongSparseArray<List<MessagePartData>> mPartsByMessageId;
+
+    ConversationMessagePartsCursor(final Cursor cursor,
+            final LongSparseArray<List<MessagePartData>> partsByMessageId) {
+        super(cursor);
+        mPartsByMessageId = partsByMessageId;
+    }
+
+    /**
+     * Get the parts of a message of the list, or an empty list if it had none when the list was
+     * loaded
+     */
+    List<MessagePartData> getParts(final long messageId) {
+        final List<MessagePartData> parts = mPartsByMessageId.get(messageId);
+        return parts != null ? parts : Collections.<MessagePartData>emptyList();
+    }
+
+    /**
+     * Find the parts cursor underneath the cursor handed out to the UI, which is usually wrapped
+     * by the content resolver and reversed by {@link ConversationData}
+     * @return the parts cursor, or null if the cursor didn't come from the message list query
+     */
+    static ConversationMessagePartsCursor find(Cursor cursor) {
+        while (cursor instanceof CursorWrapper) {
+            if (cursor instanceof ConversationMessagePartsCursor) {
+                return (ConversationMessagePartsCursor) cursor;
+            }
+            cursor = ((CursorWrapper) cursor).getWrappedCursor();
+        }
+        return null;
+    }
+}
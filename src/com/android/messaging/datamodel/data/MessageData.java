@@ -540,8 +540,7 @@ public class MessageData implements Parcelable {
      */
     public SQLiteStatement getInsertStatement(final DatabaseWrapper db) {
         LogUtil.i(LogUtil.BUGLE_ALARM_TAG,"getInsertStatement:mAlarm:"+mAlarm);
-        final SQLiteStatement insert = db.getStatementInTransaction(
-                DatabaseWrapper.INDEX_INSERT_MESSAGE, INSERT_MESSAGE_SQL);
+        final SQLiteStatement insert = db.getStatementInTransaction(INSERT_MESSAGE_SQL);
         insert.clearBindings();
         insert.bindString(INDEX_CONVERSATION_ID, mConversationId);
         insert.bindString(INDEX_PARTICIPANT_ID, mParticipantId);
@@ -384,8 +384,7 @@ public class MessagePartData implements Parcelable {
      */
     public SQLiteStatement getInsertStatement(final DatabaseWrapper db,
                                               final String conversationId) {
-        final SQLiteStatement insert = db.getStatementInTransaction(
-                DatabaseWrapper.INDEX_INSERT_MESSAGE_PART, INSERT_MESSAGE_PART_SQL);
+        final SQLiteStatement insert = db.getStatementInTransaction(INSERT_MESSAGE_PART_SQL);
         insert.clearBindings();
         boolean isText = false;
         if(mContentType != null && (mContentType.equalsIgnoreCase("text/plain") || mContentType.equalsIgnoreCase(ContentType.APP_SMIL))){    
@@ -15,38 +15,100 @@
  */
 package com.android.messaging.datamodel.media;
 
-import android.util.LruCache;
-
 import com.android.messaging.util.LogUtil;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * A modified LruCache that is able to hold RefCountedMediaResource instances. It releases
+ * An LRU cache that is able to hold RefCountedMediaResource instances. It releases
  * ref on the entries as they are evicted from the cache, and it uses the media resource
  * size in kilobytes, instead of the entry count, as the size of the cache.
  *
+ * The entries are split over a number of segments by key, each guarded by its own lock, so
+ * that the media loading threads don't all contend on a single cache lock. The size limit and
+ * the LRU order still apply to the cache as a whole: every access stamps the entry, and
+ * eviction removes the least recently used entry across all segments.
+ *
  * This class is used by the MediaResourceManager class to maintain a number of caches for
  * holding different types of {@link RefCountedMediaResource}
  */
-public class MediaCache<T extends RefCountedMediaResource> extends LruCache<String, T> {
+public class MediaCache<T extends RefCountedMediaResource> {
     private static final String TAG = LogUtil.BUGLE_IMAGE_TAG;
 
     // Default memory cache size in kilobytes
     protected static final int DEFAULT_MEDIA_RESOURCE_CACHE_SIZE_IN_KILOBYTES = 1024 * 5;  // 5MB
 
+    // Default number of independently locked segments
+    protected static final int DEFAULT_SEGMENT_COUNT = 4;
+
     // Unique identifier for the cache.
     private final int mId;
     // Descriptive name given to the cache for debugging purposes.
     private final String mName;
 
+    private final int mMaxSize;
+    private final Segment<T>[] mSegments;
+
+    // Total size of all segments, in kilobytes
+    private final AtomicInteger mSize = new AtomicInteger();
+    // Source of the access stamps used to find the least recently used entry
+    private final AtomicLong mAccessClock = new AtomicLong();
+
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mMissCount = new AtomicLong();
+    private final AtomicLong mEvictionCount = new AtomicLong();
+
+    private static class Entry<T> {
+        final T mValue;
+        final int mSize;
+        long mLastAccess;
+
+        Entry(final T value, final int size, final long lastAccess) {
+            mValue = value;
+            mSize = size;
+            mLastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * A slice of the cache; all access to its members is synchronized on the segment. Entries are
+     * kept in access order so the eldest one is the least recently used in the segment.
+     */
+    private static class Segment<T> {
+        final LinkedHashMap<String, Entry<T>> mEntries =
+                new LinkedHashMap<String, Entry<T>>(16, 0.75f, true /* accessOrder */);
+        // Size of the entries in this segment, in kilobytes
+        int mSize;
+    }
+
     // Convenience constructor that uses the default cache size.
     public MediaCache(final int id, final String name) {
         this(DEFAULT_MEDIA_RESOURCE_CACHE_SIZE_IN_KILOBYTES, id, name);
     }
 
     public MediaCache(final int maxSize, final int id, final String name) {
-        super(maxSize);
+        this(maxSize, id, name, DEFAULT_SEGMENT_COUNT);
+    }
+
+    @SuppressWarnings("unchecked")
+    public MediaCache(final int maxSize, final int id, final String name,
+            final int segmentCount) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        mMaxSize = maxSize;
         mId = id;
         mName = name;
+        mSegments = new Segment[Math.max(1, segmentCount)];
+        for (int i = 0; i < mSegments.length; i++) {
+            mSegments[i] = new Segment<T>();
+        }
     }
 
     public void destroy() {
@@ -65,19 +127,32 @@ public class MediaCache<T extends RefCountedMediaResource> extends LruCache<Stri
      * Gets a media resource from this cache. Must use this method to get resource instead of get()
      * to ensure addRef() on the resource.
      */
-    public synchronized T fetchResourceFromCache(final String key) {
-        final T ret = get(key);
+    public T fetchResourceFromCache(final String key) {
+        final Segment<T> segment = getSegment(key);
+        T ret = null;
+        synchronized (segment) {
+            final Entry<T> entry = segment.mEntries.get(key);
+            if (entry != null) {
+                entry.mLastAccess = mAccessClock.incrementAndGet();
+                ret = entry.mValue;
+                // Add the ref before the entry can be evicted and released
+                ret.addRef();
+            }
+        }
         if (ret != null) {
+            mHitCount.incrementAndGet();
             if (LogUtil.isLoggable(TAG, LogUtil.VERBOSE)) {
                 LogUtil.v(TAG, "cache hit in mediaCache @ " + getName() +
                         ", total cache hit = " + hitCount() +
                         ", total cache miss = " + missCount());
             }
-            ret.addRef();
-        } else if (LogUtil.isLoggable(TAG, LogUtil.VERBOSE)) {
-            LogUtil.v(TAG, "cache miss in mediaCache @ " + getName() +
-                    ", total cache hit = " + hitCount() +
-                    ", total cache miss = " + missCount());
+        } else {
+            mMissCount.incrementAndGet();
+            if (LogUtil.isLoggable(TAG, LogUtil.VERBOSE)) {
+                LogUtil.v(TAG, "cache miss in mediaCache @ " + getName() +
+                        ", total cache hit = " + hitCount() +
+                        ", total cache miss = " + missCount());
+            }
         }
         return ret;
     }
@@ -85,17 +160,142 @@ public class MediaCache<T extends RefCountedMediaResource> extends LruCache<Stri
     /**
      * Add a media resource to this cache. Must use this method to add resource instead of put()
      * to ensure addRef() on the resource.
+     * @return the resource previously cached under the key, if any
      */
-    public synchronized T addResourceToCache(final String key, final T mediaResource) {
+    public T addResourceToCache(final String key, final T mediaResource) {
         mediaResource.addRef();
-        return put(key, mediaResource);
+        final int size = safeSizeOf(key, mediaResource);
+        final Segment<T> segment = getSegment(key);
+        final Entry<T> previous;
+        synchronized (segment) {
+            previous = segment.mEntries.put(key,
+                    new Entry<T>(mediaResource, size, mAccessClock.incrementAndGet()));
+            segment.mSize += size - (previous != null ? previous.mSize : 0);
+        }
+        mSize.addAndGet(size - (previous != null ? previous.mSize : 0));
+        if (previous != null) {
+            entryRemoved(false, key, previous.mValue, mediaResource);
+        }
+        trimToSize(mMaxSize);
+        return previous != null ? previous.mValue : null;
     }
 
     /**
-     * Notify the removed entry that is no longer being cached
+     * Remove the entry for the key if it's cached
+     * @return the removed resource or null
      */
-    @Override
-    protected synchronized void entryRemoved(final boolean evicted, final String key,
+    public T remove(final String key) {
+        final Segment<T> segment = getSegment(key);
+        final Entry<T> removed;
+        synchronized (segment) {
+            removed = segment.mEntries.remove(key);
+            if (removed != null) {
+                segment.mSize -= removed.mSize;
+            }
+        }
+        if (removed == null) {
+            return null;
+        }
+        mSize.addAndGet(-removed.mSize);
+        entryRemoved(false, key, removed.mValue, null);
+        return removed.mValue;
+    }
+
+    /**
+     * Evict every entry from the cache
+     */
+    public void evictAll() {
+        for (final Segment<T> segment : mSegments) {
+            final ArrayList<Map.Entry<String, Entry<T>>> evicted;
+            synchronized (segment) {
+                evicted = new ArrayList<Map.Entry<String, Entry<T>>>(
+                        segment.mEntries.entrySet());
+                segment.mEntries.clear();
+                segment.mSize = 0;
+            }
+            for (final Map.Entry<String, Entry<T>> entry : evicted) {
+                mSize.addAndGet(-entry.getValue().mSize);
+                mEvictionCount.incrementAndGet();
+                entryRemoved(true, entry.getKey(), entry.getValue().mValue, null);
+            }
+        }
+    }
+
+    /**
+     * Evict least recently used entries, across all segments, until the cache is within the
+     * given size
+     */
+    private void trimToSize(final int maxSize) {
+        while (mSize.get() > maxSize) {
+            // Find the segment holding the least recently used entry
+            Segment<T> eldestSegment = null;
+            long eldestAccess = Long.MAX_VALUE;
+            for (final Segment<T> segment : mSegments) {
+                synchronized (segment) {
+                    final Iterator<Entry<T>> entries = segment.mEntries.values().iterator();
+                    if (entries.hasNext()) {
+                        final long lastAccess = entries.next().mLastAccess;
+                        if (lastAccess < eldestAccess) {
+                            eldestAccess = lastAccess;
+                            eldestSegment = segment;
+                        }
+                    }
+                }
+            }
+            if (eldestSegment == null) {
+                break;
+            }
+
+            String key = null;
+            Entry<T> evicted = null;
+            synchronized (eldestSegment) {
+                final Iterator<Map.Entry<String, Entry<T>>> entries =
+                        eldestSegment.mEntries.entrySet().iterator();
+                // Another thread may have touched or evicted the entry since we looked, in which
+                // case just look again
+                if (entries.hasNext()) {
+                    final Map.Entry<String, Entry<T>> eldest = entries.next();
+                    if (eldest.getValue().mLastAccess == eldestAccess) {
+                        key = eldest.getKey();
+                        evicted = eldest.getValue();
+                        entries.remove();
+                        eldestSegment.mSize -= evicted.mSize;
+                    }
+                }
+            }
+            if (evicted != null) {
+                mSize.addAndGet(-evicted.mSize);
+                mEvictionCount.incrementAndGet();
+                entryRemoved(true, key, evicted.mValue, null);
+            }
+        }
+    }
+
+    /**
+     * The lock guarding the cache entry for the key. Holding it keeps the entry from being
+     * fetched or removed by other threads.
+     */
+    Object getLockForKey(final String key) {
+        return getSegment(key);
+    }
+
+    private Segment<T> getSegment(final String key) {
+        return mSegments[(key.hashCode() & Integer.MAX_VALUE) % mSegments.length];
+    }
+
+    private int safeSizeOf(final String key, final T value) {
+        final int size = sizeOf(key, value);
+        if (size < 0) {
+            throw new IllegalStateException("Negative size: " + key + "=" + value);
+        }
+        return size;
+    }
+
+    /**
+     * Notify the removed entry that is no longer being cached. Called without holding any
+     * segment lock.
+     */
+    protected void entryRemoved(final boolean evicted, final String key,
             final T oldValue, final T newValue) {
         oldValue.release();
     }
@@ -104,10 +304,39 @@ public class MediaCache<T extends RefCountedMediaResource> extends LruCache<Stri
      * Measure item size in kilobytes rather than units which is more practical
      * for a media resource cache
      */
-    @Override
     protected int sizeOf(final String key, final T value) {
         final int mediaSizeInKilobytes = value.getMediaSize() / 1024;
         // Never zero-count any resource, count as at least 1KB.
         return mediaSizeInKilobytes == 0 ? 1 : mediaSizeInKilobytes;
     }
-}
\ No newline at end of file
+
+    /**
+     * @return the total size of the cached resources in kilobytes
+     */
+    public int size() {
+        return mSize.get();
+    }
+
+    public int maxSize() {
+        return mMaxSize;
+    }
+
+    public long hitCount() {
+        return mHitCount.get();
+    }
+
+    public long missCount() {
+        return mMissCount.get();
+    }
+
+    public long evictionCount() {
+        return mEvictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "MediaCache[%s size=%d/%dKB segments=%d hits=%d misses=%d "
+                + "evictions=%d]", mName, size(), mMaxSize, mSegments.length, hitCount(),
+                missCount(), evictionCount());
+    }
+}
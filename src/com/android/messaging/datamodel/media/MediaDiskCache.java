@@ -0,0 +1,335 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.messaging.datamodel.media;
+
+import android.net.Uri;
+
+import com.android.messaging.Factory;
+import com.android.messaging.util.Assert;
+import com.android.messaging.util.Assert.DoesNotRunOnMainThread;
+import com.android.messaging.util.LogUtil;
+import com.android.messaging.util.SafeAsyncTask;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.io.CountingInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A size bounded LRU cache of encoded thumbnails on disk, sitting behind the in-memory
+ * {@link MediaCache}s so that thumbnails survive process death and memory cache eviction without
+ * being decoded and scaled from the source media again.
+ *
+ * Each entry is a file holding the request key, the image orientation and the encoded bytes with
+ * a CRC32 checksum; entries that fail to verify are deleted and treated as misses. File names
+ * start with a hash of the content uri so all entries of a message part can be dropped when the
+ * part is deleted. The access order is kept in memory and persisted through the file
+ * modification times.
+ */
+public class MediaDiskCache {
+    private static final String TAG = LogUtil.BUGLE_IMAGE_TAG;
+
+    private static final String CACHE_DIR = "media_thumbnails";
+    private static final int DEFAULT_MAX_SIZE_BYTES = 20 * 1024 * 1024;  // 20MB
+
+    private static final int MAGIC = 0x42544331;  // "BTC1"
+    private static final char URI_HASH_DELIMITER = '-';
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private static MediaDiskCache sInstance;
+
+    private final File mDirectory;
+    private final long mMaxSizeBytes;
+
+    // File name -> file size, in access order. Loaded from the directory on first use; all
+    // access is synchronized on this.
+    private LinkedHashMap<String, Long> mEntries;
+    private long mSizeBytes;
+
+    public static synchronized MediaDiskCache get() {
+        if (sInstance == null) {
+            sInstance = new MediaDiskCache(new File(
+                    Factory.get().getApplicationContext().getCacheDir(), CACHE_DIR),
+                    DEFAULT_MAX_SIZE_BYTES);
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    MediaDiskCache(final File directory, final long maxSizeBytes) {
+        mDirectory = directory;
+        mMaxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Read the cached thumbnail for the request key
+     * @return the encoded thumbnail or null on a cache miss
+     */
+    @DoesNotRunOnMainThread
+    public EncodedImageResource read(final Uri uri, final String key) {
+        Assert.isNotMainThread();
+        final String fileName = getFileName(uri, key);
+        synchronized (this) {
+            if (loadEntriesLocked().get(fileName) == null) {
+                return null;
+            }
+        }
+
+        final File file = new File(mDirectory, fileName);
+        DataInputStream in = null;
+        try {
+            final CountingInputStream counter =
+                    new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+            in = new DataInputStream(counter);
+            if (in.readInt() != MAGIC || !key.equals(in.readUTF())) {
+                // Stale format, or another key with the same hash
+                throw new IOException("Mismatched header");
+            }
+            final int orientation = in.readInt();
+            final int length = in.readInt();
+            final long checksum = in.readLong();
+            // Check the stored length before allocating for it
+            if (length != file.length() - counter.getCount()) {
+                throw new IOException("Corrupted entry length " + length);
+            }
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            if (in.read() != -1 || checksum(bytes) != checksum) {
+                throw new IOException("Corrupted entry");
+            }
+            file.setLastModified(System.currentTimeMillis());
+            return new EncodedImageResource(key, bytes, orientation);
+        } catch (final IOException e) {
+            LogUtil.w(TAG, "MediaDiskCache: dropping unreadable entry " + fileName, e);
+            remove(fileName);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Store the encoded thumbnail for the request key, evicting least recently used entries to
+     * stay within the size budget
+     */
+    @DoesNotRunOnMainThread
+    public void write(final Uri uri, final String key, final byte[] bytes,
+            final int orientation) {
+        Assert.isNotMainThread();
+        final String fileName = getFileName(uri, key);
+        File tempFile = null;
+        DataOutputStream out = null;
+        try {
+            synchronized (this) {
+                // Loading the entries clears out stale temp files, so do it before adding ours
+                loadEntriesLocked();
+            }
+            if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                throw new IOException("Can't create " + mDirectory);
+            }
+            // Write to a temp file first so readers never see a partial entry
+            tempFile = File.createTempFile(fileName, TEMP_FILE_SUFFIX, mDirectory);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            out.writeInt(MAGIC);
+            out.writeUTF(key);
+            out.writeInt(orientation);
+            out.writeInt(bytes.length);
+            out.writeLong(checksum(bytes));
+            out.write(bytes);
+            out.close();
+            out = null;
+
+            synchronized (this) {
+                final LinkedHashMap<String, Long> entries = loadEntriesLocked();
+                final File file = new File(mDirectory, fileName);
+                if (!tempFile.renameTo(file)) {
+                    throw new IOException("Can't rename " + tempFile);
+                }
+                tempFile = null;
+                final Long previousSize = entries.put(fileName, file.length());
+                mSizeBytes += file.length() - (previousSize != null ? previousSize : 0);
+                trimToSizeLocked();
+            }
+        } catch (final IOException e) {
+            LogUtil.w(TAG, "MediaDiskCache: failed to write " + fileName, e);
+        } finally {
+            closeQuietly(out);
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Drop every cached thumbnail of the content uri
+     */
+    @DoesNotRunOnMainThread
+    public void invalidate(final Uri uri) {
+        invalidate(Collections.singletonList(uri));
+    }
+
+    /**
+     * Drop every cached thumbnail of the content uris
+     */
+    @DoesNotRunOnMainThread
+    public synchronized void invalidate(final Collection<Uri> uris) {
+        final HashSet<String> uriHashes = new HashSet<String>();
+        for (final Uri uri : uris) {
+            uriHashes.add(getUriHash(uri));
+        }
+        final Iterator<Map.Entry<String, Long>> entries =
+                loadEntriesLocked().entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<String, Long> entry = entries.next();
+            final String fileName = entry.getKey();
+            final int delimiter = fileName.indexOf(URI_HASH_DELIMITER);
+            if (delimiter > 0 && uriHashes.contains(fileName.substring(0, delimiter))) {
+                entries.remove();
+                mSizeBytes -= entry.getValue();
+                new File(mDirectory, fileName).delete();
+            }
+        }
+    }
+
+    /**
+     * Drop every cached thumbnail of the content uris on a background thread, so that callers
+     * in a database transaction don't hold it while the cache directory is read
+     */
+    public void invalidateInBackground(final Collection<Uri> uris) {
+        if (uris.isEmpty()) {
+            return;
+        }
+        SafeAsyncTask.executeOnThreadPool(new Runnable() {
+            @Override
+            public void run() {
+                invalidate(uris);
+            }
+        });
+    }
+
+    /**
+     * Drop every cached thumbnail
+     */
+    @DoesNotRunOnMainThread
+    public synchronized void clear() {
+        for (final String fileName : loadEntriesLocked().keySet()) {
+            new File(mDirectory, fileName).delete();
+        }
+        mEntries.clear();
+        mSizeBytes = 0;
+    }
+
+    @VisibleForTesting
+    synchronized long size() {
+        loadEntriesLocked();
+        return mSizeBytes;
+    }
+
+    private synchronized void remove(final String fileName) {
+        final Long size = loadEntriesLocked().remove(fileName);
+        if (size != null) {
+            mSizeBytes -= size;
+        }
+        new File(mDirectory, fileName).delete();
+    }
+
+    private void trimToSizeLocked() {
+        final Iterator<Map.Entry<String, Long>> entries = mEntries.entrySet().iterator();
+        while (mSizeBytes > mMaxSizeBytes && entries.hasNext()) {
+            final Map.Entry<String, Long> eldest = entries.next();
+            entries.remove();
+            mSizeBytes -= eldest.getValue();
+            new File(mDirectory, eldest.getKey()).delete();
+        }
+    }
+
+    private LinkedHashMap<String, Long> loadEntriesLocked() {
+        if (mEntries != null) {
+            return mEntries;
+        }
+        mEntries = new LinkedHashMap<String, Long>(64, 0.75f, true /* accessOrder */);
+        mSizeBytes = 0;
+        final File[] files = mDirectory.listFiles();
+        if (files != null) {
+            Arrays.sort(files, new Comparator<File>() {
+                @Override
+                public int compare(final File lhs, final File rhs) {
+                    final long lhsModified = lhs.lastModified();
+                    final long rhsModified = rhs.lastModified();
+                    return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+                }
+            });
+            for (final File file : files) {
+                if (file.getName().endsWith(TEMP_FILE_SUFFIX)) {
+                    // Left over by a write that didn't finish
+                    file.delete();
+                } else {
+                    mEntries.put(file.getName(), file.length());
+                    mSizeBytes += file.length();
+                }
+            }
+        }
+        trimToSizeLocked();
+        return mEntries;
+    }
+
+    @VisibleForTesting
+    static String getFileName(final Uri uri, final String key) {
+        // 64 bit FNV-1a hash of the key
+        long keyHash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            keyHash ^= key.charAt(i);
+            keyHash *= 0x100000001b3L;
+        }
+        return getUriHash(uri) + URI_HASH_DELIMITER + Long.toHexString(keyHash);
+    }
+
+    private static String getUriHash(final Uri uri) {
+        return Integer.toHexString(uri.toString().hashCode());
+    }
+
+    private static long checksum(final byte[] bytes) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (final IOException e) {
+                // Nothing to do
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.messaging.datamodel.media;
+
+import android.app.ActivityManager;
+import android.content.Context;
+
+import com.android.messaging.util.LogUtil;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the media loading tasks of {@link MediaResourceManager}.
+ *
+ * <ul>
+ * <li>The most recently requested media loads first. Views request their media as they bind, so
+ * during a fling the rows currently on screen are served ahead of the ones that already scrolled
+ * by. Those older requests are normally unbound by then and are dropped when they get their
+ * turn.</li>
+ * <li>Requests for the same key are coalesced: while a load is queued or running, later requests
+ * for its key wait for it and then run against the freshly populated memory cache. A newer
+ * duplicate also moves the queued load to the front.</li>
+ * <li>The number of threads is derived from the CPU count and capped lower on devices with a
+ * small memory class, since every concurrent decode holds a full size bitmap.</li>
+ * </ul>
+ */
+class MediaLoadingScheduler {
+    private static final String TAG = LogUtil.BUGLE_IMAGE_TAG;
+
+    private static final int MAX_THREADS = 10;
+    private static final int LOW_MEMORY_MAX_THREADS = 4;
+    private static final int MIN_THREADS = 2;
+    private static final int LOW_MEMORY_CLASS_MB = 48;
+    private static final long KEEP_ALIVE_SECONDS = 10;
+
+    private final ThreadPoolExecutor mExecutor;
+    private final PriorityBlockingQueue<Runnable> mQueue = new PriorityBlockingQueue<Runnable>();
+    private final AtomicLong mSequence = new AtomicLong();
+
+    // Key -> the queued or running load for the key. Guarded by itself.
+    private final HashMap<String, Task> mLoadsByKey = new HashMap<String, Task>();
+
+    /**
+     * A media loading task; newer tasks sort first
+     */
+    private class Task implements Runnable, Comparable<Task> {
+        private final String mKey;
+        private final Runnable mRunnable;
+        private volatile long mSequence;
+        // Tasks for the same key that wait for this one to finish. Guarded by mLoadsByKey.
+        private ArrayList<Task> mWaiters;
+
+        Task(final String key, final Runnable runnable) {
+            mKey = key;
+            mRunnable = runnable;
+            mSequence = MediaLoadingScheduler.this.mSequence.incrementAndGet();
+        }
+
+        @Override
+        public void run() {
+            try {
+                mRunnable.run();
+            } finally {
+                if (mKey != null) {
+                    onTaskFinished(this);
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(final Task other) {
+            return mSequence > other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+    }
+
+    MediaLoadingScheduler(final Context context) {
+        this(getThreadCount(context));
+    }
+
+    @VisibleForTesting
+    MediaLoadingScheduler(final int threadCount) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        mExecutor = new ThreadPoolExecutor(threadCount, threadCount, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, mQueue, new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        return new Thread(runnable,
+                                "MediaLoader #" + threadNumber.incrementAndGet());
+                    }
+                });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private static int getThreadCount(final Context context) {
+        final ActivityManager am =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        final boolean lowMemory = am.isLowRamDevice()
+                || am.getMemoryClass() <= LOW_MEMORY_CLASS_MB;
+        final int threads = Math.min(Runtime.getRuntime().availableProcessors() + 1,
+                lowMemory ? LOW_MEMORY_MAX_THREADS : MAX_THREADS);
+        final int threadCount = Math.max(MIN_THREADS, threads);
+        if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
+            LogUtil.d(TAG, "MediaLoadingScheduler: " + threadCount + " threads, memory class "
+                    + am.getMemoryClass() + "MB");
+        }
+        return threadCount;
+    }
+
+    /**
+     * Get an executor that runs the given request's loading task through this scheduler, for use
+     * with {@link android.os.AsyncTask#executeOnExecutor}
+     */
+    Executor getExecutorForRequest(final MediaRequest<?> mediaRequest) {
+        final String key = mediaRequest.getKey();
+        return new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                schedule(key, runnable);
+            }
+        };
+    }
+
+    /**
+     * Queue a loading task
+     * @param key the key of the loaded media, used to coalesce duplicate loads; may be null
+     */
+    @VisibleForTesting
+    void schedule(final String key, final Runnable runnable) {
+        final Task task = new Task(key, runnable);
+        if (key != null) {
+            synchronized (mLoadsByKey) {
+                final Task load = mLoadsByKey.get(key);
+                if (load != null) {
+                    if (load.mWaiters == null) {
+                        load.mWaiters = new ArrayList<Task>();
+                    }
+                    load.mWaiters.add(task);
+                    // The media is wanted again, so move the load to the front if still queued
+                    if (mQueue.remove(load)) {
+                        load.mSequence = task.mSequence;
+                        mExecutor.execute(load);
+                    }
+                    return;
+                }
+                mLoadsByKey.put(key, task);
+            }
+        }
+        mExecutor.execute(task);
+    }
+
+    private void onTaskFinished(final Task task) {
+        final ArrayList<Task> waiters;
+        synchronized (mLoadsByKey) {
+            mLoadsByKey.remove(task.mKey);
+            waiters = task.mWaiters;
+        }
+        if (waiters != null) {
+            for (final Task waiter : waiters) {
+                // The waiters will mostly be served from the memory cache now, so let them run
+                // side by side instead of coalescing them again
+                mExecutor.execute(new Task(null, waiter.mRunnable));
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int getThreadCount() {
+        return mExecutor.getMaximumPoolSize();
+    }
+}
@@ -18,7 +18,6 @@ package com.android.messaging.datamodel.media;
 import android.os.AsyncTask;
 
 import com.android.messaging.Factory;
-import com.android.messaging.sms.MmsConfig;
 import com.android.messaging.util.Assert;
 import com.android.messaging.util.Assert.RunsOnAnyThread;
 import com.android.messaging.util.LogUtil;
@@ -36,8 +35,9 @@ import java.util.concurrent.RejectedExecutionException;
 
 /**
  * <p>Loads and maintains a set of in-memory LRU caches for different types of media resources.
- * Right now we don't utilize any disk cache as all media urls are expected to be resolved to
- * local content.<p/>
+ * All media urls are expected to be resolved to local content; the only disk cache is the
+ * {@link MediaDiskCache} of encoded thumbnails, which backs the memory caches for the image
+ * requests that allow compression.<p/>
  *
  * <p>The MediaResourceManager takes media loading requests through one of two ways:</p>
  *
@@ -100,11 +100,9 @@ public class MediaResourceManager {
         void onMediaResourceLoadError(MediaRequest<T> request, Exception exception);
     }
 
-    // We use a fixed thread pool for handling media loading tasks. Using a cached thread pool
-    // allows for unlimited thread creation which can lead to OOMs so we limit the threads here.
-    private static final Executor MEDIA_LOADING_EXECUTOR = Executors.newFixedThreadPool(10);
-
-    private static final Executor LOWMEMORY_MEDIA_LOADING_EXECUTOR = Executors.newFixedThreadPool(4);
+    // Prioritized, bounded thread pool for handling media loading tasks, created on first use.
+    // Using a cached thread pool allows for unlimited thread creation which can lead to OOMs.
+    private MediaLoadingScheduler mLoadingScheduler;
 
     // A dedicated single thread executor for performing background task after loading the resource
     // on the media loading executor. This includes work such as encoding loaded media to be cached.
@@ -132,13 +130,16 @@ public class MediaResourceManager {
      */
     public <T extends RefCountedMediaResource> void requestMediaResourceAsync(
             final MediaRequest<T> mediaRequest) {
-        String sheapgrowthlimit = MmsConfig.getGrowthLimit();//SystemProperties.get("dalvik.vm.heapgrowthlimit");
+        scheduleAsyncMediaRequest(mediaRequest,
+                getLoadingScheduler().getExecutorForRequest(mediaRequest));
+    }
 
-        if(sheapgrowthlimit.equals("48m")){
-            scheduleAsyncMediaRequest(mediaRequest, LOWMEMORY_MEDIA_LOADING_EXECUTOR);
-        }else{
-            scheduleAsyncMediaRequest(mediaRequest, MEDIA_LOADING_EXECUTOR);
+    private synchronized MediaLoadingScheduler getLoadingScheduler() {
+        if (mLoadingScheduler == null) {
+            mLoadingScheduler =
+                    new MediaLoadingScheduler(Factory.get().getApplicationContext());
         }
+        return mLoadingScheduler;
     }
 
     /**
@@ -174,8 +175,11 @@ public class MediaResourceManager {
                     throws Exception {
         final List<MediaRequest<T>> chainedRequests = new ArrayList<>();
         T loadedResource = null;
+        boolean fromCache = true;
         // Try fetching from cache first.
         final T cachedResource = loadMediaFromCache(mediaRequest);
+        final T diskCachedResource =
+                cachedResource == null ? loadMediaFromDiskCache(mediaRequest) : null;
         if (cachedResource != null) {
             if (cachedResource.isEncoded()) {
                 // The resource is encoded, issue a decoding request.
@@ -188,12 +192,21 @@ public class MediaResourceManager {
                 // The resource is ready-to-use.
                 loadedResource = cachedResource;
             }
+        } else if (diskCachedResource != null) {
+            // Promote the encoded resource to the memory cache and decode it, same as an
+            // encoded memory cache hit.
+            addResourceToMemoryCache(mediaRequest, diskCachedResource);
+            final MediaRequest<T> decodeRequest = (MediaRequest<T>) diskCachedResource
+                    .getMediaDecodingRequest(mediaRequest);
+            Assert.notNull(decodeRequest);
+            diskCachedResource.release();
+            loadedResource = loadMediaFromRequest(decodeRequest, chainedRequests);
         } else {
             // Actually load the media after cache miss.
             loadedResource = loadMediaFromRequest(mediaRequest, chainedRequests);
+            fromCache = false;
         }
-        return new MediaLoadingResult<>(loadedResource, cachedResource != null /* fromCache */,
-                chainedRequests);
+        return new MediaLoadingResult<>(loadedResource, fromCache, chainedRequests);
     }
 
     public <T extends RefCountedMediaResource> T loadMediaFromCache(
@@ -212,6 +225,57 @@ public class MediaResourceManager {
         return null;
     }
 
+    /**
+     * Look up the encoded media in the disk cache after a memory cache miss
+     * @return the encoded resource with a ref held for the caller, or null
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends RefCountedMediaResource> T loadMediaFromDiskCache(
+            final MediaRequest<T> mediaRequest) {
+        if (mediaRequest.getRequestType() != MediaRequest.REQUEST_LOAD_MEDIA) {
+            return null;
+        }
+        final UriImageRequestDescriptor descriptor = getDiskCacheableDescriptor(mediaRequest);
+        if (descriptor == null) {
+            return null;
+        }
+        final EncodedImageResource resource =
+                MediaDiskCache.get().read(descriptor.uri, mediaRequest.getKey());
+        if (resource == null) {
+            return null;
+        }
+        resource.addRef();
+        return (T) resource;
+    }
+
+    /**
+     * Persist a freshly encoded resource to the disk cache. Runs on the media background executor
+     * along with the encoding request.
+     */
+    private <T extends RefCountedMediaResource> void addResourceToDiskCache(
+            final MediaRequest<T> mediaRequest, final T mediaResource) {
+        if (mediaRequest.getRequestType() != MediaRequest.REQUEST_ENCODE_MEDIA
+                || !mediaResource.isEncoded() || !(mediaResource instanceof ImageResource)) {
+            return;
+        }
+        final UriImageRequestDescriptor descriptor = getDiskCacheableDescriptor(mediaRequest);
+        if (descriptor != null) {
+            final ImageResource imageResource = (ImageResource) mediaResource;
+            MediaDiskCache.get().write(descriptor.uri, mediaRequest.getKey(),
+                    imageResource.getBytes(), imageResource.getOrientation());
+        }
+    }
+
+    private static UriImageRequestDescriptor getDiskCacheableDescriptor(
+            final MediaRequest<?> mediaRequest) {
+        final MediaRequestDescriptor<?> descriptor = mediaRequest.getDescriptor();
+        if (mediaRequest.getKey() != null && descriptor instanceof UriImageRequestDescriptor
+                && ((UriImageRequestDescriptor) descriptor).isDiskCacheable()) {
+            return (UriImageRequestDescriptor) descriptor;
+        }
+        return null;
+    }
+
     private <T extends RefCountedMediaResource> T loadMediaFromRequest(
             final MediaRequest<T> mediaRequest, final List<MediaRequest<T>> chainedRequests)
                     throws Exception {
@@ -229,6 +293,7 @@ public class MediaResourceManager {
         // Don't cache the media request if it is defined as non-cacheable.
         if (resource.isCacheable()) {
             addResourceToMemoryCache(mediaRequest, resource);
+            addResourceToDiskCache(mediaRequest, resource);
         }
         return resource;
     }
@@ -64,14 +64,14 @@ public class PoolableImageCache extends MediaCache<ImageResource> {
     }
 
     @Override
-    public synchronized ImageResource addResourceToCache(final String key,
+    public ImageResource addResourceToCache(final String key,
             final ImageResource imageResource) {
         mReusablePoolAccessor.onResourceEnterCache(imageResource);
         return super.addResourceToCache(key, imageResource);
     }
 
     @Override
-    protected synchronized void entryRemoved(final boolean evicted, final String key,
+    protected void entryRemoved(final boolean evicted, final String key,
             final ImageResource oldValue, final ImageResource newValue) {
         mReusablePoolAccessor.onResourceLeaveCache(oldValue);
         super.entryRemoved(evicted, key, oldValue, newValue);
@@ -227,7 +227,7 @@ public class PoolableImageCache extends MediaCache<ImageResource> {
         }
 
         private void addResourceToPool(final ImageResource imageResource) {
-            synchronized (PoolableImageCache.this) {
+            synchronized (mImageListSparseArray) {
                 final int poolKey = getPoolKey(imageResource);
                 Assert.isTrue(poolKey != INVALID_POOL_KEY);
                 LinkedList<ImageResource> imageList = mImageListSparseArray.get(poolKey);
@@ -240,7 +240,7 @@ public class PoolableImageCache extends MediaCache<ImageResource> {
         }
 
         private void removeResourceFromPool(final ImageResource imageResource) {
-            synchronized (PoolableImageCache.this) {
+            synchronized (mImageListSparseArray) {
                 final int poolKey = getPoolKey(imageResource);
                 Assert.isTrue(poolKey != INVALID_POOL_KEY);
                 final LinkedList<ImageResource> imageList = mImageListSparseArray.get(poolKey);
@@ -255,83 +255,85 @@ public class PoolableImageCache extends MediaCache<ImageResource> {
          * result of this call, the caller will assume ownership of the returned bitmap.
          */
         private Bitmap getReusableBitmapFromPool(final int width, final int height) {
-            synchronized (PoolableImageCache.this) {
+            // Lock order is pool, then cache segment, then image. Cache segments never call into
+            // the pool while holding their lock.
+            synchronized (mImageListSparseArray) {
                 final int poolKey = getPoolKey(width, height);
                 if (poolKey != INVALID_POOL_KEY) {
                     final LinkedList<ImageResource> images = mImageListSparseArray.get(poolKey);
                     if (images != null && images.size() > 0) {
                         // Try to reuse the first available bitmap from the pool list. We start from
                         // the least recently added cache entry of the given size.
-                        ImageResource imageToUse = null;
                         for (int i = 0; i < images.size(); i++) {
                             final ImageResource image = images.get(i);
-                            if (image.getRefCount() == 1) {
+                            if (image.getRefCount() != 1) {
+                                continue;
+                            }
+                            // Hold the image's cache segment so nobody can fetch the image from
+                            // the cache while we take its bitmap.
+                            synchronized (getLockForKey(image.getKey())) {
                                 image.acquireLock();
-                                if (image.getRefCount() == 1) {
+                                try {
+                                    if (image.getRefCount() != 1) {
+                                        // Someone fetched the image from the cache after we
+                                        // checked, so it's no longer reusable.
+                                        continue;
+                                    }
                                     // The image is only used by the cache, so it's reusable.
-                                    imageToUse = images.remove(i);
-                                    break;
-                                } else {
-                                    // Logically, this shouldn't happen, because as soon as the
-                                    // cache is the only user of this resource, it will not be
-                                    // used by anyone else until the next cache access, but we
-                                    // currently hold on to the cache lock. But technically
-                                    // future changes may violate this assumption, so warn about
-                                    // this.
-                                    LogUtil.w(LogUtil.BUGLE_IMAGE_TAG, "Image refCount changed " +
-                                            "from 1 in getReusableBitmapFromPool()");
+                                    return reuseBitmap(images, i);
+                                } finally {
+                                    // We are either done with the reuse operation, or decided
+                                    // not to use the image. Either way, release the lock.
                                     image.releaseLock();
                                 }
                             }
                         }
+                    }
+                }
+            }
+            return null;
+        }
 
-                        if (imageToUse == null) {
-                            return null;
-                        }
-
-                        try {
-                            imageToUse.assertLockHeldByCurrentThread();
-
-                            // Only reuse the bitmap if the last time we use was greater than 5s.
-                            // This allows the cache a chance to reuse instead of always taking the
-                            // oldest.
-                            final long timeSinceLastRef = SystemClock.elapsedRealtime() -
-                                    imageToUse.getLastRefAddTimestamp();
-                            if (timeSinceLastRef < MIN_TIME_IN_POOL) {
-                                if (LogUtil.isLoggable(LogUtil.BUGLE_IMAGE_TAG, LogUtil.VERBOSE)) {
-                                    LogUtil.v(LogUtil.BUGLE_IMAGE_TAG, "Not reusing reusing " +
-                                            "first available bitmap from the pool because it " +
-                                            "has not been in the pool long enough. " +
-                                            "timeSinceLastRef=" + timeSinceLastRef);
-                                }
-                                // Put back the image and return no reuseable bitmap.
-                                images.addLast(imageToUse);
-                                return null;
-                            }
+        /**
+         * Take the bitmap of a pooled image, removing the image from the cache. Called with the
+         * pool lock, the image's cache segment lock and the image lock held.
+         * @return the bitmap, or null if the image has not been in the pool long enough
+         */
+        private Bitmap reuseBitmap(final LinkedList<ImageResource> images, final int index) {
+            final ImageResource imageToUse = images.remove(index);
+            imageToUse.assertLockHeldByCurrentThread();
+
+            // Only reuse the bitmap if the last time we use was greater than 5s.
+            // This allows the cache a chance to reuse instead of always taking the
+            // oldest.
+            final long timeSinceLastRef = SystemClock.elapsedRealtime() -
+                    imageToUse.getLastRefAddTimestamp();
+            if (timeSinceLastRef < MIN_TIME_IN_POOL) {
+                if (LogUtil.isLoggable(LogUtil.BUGLE_IMAGE_TAG, LogUtil.VERBOSE)) {
+                    LogUtil.v(LogUtil.BUGLE_IMAGE_TAG, "Not reusing reusing " +
+                            "first available bitmap from the pool because it " +
+                            "has not been in the pool long enough. " +
+                            "timeSinceLastRef=" + timeSinceLastRef);
+                }
+                // Put back the image and return no reuseable bitmap.
+                images.addLast(imageToUse);
+                return null;
+            }
 
-                            // Add a temp ref on the image resource so it won't be GC'd after
-                            // being removed from the cache.
-                            imageToUse.addRef();
+            // Add a temp ref on the image resource so it won't be GC'd after
+            // being removed from the cache.
+            imageToUse.addRef();
 
-                            // Remove the image resource from the image cache.
-                            final ImageResource removed = remove(imageToUse.getKey());
-                            Assert.isTrue(removed == imageToUse);
+            // Remove the image resource from the image cache.
+            final ImageResource removed = remove(imageToUse.getKey());
+            Assert.isTrue(removed == imageToUse);
 
-                            // Try to reuse the bitmap from the image resource. This will transfer
-                            // ownership of the bitmap object to the caller of this method.
-                            final Bitmap reusableBitmap = imageToUse.reuseBitmap();
+            // Try to reuse the bitmap from the image resource. This will transfer
+            // ownership of the bitmap object to the caller of this method.
+            final Bitmap reusableBitmap = imageToUse.reuseBitmap();
 
-                            imageToUse.release();
-                            return reusableBitmap;
-                        } finally {
-                            // We are either done with the reuse operation, or decided not to use
-                            // the image. Either way, release the lock.
-                            imageToUse.releaseLock();
-                        }
-                    }
-                }
-            }
-            return null;
+            imageToUse.release();
+            return reusableBitmap;
         }
 
         /**
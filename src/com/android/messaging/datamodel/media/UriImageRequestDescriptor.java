@@ -103,6 +103,14 @@ public class UriImageRequestDescriptor extends ImageRequestDescriptor {
         return imageRequest;
     }
 
+    /**
+     * Whether the encoded image may be kept in the {@link MediaDiskCache}. Only compressed local
+     * images are, since those are the ones encoded for the memory cache anyway.
+     */
+    public boolean isDiskCacheable() {
+        return allowCompression && !isDrm && uri != null && UriUtil.isLocalUri(uri);
+    }
+
     /** ID of the resource in MediaStore or null if this resource didn't come from MediaStore */
     public Long getMediaStoreId() {
         return null;
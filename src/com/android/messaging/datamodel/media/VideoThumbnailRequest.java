@@ -29,6 +29,7 @@ import com.android.messaging.util.OsUtil;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
@@ -68,6 +69,27 @@ public class VideoThumbnailRequest extends ImageRequest<UriImageRequestDescripto
              return mNotBitmapNeedCache;
     }
 
+    @Override
+    protected ImageResource loadMediaInternal(List<MediaRequest<ImageResource>> chainedTasks)
+            throws IOException {
+        final ImageResource resource = super.loadMediaInternal(chainedTasks);
+        // Chain an encoding task if the caller asked for compression, so that the extracted
+        // frame is cached compressed and can be kept in the disk cache. Placeholder icons are
+        // not cached at all.
+        if (mDescriptor.allowCompression && chainedTasks != null && resource.isCacheable()) {
+            @SuppressWarnings("unchecked")
+            final MediaRequest<ImageResource> chainedTask = (MediaRequest<ImageResource>)
+                    resource.getMediaEncodingRequest(this);
+            if (chainedTask != null) {
+                chainedTasks.add(chainedTask);
+                if (resource instanceof DecodedImageResource) {
+                    ((DecodedImageResource) resource).setCacheable(false);
+                }
+            }
+        }
+        return resource;
+    }
+
     @Override
     protected Bitmap getBitmapForResource() throws IOException {
         final Long mediaId = mDescriptor.getMediaStoreId();
@@ -19,6 +19,8 @@ package com.android.messaging.mmslib.pdu;
 
 import android.content.ContentResolver;
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
 import androidx.collection.SimpleArrayMap;
 import android.text.TextUtils;
 
@@ -26,6 +28,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
 
 public class PduComposer {
@@ -84,11 +87,22 @@ public class PduComposer {
      */
     private static final int PDU_COMPOSER_BLOCK_SIZE = 1024;
 
+    /**
+     * Block size when streaming part data to the output stream.
+     */
+    private static final int PDU_COMPOSER_STREAM_BLOCK_SIZE = 8 * 1024;
+
     /**
      * The output message.
      */
     protected ByteArrayOutputStream mMessage = null;
 
+    /**
+     * The stream the message is written to, when it is streamed rather than built in memory.
+     * Part data then goes straight to this stream, and mMessage only ever holds headers.
+     */
+    private OutputStream mOutput = null;
+
     /**
      * The PDU.
      */
@@ -151,41 +165,71 @@ public class PduComposer {
      * the PDU is invalid.
      */
     public byte[] make() {
+        try {
+            if (makePdu() != PDU_COMPOSE_SUCCESS) {
+                return null;
+            }
+        } catch (final IOException e) {
+            // Impossible to reach here since nothing is written to an output stream
+            return null;
+        }
+
+        return mMessage.toByteArray();
+    }
+
+    /**
+     * Make the message and write it to a stream, with the same bytes as {@link #make()}.
+     * Part data is streamed from the parts' data uris straight to the output, so only the
+     * headers are held in memory however large the attachments are. The length of each part
+     * is taken up front, from the part's data or its asset file descriptor, because it is
+     * written ahead of the part.
+     *
+     * @param output the stream to write the message to, which is left open
+     * @return false if the PDU is invalid or its part data can't be read, in which case a
+     * partial message may have been written
+     * @throws IOException if writing to the output fails
+     */
+    public boolean make(final OutputStream output) throws IOException {
+        mOutput = output;
+        try {
+            if (makePdu() != PDU_COMPOSE_SUCCESS) {
+                return false;
+            }
+            flushMessage();
+            return true;
+        } finally {
+            mOutput = null;
+        }
+    }
+
+    private int makePdu() throws IOException {
         // Get Message-type.
         final int type = mPdu.getMessageType();
 
         /* make the message */
         switch (type) {
             case PduHeaders.MESSAGE_TYPE_SEND_REQ:
-                if (makeSendReqPdu() != PDU_COMPOSE_SUCCESS) {
-                    return null;
-                }
-                break;
+                return makeSendReqPdu();
             case PduHeaders.MESSAGE_TYPE_NOTIFYRESP_IND:
-                if (makeNotifyResp() != PDU_COMPOSE_SUCCESS) {
-                    return null;
-                }
-                break;
+                return makeNotifyResp();
             case PduHeaders.MESSAGE_TYPE_ACKNOWLEDGE_IND:
-                if (makeAckInd() != PDU_COMPOSE_SUCCESS) {
-                    return null;
-                }
-                break;
+                return makeAckInd();
             case PduHeaders.MESSAGE_TYPE_READ_REC_IND:
-                if (makeReadRecInd() != PDU_COMPOSE_SUCCESS) {
-                    return null;
-                }
-                break;
+                return makeReadRecInd();
             case PduHeaders.MESSAGE_TYPE_NOTIFICATION_IND:
-                if (makeNotificationInd() != PDU_COMPOSE_SUCCESS) {
-                    return null;
-                }
-                break;
+                return makeNotificationInd();
             default:
-                return null;
+                return PDU_COMPOSE_FIELD_NOT_SUPPORTED;
         }
+    }
 
-        return mMessage.toByteArray();
+    /**
+     * Write out what has been composed so far, when streaming the message. Only valid with no
+     * buffer pushed onto mStack, so that mMessage is the message itself.
+     */
+    private void flushMessage() throws IOException {
+        mMessage.writeTo(mOutput);
+        mMessage.reset();
     }
 
     /**
@@ -820,7 +864,7 @@ public class PduComposer {
     /**
      * Make Send.req.
      */
-    private int makeSendReqPdu() {
+    private int makeSendReqPdu() throws IOException {
         if (mMessage == null) {
             mMessage = new ByteArrayOutputStream();
             mPosition = 0;
@@ -904,7 +948,7 @@ public class PduComposer {
     /**
      * Make message body.
      */
-    private int makeMessageBody() {
+    private int makeMessageBody() throws IOException {
         // 1. add body informations
         mStack.newbuf();  // Switching buffer because we need to
 
@@ -1045,6 +1089,23 @@ public class PduComposer {
             // content
             final int headerLength = attachment.getLength();
 
+            if (mOutput != null) {
+                // Write the lengths and headers of the part, then stream its data
+                final long dataLength = getPartDataLength(part);
+                if (dataLength < 0) {
+                    return PDU_COMPOSE_CONTENT_ERROR;
+                }
+                mStack.pop();
+                appendUintvarInteger(headerLength);
+                appendUintvarInteger(dataLength);
+                mStack.copy();
+                flushMessage();
+                if (!streamPartData(part, dataLength)) {
+                    return PDU_COMPOSE_CONTENT_ERROR;
+                }
+                continue;
+            }
+
             int dataLength = 0; // Just for safety...
             final byte[] partData = part.getData();
 
@@ -1092,6 +1153,128 @@ public class PduComposer {
         return PDU_COMPOSE_SUCCESS;
     }
 
+    /**
+     * Get the length of a part's data without reading it into memory.
+     *
+     * @return the length, or -1 if the data can't be read
+     */
+    private long getPartDataLength(final PduPart part) {
+        final byte[] partData = part.getData();
+        if (partData != null) {
+            return partData.length;
+        }
+        final Uri dataUri = part.getDataUri();
+        if (dataUri == null) {
+            return -1;
+        }
+        AssetFileDescriptor afd = null;
+        try {
+            afd = mResolver.openAssetFileDescriptor(dataUri, "r");
+            if (afd != null && afd.getLength() != AssetFileDescriptor.UNKNOWN_LENGTH) {
+                return afd.getLength();
+            }
+        } catch (final FileNotFoundException e) {
+            // Fall back to reading the data
+        } catch (final RuntimeException e) {
+            // Fall back to reading the data
+        } finally {
+            if (afd != null) {
+                try {
+                    afd.close();
+                } catch (final IOException e) {
+                    // Nothing to do
+                }
+            }
+        }
+
+        // The provider doesn't know the length, e.g. when it serves the data through a pipe,
+        // so count the data without holding on to it
+        InputStream cr = null;
+        try {
+            cr = mResolver.openInputStream(dataUri);
+            if (cr == null) {
+                return -1;
+            }
+            final byte[] buffer = new byte[PDU_COMPOSER_STREAM_BLOCK_SIZE];
+            long length = 0;
+            int len;
+            while ((len = cr.read(buffer)) != -1) {
+                length += len;
+            }
+            return length;
+        } catch (final IOException e) {
+            return -1;
+        } catch (final RuntimeException e) {
+            return -1;
+        } finally {
+            if (cr != null) {
+                try {
+                    cr.close();
+                } catch (final IOException e) {
+                    // Nothing to do
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a part's data to mOutput.
+     *
+     * @param dataLength the length the part was given in the message
+     * @return false if the data can't be read or doesn't have the given length any more
+     * @throws IOException if writing to mOutput fails
+     */
+    private boolean streamPartData(final PduPart part, final long dataLength)
+            throws IOException {
+        final byte[] partData = part.getData();
+        if (partData != null) {
+            mOutput.write(partData);
+            mPosition += partData.length;
+            return true;
+        }
+
+        InputStream cr = null;
+        try {
+            cr = mResolver.openInputStream(part.getDataUri());
+        } catch (final FileNotFoundException e) {
+            return false;
+        } catch (final RuntimeException e) {
+            return false;
+        }
+        if (cr == null) {
+            return false;
+        }
+        try {
+            final byte[] buffer = new byte[PDU_COMPOSER_STREAM_BLOCK_SIZE];
+            long written = 0;
+            while (true) {
+                final int len;
+                try {
+                    len = cr.read(buffer);
+                } catch (final IOException e) {
+                    return false;
+                }
+                if (len == -1) {
+                    break;
+                }
+                if (written + len > dataLength) {
+                    // The data grew since its length was taken
+                    return false;
+                }
+                mOutput.write(buffer, 0, len);
+                mPosition += len;
+                written += len;
+            }
+            return written == dataLength;
+        } finally {
+            try {
+                cr.close();
+            } catch (final IOException e) {
+                // Nothing to do
+            }
+        }
+    }
+
     /**
      * Record current message informations.
      */
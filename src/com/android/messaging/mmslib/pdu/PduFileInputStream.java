@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.mmslib.pdu;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads a range of a PDU file through a small window, for {@link PduParser} to parse a downloaded
+ * PDU without loading it into memory. It extends {@link ByteArrayInputStream} so the parser can
+ * read it just like a PDU held in a byte array; the inherited buffer holds the current window.
+ *
+ * I/O errors are thrown as {@link PduReadException}, since the parser works with streams that
+ * can't fail.
+ */
+class PduFileInputStream extends ByteArrayInputStream {
+    private static final int WINDOW_SIZE = 8 * 1024;
+
+    /**
+     * Thrown when the PDU file can't be read
+     */
+    static class PduReadException extends RuntimeException {
+        PduReadException(final IOException cause) {
+            super(cause);
+        }
+    }
+
+    private final FileChannel mChannel;
+    private final long mEnd;
+    // File position of buf[0]
+    private long mWindowStart;
+    private long mMarkPosition;
+
+    /**
+     * @param channel the file, which is left open when the stream is closed
+     * @param start the file position of the first byte to read
+     * @param end the file position after the last byte to read
+     */
+    PduFileInputStream(final FileChannel channel, final long start, final long end) {
+        super(new byte[WINDOW_SIZE], 0, 0);
+        mChannel = channel;
+        mEnd = end;
+        mWindowStart = start;
+        mMarkPosition = start;
+    }
+
+    /**
+     * @return the file position of the next byte to read
+     */
+    long position() {
+        return mWindowStart + pos;
+    }
+
+    /**
+     * Get a stream over the next bytes of this one, without consuming them
+     */
+    PduFileInputStream slice(final int length) {
+        final long start = position();
+        return new PduFileInputStream(mChannel, start, Math.min(start + length, mEnd));
+    }
+
+    @Override
+    public synchronized int read() {
+        if (pos >= count && !fillWindow()) {
+            return -1;
+        }
+        return buf[pos++] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(final byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        final long remaining = mEnd - position();
+        if (remaining <= 0) {
+            return -1;
+        }
+        len = (int) Math.min(len, remaining);
+        int read = 0;
+        while (read < len) {
+            if (pos < count) {
+                final int chunk = Math.min(len - read, count - pos);
+                System.arraycopy(buf, pos, b, off + read, chunk);
+                pos += chunk;
+                read += chunk;
+            } else if (len - read >= buf.length) {
+                // Read large ranges straight into the destination
+                final long position = position();
+                final int wanted = len - read;
+                final int chunk = readFully(ByteBuffer.wrap(b, off + read, wanted), position);
+                seek(position + chunk);
+                read += chunk;
+                if (chunk < wanted) {
+                    break;
+                }
+            } else if (!fillWindow()) {
+                break;
+            }
+        }
+        return read > 0 ? read : -1;
+    }
+
+    @Override
+    public synchronized long skip(final long n) {
+        final long skipped = Math.max(0, Math.min(n, mEnd - position()));
+        seek(position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public synchronized int available() {
+        return (int) Math.min(Integer.MAX_VALUE, mEnd - position());
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(final int readAheadLimit) {
+        mMarkPosition = position();
+    }
+
+    @Override
+    public synchronized void reset() {
+        seek(mMarkPosition);
+    }
+
+    @Override
+    public void close() {
+        // The channel belongs to the parser
+    }
+
+    private void seek(final long position) {
+        if (position >= mWindowStart && position <= mWindowStart + count) {
+            pos = (int) (position - mWindowStart);
+        } else {
+            mWindowStart = position;
+            pos = 0;
+            count = 0;
+        }
+    }
+
+    /**
+     * Move the window to the current position and fill it
+     * @return false at the end of the range
+     */
+    private boolean fillWindow() {
+        final long position = position();
+        final int length = (int) Math.min(buf.length, mEnd - position);
+        mWindowStart = position;
+        pos = 0;
+        count = length > 0 ? readFully(ByteBuffer.wrap(buf, 0, length), position) : 0;
+        return count > 0;
+    }
+
+    private int readFully(final ByteBuffer buffer, long position) {
+        final int start = buffer.position();
+        try {
+            while (buffer.hasRemaining()) {
+                final int read = mChannel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+        } catch (final IOException e) {
+            throw new PduReadException(e);
+        }
+        return buffer.position() - start;
+    }
+}
@@ -24,7 +24,9 @@ import com.android.messaging.mmslib.InvalidHeaderValueException;
 import com.android.messaging.util.ContentType;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.util.Arrays;
 
@@ -72,11 +74,38 @@ public class PduParser {
 
     private static final int THE_LAST_PART = 1;
 
+    /**
+     * Parts at least this large are left in the PDU file by a streaming parse.
+     */
+    private static final int MIN_SLICED_PART_LENGTH = 16 * 1024;
+
+    /**
+     * Size of the scratch buffer strings are collected in, and the largest one kept for reuse.
+     */
+    private static final int STRING_BUFFER_SIZE = 256;
+    private static final int MAX_STRING_BUFFER_SIZE = 4 * 1024;
+
+    /**
+     * Scratch buffer for {@link #getWapString}, one per thread since pdus are parsed on
+     * whichever thread received them. Each string then only costs its own byte array.
+     */
+    private static final ThreadLocal<byte[]> sStringBuffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[STRING_BUFFER_SIZE];
+        }
+    };
+
     /**
      * The pdu data.
      */
     private ByteArrayInputStream mPduDataStream = null;
 
+    /**
+     * The pdu file, for a streaming parse.
+     */
+    private File mPduFile = null;
+
     /**
      * Store pdu headers
      */
@@ -113,6 +142,20 @@ public class PduParser {
         mParseContentDisposition = parseContentDisposition;
     }
 
+    /**
+     * Constructor for a streaming parse of a pdu file. The file is read through a small
+     * buffer and large media parts are not loaded: they are set as ranges of the file (see
+     * {@link PduPart#setDataSlice}) which the persister copies straight to their destination.
+     * So the file has to be kept until the pdu has been persisted.
+     *
+     * @param pduFile pdu file to be parsed
+     * @param parseContentDisposition whether to parse the Content-Disposition part header
+     */
+    public PduParser(File pduFile, boolean parseContentDisposition) {
+        mPduFile = pduFile;
+        mParseContentDisposition = parseContentDisposition;
+    }
+
     /**
      * Parse the pdu.
      *
@@ -120,6 +163,34 @@ public class PduParser {
      * null if parsing error happened or mandatory fields are not set.
      */
     public GenericPdu parse() {
+        if (mPduFile == null) {
+            return parsePdu();
+        }
+
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(mPduFile, "r");
+            mPduDataStream = new PduFileInputStream(file.getChannel(), 0, file.length());
+            return parsePdu();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Failed to open pdu file " + mPduFile, e);
+            return null;
+        } catch (PduFileInputStream.PduReadException e) {
+            Log.e(LOG_TAG, "Failed to read pdu file " + mPduFile, e);
+            return null;
+        } finally {
+            mPduDataStream = null;
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException e) {
+                    // Nothing to do
+                }
+            }
+        }
+    }
+
+    private GenericPdu parsePdu() {
         if (mPduDataStream == null) {
             return null;
         }
@@ -959,15 +1030,29 @@ public class PduParser {
 
             /* get part's data */
             if (dataLength > 0) {
-                byte[] partData = new byte[dataLength];
                 String partContentType = new String(part.getContentType());
-                pduDataStream.read(partData, 0, dataLength);
+                PduFileInputStream fileStream = pduDataStream instanceof PduFileInputStream
+                        ? (PduFileInputStream) pduDataStream : null;
                 if (partContentType.equalsIgnoreCase(ContentType.MMS_MULTIPART_ALTERNATIVE)) {
                     // parse "multipart/vnd.wap.multipart.alternative".
-                    PduBody childBody = parseParts(new ByteArrayInputStream(partData));
+                    PduBody childBody;
+                    if (fileStream != null) {
+                        childBody = parseParts(fileStream.slice(dataLength));
+                        fileStream.skip(dataLength);
+                    } else {
+                        byte[] partData = new byte[dataLength];
+                        pduDataStream.read(partData, 0, dataLength);
+                        childBody = parseParts(new ByteArrayInputStream(partData));
+                    }
                     // take the first part of children.
                     part = childBody.getPart(0);
+                } else if (fileStream != null && canSliceData(part, partContentType, dataLength)) {
+                    // Leave the data in the file.
+                    part.setDataSlice(mPduFile, fileStream.position(), dataLength);
+                    fileStream.skip(dataLength);
                 } else {
+                    byte[] partData = new byte[dataLength];
+                    pduDataStream.read(partData, 0, dataLength);
                     // Check Content-Transfer-Encoding.
                     byte[] partDataEncoding = part.getContentTransferEncoding();
                     if (null != partDataEncoding) {
@@ -1003,6 +1088,19 @@ public class PduParser {
         return body;
     }
 
+    /**
+     * Check whether the data of a part can be left in the pdu file. Only large media parts
+     * qualify: the persister inspects the data of other parts, and encoded data has to be
+     * decoded first.
+     */
+    private static boolean canSliceData(PduPart part, String contentType, int dataLength) {
+        return dataLength >= MIN_SLICED_PART_LENGTH
+                && part.getContentTransferEncoding() == null
+                && (ContentType.isImageType(contentType)
+                        || ContentType.isVideoType(contentType)
+                        || ContentType.isAudioType(contentType));
+    }
+
     /**
      * Log status.
      *
@@ -1256,27 +1354,30 @@ public class PduParser {
     protected static byte[] getWapString(ByteArrayInputStream pduDataStream,
                                          int stringType) {
         assert (null != pduDataStream);
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = sStringBuffer.get();
+        int length = 0;
         int temp = pduDataStream.read();
         assert (-1 != temp);
         while ((-1 != temp) && ('\0' != temp)) {
             // check each of the character
-            if (stringType == TYPE_TOKEN_STRING) {
-                if (isTokenCharacter(temp)) {
-                    out.write(temp);
-                }
-            } else {
-                if (isText(temp)) {
-                    out.write(temp);
+            final boolean valid = (stringType == TYPE_TOKEN_STRING) ?
+                    isTokenCharacter(temp) : isText(temp);
+            if (valid) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    if (buffer.length <= MAX_STRING_BUFFER_SIZE) {
+                        sStringBuffer.set(buffer);
+                    }
                 }
+                buffer[length++] = (byte) temp;
             }
 
             temp = pduDataStream.read();
             assert (-1 != temp);
         }
 
-        if (out.size() > 0) {
-            return out.toByteArray();
+        if (length > 0) {
+            return Arrays.copyOf(buffer, length);
         }
 
         return null;
@@ -1385,12 +1486,11 @@ public class PduParser {
      */
     protected static int skipWapValue(ByteArrayInputStream pduDataStream, int length) {
         assert (null != pduDataStream);
-        byte[] area = new byte[length];
-        int readLen = pduDataStream.read(area, 0, length);
-        if (readLen < length) { //The actually read length is lower than the length
+        final long skipLen = pduDataStream.skip(length);
+        if (skipLen < length) { //The actually skipped length is lower than the length
             return -1;
         } else {
-            return readLen;
+            return (int) skipLen;
         }
     }
 
@@ -1761,8 +1861,7 @@ public class PduParser {
                                 thisEndPos = pduDataStream.available();
                                 if (thisStartPos - thisEndPos < len) {
                                     int last = len - (thisStartPos - thisEndPos);
-                                    byte[] temp = new byte[last];
-                                    pduDataStream.read(temp, 0, last);
+                                    pduDataStream.skip(last);
                                 }
                             }
 
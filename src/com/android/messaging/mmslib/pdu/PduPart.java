@@ -20,6 +20,13 @@ package com.android.messaging.mmslib.pdu;
 import android.net.Uri;
 import android.util.SparseArray;
 
+import com.google.common.io.ByteStreams;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  * The pdu part.
  */
@@ -117,6 +124,13 @@ public class PduPart {
      */
     private byte[] mPartData = null;
 
+    /**
+     * Part data left in a PDU file by a streaming parse.
+     */
+    private File mDataFile = null;
+    private long mDataOffset;
+    private int mDataLength;
+
     private static final String TAG = "PduPart";
 
     /**
@@ -151,6 +165,8 @@ public class PduPart {
      */
     public void setDataUri(final Uri uri) {
         mUri = uri;
+        // The data has been moved to the uri
+        mDataFile = null;
     }
 
     /**
@@ -162,6 +178,51 @@ public class PduPart {
         return mUri;
     }
 
+    /**
+     * Set the part data as a range of the PDU file it was parsed from. The file has to be
+     * kept until the data has been persisted.
+     *
+     * @param file the PDU file
+     * @param offset the position of the data in the file
+     * @param length the length of the data
+     */
+    public void setDataSlice(final File file, final long offset, final int length) {
+        mDataFile = file;
+        mDataOffset = offset;
+        mDataLength = length;
+    }
+
+    /**
+     * @return true if the part data is a range of a PDU file.
+     * @see #openDataSlice
+     */
+    public boolean hasDataSlice() {
+        return mDataFile != null;
+    }
+
+    /**
+     * @return the length of the part data range in the PDU file.
+     */
+    public int getDataSliceLength() {
+        return mDataLength;
+    }
+
+    /**
+     * Open the part data range of the PDU file.
+     *
+     * @return a stream over the part data, to be closed by the caller
+     */
+    public InputStream openDataSlice() throws IOException {
+        final FileInputStream in = new FileInputStream(mDataFile);
+        try {
+            in.getChannel().position(mDataOffset);
+        } catch (final IOException e) {
+            in.close();
+            throw e;
+        }
+        return ByteStreams.limit(in, mDataLength);
+    }
+
     /**
      * Set Content-id value
      *
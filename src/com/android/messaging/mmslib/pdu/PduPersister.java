@@ -997,13 +997,17 @@ public class PduPersister {
                     }
                     if (data == null) {
                         dataUri = part.getDataUri();
-                        if ((dataUri == null) || (dataUri == uri)) {
+                        if (part.hasDataSlice()) {
+                            // Copy the data straight from the downloaded pdu file
+                            is = part.openDataSlice();
+                        } else if ((dataUri == null) || (dataUri == uri)) {
                             Log.w(TAG, "Can't find data for this part.");
                             return;
                         }
                         // dataUri can look like:
                         // content://com.google.android.gallery3d.provider/picasa/item/5720646660183715
-                        if (preOpenedFiles != null && preOpenedFiles.containsKey(dataUri)) {
+                        if (is == null && preOpenedFiles != null
+                                && preOpenedFiles.containsKey(dataUri)) {
                             is = preOpenedFiles.get(dataUri);
                         }
                         if (is == null) {
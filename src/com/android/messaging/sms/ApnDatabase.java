@@ -331,21 +331,27 @@ public class ApnDatabase extends SQLiteOpenHelper {
     }
 
     /**
-     * Load APN table from app resources
+     * Load APN table from the bundled APN index, or from app resources if there is none
      */
     private static void loadApnTable(final SQLiteDatabase db) {
         if (LogUtil.isLoggable(TAG, LogUtil.VERBOSE)) {
             LogUtil.v(TAG, "ApnDatabase loadApnTable");
         }
-        final Resources r = sContext.getResources();
-        final XmlResourceParser parser = r.getXml(R.xml.apns);
-        final ApnsXmlProcessor processor = ApnsXmlProcessor.get(parser);
-        processor.setApnHandler(new ApnsXmlProcessor.ApnHandler() {
+        final ApnsXmlProcessor.ApnHandler insertHandler = new ApnsXmlProcessor.ApnHandler() {
             @Override
             public void process(final ContentValues apnValues) {
                 db.insert(APN_TABLE, null/*nullColumnHack*/, apnValues);
             }
-        });
+        };
+        final ApnIndex index = ApnIndex.get(sContext);
+        if (index != null) {
+            index.processApns(insertHandler);
+            return;
+        }
+        final Resources r = sContext.getResources();
+        final XmlResourceParser parser = r.getXml(R.xml.apns);
+        final ApnsXmlProcessor processor = ApnsXmlProcessor.get(parser);
+        processor.setApnHandler(insertHandler);
         try {
             processor.process();
         } catch (final Exception e) {
@@ -364,7 +370,14 @@ public class ApnDatabase extends SQLiteOpenHelper {
         // the table for JB MR2, too.
         db.execSQL(APN_TABLE_SQL);
 
-        loadApnTable(db);
+        // Insert the thousands of bundled APNs in one transaction
+        db.beginTransaction();
+        try {
+            loadApnTable(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
     }
 
     /**
@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.sms;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.os.SystemClock;
+import android.provider.Telephony;
+
+import com.android.messaging.util.LogUtil;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * Read-only index of the APNs bundled with the app, generated from res/xml/apns.xml by
+ * tools/genapnindex.py at build time and packaged as the asset apns.idx. Builds that don't
+ * generate it leave it out, and the APNs are then read from the XML. The index is memory mapped
+ * and looked up by the canonical MCC/MNC, so the APNs of one carrier are found without parsing
+ * the whole XML file or creating the local APN database. The APNs come back as the same
+ * ContentValues that {@link ApnsXmlProcessor} gives for the XML.
+ */
+class ApnIndex {
+    private static final String TAG = LogUtil.BUGLE_TAG;
+
+    @VisibleForTesting
+    static final String ASSET_NAME = "apns.idx";
+
+    private static final int MAGIC = ('A' << 24) | ('P' << 16) | ('N' << 8) | 'I';
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 6;
+    private static final int KEY_INTS = 3;
+
+    private static final Object sLock = new Object();
+    private static ApnIndex sInstance;
+    private static boolean sLoaded;
+
+    private final ByteBuffer mBuffer;
+    private final int mRecordCount;
+    private final int mKeyCount;
+    private final int mStringCount;
+    // Columns of the attributes in the index, or null for attributes the app doesn't use
+    private final String[] mColumns;
+    private final int mKeysStart;
+    private final int mRecordOffsetsStart;
+    private final int mRecordDataStart;
+    private final int mStringOffsetsStart;
+    private final int mStringDataStart;
+    private final String[] mStrings;
+
+    /**
+     * @return the bundled APN index, or null if the app has none or it can't be read, in which
+     *     case the APNs should be read from res/xml/apns.xml
+     */
+    static ApnIndex get(final Context context) {
+        synchronized (sLock) {
+            if (!sLoaded) {
+                sInstance = load(context);
+                sLoaded = true;
+            }
+            return sInstance;
+        }
+    }
+
+    private static ApnIndex load(final Context context) {
+        final long start = SystemClock.elapsedRealtime();
+        try {
+            final ApnIndex index = new ApnIndex(map(context));
+            LogUtil.i(TAG, "ApnIndex: opened " + index.mRecordCount + " APNs in "
+                    + (SystemClock.elapsedRealtime() - start) + "ms");
+            return index;
+        } catch (final FileNotFoundException e) {
+            LogUtil.w(TAG, "ApnIndex: no APN index in the app");
+        } catch (final IOException | RuntimeException e) {
+            LogUtil.e(TAG, "ApnIndex: failed to read the APN index", e);
+        }
+        return null;
+    }
+
+    /**
+     * Map the index if it is stored uncompressed, otherwise read it into memory
+     */
+    private static ByteBuffer map(final Context context) throws IOException {
+        AssetFileDescriptor fd = null;
+        try {
+            fd = context.getAssets().openFd(ASSET_NAME);
+        } catch (final FileNotFoundException e) {
+            // Compressed, or missing
+        }
+        if (fd != null) {
+            final FileInputStream stream = fd.createInputStream();
+            try {
+                return stream.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                        fd.getStartOffset(), fd.getLength());
+            } finally {
+                // The mapping stays valid after the file is closed
+                stream.close();
+                fd.close();
+            }
+        }
+        final InputStream stream = context.getAssets().open(ASSET_NAME);
+        try {
+            return ByteBuffer.wrap(ByteStreams.toByteArray(stream));
+        } finally {
+            stream.close();
+        }
+    }
+
+    @VisibleForTesting
+    ApnIndex(final ByteBuffer buffer) throws IOException {
+        mBuffer = buffer;
+        if (buffer.capacity() < HEADER_INTS * 4 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an APN index");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported APN index version " + buffer.getInt(4));
+        }
+        final int fieldCount = buffer.getInt(8);
+        mRecordCount = buffer.getInt(12);
+        mKeyCount = buffer.getInt(16);
+        mStringCount = buffer.getInt(20);
+        if (fieldCount < 0 || fieldCount > 31 || mRecordCount < 0 || mKeyCount < 0
+                || mStringCount < 0) {
+            throw new IOException("Corrupt APN index header");
+        }
+        final int fieldsStart = HEADER_INTS * 4;
+        mKeysStart = fieldsStart + fieldCount * 4;
+        mRecordOffsetsStart = mKeysStart + mKeyCount * KEY_INTS * 4;
+        mRecordDataStart = mRecordOffsetsStart + (mRecordCount + 1) * 4;
+        checkBounds(mRecordDataStart);
+        mStringOffsetsStart = mRecordDataStart + buffer.getInt(mRecordDataStart - 4) * 4;
+        mStringDataStart = mStringOffsetsStart + (mStringCount + 1) * 4;
+        checkBounds(mStringDataStart);
+        checkBounds(mStringDataStart + buffer.getInt(mStringDataStart - 4));
+        mStrings = new String[mStringCount];
+
+        mColumns = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            mColumns[i] = ApnsXmlProcessor.APN_ATTRIBUTE_MAP.get(
+                    getString(buffer.getInt(fieldsStart + i * 4)));
+        }
+    }
+
+    private void checkBounds(final int position) throws IOException {
+        if (position < 0 || position > mBuffer.capacity()) {
+            throw new IOException("Truncated APN index");
+        }
+    }
+
+    int getApnCount() {
+        return mRecordCount;
+    }
+
+    /**
+     * Get the bundled APNs of a carrier, in the order they are listed in apns.xml
+     *
+     * @param numeric The canonical MCC/MNC, as from {@link
+     *     com.android.messaging.util.PhoneUtils#canonicalizeMccMnc}
+     */
+    List<ContentValues> getApns(final String numeric) {
+        final int key = findKey(numeric);
+        if (key < 0) {
+            return Collections.emptyList();
+        }
+        final int keyStart = mKeysStart + key * KEY_INTS * 4;
+        final int firstRecord = mBuffer.getInt(keyStart + 4);
+        final int recordCount = mBuffer.getInt(keyStart + 8);
+        final List<ContentValues> apns = Lists.newArrayListWithCapacity(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            apns.add(getApn(firstRecord + i, numeric));
+        }
+        return apns;
+    }
+
+    /**
+     * Hand every bundled APN to the handler, grouped by MCC/MNC
+     */
+    void processApns(final ApnsXmlProcessor.ApnHandler handler) {
+        for (int key = 0; key < mKeyCount; key++) {
+            final int keyStart = mKeysStart + key * KEY_INTS * 4;
+            final String numeric = getString(mBuffer.getInt(keyStart));
+            final int firstRecord = mBuffer.getInt(keyStart + 4);
+            final int recordCount = mBuffer.getInt(keyStart + 8);
+            for (int i = 0; i < recordCount; i++) {
+                handler.process(getApn(firstRecord + i, numeric));
+            }
+        }
+    }
+
+    private int findKey(final String numeric) {
+        int low = 0;
+        int high = mKeyCount - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int compare = getString(mBuffer.getInt(mKeysStart + mid * KEY_INTS * 4))
+                    .compareTo(numeric);
+            if (compare < 0) {
+                low = mid + 1;
+            } else if (compare > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private ContentValues getApn(final int record, final String numeric) {
+        int position = mRecordDataStart + mBuffer.getInt(mRecordOffsetsStart + record * 4) * 4;
+        final int mask = mBuffer.getInt(position);
+        final ContentValues values = new ContentValues();
+        for (int field = 0; field < mColumns.length; field++) {
+            if ((mask & (1 << field)) != 0) {
+                position += 4;
+                if (mColumns[field] != null) {
+                    values.put(mColumns[field], getString(mBuffer.getInt(position)));
+                }
+            }
+        }
+        values.put(Telephony.Carriers.NUMERIC, numeric);
+        // Convert the values that are not strings, as ApnsXmlProcessor does
+        final String authType = values.getAsString(Telephony.Carriers.AUTH_TYPE);
+        if (authType != null) {
+            values.put(Telephony.Carriers.AUTH_TYPE, parseInt(authType, -1));
+        }
+        final String carrierEnabled = values.getAsString(Telephony.Carriers.CARRIER_ENABLED);
+        if (carrierEnabled != null) {
+            values.put(Telephony.Carriers.CARRIER_ENABLED, Boolean.parseBoolean(carrierEnabled));
+        }
+        final String bearer = values.getAsString(Telephony.Carriers.BEARER);
+        if (bearer != null) {
+            values.put(Telephony.Carriers.BEARER, parseInt(bearer, 0));
+        }
+        return values;
+    }
+
+    private static int parseInt(final String text, final int defaultValue) {
+        try {
+            return Integer.parseInt(text);
+        } catch (final NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private String getString(final int index) {
+        if (index < 0 || index >= mStringCount) {
+            throw new IndexOutOfBoundsException("APN index string " + index);
+        }
+        synchronized (mStrings) {
+            String string = mStrings[index];
+            if (string == null) {
+                final int start = mBuffer.getInt(mStringOffsetsStart + index * 4);
+                final int end = mBuffer.getInt(mStringOffsetsStart + (index + 1) * 4);
+                final byte[] bytes = new byte[end - start];
+                final ByteBuffer data = mBuffer.duplicate();
+                data.position(mStringDataStart + start);
+                data.get(bytes);
+                string = new String(bytes, StandardCharsets.UTF_8);
+                mStrings[index] = string;
+            }
+            return string;
+        }
+    }
+}
@@ -46,7 +46,7 @@ class ApnsXmlProcessor {
 
     private static final String TAG = LogUtil.BUGLE_TAG;
 
-    private static final Map<String, String> APN_ATTRIBUTE_MAP = Maps.newHashMap();
+    static final Map<String, String> APN_ATTRIBUTE_MAP = Maps.newHashMap();
     static {
         APN_ATTRIBUTE_MAP.put("mcc", Telephony.Carriers.MCC);
         APN_ATTRIBUTE_MAP.put("mnc", Telephony.Carriers.MNC);
@@ -22,6 +22,7 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.net.Uri;
+import android.os.SystemClock;
 import android.provider.Telephony;
 import androidx.appcompat.mms.ApnSettingsLoader;
 import androidx.appcompat.mms.MmsManager;
@@ -35,6 +36,7 @@ import com.android.messaging.util.BugleGservicesKeys;
 import com.android.messaging.util.LogUtil;
 import com.android.messaging.util.OsUtil;
 import com.android.messaging.util.PhoneUtils;
+import com.android.messaging.util.SafeAsyncTask;
 
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -318,6 +320,7 @@ public class BugleApnSettingsLoader implements ApnSettingsLoader {
     public List<ApnSettingsLoader.Apn> get(final String apnName) {
         final int subId = PhoneUtils.getDefault().getEffectiveSubId(
                 ParticipantData.DEFAULT_SELF_SUB_ID);
+        final long start = SystemClock.elapsedRealtime();
         List<ApnSettingsLoader.Apn> apns;
         boolean didLoad = false;
         synchronized (this) {
@@ -330,7 +333,8 @@ public class BugleApnSettingsLoader implements ApnSettingsLoader {
             }
         }
         if (didLoad) {
-            LogUtil.i(LogUtil.BUGLE_TAG, "Loaded " + apns.size() + " APNs");
+            LogUtil.i(LogUtil.BUGLE_TAG, "Loaded " + apns.size() + " APNs in "
+                    + (SystemClock.elapsedRealtime() - start) + "ms");
         }
         return apns;
     }
@@ -492,9 +496,12 @@ public class BugleApnSettingsLoader implements ApnSettingsLoader {
      * @param apns the list of results to return
      */
     private void loadFromLocalDatabase(final String apnName, final List<Apn> apns) {
+        final String mccMnc = PhoneUtils.getMccMncString(PhoneUtils.getDefault().getMccMnc());
+        if (!ApnDatabase.doesDatabaseExist() && loadFromApnIndex(mccMnc, apnName, apns)) {
+            return;
+        }
         LogUtil.i(LogUtil.BUGLE_TAG, "Loading APNs from local APN table");
         final SQLiteDatabase database = ApnDatabase.getApnDatabase().getWritableDatabase();
-        final String mccMnc = PhoneUtils.getMccMncString(PhoneUtils.getDefault().getMccMnc());
         Cursor cursor = null;
         cursor = queryLocalDatabase(database, mccMnc, apnName);
         if (cursor == null) {
@@ -522,6 +529,68 @@ public class BugleApnSettingsLoader implements ApnSettingsLoader {
         }
     }
 
+    /**
+     * Load matching APNs from the bundled APN index, when the local APN table has not been
+     * created yet. Creating it means inserting every bundled APN, so rather than making the first
+     * MMS wait for that, we create it in the background for later loads, which also remember
+     * which APN worked.
+     *
+     * @param mccMnc the MCC/MNC string
+     * @param apnName the APN name
+     * @param apns the list of results to return
+     * @return true if any APN was found
+     */
+    private boolean loadFromApnIndex(final String mccMnc, final String apnName,
+            final List<Apn> apns) {
+        final ApnIndex index = ApnIndex.get(mContext);
+        if (index == null) {
+            return false;
+        }
+        LogUtil.i(LogUtil.BUGLE_TAG, "Loading APNs from APN index");
+        final List<ContentValues> indexApns = index.getApns(mccMnc);
+        if (!TextUtils.isEmpty(apnName)) {
+            addIndexApns(indexApns, apnName, apns);
+        }
+        if (apns.isEmpty()) {
+            addIndexApns(indexApns, null/*apnName*/, apns);
+        }
+        SafeAsyncTask.executeOnThreadPool(new Runnable() {
+            @Override
+            public void run() {
+                ApnDatabase.getApnDatabase().getWritableDatabase();
+            }
+        });
+        return !apns.isEmpty();
+    }
+
+    private static void addIndexApns(final List<ContentValues> indexApns, final String apnName,
+            final List<Apn> apns) {
+        for (final ContentValues values : indexApns) {
+            if (apnName != null
+                    && !apnName.equals(values.getAsString(Telephony.Carriers.APN))) {
+                continue;
+            }
+            final BaseApn base = BaseApn.from(
+                    values.getAsString(Telephony.Carriers.TYPE),
+                    values.getAsString(Telephony.Carriers.MMSC),
+                    values.getAsString(Telephony.Carriers.MMSPROXY),
+                    values.getAsString(Telephony.Carriers.MMSPORT));
+            if (base == null) {
+                continue;
+            }
+            boolean duplicate = false;
+            for (final Apn apn : apns) {
+                if (((BaseApn) apn).equals(base)) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                apns.add(base);
+            }
+        }
+    }
+
     /**
      * Make a query of local APN table based on MCC/MNC and APN name, sorted by CURRENT
      * column in descending order
@@ -30,6 +30,8 @@ import com.android.messaging.util.LogUtil;
 import com.android.messaging.util.OsUtil;
 import com.android.messaging.util.PhoneUtils;
 
+import java.util.HashMap;
+
 /**
  * Carrier configuration loader
  *
@@ -49,9 +51,15 @@ public class BugleCarrierConfigValuesLoader implements CarrierConfigValuesLoader
     // Cached values for subIds
     private final SparseArray<Bundle> mValuesCache;
 
+    // Values parsed from mms_config.xml, keyed by the MCC/MNC the resources were picked for.
+    // Resources don't change while the app runs, so reloading after a subscription or carrier
+    // config change only asks the system for its values again.
+    private final HashMap<String, Bundle> mResourceValuesCache;
+
     public BugleCarrierConfigValuesLoader(final Context context) {
         mContext = context;
         mValuesCache = new SparseArray<>();
+        mResourceValuesCache = new HashMap<>();
     }
 
     @Override
@@ -131,15 +139,25 @@ public class BugleCarrierConfigValuesLoader implements CarrierConfigValuesLoader
     }
 
     private void loadMmsConfig(final int subId, final boolean isBase, final Bundle values) {
-        final Context subContext= getSubDepContext(mContext, subId);
+        final Configuration config = isBase ? mContext.getResources().getConfiguration()
+                : getSubDepConfiguration(mContext, subId);
+        final String cacheKey = config.mcc + "/" + config.mnc;
+        Bundle resourceValues = mResourceValuesCache.get(cacheKey);
+        if (resourceValues == null) {
+            final Context context = isBase ? mContext
+                    : mContext.createConfigurationContext(config);
+            resourceValues = parseMmsConfig(context);
+            mResourceValuesCache.put(cacheKey, resourceValues);
+        }
+        values.putAll(resourceValues);
+    }
+
+    private Bundle parseMmsConfig(final Context context) {
+        final Bundle values = new Bundle();
         // Load and parse the XML
         XmlResourceParser parser = null;
         try {
-            if (isBase) {
-                parser = mContext.getResources().getXml(R.xml.mms_config);
-            } else {
-                parser = subContext.getResources().getXml(R.xml.mms_config);
-            }
+            parser = context.getResources().getXml(R.xml.mms_config);
             final ApnsXmlProcessor processor = ApnsXmlProcessor.get(parser);
             LogUtil.d(LogUtil.BUGLE_TAG, "loadFromResources begin >> " + mContext.getPackageResourcePath());
             processor.setMmsConfigHandler(new ApnsXmlProcessor.MmsConfigHandler() {
@@ -157,18 +175,19 @@ public class BugleCarrierConfigValuesLoader implements CarrierConfigValuesLoader
                 parser.close();
             }
         }
+        return values;
     }
 
     /**
-     * Get a subscription's Context so we can load resources from it
+     * Get a subscription's Configuration so we can load resources for it
      *
      * @param context the sub-independent Context
      * @param subId the SIM's subId
-     * @return the sub-dependent Context
+     * @return the sub-dependent Configuration
      */
-    private static Context getSubDepContext(final Context context, final int subId) {
+    private static Configuration getSubDepConfiguration(final Context context, final int subId) {
         if (!OsUtil.isAtLeastL_MR1()) {
-            return context;
+            return context.getResources().getConfiguration();
         }
         final int[] mccMnc = PhoneUtils.get(subId).getMccMnc();
         final int mcc = mccMnc[0];
@@ -182,7 +201,7 @@ public class BugleCarrierConfigValuesLoader implements CarrierConfigValuesLoader
             subConfig.mcc = mcc;
             subConfig.mnc = mnc;
         }
-        return context.createConfigurationContext(subConfig);
+        return subConfig;
     }
 
     /**
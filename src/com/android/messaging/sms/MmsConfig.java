@@ -18,6 +18,7 @@ package com.android.messaging.sms;
 
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.os.SystemProperties;
 import android.preference.PreferenceManager;
 import android.telephony.SubscriptionInfo;
@@ -226,9 +227,11 @@ public class MmsConfig {
      * Reload the device and per-subscription settings.
      */
     public static synchronized void load() {
+        final long start = SystemClock.elapsedRealtime();
         final BugleCarrierConfigValuesLoader loader = Factory.get().getCarrierConfigValuesLoader();
-        // Rebuild the entire MmsConfig map.
-        sSubIdToMmsConfigMap.clear();
+        // Rebuild the entire MmsConfig map, and swap it in once done so that get() keeps
+        // returning the previous configs meanwhile.
+        final Map<Integer, MmsConfig> configs = Maps.newHashMap();
         loader.reset();
         if (OsUtil.isAtLeastL_MR1()) {
             final List<SubscriptionInfo> subInfoRecords =
@@ -238,26 +241,33 @@ public class MmsConfig {
                // return;
                 final Bundle values = loader.get(ParticipantData.DEFAULT_SELF_SUB_ID);
                 Log.d(TAG, " load addMmsConfig" + values);
-                addMmsConfig(new MmsConfig(ParticipantData.DEFAULT_SELF_SUB_ID, values));
+                addMmsConfig(configs, new MmsConfig(ParticipantData.DEFAULT_SELF_SUB_ID, values));
                 /*modified for Bug 724272 end*/
             }
             for (SubscriptionInfo subInfoRecord : subInfoRecords) {
                 final int subId = subInfoRecord.getSubscriptionId();
                 final Bundle values = loader.get(subId);
                 Log.d(TAG, " OsUtil.isAtLeastL_MR1 load addMmsConfig" + values);
-                addMmsConfig(new MmsConfig(subId, values));
+                addMmsConfig(configs, new MmsConfig(subId, values));
             }
         } else {
             final Bundle values = loader.get(ParticipantData.DEFAULT_SELF_SUB_ID);
             Log.d(TAG, " load addMmsConfig" + values);
-            addMmsConfig(new MmsConfig(ParticipantData.DEFAULT_SELF_SUB_ID, values));
+            addMmsConfig(configs, new MmsConfig(ParticipantData.DEFAULT_SELF_SUB_ID, values));
         }
+        synchronized (sSubIdToMmsConfigMap) {
+            sSubIdToMmsConfigMap.clear();
+            sSubIdToMmsConfigMap.putAll(configs);
+        }
+        LogUtil.i(TAG, "Loaded " + configs.size() + " MMS configs in "
+                + (SystemClock.elapsedRealtime() - start) + "ms");
     }
 
-    private static void addMmsConfig(MmsConfig mmsConfig) {
+    private static void addMmsConfig(final Map<Integer, MmsConfig> configs,
+            final MmsConfig mmsConfig) {
 //        Assert.isTrue(OsUtil.isAtLeastL_MR1() !=
 //                (mmsConfig.mSubId == ParticipantData.DEFAULT_SELF_SUB_ID)); /*deleted for Bug 724272*/
-        sSubIdToMmsConfigMap.put(mmsConfig.mSubId, mmsConfig);
+        configs.put(mmsConfig.mSubId, mmsConfig);
     }
 
     /* Add by SPRD for bug 609520 16/11/28 Start */
@@ -28,6 +28,7 @@ import android.os.Message;
 import android.telephony.SmsManager;
 import android.content.ComponentName;
 import com.android.messaging.datamodel.MmsFileProvider;
+import com.android.messaging.datamodel.action.DownloadMmsAction;
 import com.android.messaging.datamodel.action.SendMessageAction;
 import com.android.messaging.datamodel.data.MessageData;
 import com.android.messaging.mmslib.InvalidHeaderValueException;
@@ -292,17 +293,18 @@ public class MmsSender {
             // Ensure rawmms directory exists
             tempFile.getParentFile().mkdirs();
             writer = new FileOutputStream(tempFile);
-            final byte[] pduBytes = new PduComposer(context, pdu).make();
-            if (pduBytes == null) {
+            // Stream the pdu into the file, so the attachments are never held in memory
+            if (!new PduComposer(context, pdu).make(writer)) {
+                tempFile.delete();
                 throw new MmsFailureException(
                         MmsUtils.MMS_REQUEST_NO_RETRY, "Failed to compose PDU");
             }
-            if (pduBytes.length > MmsConfig.get(subId).getMaxMessageSize()) {
+            if (tempFile.length() > MmsConfig.get(subId).getMaxMessageSize()) {
+                tempFile.delete();
                 throw new MmsFailureException(
                         MmsUtils.MMS_REQUEST_NO_RETRY,
                         MessageData.RAW_TELEPHONY_STATUS_MESSAGE_TOO_BIG);
             }
-            writer.write(pduBytes);
         } catch (final IOException e) {
             if (tempFile != null) {
                 tempFile.delete();
@@ -377,26 +379,47 @@ public class MmsSender {
                 downloadedIntent,
                 PendingIntent.FLAG_UPDATE_CURRENT);
 
+        // Manual downloads go ahead of any auto-downloads still waiting
+        final boolean userInitiated = extras != null
+                && !extras.getBoolean(DownloadMmsAction.EXTRA_AUTO_DOWNLOAD, true);
         MmsManager.downloadMultimediaMessage(subId, context, contentLocation, contentUri,
-                downloadedPendingIntent);
+                downloadedPendingIntent, userInitiated);
     }
 
     public static RetrieveConf parseRetrieveConf(byte[] data, int subId) {
         if (data != null) {
-            final GenericPdu pdu = new PduParser(
-                    data, MmsConfig.get(subId).getSupportMmsContentDisposition()).parse();
-            if (pdu != null) {
-                if (pdu instanceof RetrieveConf) {
-                    return (RetrieveConf) pdu;
-                } else {
-                    LogUtil.e(TAG, "MmsSender: downloaded pdu not RetrieveConf: "
-                            + pdu.getClass().getName());
-                }
+            return toRetrieveConf(new PduParser(
+                    data, MmsConfig.get(subId).getSupportMmsContentDisposition()).parse());
+        }
+        LogUtil.e(TAG, "MmsSender: downloaded pdu is empty");
+        return null;
+    }
+
+    /**
+     * Parse a downloaded MMS from its file without loading it into memory. The large parts of
+     * the message are read from the file when it is persisted, so the file has to be kept until
+     * then.
+     */
+    public static RetrieveConf parseRetrieveConf(File pduFile, int subId) {
+        if (pduFile.length() > 0) {
+            return toRetrieveConf(new PduParser(
+                    pduFile, MmsConfig.get(subId).getSupportMmsContentDisposition()).parse());
+        }
+        LogUtil.e(TAG, "MmsSender: downloaded pdu is empty");
+        return null;
+    }
+
+    private static RetrieveConf toRetrieveConf(final GenericPdu pdu) {
+        if (pdu != null) {
+            if (pdu instanceof RetrieveConf) {
+                return (RetrieveConf) pdu;
             } else {
-                LogUtil.e(TAG, "MmsSender: downloaded pdu could not be parsed (invalid)");
+                LogUtil.e(TAG, "MmsSender: downloaded pdu not RetrieveConf: "
+                        + pdu.getClass().getName());
             }
+        } else {
+            LogUtil.e(TAG, "MmsSender: downloaded pdu could not be parsed (invalid)");
         }
-        LogUtil.e(TAG, "MmsSender: downloaded pdu is empty");
         return null;
     }
 
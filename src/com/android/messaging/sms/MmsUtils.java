@@ -184,6 +184,10 @@ public class MmsUtils {
      * MMS request failed with a specific error and should not be retried
      */
     public static final int MMS_REQUEST_NO_RETRY = 3;
+    /**
+     * SMS request was handed to the radio and its status will go to a callback
+     */
+    public static final int SMS_REQUEST_PENDING = -1;
 
     public static final String getRequestStatusDescription(final int status) {
         switch (status) {
@@ -3888,6 +3892,18 @@ public class MmsUtils {
     public static int sendSmsMessage(final String recipient, final String messageText,
             final Uri requestUri, final int subId,
             final String smsServiceCenter, final boolean requireDeliveryReport) {
+        return sendSmsMessage(recipient, messageText, requestUri, subId, smsServiceCenter,
+                requireDeliveryReport, null /* callback */);
+    }
+
+    /**
+     * Send an SMS. With a callback this returns as soon as the message is handed to the radio,
+     * with {@link #SMS_REQUEST_PENDING}, and the callback gets the sent status.
+     */
+    public static int sendSmsMessage(final String recipient, final String messageText,
+            final Uri requestUri, final int subId,
+            final String smsServiceCenter, final boolean requireDeliveryReport,
+            final SmsSender.SendCallback callback) {
         if(!Utils.isVowifiSmsEnable(subId)){
             if (!isSmsDataAvailable(subId)) {
             LogUtil.w(TAG, "MmsUtils: can't send SMS without radio");
@@ -3897,6 +3913,11 @@ public class MmsUtils {
         final Context context = Factory.get().getApplicationContext();
         int status = MMS_REQUEST_MANUAL_RETRY;
         try {
+            if (callback != null) {
+                SmsSender.submitMessage(context, subId, recipient, messageText,
+                        smsServiceCenter, requireDeliveryReport, requestUri, callback);
+                return SMS_REQUEST_PENDING;
+            }
             // Send a single message
             final SendResult result = SmsSender.sendMessage(
                     context,
@@ -3906,25 +3927,7 @@ public class MmsUtils {
                     smsServiceCenter,
                     requireDeliveryReport,
                     requestUri);
-            if (!result.hasPending()) {
-                // not timed out, check failures
-                final int failureLevel = result.getHighestFailureLevel();
-                switch (failureLevel) {
-                    case SendResult.FAILURE_LEVEL_NONE:
-                        status = MMS_REQUEST_SUCCEEDED;
-                        break;
-                    case SendResult.FAILURE_LEVEL_TEMPORARY:
-                        status = MMS_REQUEST_AUTO_RETRY;
-                        LogUtil.e(TAG, "MmsUtils: SMS temporary failure");
-                        break;
-                    case SendResult.FAILURE_LEVEL_PERMANENT:
-                        LogUtil.e(TAG, "MmsUtils: SMS permanent failure");
-                        break;
-                }
-            } else {
-                // Timed out
-                LogUtil.e(TAG, "MmsUtils: sending SMS timed out");
-            }
+            status = getSmsSendStatus(result);
         // sprd: 596495 fdn feature begin
         }catch(IllegalArgumentException e){
             if (e.getMessage().contains("Invalid FDN destinationAddress")) {
@@ -3977,6 +3980,33 @@ public class MmsUtils {
         return status;
     }
 
+    /**
+     * Get the request status for the result of sending an SMS
+     */
+    public static int getSmsSendStatus(final SendResult result) {
+        int status = MMS_REQUEST_MANUAL_RETRY;
+        if (!result.hasPending()) {
+            // not timed out, check failures
+            final int failureLevel = result.getHighestFailureLevel();
+            switch (failureLevel) {
+                case SendResult.FAILURE_LEVEL_NONE:
+                    status = MMS_REQUEST_SUCCEEDED;
+                    break;
+                case SendResult.FAILURE_LEVEL_TEMPORARY:
+                    status = MMS_REQUEST_AUTO_RETRY;
+                    LogUtil.e(TAG, "MmsUtils: SMS temporary failure");
+                    break;
+                case SendResult.FAILURE_LEVEL_PERMANENT:
+                    LogUtil.e(TAG, "MmsUtils: SMS permanent failure");
+                    break;
+            }
+        } else {
+            // Timed out
+            LogUtil.e(TAG, "MmsUtils: sending SMS timed out");
+        }
+        return status;
+    }
+
     /**
      * Delete SMS and MMS messages in a particular thread
      *
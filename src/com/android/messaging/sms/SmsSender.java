@@ -40,13 +40,17 @@ import com.android.messaging.util.BugleGservices;
 import com.android.messaging.util.BugleGservicesKeys;
 import com.android.messaging.util.LogUtil;
 import com.android.messaging.util.PhoneUtils;
+import com.android.messaging.util.ThreadUtil;
 import com.android.messaging.util.UiUtils;
+import com.android.messaging.util.WakeLockHelper;
 import com.android.messaging.util.GlobleUtil;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Class that sends chat message via SMS.
@@ -72,13 +76,33 @@ public class SmsSender {
 
     private static final Random RANDOM = new Random();
 
+    // Held for each message handed over by submitMessage until its sent status is back, since
+    // the background worker that submitted it has returned and no longer keeps the device awake
+    private static final String WAKELOCK_ID = "bugle_sms_send_wakelock";
+    private static final int WAKELOCK_OP = 0;
+    private static final WakeLockHelper sWakeLock = new WakeLockHelper(WAKELOCK_ID);
+    // Only identifies this process to the wakelock helper
+    private static final Intent sWakeLockIntent = new Intent();
+
     // Whether we should send multipart SMS as separate messages
     private static Boolean sSendMultipartSmsAsSeparateMessages = null;
     //Sprd add for smsc
     public static String SMSC_EMPTY_FAILURE="SmsSender: empty smsc address";
 
     /**
-     * Class that holds the sent status for all parts of a multipart message sending
+     * Callback for messages sent with {@link #submitMessage}
+     */
+    public interface SendCallback {
+        /**
+         * Called once, when every part has its sent status or the send has timed out. This can
+         * be on the main thread.
+         */
+        void onSendComplete(SendResult result);
+    }
+
+    /**
+     * Class that holds the sent status for all parts of a multipart message sending. The sent
+     * intents of the parts can arrive on any thread, so the counts are kept without locking.
      */
     public static class SendResult {
         // Failure levels, used by the caller of the sender.
@@ -88,29 +112,109 @@ public class SmsSender {
         public static final int FAILURE_LEVEL_TEMPORARY = 1;
         public static final int FAILURE_LEVEL_PERMANENT = 2;
 
+        private final int mNumOfParts;
+        private final SendCallback mCallback;
         // Tracking the remaining pending parts in sending
-        private int mPendingParts;
+        private final AtomicInteger mPendingParts;
         // Tracking the highest level of failure among all parts
-        private int mHighestFailureLevel;
+        private final AtomicInteger mHighestFailureLevel =
+                new AtomicInteger(FAILURE_LEVEL_NONE);
+        private final AtomicBoolean mComplete = new AtomicBoolean();
+        private final AtomicBoolean mHoldsWakeLock = new AtomicBoolean();
+        private final long mSubmitTime = SystemClock.elapsedRealtime();
+        private volatile long mCompleteTime;
+        private Uri mRequestId;
+        private Runnable mTimeout;
 
         public SendResult(final int numOfParts) {
+            this(numOfParts, null);
+        }
+
+        public SendResult(final int numOfParts, final SendCallback callback) {
             Assert.isTrue(numOfParts > 0);
-            mPendingParts = numOfParts;
-            mHighestFailureLevel = FAILURE_LEVEL_NONE;
+            mNumOfParts = numOfParts;
+            mCallback = callback;
+            mPendingParts = new AtomicInteger(numOfParts);
         }
 
         // Update the sent status of one part
         public void setPartResult(final int resultCode) {
-            mPendingParts--;
             setHighestFailureLevel(resultCode);
+            if (mPendingParts.decrementAndGet() == 0) {
+                complete();
+            }
         }
 
         public boolean hasPending() {
-            return mPendingParts > 0;
+            return mPendingParts.get() > 0;
         }
 
         public int getHighestFailureLevel() {
-            return mHighestFailureLevel;
+            return mHighestFailureLevel.get();
+        }
+
+        /**
+         * @return whether every part has its sent status or the send has timed out
+         */
+        public boolean isComplete() {
+            return mComplete.get();
+        }
+
+        /**
+         * @return the time from handing the message to the radio until it completed, or -1 if
+         *         it hasn't yet
+         */
+        public long getLatencyMs() {
+            return isComplete() ? mCompleteTime - mSubmitTime : -1;
+        }
+
+        /**
+         * Give up on the parts still pending
+         *
+         * @return false if the send had already completed
+         */
+        boolean timeOut() {
+            return complete();
+        }
+
+        private boolean complete() {
+            if (!mComplete.compareAndSet(false, true)) {
+                return false;
+            }
+            mCompleteTime = SystemClock.elapsedRealtime();
+            if (mRequestId != null) {
+                sPendingMessageMap.remove(mRequestId, this);
+            }
+            if (mTimeout != null) {
+                ThreadUtil.getMainThreadHandler().removeCallbacks(mTimeout);
+            }
+            releaseWakeLock();
+            if (hasPending()) {
+                LogUtil.e(TAG, "SmsSender: sending timed out with " + mPendingParts.get()
+                        + " of " + mNumOfParts + " parts pending. requestId=" + mRequestId);
+            } else {
+                LogUtil.i(TAG, "SmsSender: sent " + mNumOfParts + " parts in "
+                        + getLatencyMs() + "ms. requestId=" + mRequestId
+                        + " failureLevel=" + getHighestFailureLevel());
+            }
+            synchronized (this) {
+                notifyAll();
+            }
+            if (mCallback != null) {
+                mCallback.onSendComplete(this);
+            }
+            return true;
+        }
+
+        private void acquireWakeLock(final Context context) {
+            sWakeLock.acquire(context, sWakeLockIntent, WAKELOCK_OP);
+            mHoldsWakeLock.set(true);
+        }
+
+        private void releaseWakeLock() {
+            if (mHoldsWakeLock.getAndSet(false)) {
+                sWakeLock.release(sWakeLockIntent, WAKELOCK_OP);
+            }
         }
 
         private int getFailureLevel(final int resultCode) {
@@ -132,17 +236,18 @@ public class SmsSender {
 
         private void setHighestFailureLevel(final int resultCode) {
             final int level = getFailureLevel(resultCode);
-            if (level > mHighestFailureLevel) {
-                mHighestFailureLevel = level;
-            }
+            int highest;
+            do {
+                highest = mHighestFailureLevel.get();
+            } while (level > highest && !mHighestFailureLevel.compareAndSet(highest, level));
         }
 
         @Override
         public String toString() {
             final StringBuilder sb = new StringBuilder();
             sb.append("SendResult:");
-            sb.append("Pending=").append(mPendingParts).append(",");
-            sb.append("HighestFailureLevel=").append(mHighestFailureLevel);
+            sb.append("Pending=").append(mPendingParts.get()).append(",");
+            sb.append("HighestFailureLevel=").append(mHighestFailureLevel.get());
             return sb.toString();
         }
     }
@@ -154,12 +259,7 @@ public class SmsSender {
         if (requestId != null) {
             result = sPendingMessageMap.get(requestId);
             if (result != null) {
-                synchronized (result) {
-                    result.setPartResult(resultCode);
-                    if (!result.hasPending()) {
-                        result.notifyAll();
-                    }
-                }
+                result.setPartResult(resultCode);
             } else {
                 LogUtil.e(TAG, "SmsSender: ignoring sent result. " + " requestId=" + requestId
                         + " partId=" + partId + " resultCode=" + resultCode);
@@ -210,6 +310,70 @@ public class SmsSender {
     public static SendResult sendMessage(final Context context,  final int subId, String dest,
             String message, final String serviceCenter, final boolean requireDeliveryReport,
             final Uri messageUri) throws SmsException {
+        final SendResult pendingResult = startSending(context, subId, dest, message,
+                serviceCenter, requireDeliveryReport, messageUri, null /* callback */);
+        // Wait for pending intent to come back
+        synchronized (pendingResult) {
+            final long smsSendTimeoutInMillis = getSendTimeoutMillis();
+            final long beginTime = SystemClock.elapsedRealtime();
+            long waitTime = smsSendTimeoutInMillis;
+            // We could possibly be woken up while still pending
+            // so make sure we wait the full timeout period unless
+            // we have the send results of all parts.
+            while (!pendingResult.isComplete() && waitTime > 0) {
+                try {
+                    pendingResult.wait(waitTime);
+                } catch (final InterruptedException e) {
+                    LogUtil.e(TAG, "SmsSender: sending wait interrupted");
+                }
+                waitTime = smsSendTimeoutInMillis - (SystemClock.elapsedRealtime() - beginTime);
+            }
+        }
+        // Either we timed out or have all the results (success or failure)
+        pendingResult.timeOut();
+        if (LogUtil.isLoggable(TAG, LogUtil.VERBOSE)) {
+            LogUtil.v(TAG, "SmsSender: sending completed. " +
+                    "dest=" + dest + " message=" + message + " result=" + pendingResult);
+        }
+        return pendingResult;
+    }
+
+    /**
+     * Hand a message to the radio without waiting for its sent status, so the parts of many
+     * messages can be in the radio's queue at once.
+     *
+     * @param callback told when the sent status of every part is back or the send times out
+     * @return the result the sent status of the parts is collected in
+     */
+    public static SendResult submitMessage(final Context context, final int subId,
+            final String dest, final String message, final String serviceCenter,
+            final boolean requireDeliveryReport, final Uri messageUri,
+            final SendCallback callback) throws SmsException {
+        Assert.notNull(callback);
+        final SendResult pendingResult = startSending(context, subId, dest, message,
+                serviceCenter, requireDeliveryReport, messageUri, callback);
+        pendingResult.mTimeout = new Runnable() {
+            @Override
+            public void run() {
+                pendingResult.timeOut();
+            }
+        };
+        if (!pendingResult.isComplete()) {
+            ThreadUtil.getMainThreadHandler().postDelayed(pendingResult.mTimeout,
+                    getSendTimeoutMillis());
+        }
+        return pendingResult;
+    }
+
+    private static long getSendTimeoutMillis() {
+        return BugleGservices.get().getLong(
+                BugleGservicesKeys.SMS_SEND_TIMEOUT_IN_MILLIS,
+                BugleGservicesKeys.SMS_SEND_TIMEOUT_IN_MILLIS_DEFAULT);
+    }
+
+    private static SendResult startSending(final Context context, final int subId, String dest,
+            String message, final String serviceCenter, final boolean requireDeliveryReport,
+            final Uri messageUri, final SendCallback callback) throws SmsException {
         if (LogUtil.isLoggable(TAG, LogUtil.VERBOSE)) {
             LogUtil.v(TAG, "SmsSender: sending message. " +
                     "dest=" + dest + " message=" + message +
@@ -272,7 +436,12 @@ public class SmsSender {
             }
         }
         // Prepare the send result, which collects the send status for each part
-        final SendResult pendingResult = new SendResult(messages.size());
+        final SendResult pendingResult = new SendResult(messages.size(), callback);
+        pendingResult.mRequestId = messageUri;
+        if (callback != null) {
+            // Nothing waits on the result, so keep the device awake until the parts report
+            pendingResult.acquireWakeLock(context);
+        }
         sPendingMessageMap.put(messageUri, pendingResult);
 
         //fdn feature for sms begin 489520 begin
@@ -304,32 +473,13 @@ public class SmsSender {
         //fdn feature for sms begin 489520 end
 
         // Actually send the sms
-        sendInternal(
-                context, subId, dest, messages, serviceCenter, requireDeliveryReport, messageUri);
-        // Wait for pending intent to come back
-        synchronized (pendingResult) {
-            final long smsSendTimeoutInMillis = BugleGservices.get().getLong(
-                    BugleGservicesKeys.SMS_SEND_TIMEOUT_IN_MILLIS,
-                    BugleGservicesKeys.SMS_SEND_TIMEOUT_IN_MILLIS_DEFAULT);
-            final long beginTime = SystemClock.elapsedRealtime();
-            long waitTime = smsSendTimeoutInMillis;
-            // We could possibly be woken up while still pending
-            // so make sure we wait the full timeout period unless
-            // we have the send results of all parts.
-            while (pendingResult.hasPending() && waitTime > 0) {
-                try {
-                    pendingResult.wait(waitTime);
-                } catch (final InterruptedException e) {
-                    LogUtil.e(TAG, "SmsSender: sending wait interrupted");
-                }
-                waitTime = smsSendTimeoutInMillis - (SystemClock.elapsedRealtime() - beginTime);
-            }
-        }
-        // Either we timed out or have all the results (success or failure)
-        sPendingMessageMap.remove(messageUri);
-        if (LogUtil.isLoggable(TAG, LogUtil.VERBOSE)) {
-            LogUtil.v(TAG, "SmsSender: sending completed. " +
-                    "dest=" + dest + " message=" + message + " result=" + pendingResult);
+        try {
+            sendInternal(context, subId, dest, messages, serviceCenter, requireDeliveryReport,
+                    messageUri);
+        } catch (final SmsException | RuntimeException e) {
+            sPendingMessageMap.remove(messageUri, pendingResult);
+            pendingResult.releaseWakeLock();
+            throw e;
         }
         return pendingResult;
     }
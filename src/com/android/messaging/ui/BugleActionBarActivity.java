@@ -30,6 +30,7 @@ import com.android.messaging.R;
 import com.android.messaging.util.BugleActivityUtil;
 import com.android.messaging.util.ImeUtil;
 import com.android.messaging.util.LogUtil;
+import com.android.messaging.util.StartupScheduler;
 import com.android.messaging.util.UiUtils;
 
 import java.util.HashSet;
@@ -95,6 +96,9 @@ public class BugleActionBarActivity extends AppCompatActivity implements ImeUtil
             LogUtil.v(LogUtil.BUGLE_TAG, this.getLocalClassName() + ".onResume");
         }
         BugleActivityUtil.onActivityResume(this, BugleActionBarActivity.this);
+        // Leave the rest of app startup until this activity has shown its first frame
+        StartupScheduler.startDeferredTasksAfterDraw(getWindow().getDecorView(),
+                getLocalClassName());
     }
 
     @Override
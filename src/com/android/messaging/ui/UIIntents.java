@@ -116,7 +116,7 @@ public static final String ACTION_TOAST_COPY_MESSAGE_TO_SIM =
 
     public static final String UI_INTENT_EXTRA_SELF_ID = "self_id";
 
-    // Message position to scroll to.
+    // Message position to scroll to, counted back from the newest message.
     public static final String UI_INTENT_EXTRA_MESSAGE_POSITION = "message_position";
 
     /**
@@ -400,6 +400,9 @@ public class ConversationFragment extends Fragment implements ConversationDataLi
         }
     }
 
+    // How close to the oldest loaded message the list may scroll before older ones are loaded
+    private static final int OLDER_MESSAGES_PREFETCH_DISTANCE = 30;
+
     private int mScrollToDismissThreshold;
     private final RecyclerView.OnScrollListener mListScrollListener =
             new RecyclerView.OnScrollListener() {
@@ -448,6 +451,15 @@ public class ConversationFragment extends Fragment implements ConversationDataLi
                         mConversationComposeDivider.animate().alpha(isScrolledToBottom() ? 0 : 1);
                         mWasScrolledToBottom = isScrolledToBottom();
                     }
+                    // Fetch the next page of older messages before the user reaches the top
+                    if (dy < 0 && mBinding.isBound()) {
+                        final LinearLayoutManager layoutManager =
+                                (LinearLayoutManager) mRecyclerView.getLayoutManager();
+                        if (layoutManager.findFirstVisibleItemPosition()
+                                < OLDER_MESSAGES_PREFETCH_DISTANCE) {
+                            mBinding.getData().loadOlderMessages();
+                        }
+                    }
                 }
             };
 
@@ -1366,7 +1378,9 @@ public class ConversationFragment extends Fragment implements ConversationDataLi
                             " scrollToPos: " + scrollToPos +
                             " cursorCount: " + cursor.getCount());
                 }
-                scrollToPosition(scrollToPos, true /*smoothScroll*/);
+                // The position counts back from the newest message, which is always loaded
+                scrollToPosition(Math.max(cursor.getCount() - 1 - scrollToPos, 0),
+                        true /*smoothScroll*/);
                 clearScrollToMessagePosition();
             }
         }
@@ -83,6 +83,7 @@ import com.android.messaging.util.ImageUtils;
 import com.android.messaging.util.LinkSpec;
 import com.android.messaging.util.LinkifyUtil;
 import com.android.messaging.util.LogUtil;
+import com.android.messaging.util.MessageLinksCache;
 import com.android.messaging.util.OsUtil;
 import com.android.messaging.util.PhoneUtils;
 import com.android.messaging.util.UiUtils;
@@ -856,7 +857,7 @@ public class ConversationMessageView extends FrameLayout implements View.OnClick
                 msg.obj = mMessageTextView;
                 mLinksHandler.sendMessage(msg);
             } else {
-                mMessageTextHasLinks = computeLinkfyInUIThread(mMessageTextView);
+                mMessageTextHasLinks = applyMessageLinks(mMessageTextView);
             }
         } else {
             mMessageTextView.setVisibility(View.GONE);
@@ -864,41 +865,28 @@ public class ConversationMessageView extends FrameLayout implements View.OnClick
         }
     }
 
-    private boolean computeLinkfyInUIThread(TextView text) {
+    /**
+     * Add the links of the message text to the text view. The links of each message are found
+     * once, usually while the message list loads, and kept in {@link MessageLinksCache}.
+     */
+    private boolean applyMessageLinks(final TextView textView) {
         try {
-            if (text == null) {
+            final CharSequence text = textView.getText();
+            if (TextUtils.isEmpty(text)) {
                 return false;
             }
-
-            if (TextUtils.isEmpty(text.getText())) {
+            final List<LinkSpec> links = MessageLinksCache.get().getLinks(mData.getMessageId(),
+                    text.toString());
+            if (links.isEmpty()) {
                 return false;
             }
-
-            List<LinkSpec> links = null;
-            SpannableString s = null;
-            CharSequence t = text.getText();
-            if (t instanceof Spannable) {
-                links = LinkifyUtil.computeNewLinks((Spannable) t, Linkify.ALL);
-            } else {
-                s = SpannableString.valueOf(t);
-                links = LinkifyUtil.computeNewLinks(s, Linkify.ALL);
-            }
-
-            if (links.size() == 0) {
-                return false;
-            }
-
-            if (s == null) {
-                LinkifyUtil.applyLinks(links, (Spannable) t);
-                LinkifyUtil.addLinkMovementMethod(text);
-            } else {
-                LinkifyUtil.applyLinks(links, s);
-                LinkifyUtil.addLinkMovementMethod(text);
-                text.setText(s);
-            }
-        }catch (Exception ex){
-            Log.d(TAG, "computeLinkfyInUIThread ",ex.fillInStackTrace());
-            return  false;
+            final SpannableString s = SpannableString.valueOf(text);
+            LinkifyUtil.applyLinks(links, s);
+            LinkifyUtil.addLinkMovementMethod(textView);
+            textView.setText(s);
+        } catch (Exception ex) {
+            Log.d(TAG, "applyMessageLinks ", ex.fillInStackTrace());
+            return false;
         }
         return true;
     }
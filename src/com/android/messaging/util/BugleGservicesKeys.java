@@ -62,6 +62,12 @@ public final class BugleGservicesKeys {
     public static final String MESSAGE_DOWNLOAD_TIMEOUT_MS = "bugle_download_timeout_in_millis";
     public static final long MESSAGE_DOWNLOAD_TIMEOUT_MS_DEFAULT = 20 * 60 * 1000L;
 
+    /**
+     * Most SMS messages to have sending at once on each SIM
+     */
+    public static final String MAX_SMS_IN_FLIGHT_PER_SUB = "bugle_max_sms_in_flight_per_sub";
+    public static final int MAX_SMS_IN_FLIGHT_PER_SUB_DEFAULT = 4;
+
     /**
      * Time in milliseconds for SMS send timeout
      */
@@ -100,6 +106,14 @@ public final class BugleGservicesKeys {
     public static final int SMS_SYNC_BATCH_MAX_MESSAGES_TO_SCAN_DEFAULT =
             SMS_SYNC_BATCH_SIZE_MAX_DEFAULT * 4;
 
+    /**
+     * Number of messages written to the local database by a sync batch in each transaction, so
+     * that other writers are not blocked for the whole batch.
+     */
+    public static final String SMS_SYNC_WRITE_CHUNK_SIZE =
+            "bugle_sms_sync_write_chunk_size";
+    public static final int SMS_SYNC_WRITE_CHUNK_SIZE_DEFAULT = 100;
+
     /**
      * Time in ms for sync to backoff from "now" to the latest message that will be sync'd.
      *
@@ -296,4 +310,11 @@ public final class BugleGservicesKeys {
      */
     public static final String ENABLE_GIF_TRANSCODING = "bugle_gif_transcoding";
     public static final boolean ENABLE_GIF_TRANSCODING_DEFAULT = true;
+
+    /**
+     * Whether short actions started while the app is in the foreground are executed in process
+     * rather than parceled and queued to the ActionService.
+     */
+    public static final String IN_PROCESS_ACTIONS_ENABLED = "bugle_in_process_actions_enabled";
+    public static final boolean IN_PROCESS_ACTIONS_ENABLED_DEFAULT = true;
 }
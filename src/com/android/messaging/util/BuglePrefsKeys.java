@@ -48,6 +48,20 @@ public final class BuglePrefsKeys {
     public static final long LAST_FULL_SYNC_TIME_DEFAULT
             = -1;
 
+    /**
+     * Checkpoint of an unfinished sync: the bounds and start timestamp of the next batch to run.
+     * Lets a sync interrupted by the process being killed continue where it stopped instead of
+     * rescanning from the most recent message.
+     */
+    public static final String SYNC_CHECKPOINT_LOWER_BOUND
+            = "sync_checkpoint_lower_bound";
+    public static final String SYNC_CHECKPOINT_UPPER_BOUND
+            = "sync_checkpoint_upper_bound";
+    public static final String SYNC_CHECKPOINT_START_TIMESTAMP
+            = "sync_checkpoint_start_timestamp";
+    public static final long SYNC_CHECKPOINT_DEFAULT
+            = -1;
+
     /**
      * Timestamp of the message for which we last did a message notification.
      */
@@ -68,5 +82,29 @@ public final class BuglePrefsKeys {
     public static final String PROCESS_PENDING_MESSAGES_RETRY_COUNT
             = "process_pending_retry";
 
+    /**
+     * Whether messages written before the search index existed have all been indexed
+     */
+    public static final String SEARCH_INDEX_BACKFILL_COMPLETE
+            = "search_index_backfill_complete";
+    public static final boolean SEARCH_INDEX_BACKFILL_COMPLETE_DEFAULT
+            = false;
+
+    /**
+     * Highest message id covered by the search index backfill so far
+     */
+    public static final String SEARCH_INDEX_BACKFILL_WATERMARK
+            = "search_index_backfill_watermark";
+    public static final long SEARCH_INDEX_BACKFILL_WATERMARK_DEFAULT
+            = 0;
+
+    /**
+     * Latest contact update time (in millis) that participants have been refreshed against
+     */
+    public static final String CONTACTS_REFRESH_WATERMARK
+            = "contacts_refresh_watermark";
+    public static final long CONTACTS_REFRESH_WATERMARK_DEFAULT
+            = -1;
+
     public static final String KEY_SMS_WAP_PREF = BuglePrefs.SHARED_PREFERENCES_PER_SUBSCRIPTION_PREFIX + "k_sms_wap";// by sprd
 }
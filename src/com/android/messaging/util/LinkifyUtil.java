@@ -36,6 +36,7 @@ import com.android.messaging.R;
 import com.android.messaging.datamodel.data.ParticipantData;
 import com.android.messaging.sms.MmsConfig;
 import com.android.messaging.sms.MmsSmsUtils;
+import com.google.common.annotations.VisibleForTesting;
 import com.sprd.messaging.util.SystemAdapter;
 
 import java.io.UnsupportedEncodingException;
@@ -55,12 +56,81 @@ public class LinkifyUtil extends Linkify {
     public static int mark = 0;
     private static final int PHONE_NUMBERS_MMS = 0x16;//for bug628776
 
+    // Phone numbers with commas and USSD codes, for carriers that enable the number filter
+    private static final Pattern PHONE_NUMBER_MMS_PATTERN = Pattern.compile(
+            // sdd = space, dot, or dash
+            "((\\+[0-9]+[\\- \\.]*)?"         // +<digits><sdd>*
+                    + "(\\([0-9]+\\)[\\- \\.]*)?"     // (<digits>)<sdd>*
+                    + "([0-9][0-9\\- \\. \\,]+[0-9])"     // <digit><digit|sdd>+<digit>
+                    + "|[([\\*\\#]*[0-9]+[\\*\\#]*)]{3,255})");// USSD
+
+    // What one pass over the text found that some kind of link needs. Each pattern pass below
+    // only runs if the text has what every match of that pattern contains.
+    private static final int FEATURE_DIGIT = 1;             // any digit, for map addresses
+    private static final int FEATURE_TWO_DIGITS = 1 << 1;   // phone numbers
+    private static final int FEATURE_PHONE_SYMBOL = 1 << 2; // USSD codes: ( ) * # +
+    private static final int FEATURE_AT = 1 << 3;           // email addresses
+    private static final int FEATURE_HOST = 1 << 4;         // a dot inside a word, for urls
+    private static final int FEATURE_DATE = 1 << 5;         // the year character of a date
+    private static final int ALL_FEATURES = (1 << 6) - 1;
+
     public static List<LinkSpec> computeNewLinks(Spannable text, int mask) {
         ArrayList<LinkSpec> links = new ArrayList<LinkSpec>();
         if (mask == 0) {
             return links;
         }
-        return computeNewLinksInternal(text, mask);
+        return computeNewLinksInternal(text, mask, scanLinkFeatures(text));
+    }
+
+    /**
+     * Same as {@link #computeNewLinks} but running every pattern pass, whatever the text holds
+     */
+    @VisibleForTesting
+    static List<LinkSpec> computeNewLinksWithAllPasses(Spannable text, int mask) {
+        if (mask == 0) {
+            return new ArrayList<LinkSpec>();
+        }
+        return computeNewLinksInternal(text, mask, ALL_FEATURES);
+    }
+
+    /**
+     * Find in a single pass over the text which kinds of links it could hold. Most messages
+     * have no links, and this lets them skip most or all of the full regex scans.
+     */
+    @VisibleForTesting
+    static int scanLinkFeatures(CharSequence text) {
+        int features = 0;
+        int digits = 0;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                features |= ++digits >= 2 ? FEATURE_DIGIT | FEATURE_TWO_DIGITS : FEATURE_DIGIT;
+            } else if (c == '.') {
+                // A host name is a label of ASCII letters, digits and dashes, a dot, then a top
+                // level domain, which may be non-ASCII; an IP address is dotted digits
+                if (i > 0 && i + 1 < length && isHostLabelChar(text.charAt(i - 1))
+                        && Character.isLetterOrDigit(text.charAt(i + 1))) {
+                    features |= FEATURE_HOST;
+                }
+            } else if (c == '@') {
+                features |= FEATURE_AT;
+            } else if (c == '(' || c == ')' || c == '*' || c == '#' || c == '+') {
+                features |= FEATURE_PHONE_SYMBOL;
+            } else if (c == '\u5e74') {
+                features |= FEATURE_DATE;
+            } else if (Character.isDigit(c)) {
+                // Map addresses are found outside of the regex patterns, which only take
+                // ASCII digits
+                features |= FEATURE_DIGIT;
+            }
+        }
+        return features;
+    }
+
+    private static boolean isHostLabelChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-';
     }
 
     public static void addLinkMovementMethod(TextView t) {
@@ -85,45 +155,46 @@ public class LinkifyUtil extends Linkify {
         }
     }
 
-    private static List<LinkSpec> computeNewLinksInternal(Spannable text, int mask) {
+    private static List<LinkSpec> computeNewLinksInternal(Spannable text, int mask,
+            int features) {
         ArrayList<LinkSpec> links = new ArrayList<LinkSpec>();
         if (mask == 0) {
             return links;
         }
 
-        if (MmsConfig.getCtccSdkEnabled()) {//bug 998436
+        if (MmsConfig.getCtccSdkEnabled() && (features & FEATURE_DATE) != 0) {//bug 998436
             gatherDateLinks(links, text);
         }
 
-        if ((mask & WEB_URLS) != 0) {
+        if ((mask & WEB_URLS) != 0 && (features & FEATURE_HOST) != 0) {
             gatherLinksSprd(links, text, SystemAdapter.WEB_URL_FOR_TEXTVIEW,//Patterns.WEB_URL_FOR_TEXTVIEW,
                     new String[]{"http://", "https://", "rtsp://"},
                     sUrlMatchFilter, null, mask);
         }
 
-        if ((mask & EMAIL_ADDRESSES) != 0) {
+        if ((mask & EMAIL_ADDRESSES) != 0 && (features & FEATURE_AT) != 0) {
             gatherLinksSprd(links, text, Patterns.EMAIL_ADDRESS,
                     new String[]{"mailto:"},
                     null, null, mask);
         }
-        LogUtil.d(TAG, "getNumberVdfFilterEnable() = " + MmsConfig.get(ParticipantData.DEFAULT_SELF_SUB_ID).getNumberVdfFilterEnable());
-        if ((mask & PHONE_NUMBERS) != 0) {
+        final MmsConfig mmsConfig = MmsConfig.get(ParticipantData.DEFAULT_SELF_SUB_ID);
+        if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
+            LogUtil.d(TAG, "getNumberVdfFilterEnable() = " + mmsConfig.getNumberVdfFilterEnable());
+        }
+        if ((mask & PHONE_NUMBERS) != 0 && (features & FEATURE_TWO_DIGITS) != 0) {
             gatherLinksSprd(links, text, Patterns.PHONE, new String[]{"tel:"}, sPhoneNumberMatchFilter, sPhoneNumberTransformFilter, mask);
         }
 
-        if ((mask & MAP_ADDRESSES) != 0) {
+        if ((mask & MAP_ADDRESSES) != 0 && (features & FEATURE_DIGIT) != 0) {
             gatherMapLinks(links, text);
         }
-        LogUtil.d(TAG, "getNumberFilter =" + MmsConfig.get(ParticipantData.DEFAULT_SELF_SUB_ID).getNumberFilterEnable());
+        if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
+            LogUtil.d(TAG, "getNumberFilter =" + mmsConfig.getNumberFilterEnable());
+        }
         //for bug628776 begin
-        if ((mask & PHONE_NUMBERS_MMS) != 0 &&
-                MmsConfig.get(ParticipantData.DEFAULT_SELF_SUB_ID).getNumberFilterEnable()) {
-            Pattern phoneNumberPattern = Pattern.compile(    // sdd = space, dot, or dash
-                    "((\\+[0-9]+[\\- \\.]*)?"         // +<digits><sdd>*
-                            + "(\\([0-9]+\\)[\\- \\.]*)?"     // (<digits>)<sdd>*
-                            + "([0-9][0-9\\- \\. \\,]+[0-9])"     // <digit><digit|sdd>+<digit>
-                            + "|[([\\*\\#]*[0-9]+[\\*\\#]*)]{3,255})");// USSD
-            gatherLinksSprd(links, text, phoneNumberPattern,
+        if ((mask & PHONE_NUMBERS_MMS) != 0 && mmsConfig.getNumberFilterEnable()
+                && (features & (FEATURE_TWO_DIGITS | FEATURE_PHONE_SYMBOL)) != 0) {
+            gatherLinksSprd(links, text, PHONE_NUMBER_MMS_PATTERN,
                     new String[]{"tel:"},
                     null, null, mask);
         }
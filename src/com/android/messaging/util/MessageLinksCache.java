@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.util;
+
+import android.text.SpannableString;
+import android.text.TextUtils;
+import android.text.util.Linkify;
+import android.util.LruCache;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the links found in the text of recently shown messages, keyed by message id, so that
+ * each message text is scanned by {@link LinkifyUtil#computeNewLinks} once rather than every time
+ * its bubble is bound. Entries remember the hash and length of the text they were computed from
+ * and are ignored if the message text no longer matches.
+ */
+public class MessageLinksCache {
+    private static final String TAG = LogUtil.BUGLE_TAG;
+
+    // Number of messages to keep the links of; most have none, which is cached too
+    private static final int MAX_ENTRIES = 1024;
+
+    private static final MessageLinksCache sInstance = new MessageLinksCache(MAX_ENTRIES);
+
+    private static class Entry {
+        final int mTextHash;
+        final int mTextLength;
+        final List<LinkSpec> mLinks;
+
+        Entry(final String text, final List<LinkSpec> links) {
+            mTextHash = text.hashCode();
+            mTextLength = text.length();
+            mLinks = links;
+        }
+
+        boolean matches(final String text) {
+            return mTextLength == text.length() && mTextHash == text.hashCode();
+        }
+    }
+
+    private final LruCache<String, Entry> mEntries;
+
+    private final AtomicLong mHitCount = new AtomicLong();
+    private final AtomicLong mComputeCount = new AtomicLong();
+    private final AtomicLong mComputeNanos = new AtomicLong();
+
+    public static MessageLinksCache get() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    MessageLinksCache(final int maxEntries) {
+        mEntries = new LruCache<String, Entry>(maxEntries);
+    }
+
+    /**
+     * @return the cached links of the message, or null if they haven't been computed for this
+     *     text of the message
+     */
+    public List<LinkSpec> getCachedLinks(final String messageId, final String text) {
+        if (messageId == null || TextUtils.isEmpty(text)) {
+            return null;
+        }
+        final Entry entry = mEntries.get(messageId);
+        if (entry == null || !entry.matches(text)) {
+            return null;
+        }
+        mHitCount.incrementAndGet();
+        return entry.mLinks;
+    }
+
+    /**
+     * @return the links of the message, computing and caching them if needed
+     */
+    public List<LinkSpec> getLinks(final String messageId, final String text) {
+        final List<LinkSpec> cached = getCachedLinks(messageId, text);
+        if (cached != null) {
+            return cached;
+        }
+        if (TextUtils.isEmpty(text)) {
+            return Collections.emptyList();
+        }
+        final long start = System.nanoTime();
+        final List<LinkSpec> links = Collections.unmodifiableList(
+                LinkifyUtil.computeNewLinks(SpannableString.valueOf(text), Linkify.ALL));
+        mComputeNanos.addAndGet(System.nanoTime() - start);
+        mComputeCount.incrementAndGet();
+        if (messageId != null) {
+            mEntries.put(messageId, new Entry(text, links));
+        }
+        return links;
+    }
+
+    /**
+     * Compute and cache the links of the message ahead of it being shown, unless they are
+     * cached already. Runs off the main thread, and never fails the caller.
+     */
+    @Assert.DoesNotRunOnMainThread
+    public void precompute(final String messageId, final String text) {
+        try {
+            getLinks(messageId, text);
+        } catch (final Exception e) {
+            LogUtil.w(TAG, "MessageLinksCache: failed to find links of message " + messageId, e);
+        }
+    }
+
+    public void clear() {
+        mEntries.evictAll();
+    }
+
+    @VisibleForTesting
+    long getComputeCount() {
+        return mComputeCount.get();
+    }
+
+    /**
+     * Dump how often links were found from the cache and how long computing them took
+     */
+    public void dump(final PrintWriter writer) {
+        final long computed = mComputeCount.get();
+        writer.println("Message links cache: " + mEntries.size() + " entries, "
+                + mHitCount.get() + " hits, " + computed + " computed"
+                + (computed > 0 ? ", " + mComputeNanos.get() / computed / 1000 + "us each" : ""));
+    }
+}
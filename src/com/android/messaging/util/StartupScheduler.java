@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.util;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the work of starting up the app as named tasks with dependencies. Critical tasks run in
+ * order on the calling thread as soon as {@link #runCriticalTasks} is called. Early background
+ * tasks, for state that receivers and the first screen read, start on the background thread pool
+ * right after them. Deferred tasks wait until the first activity has drawn its first frame, or a
+ * timeout if no activity shows up, and then run as soon as their dependencies are done, on the
+ * main thread or in parallel on the background thread pool. A task may only depend on tasks
+ * added before it.
+ *
+ * Each task runs in a {@link Trace} section named "startup.&lt;task&gt;", and its start time,
+ * duration and thread are kept for a startup report, which is logged once every task has run
+ * and included in the app's dumpsys output.
+ */
+public class StartupScheduler {
+    private static final String TAG = LogUtil.BUGLE_TAG;
+
+    /** Run on the thread calling {@link #runCriticalTasks}, before the first frame */
+    public static final int CRITICAL = 0;
+    /** Run on the main thread after the first frame */
+    public static final int DEFERRED_MAIN_THREAD = 1;
+    /** Run on the background thread pool after the first frame */
+    public static final int DEFERRED_BACKGROUND = 2;
+    /**
+     * Run on the background thread pool right after the critical tasks, without waiting for the
+     * first frame
+     */
+    public static final int EARLY_BACKGROUND = 3;
+
+    private static final String[] MODE_NAMES = new String[] {
+        "critical", "main", "background", "early",
+    };
+
+    // How long to wait for a first frame before starting the deferred tasks anyway, e.g. when
+    // the process was started to receive a message
+    private static final long FIRST_FRAME_TIMEOUT_MS = 2000;
+
+    // The scheduler of this process, kept for the first frame signal and the startup report
+    private static volatile StartupScheduler sInstance;
+
+    private static class Task {
+        final String mName;
+        final int mMode;
+        final Runnable mRunnable;
+        final List<Task> mDependents = new ArrayList<Task>();
+        int mPendingDependencies;
+        boolean mDispatched;
+        // Times are in ms since the scheduler was created, -1 until the task starts
+        long mStartMs = -1;
+        long mDurationMs;
+        String mThreadName;
+
+        Task(final String name, final int mode, final Runnable runnable) {
+            mName = name;
+            mMode = mode;
+            mRunnable = runnable;
+        }
+    }
+
+    private final Object mLock = new Object();
+    private final Executor mMainThreadExecutor;
+    private final Executor mBackgroundExecutor;
+    private final long mCreateTime;
+    private final List<Task> mTasks = new ArrayList<Task>();
+    private final Map<String, Task> mTasksByName = new HashMap<String, Task>();
+    private boolean mDeferredStarted;
+    private String mDeferredReason;
+    private long mDeferredStartMs = -1;
+    private long mCriticalDurationMs = -1;
+    private long mFinishMs = -1;
+    private int mCompletedCount;
+
+    private final Runnable mFirstFrameTimeout = new Runnable() {
+        @Override
+        public void run() {
+            startDeferredTasks("timeout");
+        }
+    };
+
+    public StartupScheduler() {
+        this(new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                ThreadUtil.getMainThreadHandler().post(runnable);
+            }
+        }, new Executor() {
+            @Override
+            public void execute(final Runnable runnable) {
+                SafeAsyncTask.executeOnThreadPool(runnable);
+            }
+        });
+    }
+
+    @VisibleForTesting
+    StartupScheduler(final Executor mainThreadExecutor, final Executor backgroundExecutor) {
+        mMainThreadExecutor = mainThreadExecutor;
+        mBackgroundExecutor = backgroundExecutor;
+        mCreateTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Add a task to run during startup
+     *
+     * @param name unique name of the task, used for dependencies and in the report
+     * @param mode one of {@link #CRITICAL}, {@link #EARLY_BACKGROUND},
+     *     {@link #DEFERRED_MAIN_THREAD} or {@link #DEFERRED_BACKGROUND}
+     * @param runnable the work of the task
+     * @param dependencies names of previously added tasks that must finish first. Critical tasks
+     *     may only depend on other critical tasks, and early tasks may not depend on deferred
+     *     ones.
+     */
+    public StartupScheduler add(final String name, final int mode, final Runnable runnable,
+            final String... dependencies) {
+        synchronized (mLock) {
+            Assert.isFalse(mTasksByName.containsKey(name));
+            Assert.isFalse(mCriticalDurationMs >= 0);
+            final Task task = new Task(name, mode, runnable);
+            for (final String dependency : dependencies) {
+                final Task required = mTasksByName.get(dependency);
+                Assert.notNull(required);
+                Assert.isTrue(mode != CRITICAL || required.mMode == CRITICAL);
+                Assert.isTrue(mode != EARLY_BACKGROUND || required.mMode == CRITICAL
+                        || required.mMode == EARLY_BACKGROUND);
+                required.mDependents.add(task);
+                task.mPendingDependencies++;
+            }
+            mTasks.add(task);
+            mTasksByName.put(name, task);
+        }
+        return this;
+    }
+
+    /**
+     * Run the critical tasks in the order they were added, start the early background tasks,
+     * then wait for the first frame, or the timeout, to start the deferred tasks
+     */
+    public void runCriticalTasks() {
+        final List<Task> critical = new ArrayList<Task>();
+        synchronized (mLock) {
+            for (final Task task : mTasks) {
+                if (task.mMode == CRITICAL) {
+                    task.mDispatched = true;
+                    critical.add(task);
+                }
+            }
+        }
+        final long start = SystemClock.elapsedRealtime();
+        for (final Task task : critical) {
+            runTask(task);
+        }
+        final List<Task> early = new ArrayList<Task>();
+        synchronized (mLock) {
+            mCriticalDurationMs = SystemClock.elapsedRealtime() - start;
+            for (final Task task : mTasks) {
+                if (task.mMode == EARLY_BACKGROUND && !task.mDispatched
+                        && task.mPendingDependencies == 0) {
+                    task.mDispatched = true;
+                    early.add(task);
+                }
+            }
+        }
+        dispatch(early);
+        sInstance = this;
+        ThreadUtil.getMainThreadHandler().postDelayed(mFirstFrameTimeout, FIRST_FRAME_TIMEOUT_MS);
+    }
+
+    /**
+     * Start the deferred startup tasks once a view, typically an activity's decor view, has
+     * drawn its first frame. Does nothing if they have already started.
+     *
+     * @param view the view to wait for
+     * @param screen the name of the screen, for the startup report
+     */
+    public static void startDeferredTasksAfterDraw(final View view, final String screen) {
+        final StartupScheduler scheduler = sInstance;
+        if (scheduler == null || scheduler.hasDeferredStarted()) {
+            return;
+        }
+        view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                if (view.getViewTreeObserver().isAlive()) {
+                    view.getViewTreeObserver().removeOnPreDrawListener(this);
+                }
+                // Posted messages run after the frame that is about to be drawn
+                ThreadUtil.getMainThreadHandler().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        scheduler.startDeferredTasks(screen);
+                    }
+                });
+                return true;
+            }
+        });
+    }
+
+    private boolean hasDeferredStarted() {
+        synchronized (mLock) {
+            return mDeferredStarted;
+        }
+    }
+
+    @VisibleForTesting
+    void startDeferredTasks(final String reason) {
+        final List<Task> ready = new ArrayList<Task>();
+        synchronized (mLock) {
+            if (mDeferredStarted) {
+                return;
+            }
+            mDeferredStarted = true;
+            mDeferredReason = reason;
+            mDeferredStartMs = SystemClock.elapsedRealtime() - mCreateTime;
+            for (final Task task : mTasks) {
+                if (!task.mDispatched && task.mPendingDependencies == 0) {
+                    task.mDispatched = true;
+                    ready.add(task);
+                }
+            }
+        }
+        ThreadUtil.getMainThreadHandler().removeCallbacks(mFirstFrameTimeout);
+        LogUtil.i(TAG, "StartupScheduler: starting deferred tasks "
+                + mDeferredStartMs + "ms after startup (" + reason + ")");
+        dispatch(ready);
+    }
+
+    private void dispatch(final List<Task> tasks) {
+        for (final Task task : tasks) {
+            if (task.mMode == DEFERRED_MAIN_THREAD) {
+                mMainThreadExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        runTask(task);
+                    }
+                });
+            } else {
+                mBackgroundExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Keep startup work from competing with the UI thread, without leaving
+                        // the pool thread at a lower priority for its next task
+                        final int tid = Process.myTid();
+                        final int priority = Process.getThreadPriority(tid);
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        try {
+                            runTask(task);
+                        } finally {
+                            Process.setThreadPriority(priority);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    private void runTask(final Task task) {
+        final long start = SystemClock.elapsedRealtime();
+        Trace.beginSection("startup." + task.mName);
+        try {
+            task.mRunnable.run();
+        } finally {
+            Trace.endSection();
+        }
+        final long end = SystemClock.elapsedRealtime();
+
+        final List<Task> ready = new ArrayList<Task>();
+        final boolean finished;
+        synchronized (mLock) {
+            task.mStartMs = start - mCreateTime;
+            task.mDurationMs = end - start;
+            task.mThreadName = Thread.currentThread().getName();
+            for (final Task dependent : task.mDependents) {
+                dependent.mPendingDependencies--;
+                // Critical tasks run in order anyway, early ones wait for the critical tasks and
+                // deferred ones for the first frame
+                final boolean started = (dependent.mMode == EARLY_BACKGROUND)
+                        ? mCriticalDurationMs >= 0 : mDeferredStarted;
+                if (dependent.mPendingDependencies == 0 && dependent.mMode != CRITICAL
+                        && started && !dependent.mDispatched) {
+                    dependent.mDispatched = true;
+                    ready.add(dependent);
+                }
+            }
+            mCompletedCount++;
+            finished = (mCompletedCount == mTasks.size());
+            if (finished) {
+                mFinishMs = end - mCreateTime;
+            }
+        }
+        dispatch(ready);
+        if (finished) {
+            logReport();
+        }
+    }
+
+    private void logReport() {
+        synchronized (mLock) {
+            LogUtil.i(TAG, "StartupScheduler: critical tasks took " + mCriticalDurationMs
+                    + "ms, deferred tasks started after " + mDeferredStartMs + "ms ("
+                    + mDeferredReason + "), all " + mTasks.size() + " tasks done after "
+                    + mFinishMs + "ms");
+            if (LogUtil.isLoggable(TAG, LogUtil.DEBUG)) {
+                for (final Task task : mTasks) {
+                    LogUtil.d(TAG, "StartupScheduler: " + task.mName + " started at "
+                            + task.mStartMs + "ms, took " + task.mDurationMs + "ms on "
+                            + task.mThreadName);
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    long getStartMs(final String name) {
+        synchronized (mLock) {
+            return mTasksByName.get(name).mStartMs;
+        }
+    }
+
+    /**
+     * Dump the startup report: when each task started and how long it took, in ms since the
+     * scheduler was created
+     */
+    public static void dump(final PrintWriter writer) {
+        final StartupScheduler scheduler = sInstance;
+        if (scheduler == null) {
+            return;
+        }
+        synchronized (scheduler.mLock) {
+            writer.print("Startup tasks (mode start duration thread, ms):");
+            if (OsUtil.isAtLeastN()) {
+                writer.print(" scheduler created "
+                        + (scheduler.mCreateTime - Process.getStartElapsedRealtime())
+                        + "ms after process start,");
+            }
+            writer.println(" critical " + scheduler.mCriticalDurationMs + "ms, deferred from "
+                    + scheduler.mDeferredStartMs + "ms ("
+                    + (scheduler.mDeferredStarted ? scheduler.mDeferredReason : "waiting")
+                    + "), done " + (scheduler.mFinishMs >= 0 ? scheduler.mFinishMs + "ms" : "no"));
+            for (final Task task : scheduler.mTasks) {
+                writer.println(String.format(Locale.US, "  %-24s %-10s %6d %6d %s",
+                        task.mName, MODE_NAMES[task.mMode], task.mStartMs, task.mDurationMs,
+                        task.mThreadName != null ? task.mThreadName : "-"));
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.appcompat.mms;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local HTTP/1.1 server standing in for an MMSC. It answers every GET with the same PDU and
+ * every POST with an empty body, keeps connections alive, and can add the latency of a cellular
+ * network to setting up connections and to each response.
+ */
+class FakeMmsc {
+    // Requests for paths starting with this get a 404
+    static final String MISSING_PATH = "/missing";
+
+    private final byte[] mPdu;
+    private final long mConnectDelayMs;
+    private final long mResponseDelayMs;
+    private final ServerSocket mServerSocket;
+    private final AtomicInteger mConnectionCount = new AtomicInteger();
+    private final AtomicInteger mRequestCount = new AtomicInteger();
+    private volatile boolean mClosed;
+
+    /**
+     * @param pdu the body of every GET response
+     * @param connectDelayMs the delay before answering the first request of a connection
+     * @param responseDelayMs the delay before answering each request
+     */
+    FakeMmsc(final byte[] pdu, final long connectDelayMs, final long responseDelayMs)
+            throws IOException {
+        mPdu = pdu;
+        mConnectDelayMs = connectDelayMs;
+        mResponseDelayMs = responseDelayMs;
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        final Thread acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, "FakeMmsc");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    String getUrl(final String path) {
+        return "http://127.0.0.1:" + mServerSocket.getLocalPort() + path;
+    }
+
+    int getConnectionCount() {
+        return mConnectionCount.get();
+    }
+
+    int getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    void close() {
+        mClosed = true;
+        try {
+            mServerSocket.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    private void acceptConnections() {
+        while (!mClosed) {
+            final Socket socket;
+            try {
+                socket = mServerSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+            mConnectionCount.incrementAndGet();
+            final Thread connectionThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    serveConnection(socket);
+                }
+            }, "FakeMmsc connection");
+            connectionThread.setDaemon(true);
+            connectionThread.start();
+        }
+    }
+
+    private void serveConnection(final Socket socket) {
+        try {
+            final InputStream in = new BufferedInputStream(socket.getInputStream());
+            final OutputStream out = socket.getOutputStream();
+            sleep(mConnectDelayMs);
+            while (!mClosed) {
+                final String requestLine = readLine(in);
+                if (requestLine == null || requestLine.isEmpty()) {
+                    break;
+                }
+                int contentLength = 0;
+                boolean keepAlive = true;
+                String header;
+                while ((header = readLine(in)) != null && !header.isEmpty()) {
+                    final String lowerCaseHeader = header.toLowerCase(Locale.US);
+                    if (lowerCaseHeader.startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(header.substring(15).trim());
+                    } else if (lowerCaseHeader.equals("connection: close")) {
+                        keepAlive = false;
+                    }
+                }
+                // Drop the body of a POST
+                for (int i = 0; i < contentLength; i++) {
+                    in.read();
+                }
+                mRequestCount.incrementAndGet();
+                sleep(mResponseDelayMs);
+
+                final String[] request = requestLine.split(" ");
+                final byte[] body;
+                final String status;
+                if (request.length > 1 && request[1].startsWith(MISSING_PATH)) {
+                    status = "404 Not Found";
+                    body = new byte[0];
+                } else {
+                    status = "200 OK";
+                    body = "GET".equals(request[0]) ? mPdu : new byte[0];
+                }
+                out.write(("HTTP/1.1 " + status + "\r\n"
+                        + "Content-Type: application/vnd.wap.mms-message\r\n"
+                        + "Content-Length: " + body.length + "\r\n"
+                        + (keepAlive ? "" : "Connection: close\r\n")
+                        + "\r\n").getBytes("US-ASCII"));
+                out.write(body);
+                out.flush();
+                if (!keepAlive) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // The client went away
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    private static String readLine(final InputStream in) throws IOException {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                line.write(c);
+            }
+        }
+        if (c == -1 && line.size() == 0) {
+            return null;
+        }
+        return line.toString("US-ASCII");
+    }
+
+    private static void sleep(final long delayMs) {
+        if (delayMs > 0) {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
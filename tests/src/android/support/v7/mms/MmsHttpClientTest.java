@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.appcompat.mms;
+
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests {@link MmsHttpClient} and {@link MmsRequestScheduler} against a {@link FakeMmsc}, and
+ * measures how long a burst of downloads takes to complete.
+ */
+public class MmsHttpClientTest extends AndroidTestCase {
+    private static final String TAG = "MmsHttpClientTest";
+
+    private static final String USER_AGENT = "Test";
+    private static final int BURST_SIZE = 20;
+    // Round trip times of a cellular network
+    private static final long CONNECT_DELAY_MS = 150;
+    private static final long RESPONSE_DELAY_MS = 100;
+
+    private final byte[] mPdu = new byte[100 * 1024];
+    private FakeMmsc mMmsc;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        new Random(0).nextBytes(mPdu);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (mMmsc != null) {
+            mMmsc.close();
+        }
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testDownloadStreamsResponse() throws Exception {
+        mMmsc = new FakeMmsc(mPdu, 0, 0);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final long size = download(new MmsHttpClient(getContext()), "/m1", out);
+        assertEquals(mPdu.length, size);
+        assertTrue(Arrays.equals(mPdu, out.toByteArray()));
+    }
+
+    @SmallTest
+    public void testConnectionReused() throws Exception {
+        mMmsc = new FakeMmsc(mPdu, 0, 0);
+        final MmsHttpClient client = new MmsHttpClient(getContext());
+        for (int i = 0; i < 5; i++) {
+            download(client, "/m" + i, new ByteArrayOutputStream());
+        }
+        assertEquals(5, mMmsc.getRequestCount());
+        assertEquals(1, mMmsc.getConnectionCount());
+    }
+
+    @SmallTest
+    public void testHttpError() throws Exception {
+        mMmsc = new FakeMmsc(mPdu, 0, 0);
+        try {
+            download(new MmsHttpClient(getContext()), FakeMmsc.MISSING_PATH,
+                    new ByteArrayOutputStream());
+            fail("Expected an MmsHttpException");
+        } catch (MmsHttpException e) {
+            assertEquals(404, e.getStatusCode());
+        }
+    }
+
+    @SmallTest
+    public void testUserInitiatedRequestsGoFirst() throws Exception {
+        final MmsRequestScheduler scheduler = new MmsRequestScheduler(1, 1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(4);
+        final List<String> order = new ArrayList<>();
+        scheduler.execute(0, false, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    // Carry on
+                }
+                done.countDown();
+            }
+        });
+        scheduler.execute(0, false, recordingRunnable("auto1", order, done));
+        scheduler.execute(0, false, recordingRunnable("auto2", order, done));
+        scheduler.execute(0, true, recordingRunnable("user", order, done));
+        blocked.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("user", "auto1", "auto2"), order);
+        scheduler.shutdown();
+    }
+
+    @SmallTest
+    public void testConcurrencyBoundedPerSub() throws Exception {
+        final MmsRequestScheduler scheduler = new MmsRequestScheduler(4, 2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(8);
+        for (int i = 0; i < 8; i++) {
+            scheduler.execute(1, false, new Runnable() {
+                @Override
+                public void run() {
+                    final int nowRunning = running.incrementAndGet();
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), nowRunning));
+                    }
+                    SystemClock.sleep(20);
+                    running.decrementAndGet();
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, maxRunning.get());
+        scheduler.shutdown();
+    }
+
+    @LargeTest
+    public void testBurstDownloadBenchmark() throws Exception {
+        // One at a time
+        mMmsc = new FakeMmsc(mPdu, CONNECT_DELAY_MS, RESPONSE_DELAY_MS);
+        final long sequentialStart = SystemClock.elapsedRealtime();
+        for (int i = 0; i < BURST_SIZE; i++) {
+            download(new MmsHttpClient(getContext()), "/m" + i, new ByteArrayOutputStream());
+        }
+        final long sequentialMs = SystemClock.elapsedRealtime() - sequentialStart;
+        final int sequentialConnections = mMmsc.getConnectionCount();
+        mMmsc.close();
+
+        // Through the scheduler
+        mMmsc = new FakeMmsc(mPdu, CONNECT_DELAY_MS, RESPONSE_DELAY_MS);
+        final MmsRequestScheduler scheduler = new MmsRequestScheduler(4, 3);
+        final MmsHttpClient client = new MmsHttpClient(getContext());
+        final CountDownLatch done = new CountDownLatch(BURST_SIZE);
+        final AtomicInteger failures = new AtomicInteger();
+        final long burstStart = SystemClock.elapsedRealtime();
+        for (int i = 0; i < BURST_SIZE; i++) {
+            final String path = "/m" + i;
+            scheduler.execute(0, false, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        download(client, path, new ByteArrayOutputStream());
+                    } catch (MmsHttpException e) {
+                        failures.incrementAndGet();
+                    }
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        final long burstMs = SystemClock.elapsedRealtime() - burstStart;
+        scheduler.shutdown();
+        assertEquals(0, failures.get());
+
+        Log.i(TAG, BURST_SIZE + " downloads of " + (mPdu.length / 1024) + "KB: sequential "
+                + sequentialMs + "ms over " + sequentialConnections + " connections; scheduled "
+                + burstMs + "ms over " + mMmsc.getConnectionCount() + " connections");
+    }
+
+    private long download(final MmsHttpClient client, final String path,
+            final ByteArrayOutputStream out) throws MmsHttpException {
+        return client.execute(mMmsc.getUrl(path), null/*pdu*/, MmsHttpClient.METHOD_GET,
+                false/*isProxySet*/, null/*proxyHost*/, 0/*proxyPort*/, new Bundle(), USER_AGENT,
+                null/*uaProfUrl*/, out);
+    }
+
+    private static Runnable recordingRunnable(final String name, final List<String> order,
+            final CountDownLatch done) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                synchronized (order) {
+                    order.add(name);
+                }
+                done.countDown();
+            }
+        };
+    }
+}
@@ -256,6 +256,11 @@ public class FakeFactory extends Factory {
         return this;
     }
 
+    public FakeFactory withBuglePrefs(final BuglePrefs buglePrefs) {
+        this.mBuglePrefs = buglePrefs;
+        return this;
+    }
+
     public FakeFactory withMediaCacheManager(final MediaCacheManager mediaCacheManager) {
         this.mMediaCacheManager = mediaCacheManager;
         return this;
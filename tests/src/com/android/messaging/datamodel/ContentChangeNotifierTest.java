@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel;
+
+import android.net.Uri;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import com.android.messaging.BugleTestCase;
+import com.android.messaging.FakeContext;
+import com.android.messaging.FakeFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+
+/**
+ * Tests how {@link ContentChangeNotifier} holds back and coalesces notifications.
+ */
+@SmallTest
+public class ContentChangeNotifierTest extends BugleTestCase {
+    private static final String TAG = "ContentChangeNotifierTest";
+
+    private static final int CONVERSATION_COUNT = 100;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final FakeContext context = new FakeContext(getTestContext());
+        FakeFactory.registerWithFakeContext(getTestContext(), context)
+                .withDataModel(new FakeDataModel(context));
+    }
+
+    public void testNotifiesAtOnceOutsideBatch() {
+        final long delivered = ContentChangeNotifier.getDeliveredCount();
+        ContentChangeNotifier.notifyChange(MessagingContentProvider.CONVERSATIONS_URI);
+        ContentChangeNotifier.notifyChange(MessagingContentProvider.CONVERSATIONS_URI);
+        assertEquals(delivered + 2, ContentChangeNotifier.getDeliveredCount());
+    }
+
+    public void testNestedBatchNotifiesOncePerUri() {
+        final long delivered = ContentChangeNotifier.getDeliveredCount();
+        ContentChangeNotifier.beginBatch();
+        ContentChangeNotifier.notifyChange(MessagingContentProvider.CONVERSATIONS_URI);
+        ContentChangeNotifier.beginBatch();
+        ContentChangeNotifier.notifyChange(MessagingContentProvider.CONVERSATIONS_URI);
+        ContentChangeNotifier.notifyChange(MessagingContentProvider.PARTS_URI);
+        ContentChangeNotifier.endBatch();
+        assertEquals(delivered, ContentChangeNotifier.getDeliveredCount());
+        ContentChangeNotifier.endBatch();
+        assertEquals(delivered + 2, ContentChangeNotifier.getDeliveredCount());
+    }
+
+    public void testTransactionHoldsNotifications() {
+        final DatabaseWrapper db = DataModel.get().getDatabase();
+        final long delivered = ContentChangeNotifier.getDeliveredCount();
+        db.beginTransaction();
+        try {
+            MessagingContentProvider.notifyPartsChanged();
+            MessagingContentProvider.notifyPartsChanged();
+            assertEquals(delivered, ContentChangeNotifier.getDeliveredCount());
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        assertEquals(delivered + 1, ContentChangeNotifier.getDeliveredCount());
+    }
+
+    public void testCoalesceDropsDescendants() {
+        final Uri messages = MessagingContentProvider.buildConversationMessagesUri("1");
+        final LinkedHashSet<Uri> uris = new LinkedHashSet<Uri>(Arrays.asList(messages,
+                MessagingContentProvider.CONVERSATIONS_URI,
+                MessagingContentProvider.buildConversationMetadataUri("1"),
+                MessagingContentProvider.CONVERSATION_MESSAGES_URI));
+        assertEquals(Arrays.asList(MessagingContentProvider.CONVERSATIONS_URI,
+                MessagingContentProvider.CONVERSATION_MESSAGES_URI),
+                ContentChangeNotifier.coalesce(uris));
+
+        final Uri root = Uri.parse("content://" + MessagingContentProvider.AUTHORITY + "/");
+        uris.add(root);
+        assertEquals(Arrays.asList(root), ContentChangeNotifier.coalesce(uris));
+    }
+
+    /**
+     * Count the notifications, each of which makes every matching loader requery, for changing
+     * the messages and metadata of many conversations without and with a bulk scope.
+     */
+    public void testBulkChangeNotificationCount() {
+        final long unbatchedStart = ContentChangeNotifier.getDeliveredCount();
+        changeConversations();
+        final long unbatched = ContentChangeNotifier.getDeliveredCount() - unbatchedStart;
+
+        final long batchedStart = ContentChangeNotifier.getDeliveredCount();
+        ContentChangeNotifier.beginBatch();
+        try {
+            changeConversations();
+        } finally {
+            ContentChangeNotifier.endBatch();
+        }
+        final long batched = ContentChangeNotifier.getDeliveredCount() - batchedStart;
+
+        Log.i(TAG, "Changing " + CONVERSATION_COUNT + " conversations sent " + unbatched
+                + " notifications unbatched, " + batched + " batched");
+        assertEquals(4 * CONVERSATION_COUNT, unbatched);
+        assertEquals(CONVERSATION_COUNT + 2, batched);
+    }
+
+    private static void changeConversations() {
+        for (int i = 0; i < CONVERSATION_COUNT; i++) {
+            final String conversationId = Integer.toString(i);
+            MessagingContentProvider.notifyMessagesChangedOnly(conversationId);
+            MessagingContentProvider.notifyConversationMetadataChangedOnly(conversationId);
+            MessagingContentProvider.notifyConversationListChangedOnly();
+        }
+    }
+}
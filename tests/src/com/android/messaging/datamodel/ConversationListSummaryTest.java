@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import com.android.messaging.BugleTestCase;
+import com.android.messaging.FakeContext;
+import com.android.messaging.FakeFactory;
+import com.android.messaging.datamodel.data.ConversationListData;
+import com.android.messaging.datamodel.data.ConversationListItemData;
+
+/**
+ * Checks that the triggers keep the conversation list summary table identical to the conversation
+ * list view, and compares the cost of loading the conversation list from each.
+ */
+public class ConversationListSummaryTest extends BugleTestCase {
+    private static final String TAG = "ConversationListSummaryTest";
+
+    private static final String VIEW = "conversation_list_view";
+    private static final String LIST_SELECTION = "sort_timestamp > 0 AND "
+            + ConversationListData.WHERE_NOT_ARCHIVED;
+    private static final int BENCHMARK_CONVERSATIONS = 5000;
+    private static final int BENCHMARK_ITERATIONS = 5;
+
+    private SQLiteDatabase mDb;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        final FakeContext context = new FakeContext(getTestContext());
+        FakeFactory.registerWithFakeContext(getTestContext(), context)
+                .withDataModel(new FakeDataModel(context));
+        mDb = DataModel.get().getDatabase().getDatabase();
+    }
+
+    @SmallTest
+    public void testTriggersFollowWrites() {
+        mDb.execSQL("INSERT INTO participants (_id, first_name, display_destination)"
+                + " VALUES (100, 'Ann', '555-0100')");
+        mDb.execSQL("INSERT INTO conversations (_id, name, sort_timestamp) VALUES (1, 'Ann', 0)");
+        assertSummaryMatchesView();
+
+        mDb.execSQL("INSERT INTO messages (_id, conversation_id, sender_id, read,"
+                + " message_status, received_timestamp) VALUES (10, 1, 100, 0, 100, 1000)");
+        mDb.execSQL("UPDATE conversations SET latest_message_id = 10, sort_timestamp = 1000,"
+                + " snippet_text = 'hi' WHERE _id = 1");
+        assertSummaryMatchesView();
+        assertEquals("hi", querySummaryString("snippet_text"));
+
+        // Changes to the latest message and its sender
+        mDb.execSQL("UPDATE messages SET read = 1 WHERE _id = 10");
+        assertEquals("1", querySummaryString("read"));
+        mDb.execSQL("UPDATE participants SET first_name = 'Annie' WHERE _id = 100");
+        assertEquals("Annie", querySummaryString("snippet_sender_first_name"));
+        assertSummaryMatchesView();
+
+        mDb.execSQL("DELETE FROM conversations WHERE _id = 1");
+        assertEquals(0, DatabaseUtils.queryNumEntries(mDb,
+                ConversationListItemData.getConversationListView()));
+    }
+
+    @SmallTest
+    public void testPopulateMatchesView() {
+        insertConversations(50);
+        mDb.execSQL("DELETE FROM " + ConversationListItemData.getConversationListView());
+        mDb.execSQL(ConversationListItemData.getPopulateConversationListSummarySql());
+        assertSummaryMatchesView();
+    }
+
+    @LargeTest
+    public void testLoadConversationListBenchmark() {
+        insertConversations(BENCHMARK_CONVERSATIONS);
+        assertSummaryMatchesView();
+        for (int round = 0; round < 2; round++) {
+            final long viewMs = timeListQuery(VIEW);
+            final long summaryMs =
+                    timeListQuery(ConversationListItemData.getConversationListView());
+            // The first round is a warm up
+            if (round > 0) {
+                Log.i(TAG, BENCHMARK_CONVERSATIONS + " conversations: view " + viewMs
+                        + "ms, summary table " + summaryMs + "ms per load");
+            }
+        }
+    }
+
+    private void insertConversations(final int count) {
+        mDb.beginTransaction();
+        try {
+            for (int i = 1; i <= count; i++) {
+                // Clear of the default self participant's id
+                final int participantId = 1000 + i;
+                mDb.execSQL("INSERT INTO participants (_id, first_name, display_destination)"
+                        + " VALUES (?, ?, ?)",
+                        new Object[] { participantId, "Name" + i, "555-" + i });
+                mDb.execSQL("INSERT INTO conversations (_id, name, archive_status)"
+                        + " VALUES (?, ?, ?)",
+                        new Object[] { i, "Name" + i, i % 10 == 0 ? 1 : 0 });
+                for (int j = 0; j < 3; j++) {
+                    final int messageId = i * 3 + j;
+                    mDb.execSQL("INSERT INTO messages (_id, conversation_id, sender_id, read,"
+                            + " message_status, received_timestamp) VALUES (?, ?, ?, ?, 100, ?)",
+                            new Object[] { messageId, i, participantId, j % 2, messageId });
+                }
+                mDb.execSQL("UPDATE conversations SET latest_message_id = ?, sort_timestamp = ?,"
+                        + " snippet_text = ? WHERE _id = ?",
+                        new Object[] { i * 3 + 2, i * 3 + 2, "snippet " + i, i });
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    private long timeListQuery(final String table) {
+        final long start = SystemClock.elapsedRealtime();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            final Cursor cursor = mDb.query(table, ConversationListItemData.PROJECTION,
+                    LIST_SELECTION, null, null, null, ConversationListData.SORT_ORDER);
+            try {
+                while (cursor.moveToNext()) {
+                    cursor.getString(0);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return (SystemClock.elapsedRealtime() - start) / BENCHMARK_ITERATIONS;
+    }
+
+    private String querySummaryString(final String column) {
+        return DatabaseUtils.stringForQuery(mDb, "SELECT " + column + " FROM "
+                + ConversationListItemData.getConversationListView() + " WHERE _id = 1", null);
+    }
+
+    private void assertSummaryMatchesView() {
+        final Cursor view = mDb.query(VIEW, ConversationListItemData.PROJECTION, null, null,
+                null, null, "_id");
+        final Cursor summary = mDb.query(ConversationListItemData.getConversationListView(),
+                ConversationListItemData.PROJECTION, null, null, null, null, "_id");
+        try {
+            assertEquals(view.getCount(), summary.getCount());
+            while (view.moveToNext()) {
+                assertTrue(summary.moveToNext());
+                for (int i = 0; i < ConversationListItemData.PROJECTION.length; i++) {
+                    assertEquals(ConversationListItemData.PROJECTION[i], view.getString(i),
+                            summary.getString(i));
+                }
+            }
+        } finally {
+            view.close();
+            summary.close();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteStatement;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.messaging.BugleTestCase;
+import com.android.messaging.FakeContext;
+import com.android.messaging.FakeFactory;
+
+/**
+ * Tests the compiled statement cache and the batch statements of {@link DatabaseWrapper}.
+ */
+@SmallTest
+public class DatabaseWrapperTest extends BugleTestCase {
+    private static final String TABLE = "batch_test";
+
+    private DatabaseWrapper mDbWrapper;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        final FakeContext context = new FakeContext(getTestContext());
+        FakeFactory.registerWithFakeContext(getTestContext(), context)
+                .withDataModel(new FakeDataModel(context));
+        mDbWrapper = DataModel.get().getDatabase();
+        mDbWrapper.getDatabase().execSQL("CREATE TEMP TABLE " + TABLE
+                + " (_id INTEGER PRIMARY KEY, value INTEGER)");
+        for (int id = 1; id <= 5; id++) {
+            mDbWrapper.getDatabase().execSQL("INSERT INTO " + TABLE + " VALUES (" + id + ", 0)");
+        }
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        mDbWrapper.getDatabase().execSQL("DROP TABLE IF EXISTS " + TABLE);
+        super.tearDown();
+    }
+
+    public void testEvictedStatementIsClosedAndRecompiled() {
+        mDbWrapper.beginTransaction();
+        try {
+            final SQLiteStatement first = mDbWrapper.getStatementInTransaction("SELECT 0");
+            assertEquals(0, first.simpleQueryForLong());
+            assertSame(first, mDbWrapper.getStatementInTransaction("SELECT 0"));
+
+            // Filling the cache with other statements evicts the least recently used one
+            for (int i = 1; i <= DatabaseWrapper.MAX_COMPILED_STATEMENTS; i++) {
+                assertEquals(i, mDbWrapper.getStatementInTransaction("SELECT " + i)
+                        .simpleQueryForLong());
+            }
+            try {
+                first.simpleQueryForLong();
+                fail("Evicted statement was not closed");
+            } catch (final IllegalStateException expected) {
+            }
+
+            final SQLiteStatement recompiled = mDbWrapper.getStatementInTransaction("SELECT 0");
+            assertNotSame(first, recompiled);
+            assertEquals(0, recompiled.simpleQueryForLong());
+            mDbWrapper.setTransactionSuccessful();
+        } finally {
+            mDbWrapper.endTransaction();
+        }
+    }
+
+    public void testUpdateDeleteBatchCountsChangedRows() {
+        mDbWrapper.beginTransaction();
+        try {
+            // Id 99 matches no row
+            assertEquals(2, mDbWrapper.executeUpdateDeleteBatchInTransaction(
+                    "DELETE FROM " + TABLE + " WHERE _id = ?", new long[] { 1, 3, 99 }));
+
+            final long[] ids = new long[] { 2, 4, 5, 100 };
+            assertEquals(3, mDbWrapper.executeUpdateDeleteBatchInTransaction(
+                    "UPDATE " + TABLE + " SET value = ? WHERE _id = ?", ids.length,
+                    new DatabaseWrapper.BatchBinder() {
+                        @Override
+                        public void bindRow(final SQLiteStatement statement, final int row) {
+                            statement.bindLong(1, ids[row] * 10);
+                            statement.bindLong(2, ids[row]);
+                        }
+                    }));
+            mDbWrapper.setTransactionSuccessful();
+        } finally {
+            mDbWrapper.endTransaction();
+        }
+
+        assertEquals(3, DatabaseUtils.queryNumEntries(mDbWrapper.getDatabase(), TABLE));
+        assertEquals(110, DatabaseUtils.longForQuery(mDbWrapper.getDatabase(),
+                "SELECT SUM(value) FROM " + TABLE, null));
+    }
+}
@@ -49,6 +49,7 @@ import com.android.messaging.datamodel.data.SubscriptionListData;
 import com.android.messaging.datamodel.data.TestDataFactory;
 import com.android.messaging.datamodel.data.VCardContactItemData;
 import com.android.messaging.util.ConnectivityUtil;
+import com.android.messaging.util.StartupScheduler;
 
 public class FakeDataModel extends DataModel {
     private BackgroundWorker mWorker;
@@ -251,7 +252,7 @@ public class FakeDataModel extends DataModel {
     }
 
     @Override
-    public void onApplicationCreated() {
+    public void onApplicationCreated(final StartupScheduler scheduler) {
     }
 
     @Override
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import com.android.messaging.BugleTestCase;
+import com.android.messaging.Factory;
+import com.android.messaging.FakeFactory;
+import com.android.messaging.util.BuglePrefsKeys;
+import com.android.messaging.util.FakeBuglePrefs;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests for the full-text message search index, including a comparison of the index against the
+ * LIKE based search queries at increasing database sizes.
+ */
+public class MessageSearchIndexTest extends BugleTestCase {
+    private static final String TAG = "MessageSearchIndexTest";
+
+    private static final int MESSAGES_PER_CONVERSATION = 100;
+    private static final int QUERY_ITERATIONS = 5;
+    private static final String[] WORDS = new String[] {
+        "dinner", "tonight", "meeting", "tomorrow", "call", "me", "when", "you", "are", "free",
+        "package", "delivered", "thanks", "see", "soon", "running", "late", "office", "lunch",
+    };
+
+    /** Keeps the backfill watermark and flag that FakeBuglePrefs would drop */
+    private static class MemoryBuglePrefs extends FakeBuglePrefs {
+        private final Map<String, Object> mValues = new HashMap<String, Object>();
+
+        @Override
+        public long getLong(final String key, final long defaultValue) {
+            final Long value = (Long) mValues.get(key);
+            return value != null ? value : defaultValue;
+        }
+
+        @Override
+        public boolean getBoolean(final String key, final boolean defaultValue) {
+            final Boolean value = (Boolean) mValues.get(key);
+            return value != null ? value : defaultValue;
+        }
+
+        @Override
+        public void putLong(final String key, final long value) {
+            mValues.put(key, value);
+        }
+
+        @Override
+        public void putBoolean(final String key, final boolean value) {
+            mValues.put(key, value);
+        }
+    }
+
+    private SQLiteDatabase mDb;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDb = SQLiteDatabase.create(null);
+        // Only the columns the search queries touch
+        mDb.execSQL("CREATE TABLE conversations (_id INTEGER PRIMARY KEY, name TEXT,"
+                + " sort_timestamp INT DEFAULT(0))");
+        mDb.execSQL("CREATE TABLE participants (_id INTEGER PRIMARY KEY, send_destination TEXT,"
+                + " normalized_destination TEXT, full_name TEXT, first_name TEXT)");
+        mDb.execSQL("CREATE TABLE conversation_participants (conversation_id INT,"
+                + " participant_id INT)");
+        mDb.execSQL("CREATE TABLE messages (_id INTEGER PRIMARY KEY, conversation_id INT,"
+                + " mms_subject TEXT, received_timestamp INT)");
+        mDb.execSQL("CREATE TABLE parts (_id INTEGER PRIMARY KEY, message_id INT, text TEXT)");
+        MessageSearchIndex.createIndex(mDb);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        MessageSearchIndex.resetBackfillComplete();
+        mDb.close();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testBuildMatchExpression() {
+        assertEquals("\"din*\"", MessageSearchIndex.buildMatchExpression("din"));
+        assertEquals("\"dinner to*\"",
+                MessageSearchIndex.buildMatchExpression("  dinner   to "));
+        assertEquals("\"say*\"", MessageSearchIndex.buildMatchExpression("\"say\" \""));
+    }
+
+    @SmallTest
+    public void testCanUseIndex() {
+        FakeFactory.register(getTestContext()).withBuglePrefs(new MemoryBuglePrefs());
+        MessageSearchIndex.resetBackfillComplete();
+        assertFalse(MessageSearchIndex.canUseIndex("dinner"));
+
+        Factory.get().getApplicationPrefs().putBoolean(
+                BuglePrefsKeys.SEARCH_INDEX_BACKFILL_COMPLETE, true);
+        MessageSearchIndex.resetBackfillComplete();
+        assertTrue(MessageSearchIndex.canUseIndex("dinner to"));
+        // Numbers and scripts without word boundaries are left to LIKE
+        assertFalse(MessageSearchIndex.canUseIndex("5550"));
+        assertFalse(MessageSearchIndex.canUseIndex("gate b12"));
+        assertFalse(MessageSearchIndex.canUseIndex("\u665a\u996d"));
+        assertFalse(MessageSearchIndex.canUseIndex(" \" "));
+    }
+
+    @SmallTest
+    public void testPhraseMatch() {
+        mDb.execSQL("INSERT INTO conversations (_id, name, sort_timestamp) VALUES (1, 'c', 1)");
+        mDb.execSQL("INSERT INTO messages (_id, conversation_id, received_timestamp)"
+                + " VALUES (1, 1, 1)");
+        mDb.execSQL("INSERT INTO parts (message_id, text) VALUES (1, 'dinner tomorrow')");
+        mDb.execSQL("INSERT INTO parts (message_id, text) VALUES (1, 'tomorrow dinner')");
+        assertEquals(1, countSearchResults("dinner tom"));
+        assertEquals(countLikeResults("dinner tom"), countSearchResults("dinner tom"));
+        // Unlike LIKE, words only match from their start
+        assertEquals(0, countSearchResults("inner"));
+    }
+
+    @SmallTest
+    public void testBackfillNextBatch() {
+        FakeFactory.register(getTestContext()).withBuglePrefs(new MemoryBuglePrefs());
+        MessageSearchIndex.resetBackfillComplete();
+        final DatabaseWrapper db = new DatabaseWrapper(getContext(), mDb);
+        // Messages written before the index existed: one text part each, a subject on every
+        // tenth, spanning two backfill batches
+        final int messageCount = 2 * MessageSearchIndex.BACKFILL_BATCH_SIZE;
+        populate(messageCount / MESSAGES_PER_CONVERSATION, 0);
+        mDb.execSQL("DELETE FROM " + MessageSearchIndex.TABLE_NAME);
+        final int expectedRows = messageCount + messageCount / 10;
+
+        assertTrue(MessageSearchIndex.backfillNextBatch(db));
+        assertEquals(MessageSearchIndex.BACKFILL_BATCH_SIZE * 11 / 10, countIndexRows());
+        assertFalse(MessageSearchIndex.isBackfillComplete());
+
+        // A part written mid-backfill is indexed by the trigger and not again by the backfill
+        mDb.execSQL("INSERT INTO parts (message_id, text) VALUES (" + messageCount
+                + ", 'pick up milk')");
+        assertTrue(MessageSearchIndex.backfillNextBatch(db));
+        assertFalse(MessageSearchIndex.backfillNextBatch(db));
+        assertTrue(MessageSearchIndex.isBackfillComplete());
+        assertEquals(expectedRows + 1, countIndexRows());
+        assertEquals(1, countSearchResults("milk"));
+        assertEquals(countLikeResults("deliv"), countSearchResults("deliv"));
+    }
+
+    @SmallTest
+    public void testTriggersMaintainIndex() {
+        populate(1, 0);
+        mDb.execSQL("INSERT INTO parts (_id, message_id, text) VALUES (1000, 1, 'pick up milk')");
+        mDb.execSQL("UPDATE messages SET mms_subject = 'milk run' WHERE _id = 2");
+        assertEquals(2, countSearchResults("milk"));
+
+        mDb.execSQL("UPDATE parts SET text = 'pick up bread' WHERE _id = 1000");
+        assertEquals(1, countSearchResults("milk"));
+        assertEquals(1, countSearchResults("bread"));
+
+        mDb.execSQL("DELETE FROM messages WHERE _id = 2");
+        mDb.execSQL("DELETE FROM parts WHERE message_id = 1");
+        assertEquals(0, countSearchResults("milk"));
+        assertEquals(0, countSearchResults("bread"));
+    }
+
+    @SmallTest
+    public void testSearchMatchesLikeQuery() {
+        populate(2, 0);
+        for (final String word : new String[] { "dinner", "deliv", "office" }) {
+            assertEquals(countLikeResults(word), countSearchResults(word));
+        }
+    }
+
+    @LargeTest
+    public void testSearchBenchmark() {
+        final int[] sizes = new int[] { 10000, 100000, 500000 };
+        int populated = 0;
+        for (final int size : sizes) {
+            populate((size - populated) / MESSAGES_PER_CONVERSATION,
+                    populated / MESSAGES_PER_CONVERSATION);
+            populated = size;
+
+            final long likeStart = SystemClock.elapsedRealtime();
+            for (int i = 0; i < QUERY_ITERATIONS; i++) {
+                countLikeResults("deliv");
+            }
+            final long likeMs = (SystemClock.elapsedRealtime() - likeStart) / QUERY_ITERATIONS;
+
+            final long indexStart = SystemClock.elapsedRealtime();
+            for (int i = 0; i < QUERY_ITERATIONS; i++) {
+                countSearchResults("deliv");
+            }
+            final long indexMs = (SystemClock.elapsedRealtime() - indexStart) / QUERY_ITERATIONS;
+
+            Log.i(TAG, "search over " + size + " messages: LIKE " + likeMs + "ms, index "
+                    + indexMs + "ms");
+        }
+    }
+
+    /**
+     * Add conversations with MESSAGES_PER_CONVERSATION messages each, one text part per message
+     * and a subject on every tenth message.
+     */
+    private void populate(final int conversationCount, final int firstConversation) {
+        final SQLiteStatement conversation = mDb.compileStatement(
+                "INSERT INTO conversations (_id, name, sort_timestamp) VALUES (?, ?, 1)");
+        final SQLiteStatement message = mDb.compileStatement(
+                "INSERT INTO messages (_id, conversation_id, mms_subject, received_timestamp)"
+                + " VALUES (?, ?, ?, ?)");
+        final SQLiteStatement part = mDb.compileStatement(
+                "INSERT INTO parts (message_id, text) VALUES (?, ?)");
+        final StringBuilder text = new StringBuilder();
+        mDb.beginTransaction();
+        try {
+            for (int c = firstConversation; c < firstConversation + conversationCount; c++) {
+                conversation.bindLong(1, c + 1);
+                conversation.bindString(2, "Conversation " + c);
+                conversation.executeInsert();
+                for (int m = 0; m < MESSAGES_PER_CONVERSATION; m++) {
+                    final long messageId = (long) c * MESSAGES_PER_CONVERSATION + m + 1;
+                    message.bindLong(1, messageId);
+                    message.bindLong(2, c + 1);
+                    if (m % 10 == 0) {
+                        message.bindString(3, WORDS[(int) (messageId % WORDS.length)]);
+                    } else {
+                        message.bindNull(3);
+                    }
+                    message.bindLong(4, messageId);
+                    message.executeInsert();
+
+                    text.setLength(0);
+                    for (int w = 0; w < 8; w++) {
+                        text.append(WORDS[(int) ((messageId * 7 + w * 3) % WORDS.length)])
+                                .append(' ');
+                    }
+                    part.bindLong(1, messageId);
+                    part.bindString(2, text.toString());
+                    part.executeInsert();
+                }
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    private int countLikeResults(final String term) {
+        return count(mDb.rawQuery(BugleDatabaseOperations.QUREY_MESSAGING_SQL,
+                new String[] { "%" + term + "%" }));
+    }
+
+    private int countSearchResults(final String term) {
+        return count(mDb.rawQuery(MessageSearchIndex.SEARCH_SQL, new String[] {
+                "%" + term + "%", MessageSearchIndex.buildMatchExpression(term) }));
+    }
+
+    private int countIndexRows() {
+        return count(mDb.rawQuery("SELECT docid FROM " + MessageSearchIndex.TABLE_NAME, null));
+    }
+
+    private static int count(final Cursor cursor) {
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.messaging.BugleTestCase;
+import com.android.messaging.datamodel.NotificationUpdateQueue.Request;
+import com.android.messaging.datamodel.data.ParticipantData;
+
+/**
+ * Tests how {@link NotificationUpdateQueue} merges notification update requests.
+ */
+@SmallTest
+public class NotificationUpdateQueueTest extends BugleTestCase {
+    private static final int SUB_ID = 2;
+
+    public void testMergeKeepsRingAndCoverage() {
+        final Request request = new Request(0, ParticipantData.DEFAULT_SELF_SUB_ID);
+        request.merge(true /* silent */, null, BugleNotifications.UPDATE_ERRORS,
+                ParticipantData.DEFAULT_SELF_SUB_ID);
+        assertFalse(request.isUrgent());
+        request.merge(false /* silent */, "1", BugleNotifications.UPDATE_MESSAGES, SUB_ID);
+        request.merge(true /* silent */, null, BugleNotifications.UPDATE_MESSAGES,
+                ParticipantData.DEFAULT_SELF_SUB_ID);
+
+        assertFalse(request.mSilent);
+        assertTrue(request.isUrgent());
+        assertEquals(BugleNotifications.UPDATE_ALL, request.mCoverage);
+        assertEquals("1", request.mConversationId);
+        assertEquals(SUB_ID, request.mSubId);
+        assertEquals(3, request.mRequestCount);
+    }
+
+    public void testMergeCollectsDirtyConversations() {
+        final Request request = new Request(0, ParticipantData.DEFAULT_SELF_SUB_ID);
+        for (int i = 0; i < 50; i++) {
+            request.merge(false /* silent */, Integer.toString(i % 3),
+                    BugleNotifications.UPDATE_ALL, SUB_ID);
+        }
+        assertEquals(3, request.mDirtyConversationIds.size());
+        assertEquals("1", request.mConversationId);
+
+        // A request for no particular conversation may have changed any of them
+        request.merge(true /* silent */, null, BugleNotifications.UPDATE_ALL,
+                ParticipantData.DEFAULT_SELF_SUB_ID);
+        assertNull(request.mDirtyConversationIds);
+        request.merge(false /* silent */, "4", BugleNotifications.UPDATE_ALL, SUB_ID);
+        assertNull(request.mDirtyConversationIds);
+        assertEquals("4", request.mConversationId);
+    }
+
+    public void testQuietRequestDoesNotRetargetRing() {
+        final Request request = new Request(0, ParticipantData.DEFAULT_SELF_SUB_ID);
+        request.merge(false /* silent */, "1", BugleNotifications.UPDATE_ALL, SUB_ID);
+        request.merge(true /* silent */, "2", BugleNotifications.UPDATE_MESSAGES,
+                ParticipantData.DEFAULT_SELF_SUB_ID);
+
+        // Still rings for the first conversation, on its SIM
+        assertTrue(request.isUrgent());
+        assertEquals("1", request.mConversationId);
+        assertEquals(SUB_ID, request.mSubId);
+        assertEquals(2, request.mDirtyConversationIds.size());
+
+        // A later request that would ring takes over
+        request.merge(false /* silent */, "3", BugleNotifications.UPDATE_ALL,
+                ParticipantData.DEFAULT_SELF_SUB_ID);
+        assertEquals("3", request.mConversationId);
+        assertEquals(ParticipantData.DEFAULT_SELF_SUB_ID, request.mSubId);
+    }
+
+    public void testRingingRequestReplacesQuietConversation() {
+        final Request request = new Request(0, ParticipantData.DEFAULT_SELF_SUB_ID);
+        request.merge(true /* silent */, "1", BugleNotifications.UPDATE_MESSAGES,
+                ParticipantData.DEFAULT_SELF_SUB_ID);
+        assertEquals("1", request.mConversationId);
+
+        request.merge(false /* silent */, null, BugleNotifications.UPDATE_ALL, SUB_ID);
+        assertFalse(request.mSilent);
+        assertNull(request.mConversationId);
+        assertEquals(SUB_ID, request.mSubId);
+    }
+}
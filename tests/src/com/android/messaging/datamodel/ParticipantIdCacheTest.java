@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel;
+
+import android.content.ContentValues;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.messaging.BugleTestCase;
+import com.android.messaging.FakeContext;
+import com.android.messaging.FakeFactory;
+import com.android.messaging.datamodel.DatabaseHelper.ParticipantColumns;
+import com.android.messaging.datamodel.data.ParticipantData;
+
+/**
+ * Tests the size bound, LRU order and warming of {@link ParticipantIdCache}.
+ */
+@SmallTest
+public class ParticipantIdCacheTest extends BugleTestCase {
+    private static final String NUMBER = "+16501231233";
+
+    public void testHitsAndMisses() {
+        final ParticipantIdCache cache = new ParticipantIdCache(4, 64 * 1024);
+        assertNull(cache.get(NUMBER));
+        cache.put(NUMBER, "1");
+        assertEquals("1", cache.get(NUMBER));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    public void testSizeAccounting() {
+        final ParticipantIdCache cache = new ParticipantIdCache(4, 64 * 1024);
+        cache.put(NUMBER, "1");
+        assertEquals(ParticipantIdCache.sizeOf(NUMBER, "1"), cache.getSizeBytes());
+        cache.put(NUMBER, "100");
+        assertEquals(1, cache.size());
+        assertEquals(ParticipantIdCache.sizeOf(NUMBER, "100"), cache.getSizeBytes());
+        cache.remove(NUMBER);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    public void testEvictsLeastRecentlyUsed() {
+        // One segment with room for three entries
+        final ParticipantIdCache cache = new ParticipantIdCache(1,
+                3 * ParticipantIdCache.sizeOf("+1650123123x", "x"));
+        cache.put("+16501231231", "1");
+        cache.put("+16501231232", "2");
+        cache.put("+16501231233", "3");
+        // Touch the eldest so the second one is evicted instead
+        assertEquals("1", cache.get("+16501231231"));
+        cache.put("+16501231234", "4");
+
+        assertEquals(3, cache.size());
+        assertEquals("1", cache.get("+16501231231"));
+        assertNull(cache.get("+16501231232"));
+        assertEquals("4", cache.get("+16501231234"));
+    }
+
+    public void testWarmFromParticipants() {
+        final FakeContext context = new FakeContext(getTestContext());
+        FakeFactory.registerWithFakeContext(getTestContext(), context)
+                .withDataModel(new FakeDataModel(context));
+        final DatabaseWrapper db = DataModel.get().getDatabase();
+        final long otherId = insertParticipant(db, NUMBER, ParticipantData.OTHER_THAN_SELF_SUB_ID);
+        final long selfId = insertParticipant(db, "+16505550000", 1);
+
+        final ParticipantIdCache cache = new ParticipantIdCache(4, 64 * 1024);
+        cache.warm(db);
+        assertEquals(Long.toString(otherId), cache.get(NUMBER));
+        assertEquals(Long.toString(selfId),
+                cache.get(BugleDatabaseOperations.getCanonicalRecipientFromSubId(1)));
+    }
+
+    private static long insertParticipant(final DatabaseWrapper db,
+            final String normalizedDestination, final int subId) {
+        final ContentValues values = new ContentValues();
+        values.put(ParticipantColumns.NORMALIZED_DESTINATION, normalizedDestination);
+        values.put(ParticipantColumns.SUB_ID, subId);
+        return db.insert(DatabaseHelper.PARTICIPANTS_TABLE, null, values);
+    }
+}
@@ -34,6 +34,8 @@ import com.android.messaging.util.ContactUtil;
 
 import org.junit.Assert;
 
+import java.util.Collections;
+
 /**
  * Utility class for testing ParticipantRefresh class for different scenarios.
  */
@@ -277,4 +279,40 @@ public class ParticipantRefreshTest extends BugleTestCase {
         verifyParticipant("650-123-1233", ParticipantData.PARTICIPANT_CONTACT_ID_NOT_FOUND,
                 null, null);
     }
+
+    /**
+     * Verify that delta refresh only touches participants of the changed contacts.
+     */
+    public void testDeltaRefreshChangedContactOnly() {
+        addParticipant("650-123-1233", 1, "Joh", "content://photo/joh");
+        addParticipant("650-123-4567", 2, "Jo", "content://photo/jo");
+        addPhoneLookup("650-123-1233", new Object[][] {
+                { 1L, "John", "content://photo/john", "650-123-1233", null, null, null }
+        });
+        addPhoneLookup("650-123-4567", new Object[][] {
+                { 2L, "Joe", "content://photo/joe", "650-123-4567", null, null, null }
+        });
+
+        assertEquals(1, ParticipantRefresh.refreshChangedParticipants(
+                Collections.singleton("1"), Collections.<String>emptySet(),
+                Collections.<String>emptySet()));
+        verifyParticipant("650-123-1233", 1, "John", "content://photo/john");
+        verifyParticipant("650-123-4567", 2, "Jo", "content://photo/jo");
+    }
+
+    /**
+     * Verify that delta refresh resolves participants by a changed contact's phone number.
+     */
+    public void testDeltaRefreshNotFoundByDestination() {
+        addParticipant("650-123-1233", ParticipantData.PARTICIPANT_CONTACT_ID_NOT_FOUND,
+                null, null);
+        addPhoneLookup("650-123-1233", new Object[][] {
+                { 1L, "John", "content://photo/john", "650-123-1233", null, null, null }
+        });
+
+        assertEquals(1, ParticipantRefresh.refreshChangedParticipants(
+                Collections.singleton("1"), Collections.<String>emptySet(),
+                Collections.singleton("650-123-1233")));
+        verifyParticipant("650-123-1233", 1, "John", "content://photo/john");
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel.action;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.messaging.datamodel.action.ActionTest.TestChatAction;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+@SmallTest
+public class ActionTimingsTest extends AndroidTestCase {
+    private static final String ACTION_NAME = TestChatAction.class.getSimpleName();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ActionTimings.reset();
+    }
+
+    public void testBuckets() {
+        assertEquals(0, ActionTimings.getBucket(0));
+        assertEquals(1, ActionTimings.getBucket(1));
+        assertEquals(2, ActionTimings.getBucket(2));
+        assertEquals(2, ActionTimings.getBucket(3));
+        assertEquals(10, ActionTimings.getBucket(1000));
+        assertEquals(ActionTimings.BUCKET_COUNT - 1, ActionTimings.getBucket(Long.MAX_VALUE));
+    }
+
+    public void testPercentiles() {
+        final TestChatAction action = new TestChatAction("key", "parameter");
+        assertEquals(-1, ActionTimings.getPercentile(ACTION_NAME,
+                ActionTimings.PHASE_EXECUTE, 50));
+
+        for (int i = 0; i < 98; i++) {
+            ActionTimings.record(action, ActionTimings.PHASE_EXECUTE, 3);
+        }
+        ActionTimings.record(action, ActionTimings.PHASE_EXECUTE, 100);
+        ActionTimings.record(action, ActionTimings.PHASE_EXECUTE, 700);
+        // Ignored
+        ActionTimings.record(action, ActionTimings.PHASE_EXECUTE, -5);
+
+        assertEquals(4, ActionTimings.getPercentile(ACTION_NAME, ActionTimings.PHASE_EXECUTE, 50));
+        assertEquals(128,
+                ActionTimings.getPercentile(ACTION_NAME, ActionTimings.PHASE_EXECUTE, 99));
+        assertEquals(700,
+                ActionTimings.getPercentile(ACTION_NAME, ActionTimings.PHASE_EXECUTE, 100));
+        assertEquals(-1, ActionTimings.getPercentile(ACTION_NAME,
+                ActionTimings.PHASE_QUEUE_WAIT, 50));
+    }
+
+    public void testDump() {
+        final TestChatAction action = new TestChatAction("key", "parameter");
+        ActionTimings.record(action, ActionTimings.PHASE_BACKGROUND_WORK, 42);
+
+        final StringWriter output = new StringWriter();
+        ActionTimings.dump(new PrintWriter(output));
+        final String dump = output.toString();
+        assertTrue(dump.contains(ACTION_NAME));
+        assertTrue(dump.contains("bg-work"));
+        assertFalse(dump.contains("execute"));
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel.action;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.messaging.BugleTestCase;
+import com.android.messaging.FakeFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class InProcessActionExecutorTest extends BugleTestCase {
+    private static final List<String> sExecuted =
+            Collections.synchronizedList(new ArrayList<String>());
+    private static CountDownLatch sLatch;
+
+    // Shared by the tests, since the executor thread never stops
+    private static InProcessActionExecutor sExecutor;
+
+    private InProcessActionExecutor mExecutor;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        // The executor checks the app's SMS permission through the factory's context
+        FakeFactory.register(getTestContext());
+        sExecuted.clear();
+        synchronized (InProcessActionExecutorTest.class) {
+            if (sExecutor == null) {
+                sExecutor = new InProcessActionExecutor(new BackgroundWorker() {
+                    @Override
+                    public void queueBackgroundWork(final List<Action> backgroundActions) {
+                        fail("Test actions have no background work");
+                    }
+                });
+            }
+            mExecutor = sExecutor;
+        }
+    }
+
+    @SmallTest
+    public void testHigherPriorityActionsRunFirst() throws InterruptedException {
+        // Block the executor until everything is queued
+        final CountDownLatch blocker = new CountDownLatch(1);
+        sLatch = new CountDownLatch(5);
+        mExecutor.startAction(new BlockingAction(blocker));
+        mExecutor.startAction(new TestAction("low", InProcessActionExecutor.PRIORITY_LOW));
+        mExecutor.startAction(new TestAction("normal1", InProcessActionExecutor.PRIORITY_NORMAL));
+        mExecutor.startAction(new TestAction("high", InProcessActionExecutor.PRIORITY_HIGH));
+        mExecutor.startAction(new TestAction("normal2", InProcessActionExecutor.PRIORITY_NORMAL));
+        blocker.countDown();
+
+        assertTrue(sLatch.await(5, TimeUnit.SECONDS));
+        final ArrayList<String> expected = new ArrayList<String>();
+        Collections.addAll(expected, "blocking", "high", "normal1", "normal2", "low");
+        assertEquals(expected, sExecuted);
+    }
+
+    public static class TestAction extends Action implements Parcelable {
+        private static final String KEY_NAME = "name";
+        private static final String KEY_PRIORITY = "priority";
+
+        TestAction(final String name, final int priority) {
+            actionParameters.putString(KEY_NAME, name);
+            actionParameters.putInt(KEY_PRIORITY, priority);
+        }
+
+        @Override
+        protected boolean canExecuteInProcess() {
+            return true;
+        }
+
+        @Override
+        protected int getInProcessPriority() {
+            return actionParameters.getInt(KEY_PRIORITY);
+        }
+
+        @Override
+        protected Object executeAction() {
+            final String name = actionParameters.getString(KEY_NAME);
+            if (name != null) {
+                sExecuted.add(name);
+            }
+            sLatch.countDown();
+            return null;
+        }
+
+        private TestAction(final Parcel in) {
+            super(in);
+        }
+
+        public static final Parcelable.Creator<TestAction> CREATOR
+                = new Parcelable.Creator<TestAction>() {
+            @Override
+            public TestAction createFromParcel(final Parcel in) {
+                return new TestAction(in);
+            }
+
+            @Override
+            public TestAction[] newArray(final int size) {
+                return new TestAction[size];
+            }
+        };
+
+        @Override
+        public void writeToParcel(final Parcel parcel, final int flags) {
+            writeActionToParcel(parcel, flags);
+        }
+    }
+
+    private static class BlockingAction extends TestAction {
+        private final CountDownLatch mBlocker;
+
+        BlockingAction(final CountDownLatch blocker) {
+            super("blocking", InProcessActionExecutor.PRIORITY_HIGH);
+            mBlocker = blocker;
+        }
+
+        @Override
+        protected Object executeAction() {
+            try {
+                mBlocker.await();
+            } catch (final InterruptedException e) {
+                fail("Interrupted");
+            }
+            return super.executeAction();
+        }
+    }
+}
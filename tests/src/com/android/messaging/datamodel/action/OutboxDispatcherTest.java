@@ -0,0 +1,366 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel.action;
+
+import android.content.ContentValues;
+import android.os.SystemClock;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import com.android.messaging.BugleTestCase;
+import com.android.messaging.FakeContext;
+import com.android.messaging.FakeFactory;
+import com.android.messaging.datamodel.BugleDatabaseOperations;
+import com.android.messaging.datamodel.DataModel;
+import com.android.messaging.datamodel.DatabaseHelper;
+import com.android.messaging.datamodel.DatabaseHelper.ConversationColumns;
+import com.android.messaging.datamodel.DatabaseHelper.MessageColumns;
+import com.android.messaging.datamodel.DatabaseWrapper;
+import com.android.messaging.datamodel.FakeDataModel;
+import com.android.messaging.datamodel.data.MessageData;
+import com.android.messaging.util.BugleGservicesKeys;
+import com.android.messaging.util.FakeBugleGservices;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests {@link OutboxDispatcher}, and measures how fast it drains an outbox through a fake SMS
+ * sender compared to sending one message at a time.
+ */
+public class OutboxDispatcherTest extends BugleTestCase {
+    private static final String TAG = "OutboxDispatcherTest";
+
+    private static final int SUB_1 = 1;
+    private static final int SUB_2 = 2;
+
+    // An outbox that built up during a connectivity outage
+    private static final int OUTBOX_SIZE = 200;
+    private static final int OUTBOX_CONVERSATIONS = 5;
+    // Time the radio takes to send an SMS
+    private static final long AIRTIME_MS = 20;
+    // Time from the radio's result to the next pass of the dispatcher: the sent intent, the
+    // action that processes it and the action that queues the next send
+    private static final long TURNAROUND_MS = 15;
+
+    private DatabaseWrapper mDb;
+    private long mTimestamp;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final FakeContext context = new FakeContext(getTestContext());
+        FakeFactory.registerWithFakeContext(getTestContext(), context)
+                .withDataModel(new FakeDataModel(context))
+                .withBugleGservices(new FakeBugleGservices());
+        mDb = DataModel.get().getDatabase();
+        mTimestamp = System.currentTimeMillis();
+    }
+
+    @SmallTest
+    public void testWindowBoundsMessagesInFlight() {
+        final String conversationId = addConversation();
+        final List<String> messageIds = new ArrayList<String>();
+        for (int i = 0; i < 10; i++) {
+            messageIds.add(addMessage(conversationId, SUB_1, MessageData.PROTOCOL_SMS,
+                    MessageData.BUGLE_STATUS_OUTGOING_YET_TO_SEND));
+        }
+        final OutboxDispatcher dispatcher = new OutboxDispatcher(4);
+
+        final List<MessageData> toSend = dispatcher.selectMessagesToSend(mDb, mTimestamp);
+        assertEquals(messageIds.subList(0, 4), getMessageIds(toSend));
+
+        // Nothing more until one of those is done
+        markMessages(toSend, MessageData.BUGLE_STATUS_OUTGOING_SENDING);
+        assertTrue(dispatcher.selectMessagesToSend(mDb, mTimestamp).isEmpty());
+        setStatus(toSend.get(0).getMessageId(), MessageData.BUGLE_STATUS_OUTGOING_COMPLETE);
+        assertEquals(messageIds.subList(4, 5),
+                getMessageIds(dispatcher.selectMessagesToSend(mDb, mTimestamp)));
+    }
+
+    @SmallTest
+    public void testRadioResultsSetWindow() {
+        final OutboxDispatcher dispatcher = new OutboxDispatcher(3);
+        assertEquals(3, dispatcher.getSmsWindow(SUB_1));
+
+        dispatcher.onSmsSendResult(SUB_1, false);
+        assertEquals(1, dispatcher.getSmsWindow(SUB_1));
+        assertEquals(3, dispatcher.getSmsWindow(SUB_2));
+
+        dispatcher.onSmsSendResult(SUB_1, true);
+        assertEquals(2, dispatcher.getSmsWindow(SUB_1));
+        dispatcher.onSmsSendResult(SUB_1, true);
+        dispatcher.onSmsSendResult(SUB_1, true);
+        assertEquals(3, dispatcher.getSmsWindow(SUB_1));
+    }
+
+    @SmallTest
+    public void testConversationOrderKeptBehindRetry() {
+        final String retrying = addConversation();
+        final String other = addConversation();
+        addMessage(retrying, SUB_1, MessageData.PROTOCOL_SMS,
+                MessageData.BUGLE_STATUS_OUTGOING_AWAITING_RETRY);
+        addMessage(retrying, SUB_1, MessageData.PROTOCOL_SMS,
+                MessageData.BUGLE_STATUS_OUTGOING_YET_TO_SEND);
+        final String otherMessageId = addMessage(other, SUB_1, MessageData.PROTOCOL_SMS,
+                MessageData.BUGLE_STATUS_OUTGOING_YET_TO_SEND);
+
+        // New messages go first, but not ahead of the retry in their own conversation
+        final List<MessageData> toSend =
+                new OutboxDispatcher(4).selectMessagesToSend(mDb, mTimestamp);
+        assertEquals(1, toSend.size());
+        assertEquals(otherMessageId, toSend.get(0).getMessageId());
+    }
+
+    @SmallTest
+    public void testConversationBehindRetryDrains() {
+        final String retrying = addConversation();
+        final String other = addConversation();
+        final List<String> retryingIds = new ArrayList<String>();
+        retryingIds.add(addMessage(retrying, SUB_1, MessageData.PROTOCOL_SMS,
+                MessageData.BUGLE_STATUS_OUTGOING_AWAITING_RETRY));
+        retryingIds.add(addMessage(retrying, SUB_1, MessageData.PROTOCOL_SMS,
+                MessageData.BUGLE_STATUS_OUTGOING_YET_TO_SEND));
+        addMessage(other, SUB_1, MessageData.PROTOCOL_SMS,
+                MessageData.BUGLE_STATUS_OUTGOING_YET_TO_SEND);
+        final OutboxDispatcher dispatcher = new OutboxDispatcher(4);
+
+        // Send whatever is picked until the outbox is empty, which must not need the messages
+        // to time out
+        final List<String> sentFromRetrying = new ArrayList<String>();
+        int passes = 0;
+        List<MessageData> toSend = dispatcher.selectMessagesToSend(mDb, mTimestamp);
+        while (!toSend.isEmpty()) {
+            assertTrue(++passes <= 3);
+            for (final MessageData message : toSend) {
+                if (retrying.equals(message.getConversationId())) {
+                    sentFromRetrying.add(message.getMessageId());
+                }
+            }
+            markMessages(toSend, MessageData.BUGLE_STATUS_OUTGOING_COMPLETE);
+            toSend = dispatcher.selectMessagesToSend(mDb, mTimestamp);
+        }
+        assertEquals(retryingIds, sentFromRetrying);
+        assertEquals(0, mDb.queryNumEntries(DatabaseHelper.MESSAGES_TABLE,
+                MessageColumns.STATUS + " <> ?", new String[] {
+                        Integer.toString(MessageData.BUGLE_STATUS_OUTGOING_COMPLETE) }));
+    }
+
+    @SmallTest
+    public void testLanesAreIndependent() {
+        final String conversationId = addConversation();
+        for (int i = 0; i < 2; i++) {
+            addMessage(conversationId, SUB_1, MessageData.PROTOCOL_SMS,
+                    MessageData.BUGLE_STATUS_OUTGOING_YET_TO_SEND);
+            addMessage(conversationId, SUB_2, MessageData.PROTOCOL_SMS,
+                    MessageData.BUGLE_STATUS_OUTGOING_YET_TO_SEND);
+            addMessage(conversationId, SUB_1, MessageData.PROTOCOL_MMS,
+                    MessageData.BUGLE_STATUS_OUTGOING_YET_TO_SEND);
+        }
+        final OutboxDispatcher dispatcher = new OutboxDispatcher(2);
+        dispatcher.onSmsSendResult(SUB_2, false);
+
+        int sub1Sms = 0;
+        int sub2Sms = 0;
+        int mms = 0;
+        for (final MessageData message : dispatcher.selectMessagesToSend(mDb, mTimestamp)) {
+            if (message.getProtocol() == MessageData.PROTOCOL_MMS) {
+                mms++;
+            } else if (message.getSubId() == SUB_1) {
+                sub1Sms++;
+            } else {
+                sub2Sms++;
+            }
+        }
+        assertEquals(2, sub1Sms);
+        assertEquals(1, sub2Sms);
+        assertEquals(1, mms);
+    }
+
+    @SmallTest
+    public void testExpiredMessagesFail() {
+        final String conversationId = addConversation();
+        final String messageId = addMessage(conversationId, SUB_1, MessageData.PROTOCOL_SMS,
+                MessageData.BUGLE_STATUS_OUTGOING_AWAITING_RETRY);
+        final long later = mTimestamp + 24 * 60 * 60 * 1000L;
+
+        assertTrue(new OutboxDispatcher(4).selectMessagesToSend(mDb, later).isEmpty());
+        assertEquals(MessageData.BUGLE_STATUS_OUTGOING_FAILED,
+                BugleDatabaseOperations.readMessage(mDb, messageId).getStatus());
+    }
+
+    @LargeTest
+    public void testDrainOutboxBenchmark() throws Exception {
+        final DrainResult oneAtATime = drainOutbox(1);
+        final int maxInFlight = BugleGservicesKeys.MAX_SMS_IN_FLIGHT_PER_SUB_DEFAULT;
+        final DrainResult pipelined = drainOutbox(maxInFlight);
+        Log.i(TAG, OUTBOX_SIZE + " SMS: one at a time " + oneAtATime.mElapsedMs + "ms ("
+                + (OUTBOX_SIZE * 1000L / oneAtATime.mElapsedMs) + "/s), pipelined "
+                + pipelined.mElapsedMs + "ms ("
+                + (OUTBOX_SIZE * 1000L / pipelined.mElapsedMs) + "/s)");
+
+        // Timings depend on the device, so only check how the sends were queued. One at a time,
+        // the radio idles through every turnaround; pipelined, the next message is already
+        // queued each time except after the last one.
+        assertEquals(1, oneAtATime.mPeakInFlight);
+        assertEquals(OUTBOX_SIZE, oneAtATime.mIdleTurnarounds);
+        assertEquals(maxInFlight, pipelined.mPeakInFlight);
+        assertEquals(1, pipelined.mIdleTurnarounds);
+    }
+
+    private static class DrainResult {
+        long mElapsedMs;
+        // Most messages handed to the sender without a result yet
+        int mPeakInFlight;
+        // Results after which the sender had nothing left to send until the next pick
+        int mIdleTurnarounds;
+    }
+
+    /**
+     * Send a full outbox the way ProcessPendingMessagesAction does: pick messages, mark them
+     * sending, hand them to the sender, and pick again each time the radio reports a result.
+     */
+    private DrainResult drainOutbox(final int maxInFlight) throws InterruptedException {
+        final String[] conversationIds = new String[OUTBOX_CONVERSATIONS];
+        for (int i = 0; i < OUTBOX_CONVERSATIONS; i++) {
+            conversationIds[i] = addConversation();
+        }
+        for (int i = 0; i < OUTBOX_SIZE; i++) {
+            addMessage(conversationIds[i % OUTBOX_CONVERSATIONS], SUB_1,
+                    MessageData.PROTOCOL_SMS, MessageData.BUGLE_STATUS_OUTGOING_YET_TO_SEND);
+        }
+        final OutboxDispatcher dispatcher = new OutboxDispatcher(maxInFlight);
+        final FakeSmsSender sender = new FakeSmsSender();
+        final HashMap<String, Long> lastSentByConversation = new HashMap<String, Long>();
+        final DrainResult result = new DrainResult();
+
+        final long start = SystemClock.elapsedRealtime();
+        int inFlight = queueSends(dispatcher, sender, lastSentByConversation);
+        result.mPeakInFlight = inFlight;
+        for (int sent = 0; sent < OUTBOX_SIZE; sent++) {
+            final String messageId = sender.takeResult();
+            assertNotNull(messageId);
+            inFlight--;
+            if (inFlight == 0) {
+                result.mIdleTurnarounds++;
+            }
+            SystemClock.sleep(TURNAROUND_MS);
+            setStatus(messageId, MessageData.BUGLE_STATUS_OUTGOING_COMPLETE);
+            dispatcher.onSmsSendResult(SUB_1, true);
+            inFlight += queueSends(dispatcher, sender, lastSentByConversation);
+            result.mPeakInFlight = Math.max(result.mPeakInFlight, inFlight);
+        }
+        result.mElapsedMs = SystemClock.elapsedRealtime() - start;
+        sender.shutdown();
+        return result;
+    }
+
+    /**
+     * @return the number of messages handed to the sender
+     */
+    private int queueSends(final OutboxDispatcher dispatcher, final FakeSmsSender sender,
+            final HashMap<String, Long> lastSentByConversation) {
+        final List<MessageData> toSend =
+                dispatcher.selectMessagesToSend(mDb, System.currentTimeMillis());
+        markMessages(toSend, MessageData.BUGLE_STATUS_OUTGOING_SENDING);
+        for (final MessageData message : toSend) {
+            // Each conversation must go out in order
+            final Long lastSent = lastSentByConversation.get(message.getConversationId());
+            assertTrue(lastSent == null || lastSent < message.getReceivedTimeStamp());
+            lastSentByConversation.put(message.getConversationId(),
+                    message.getReceivedTimeStamp());
+            sender.send(message.getMessageId());
+        }
+        return toSend.size();
+    }
+
+    private String addConversation() {
+        final ContentValues values = new ContentValues();
+        values.put(ConversationColumns.NAME, "Conversation");
+        return Long.toString(mDb.insert(DatabaseHelper.CONVERSATIONS_TABLE, null, values));
+    }
+
+    private String addMessage(final String conversationId, final int subId, final int protocol,
+            final int status) {
+        final ContentValues values = new ContentValues();
+        values.put(MessageColumns.CONVERSATION_ID, conversationId);
+        values.put(MessageColumns.SUB_ID, subId);
+        values.put(MessageColumns.PROTOCOL, protocol);
+        values.put(MessageColumns.STATUS, status);
+        values.put(MessageColumns.RECEIVED_TIMESTAMP, ++mTimestamp);
+        values.put(MessageColumns.RETRY_START_TIMESTAMP, mTimestamp);
+        return Long.toString(mDb.insert(DatabaseHelper.MESSAGES_TABLE, null, values));
+    }
+
+    private void markMessages(final List<MessageData> messages, final int status) {
+        for (final MessageData message : messages) {
+            setStatus(message.getMessageId(), status);
+        }
+    }
+
+    private void setStatus(final String messageId, final int status) {
+        final ContentValues values = new ContentValues();
+        values.put(MessageColumns.STATUS, status);
+        mDb.beginTransaction();
+        try {
+            BugleDatabaseOperations.updateMessageRow(mDb, messageId, values);
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    private static List<String> getMessageIds(final List<MessageData> messages) {
+        final List<String> messageIds = new ArrayList<String>();
+        for (final MessageData message : messages) {
+            messageIds.add(message.getMessageId());
+        }
+        return messageIds;
+    }
+
+    /**
+     * Stands in for SmsSender and the radio behind it, which sends one message at a time
+     */
+    private static class FakeSmsSender {
+        private final ExecutorService mRadio = Executors.newSingleThreadExecutor();
+        private final LinkedBlockingQueue<String> mResults = new LinkedBlockingQueue<String>();
+
+        void send(final String messageId) {
+            mRadio.execute(new Runnable() {
+                @Override
+                public void run() {
+                    SystemClock.sleep(AIRTIME_MS);
+                    mResults.add(messageId);
+                }
+            });
+        }
+
+        String takeResult() throws InterruptedException {
+            return mResults.poll(5, TimeUnit.SECONDS);
+        }
+
+        void shutdown() {
+            mRadio.shutdown();
+        }
+    }
+}
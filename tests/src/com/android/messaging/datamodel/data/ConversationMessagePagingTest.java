@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import com.android.messaging.BugleTestCase;
+import com.android.messaging.FakeContext;
+import com.android.messaging.FakeFactory;
+import com.android.messaging.datamodel.DataModel;
+import com.android.messaging.datamodel.DatabaseWrapper;
+import com.android.messaging.datamodel.FakeDataModel;
+
+/**
+ * Checks the windows of the message list bounded by a (received timestamp, message id) position
+ * and a limit, and compares the time to show the newest message of long conversations when
+ * loading the first page against loading the whole conversation.
+ */
+public class ConversationMessagePagingTest extends BugleTestCase {
+    private static final String TAG = "ConversationMessagePagingTest";
+
+    private static final String CONVERSATION_ID = "1";
+    private static final int[] BENCHMARK_MESSAGES = { 1000, 10000, 50000 };
+    private static final int BENCHMARK_ITERATIONS = 3;
+    private static final String CONVERSATION_INDEX = "index_messages_conversation_received";
+
+    private DatabaseWrapper mDbWrapper;
+    private SQLiteDatabase mDb;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        final FakeContext context = new FakeContext(getTestContext());
+        FakeFactory.registerWithFakeContext(getTestContext(), context)
+                .withDataModel(new FakeDataModel(context));
+        mDbWrapper = DataModel.get().getDatabase();
+        mDb = mDbWrapper.getDatabase();
+    }
+
+    @SmallTest
+    public void testLimitLoadsNewestMessages() {
+        insertMessages(1, 10, 2 /* messagesPerTimestamp */);
+        final Cursor cursor = ConversationMessageData.queryConversationMessages(mDbWrapper,
+                CONVERSATION_ID, ConversationMessageData.NO_BOUND,
+                ConversationMessageData.NO_BOUND, 3);
+        try {
+            // Messages received at the same time come newest id first
+            assertMessageIds(cursor, 10, 9, 8);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @SmallTest
+    public void testBoundSplitsMessagesReceivedTogether() {
+        insertMessages(1, 10, 2 /* messagesPerTimestamp */);
+        // Messages 7 and 8 share a timestamp; the bound keeps 8 but not 7
+        final Cursor cursor = ConversationMessageData.queryConversationMessages(mDbWrapper,
+                CONVERSATION_ID, 4 /* sinceTimestamp */, 8 /* sinceMessageId */,
+                ConversationMessageData.NO_LIMIT);
+        try {
+            assertMessageIds(cursor, 10, 9, 8);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @SmallTest
+    public void testWindowReadsOnlyItsParts() {
+        insertMessages(1, 10, 1 /* messagesPerTimestamp */);
+        final Cursor cursor = ConversationMessageData.queryConversationMessages(mDbWrapper,
+                CONVERSATION_ID, ConversationMessageData.NO_BOUND,
+                ConversationMessageData.NO_BOUND, 2);
+        try {
+            final ConversationMessagePartsCursor partsCursor =
+                    (ConversationMessagePartsCursor) cursor;
+            assertEquals(1, partsCursor.getParts(10).size());
+            assertEquals(1, partsCursor.getParts(9).size());
+            assertTrue(partsCursor.getParts(8).isEmpty());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @SmallTest
+    public void testPagesJoinWithoutGapsOrRepeats() {
+        insertMessages(1, 25, 3 /* messagesPerTimestamp */);
+        final Cursor firstPage = ConversationMessageData.queryConversationMessages(mDbWrapper,
+                CONVERSATION_ID, ConversationMessageData.NO_BOUND,
+                ConversationMessageData.NO_BOUND, 11);
+        final ConversationMessageData oldest = new ConversationMessageData();
+        try {
+            assertTrue(firstPage.moveToLast());
+            oldest.bind(firstPage);
+        } finally {
+            firstPage.close();
+        }
+        // Pinning the first page at its oldest message gives back the same messages, leaving out
+        // 13 and 14 which were received together with it
+        final Cursor pinned = ConversationMessageData.queryConversationMessages(mDbWrapper,
+                CONVERSATION_ID, oldest.getReceivedTimeStamp(),
+                Long.parseLong(oldest.getMessageId()), ConversationMessageData.NO_LIMIT);
+        try {
+            assertMessageIds(pinned, 25, 24, 23, 22, 21, 20, 19, 18, 17, 16, 15);
+        } finally {
+            pinned.close();
+        }
+    }
+
+    @SmallTest
+    public void testPageQueriesReadConversationIndex() {
+        insertMessages(1, 10, 1 /* messagesPerTimestamp */);
+        final String[] args = new String[] { CONVERSATION_ID };
+        final String[] boundedArgs = new String[] { CONVERSATION_ID, "5", "5", "5" };
+        // The newest page and the pinned window are read in list order off the index, without
+        // sorting the conversation first
+        assertReadsIndexInOrder(ConversationMessageData.getConversationMessagesQuerySql(
+                false /* bounded */, ConversationData.MESSAGES_PAGE_SIZE), args);
+        assertReadsIndexInOrder(ConversationMessageData.getConversationMessagesPartsQuerySql(
+                false /* bounded */, ConversationData.MESSAGES_PAGE_SIZE), args);
+        assertReadsIndexInOrder(ConversationMessageData.getConversationMessagesQuerySql(
+                true /* bounded */, ConversationMessageData.NO_LIMIT), boundedArgs);
+    }
+
+    /**
+     * Time from querying the message list to binding its newest message, as the conversation
+     * screen does before it can show the first bubble, for the first page and the whole list,
+     * and for the first page without the message list index.
+     */
+    @LargeTest
+    public void testTimeToFirstBubbleBenchmark() {
+        int inserted = 0;
+        for (final int messageCount : BENCHMARK_MESSAGES) {
+            insertMessages(inserted + 1, messageCount, 1 /* messagesPerTimestamp */);
+            inserted = messageCount;
+            // Warm up
+            timeToFirstBubble(ConversationData.MESSAGES_PAGE_SIZE);
+            long pageTotal = 0;
+            long allTotal = 0;
+            for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                pageTotal += timeToFirstBubble(ConversationData.MESSAGES_PAGE_SIZE);
+                allTotal += timeToFirstBubble(ConversationMessageData.NO_LIMIT);
+            }
+
+            mDb.execSQL("DROP INDEX " + CONVERSATION_INDEX);
+            long unindexedPageTotal = 0;
+            try {
+                timeToFirstBubble(ConversationData.MESSAGES_PAGE_SIZE);
+                for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+                    unindexedPageTotal += timeToFirstBubble(ConversationData.MESSAGES_PAGE_SIZE);
+                }
+            } finally {
+                mDb.execSQL("CREATE INDEX " + CONVERSATION_INDEX
+                        + " ON messages (conversation_id, received_timestamp, _id)");
+            }
+            Log.i(TAG, messageCount + " messages: first page "
+                    + pageTotal / BENCHMARK_ITERATIONS + "ms (without the index "
+                    + unindexedPageTotal / BENCHMARK_ITERATIONS + "ms), whole conversation "
+                    + allTotal / BENCHMARK_ITERATIONS + "ms to first bubble");
+        }
+    }
+
+    private void assertReadsIndexInOrder(final String sql, final String[] args) {
+        final Cursor plan = mDb.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        final StringBuilder details = new StringBuilder();
+        try {
+            while (plan.moveToNext()) {
+                // The last column is the detail text in every SQLite version
+                details.append(plan.getString(plan.getColumnCount() - 1)).append('\n');
+            }
+        } finally {
+            plan.close();
+        }
+        assertTrue(details.toString(), details.indexOf(CONVERSATION_INDEX) >= 0);
+        assertTrue(details.toString(), details.indexOf("TEMP B-TREE") < 0);
+    }
+
+    private long timeToFirstBubble(final int limit) {
+        final long start = SystemClock.elapsedRealtime();
+        final Cursor cursor = ConversationMessageData.queryConversationMessages(mDbWrapper,
+                CONVERSATION_ID, ConversationMessageData.NO_BOUND,
+                ConversationMessageData.NO_BOUND, limit);
+        try {
+            assertTrue(cursor.moveToFirst());
+            new ConversationMessageData().bind(cursor);
+            return SystemClock.elapsedRealtime() - start;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void assertMessageIds(final Cursor cursor, final long... expectedIds) {
+        assertEquals(expectedIds.length, cursor.getCount());
+        final ConversationMessageData data = new ConversationMessageData();
+        for (final long expectedId : expectedIds) {
+            assertTrue(cursor.moveToNext());
+            data.bind(cursor);
+            assertEquals(Long.toString(expectedId), data.getMessageId());
+        }
+    }
+
+    /**
+     * Insert messages with ids from first to last, each with a text part, giving every run of
+     * messagesPerTimestamp messages the same received timestamp
+     */
+    private void insertMessages(final int first, final int last,
+            final int messagesPerTimestamp) {
+        mDb.beginTransaction();
+        try {
+            mDb.execSQL("INSERT OR IGNORE INTO conversations (_id, name) VALUES (1, 'Ann')");
+            for (int i = first; i <= last; i++) {
+                mDb.execSQL("INSERT INTO messages (_id, conversation_id, message_status,"
+                        + " received_timestamp) VALUES (?, 1, 100, ?)",
+                        new Object[] { i, (i + messagesPerTimestamp - 1) / messagesPerTimestamp });
+                mDb.execSQL("INSERT INTO parts (message_id, conversation_id, content_type, text)"
+                        + " VALUES (?, 1, 'text/plain', ?)",
+                        new Object[] { i, "Message " + i });
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+}
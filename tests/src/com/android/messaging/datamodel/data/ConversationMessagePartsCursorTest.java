@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel.data;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import com.android.messaging.BugleTestCase;
+import com.android.messaging.FakeContext;
+import com.android.messaging.FakeFactory;
+import com.android.messaging.datamodel.DataModel;
+import com.android.messaging.datamodel.DatabaseWrapper;
+import com.android.messaging.datamodel.FakeDataModel;
+
+import java.util.List;
+
+/**
+ * Checks that the message list binds the same parts from its batched parts query as from the
+ * group_concat'ed parts columns, and compares the cost of binding the rows each way.
+ */
+public class ConversationMessagePartsCursorTest extends BugleTestCase {
+    private static final String TAG = "ConversationMessagePartsCursorTest";
+
+    private static final String CONVERSATION_ID = "1";
+    private static final int BENCHMARK_MESSAGES = 2000;
+    private static final int BENCHMARK_ITERATIONS = 5;
+
+    private DatabaseWrapper mDbWrapper;
+    private SQLiteDatabase mDb;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        final FakeContext context = new FakeContext(getTestContext());
+        FakeFactory.registerWithFakeContext(getTestContext(), context)
+                .withDataModel(new FakeDataModel(context));
+        mDbWrapper = DataModel.get().getDatabase();
+        mDb = mDbWrapper.getDatabase();
+    }
+
+    @SmallTest
+    public void testListPartsMatchPackedParts() {
+        insertMessages(50);
+        // Drafts stay out of the list
+        mDb.execSQL("INSERT INTO messages (_id, conversation_id, message_status,"
+                + " received_timestamp) VALUES (1000, 1, 3, 1000)");
+        mDb.execSQL("INSERT INTO parts (message_id, conversation_id, content_type, text)"
+                + " VALUES (1000, 1, 'text/plain', 'draft')");
+
+        final Cursor packed = queryPacked();
+        final Cursor list = ConversationMessageData.queryConversationMessages(mDbWrapper,
+                CONVERSATION_ID);
+        try {
+            assertEquals(50, list.getCount());
+            assertEquals(packed.getCount(), list.getCount());
+            final ConversationMessageData packedData = new ConversationMessageData();
+            final ConversationMessageData listData = new ConversationMessageData();
+            while (packed.moveToNext()) {
+                assertTrue(list.moveToNext());
+                packedData.bind(packed);
+                listData.bind(list);
+                assertEquals(packedData.getMessageId(), listData.getMessageId());
+                assertEquals(packedData.getText(), listData.getText());
+                assertPartsEqual(packedData.getParts(), listData.getParts());
+            }
+        } finally {
+            packed.close();
+            list.close();
+        }
+    }
+
+    @SmallTest
+    public void testMessagesWithoutPartsKeepTheirRows() {
+        insertMessages(2);
+        // Two MMS waiting to be downloaded, which have no parts yet
+        for (int i = 3; i <= 4; i++) {
+            mDb.execSQL("INSERT INTO messages (_id, conversation_id, message_status,"
+                    + " received_timestamp) VALUES (?, 1, 101, ?)", new Object[] { i, i });
+        }
+
+        final Cursor packed = queryPacked();
+        final Cursor list = ConversationMessageData.queryConversationMessages(mDbWrapper,
+                CONVERSATION_ID);
+        final Cursor ids = mDbWrapper.rawQuery(
+                ConversationMessageData.getConversationMessageIdsQuerySql(),
+                new String[] { CONVERSATION_ID });
+        try {
+            // The packed query grouped both into one row on their NULL parts.message_id
+            assertEquals(3, packed.getCount());
+            assertEquals(4, list.getCount());
+            assertEquals(list.getCount(), ids.getCount());
+            final ConversationMessageData data = new ConversationMessageData();
+            for (final String expectedId : new String[] { "4", "3" }) {
+                assertTrue(list.moveToNext());
+                assertTrue(ids.moveToNext());
+                data.bind(list);
+                assertEquals(expectedId, data.getMessageId());
+                assertEquals(expectedId, ids.getString(0));
+                assertTrue(data.getParts().isEmpty());
+            }
+        } finally {
+            packed.close();
+            list.close();
+            ids.close();
+        }
+    }
+
+    @SmallTest
+    public void testPartsFoundThroughWrappers() {
+        insertMessages(2);
+        final Cursor list = ConversationMessageData.queryConversationMessages(mDbWrapper,
+                CONVERSATION_ID);
+        try {
+            final Cursor wrapped = new CursorWrapper(list);
+            assertTrue(wrapped.moveToFirst());
+            final ConversationMessageData data = new ConversationMessageData();
+            data.bind(wrapped);
+            assertEquals(2, data.getParts().size());
+        } finally {
+            list.close();
+        }
+    }
+
+    @LargeTest
+    public void testBindMessageListBenchmark() {
+        insertMessages(BENCHMARK_MESSAGES);
+        for (int round = 0; round < 2; round++) {
+            final Cursor packed = queryPacked();
+            final Cursor list = ConversationMessageData.queryConversationMessages(mDbWrapper,
+                    CONVERSATION_ID);
+            try {
+                final long[] packedCost = timeBindAll(packed);
+                final long[] listCost = timeBindAll(list);
+                // The first round is a warm up
+                if (round > 0) {
+                    Log.i(TAG, BENCHMARK_MESSAGES + " messages: packed parts " + packedCost[0]
+                            + "ms, " + packedCost[1] + " allocations; batched parts "
+                            + listCost[0] + "ms, " + listCost[1] + " allocations per bind pass");
+                }
+            } finally {
+                packed.close();
+                list.close();
+            }
+        }
+    }
+
+    private Cursor queryPacked() {
+        return mDbWrapper.rawQuery(ConversationMessageData.getPackedConversationMessagesQuerySql(),
+                new String[] { CONVERSATION_ID });
+    }
+
+    /**
+     * Bind every row of the cursor, as the message list does while scrolling through it
+     * @return the time in ms and the number of allocations of one pass over the cursor
+     */
+    @SuppressWarnings("deprecation")
+    private static long[] timeBindAll(final Cursor cursor) {
+        final ConversationMessageData data = new ConversationMessageData();
+        // Fill the cursor window up front so that only binding is measured
+        cursor.getCount();
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        final long start = SystemClock.elapsedRealtime();
+        for (int i = 0; i < BENCHMARK_ITERATIONS; i++) {
+            cursor.moveToPosition(-1);
+            while (cursor.moveToNext()) {
+                data.bind(cursor);
+            }
+        }
+        final long elapsed = SystemClock.elapsedRealtime() - start;
+        Debug.stopAllocCounting();
+        return new long[] { elapsed / BENCHMARK_ITERATIONS,
+                Debug.getThreadAllocCount() / BENCHMARK_ITERATIONS };
+    }
+
+    private void insertMessages(final int count) {
+        mDb.beginTransaction();
+        try {
+            mDb.execSQL("INSERT INTO conversations (_id, name) VALUES (1, 'Ann')");
+            for (int i = 1; i <= count; i++) {
+                mDb.execSQL("INSERT INTO messages (_id, conversation_id, message_status,"
+                        + " received_timestamp) VALUES (?, 1, 100, ?)",
+                        new Object[] { i, i });
+                if (i % 2 == 0) {
+                    // An MMS with a picture and a caption
+                    mDb.execSQL("INSERT INTO parts (message_id, conversation_id, content_type,"
+                            + " uri, width, height) VALUES (?, 1, 'image/jpeg', ?, 640, 480)",
+                            new Object[] { i, "content://mms/part/" + i });
+                }
+                // Quotes and dividers must survive the packing
+                mDb.execSQL("INSERT INTO parts (message_id, conversation_id, content_type, text)"
+                        + " VALUES (?, 1, 'text/plain', ?)",
+                        new Object[] { i, "It's message | " + i });
+            }
+            mDb.setTransactionSuccessful();
+        } finally {
+            mDb.endTransaction();
+        }
+    }
+
+    private static void assertPartsEqual(final List<MessagePartData> expected,
+            final List<MessagePartData> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            final MessagePartData expectedPart = expected.get(i);
+            final MessagePartData actualPart = actual.get(i);
+            assertEquals(expectedPart.getPartId(), actualPart.getPartId());
+            assertEquals(expectedPart.getMessageId(), actualPart.getMessageId());
+            assertEquals(expectedPart.getContentType(), actualPart.getContentType());
+            assertEquals(expectedPart.getContentUri(), actualPart.getContentUri());
+            assertEquals(expectedPart.getText(), actualPart.getText());
+            assertEquals(expectedPart.getWidth(), actualPart.getWidth());
+            assertEquals(expectedPart.getHeight(), actualPart.getHeight());
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel.media;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+public class MediaCacheTest extends AndroidTestCase {
+    private static final String TAG = "MediaCacheTest";
+
+    private static final int KB = 1024;
+
+    @SmallTest
+    public void testRefCountsFollowCacheMembership() {
+        final MediaCache<FakeImageResource> cache = new MediaCache<FakeImageResource>(10, 0, "");
+        final FakeImageResource resource = new FakeImageResource(KB, "a");
+        resource.addRef();
+        cache.addResourceToCache("a", resource);
+        assertEquals(2, resource.getRefCount());
+
+        final FakeImageResource fetched = cache.fetchResourceFromCache("a");
+        assertSame(resource, fetched);
+        assertEquals(3, resource.getRefCount());
+        fetched.release();
+
+        cache.remove("a");
+        assertEquals(1, resource.getRefCount());
+        resource.release();
+        assertTrue(resource.isClosed());
+    }
+
+    @SmallTest
+    public void testEvictsLeastRecentlyUsedAcrossSegments() {
+        final MediaCache<FakeImageResource> cache =
+                new MediaCache<FakeImageResource>(3, 0, "", 4);
+        final FakeImageResource[] resources = new FakeImageResource[4];
+        for (int i = 0; i < 3; i++) {
+            resources[i] = new FakeImageResource(KB, "image" + i);
+            cache.addResourceToCache("image" + i, resources[i]);
+        }
+        // Touch the oldest entry so the second one becomes the least recently used
+        cache.fetchResourceFromCache("image0").release();
+
+        resources[3] = new FakeImageResource(KB, "image3");
+        cache.addResourceToCache("image3", resources[3]);
+
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertTrue(resources[1].isClosed());
+        assertFalse(resources[0].isClosed());
+        assertNull(cache.fetchResourceFromCache("image1"));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+
+        cache.evictAll();
+        assertEquals(0, cache.size());
+        for (final FakeImageResource resource : resources) {
+            assertTrue(resource.isClosed());
+        }
+    }
+
+    @SmallTest
+    public void testOversizedResourceIsNotKept() {
+        final MediaCache<FakeImageResource> cache = new MediaCache<FakeImageResource>(4, 0, "");
+        final FakeImageResource resource = new FakeImageResource(5 * KB, "big");
+        cache.addResourceToCache("big", resource);
+        assertEquals(0, cache.size());
+        assertTrue(resource.isClosed());
+    }
+
+    /**
+     * Compare throughput of the segmented cache against a cache locked as a whole, the way
+     * MediaCache used to be, with several threads mostly fetching and sometimes adding entries.
+     */
+    @LargeTest
+    public void testConcurrentThroughputBenchmark() throws InterruptedException {
+        final int threads = 10;
+        final int operationsPerThread = 200000;
+        for (int round = 0; round < 3; round++) {
+            final long lockedMs = runBenchmark(new LockedCacheAccess(), threads,
+                    operationsPerThread);
+            final long segmentedMs = runBenchmark(new SegmentedCacheAccess(), threads,
+                    operationsPerThread);
+            // The first round is a warm up
+            if (round > 0) {
+                Log.i(TAG, threads + " threads x " + operationsPerThread + " operations: locked "
+                        + lockedMs + "ms, segmented " + segmentedMs + "ms");
+            }
+        }
+    }
+
+    private interface CacheAccess {
+        FakeImageResource fetch(String key);
+        void add(String key, FakeImageResource resource);
+    }
+
+    private static class SegmentedCacheAccess implements CacheAccess {
+        private final MediaCache<FakeImageResource> mCache =
+                new MediaCache<FakeImageResource>(256, 0, "Segmented");
+
+        @Override
+        public FakeImageResource fetch(final String key) {
+            return mCache.fetchResourceFromCache(key);
+        }
+
+        @Override
+        public void add(final String key, final FakeImageResource resource) {
+            mCache.addResourceToCache(key, resource);
+        }
+    }
+
+    /**
+     * The previous MediaCache implementation, synchronized on the whole cache
+     */
+    private static class LockedCacheAccess extends LruCache<String, FakeImageResource>
+            implements CacheAccess {
+        LockedCacheAccess() {
+            super(256);
+        }
+
+        @Override
+        public synchronized FakeImageResource fetch(final String key) {
+            final FakeImageResource ret = get(key);
+            if (ret != null) {
+                ret.addRef();
+            }
+            return ret;
+        }
+
+        @Override
+        public synchronized void add(final String key, final FakeImageResource resource) {
+            resource.addRef();
+            put(key, resource);
+        }
+
+        @Override
+        protected synchronized void entryRemoved(final boolean evicted, final String key,
+                final FakeImageResource oldValue, final FakeImageResource newValue) {
+            oldValue.release();
+        }
+
+        @Override
+        protected int sizeOf(final String key, final FakeImageResource value) {
+            return Math.max(1, value.getMediaSize() / KB);
+        }
+    }
+
+    private static long runBenchmark(final CacheAccess cache, final int threadCount,
+            final int operationsPerThread) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        final ArrayList<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            final Random random = new Random(t);
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < operationsPerThread; i++) {
+                            final String key = "key" + random.nextInt(512);
+                            final FakeImageResource resource = cache.fetch(key);
+                            if (resource != null) {
+                                resource.release();
+                            } else if (random.nextInt(4) == 0) {
+                                cache.add(key, new FakeImageResource(KB, key));
+                            }
+                        }
+                    } catch (final InterruptedException e) {
+                        // Ends the thread
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }));
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        final long startTime = SystemClock.elapsedRealtime();
+        start.countDown();
+        done.await();
+        return SystemClock.elapsedRealtime() - startTime;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel.media;
+
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+@SmallTest
+public class MediaDiskCacheTest extends AndroidTestCase {
+    private static final Uri URI1 = Uri.parse("content://mms/part/1");
+    private static final Uri URI2 = Uri.parse("content://mms/part/2");
+
+    private File mDirectory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDirectory = new File(getContext().getCacheDir(), "media_disk_cache_test");
+        deleteDirectory();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        deleteDirectory();
+        super.tearDown();
+    }
+
+    public void testReadBackWrittenEntry() {
+        final MediaDiskCache cache = new MediaDiskCache(mDirectory, 1024);
+        final byte[] bytes = makeBytes(100, 1);
+        cache.write(URI1, "key1", bytes, 90);
+
+        // A fresh instance loads its entries from the directory
+        final EncodedImageResource resource =
+                new MediaDiskCache(mDirectory, 1024).read(URI1, "key1");
+        assertNotNull(resource);
+        assertTrue(Arrays.equals(bytes, resource.getBytes()));
+        assertEquals(90, resource.getOrientation());
+        assertNull(cache.read(URI1, "key2"));
+    }
+
+    public void testCorruptedEntryIsDropped() throws IOException {
+        final MediaDiskCache cache = new MediaDiskCache(mDirectory, 1024);
+        cache.write(URI1, "key1", makeBytes(100, 1), 0);
+
+        final File file = new File(mDirectory, MediaDiskCache.getFileName(URI1, "key1"));
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(raf.length() - 1);
+            raf.write(0xff);
+        } finally {
+            raf.close();
+        }
+
+        assertNull(cache.read(URI1, "key1"));
+        assertFalse(file.exists());
+        assertEquals(0, cache.size());
+    }
+
+    public void testCorruptedLengthIsDropped() throws IOException {
+        // Negative, and too large to allocate
+        for (final int length : new int[] { -1, Integer.MAX_VALUE }) {
+            final MediaDiskCache cache = new MediaDiskCache(mDirectory, 1024);
+            cache.write(URI1, "key1", makeBytes(100, 1), 0);
+
+            final File file = new File(mDirectory, MediaDiskCache.getFileName(URI1, "key1"));
+            final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                // After the magic, the key and the orientation
+                raf.seek(4 + 2 + "key1".length() + 4);
+                raf.writeInt(length);
+            } finally {
+                raf.close();
+            }
+
+            assertNull(cache.read(URI1, "key1"));
+            assertFalse(file.exists());
+            assertEquals(0, cache.size());
+        }
+    }
+
+    public void testEvictsLeastRecentlyUsed() {
+        final MediaDiskCache cache = new MediaDiskCache(mDirectory, 400);
+        cache.write(URI1, "key1", makeBytes(100, 1), 0);
+        cache.write(URI1, "key2", makeBytes(100, 2), 0);
+        assertNotNull(cache.read(URI1, "key1"));
+        cache.write(URI1, "key3", makeBytes(100, 3), 0);
+        cache.write(URI1, "key4", makeBytes(100, 4), 0);
+
+        assertTrue(cache.size() <= 400);
+        assertNull(cache.read(URI1, "key2"));
+        assertNotNull(cache.read(URI1, "key1"));
+        assertNotNull(cache.read(URI1, "key4"));
+    }
+
+    public void testInvalidateDropsAllEntriesOfUri() {
+        final MediaDiskCache cache = new MediaDiskCache(mDirectory, 1024);
+        cache.write(URI1, "key1", makeBytes(100, 1), 0);
+        cache.write(URI1, "key2", makeBytes(100, 2), 0);
+        cache.write(URI2, "key3", makeBytes(100, 3), 0);
+
+        cache.invalidate(URI1);
+        assertNull(cache.read(URI1, "key1"));
+        assertNull(cache.read(URI1, "key2"));
+        assertNotNull(cache.read(URI2, "key3"));
+    }
+
+    public void testInvalidateDropsEntriesOfEveryUri() {
+        final MediaDiskCache cache = new MediaDiskCache(mDirectory, 1024);
+        final Uri uri3 = Uri.parse("content://mms/part/3");
+        cache.write(URI1, "key1", makeBytes(100, 1), 0);
+        cache.write(URI2, "key2", makeBytes(100, 2), 0);
+        cache.write(uri3, "key3", makeBytes(100, 3), 0);
+        // The entries have keys and data of the same length, so take the same space
+        final long entrySize = cache.size() / 3;
+
+        cache.invalidate(Arrays.asList(URI1, URI2));
+        assertNull(cache.read(URI1, "key1"));
+        assertNull(cache.read(URI2, "key2"));
+        assertNotNull(cache.read(uri3, "key3"));
+        assertEquals(entrySize, cache.size());
+    }
+
+    private static byte[] makeBytes(final int length, final int seed) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * seed);
+        }
+        return bytes;
+    }
+
+    private void deleteDirectory() {
+        final File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+}
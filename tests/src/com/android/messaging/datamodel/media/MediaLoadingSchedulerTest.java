@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.datamodel.media;
+
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@SmallTest
+public class MediaLoadingSchedulerTest extends AndroidTestCase {
+    private final List<String> mExecuted = Collections.synchronizedList(new ArrayList<String>());
+
+    public void testNewestRequestRunsFirst() throws InterruptedException {
+        final MediaLoadingScheduler scheduler = new MediaLoadingScheduler(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(4);
+        scheduler.schedule("blocking", new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocker.await();
+                } catch (final InterruptedException e) {
+                    fail("Interrupted");
+                }
+                done.countDown();
+            }
+        });
+        scheduler.schedule("a", new RecordingRunnable("a", done));
+        scheduler.schedule("b", new RecordingRunnable("b", done));
+        scheduler.schedule("c", new RecordingRunnable("c", done));
+        blocker.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        final ArrayList<String> expected = new ArrayList<String>();
+        Collections.addAll(expected, "c", "b", "a");
+        assertEquals(expected, mExecuted);
+    }
+
+    public void testDuplicateRequestsWaitForTheQueuedLoad() throws InterruptedException {
+        final MediaLoadingScheduler scheduler = new MediaLoadingScheduler(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(5);
+        scheduler.schedule(null, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    blocker.await();
+                } catch (final InterruptedException e) {
+                    fail("Interrupted");
+                }
+                done.countDown();
+            }
+        });
+        scheduler.schedule("a", new RecordingRunnable("a1", done));
+        scheduler.schedule("b", new RecordingRunnable("b", done));
+        // Moves the load of "a" ahead of "b" and waits for it
+        scheduler.schedule("a", new RecordingRunnable("a2", done));
+        scheduler.schedule("a", new RecordingRunnable("a3", done));
+        blocker.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("a1", mExecuted.get(0));
+        assertTrue(mExecuted.indexOf("a2") > 0);
+        assertTrue(mExecuted.indexOf("a3") > 0);
+        assertEquals(4, mExecuted.size());
+    }
+
+    private class RecordingRunnable implements Runnable {
+        private final String mName;
+        private final CountDownLatch mDone;
+
+        RecordingRunnable(final String name, final CountDownLatch done) {
+            mName = name;
+            mDone = done;
+        }
+
+        @Override
+        public void run() {
+            mExecuted.add(mName);
+            mDone.countDown();
+        }
+    }
+}
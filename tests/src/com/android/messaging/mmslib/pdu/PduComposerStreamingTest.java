@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.mmslib.pdu;
+
+import android.net.Uri;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.messaging.util.ContentType;
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.Files;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Checks that streaming a pdu with {@link PduComposer#make(java.io.OutputStream)} writes exactly
+ * the bytes that {@link PduComposer#make()} builds in memory.
+ */
+public class PduComposerStreamingTest extends AndroidTestCase {
+    // A send req to 5550100 with a single "hi" text part, encoded by hand from the MMS spec
+    private static final String GOLDEN_SEND_REQ =
+            "8c80985431008d928901819713ea353535303130302f545950453d504c4d4e00"
+            + "840db389746578742f706c61696e000118020d8385746578742e7478740081ea"
+            + "8e746578742e747874006869";
+
+    private File mDataFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mDataFile = new File(getContext().getCacheDir(), "pdu_composer_streaming_test.jpg");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mDataFile.delete();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testGoldenSendReq() throws IOException {
+        final SendReq sendReq = PduTestHelpers.makeSendReq();
+        final PduBody body = new PduBody();
+        body.addPart(PduTestHelpers.makePart(ContentType.TEXT_PLAIN, "text.txt", null,
+                "hi".getBytes()));
+        sendReq.setBody(body);
+
+        final byte[] golden = BaseEncoding.base16().lowerCase().decode(GOLDEN_SEND_REQ);
+        assertTrue(Arrays.equals(golden, new PduComposer(getContext(), sendReq).make()));
+        assertTrue(Arrays.equals(golden, makeStreamed(sendReq)));
+    }
+
+    @SmallTest
+    public void testStreamedSendReqMatchesInMemory() throws IOException {
+        // Large enough for multi-octet part lengths
+        final byte[] image = PduTestHelpers.makeImage(300 * 1024, 0);
+        Files.write(image, mDataFile);
+
+        final SendReq sendReq = PduTestHelpers.makeSendReq();
+        sendReq.addTo(new EncodedStringValue("someone@example.com"));
+        sendReq.setSubject(new EncodedStringValue("Subject"));
+        final PduBody body = new PduBody();
+        body.addPart(PduTestHelpers.makePart(ContentType.APP_SMIL, "smil.xml", "<smil>",
+                "<smil><body/></smil>".getBytes()));
+        body.addPart(PduTestHelpers.makePart(ContentType.TEXT_PLAIN, "text.txt", "text",
+                "Look".getBytes()));
+        final PduPart imagePart = PduTestHelpers.makePart(ContentType.IMAGE_JPEG, "image.jpg",
+                "image", null);
+        imagePart.setDataUri(Uri.fromFile(mDataFile));
+        body.addPart(imagePart);
+        // Not a well known content type, so it is written out as text
+        body.addPart(PduTestHelpers.makePart("text/x-vcard", "contact.vcf", "contact",
+                "BEGIN:VCARD".getBytes()));
+        sendReq.setBody(body);
+
+        final byte[] expected = new PduComposer(getContext(), sendReq).make();
+        assertNotNull(expected);
+        assertTrue(Arrays.equals(expected, makeStreamed(sendReq)));
+    }
+
+    @SmallTest
+    public void testStreamedNotifyRespMatchesInMemory() throws Exception {
+        final NotifyRespInd notifyResp = new NotifyRespInd(PduHeaders.CURRENT_MMS_VERSION,
+                "T1".getBytes(), PduHeaders.STATUS_RETRIEVED);
+
+        final byte[] expected = new PduComposer(getContext(), notifyResp).make();
+        assertNotNull(expected);
+        assertTrue(Arrays.equals(expected, makeStreamed(notifyResp)));
+    }
+
+    @SmallTest
+    public void testMissingPartDataFails() throws IOException {
+        final SendReq sendReq = PduTestHelpers.makeSendReq();
+        final PduBody body = new PduBody();
+        final PduPart imagePart = PduTestHelpers.makePart(ContentType.IMAGE_JPEG, "image.jpg",
+                "image", null);
+        imagePart.setDataUri(Uri.fromFile(mDataFile));
+        body.addPart(imagePart);
+        sendReq.setBody(body);
+
+        assertFalse(new PduComposer(getContext(), sendReq).make(new ByteArrayOutputStream()));
+    }
+
+    private byte[] makeStreamed(final GenericPdu pdu) throws IOException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertTrue(new PduComposer(getContext(), pdu).make(output));
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.mmslib.pdu;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import com.android.messaging.util.ContentType;
+import com.google.common.io.BaseEncoding;
+
+
+/**
+ * Parses a corpus of the pdus the app receives, and measures the allocations of parsing them.
+ */
+public class PduParserCorpusTest extends AndroidTestCase {
+    private static final String TAG = "PduParserCorpusTest";
+
+    private static final int BENCHMARK_ITERATIONS = 1000;
+
+    // Notification for a 64KB message at http://mmsc.example.com/m1
+    private static final String NOTIFICATION_IND =
+            "8c82985431008d92891380353535303130302f545950453d504c4d4e008a808e"
+            + "0301000088058103093a8083687474703a2f2f6d6d73632e6578616d706c652e"
+            + "636f6d2f6d3100";
+
+    // Delivery report for message msg1 to 5550100
+    private static final String DELIVERY_IND =
+            "8c868d928b6d7367310097353535303130302f545950453d504c4d4e0085045f"
+            + "5e10009581";
+
+    // Send confirmation for message msg1, as checked by the platform's MMS service
+    private static final String SEND_CONF = "8c81985431008d9292808b6d73673100";
+
+    @SmallTest
+    public void testParseNotificationInd() {
+        final NotificationInd ind = (NotificationInd) parse(NOTIFICATION_IND);
+        assertEquals("http://mmsc.example.com/m1", new String(ind.getContentLocation()));
+        assertEquals(64 * 1024, ind.getMessageSize());
+        assertEquals("T1", new String(ind.getTransactionId()));
+    }
+
+    @SmallTest
+    public void testParseDeliveryInd() {
+        final DeliveryInd ind = (DeliveryInd) parse(DELIVERY_IND);
+        assertEquals("msg1", new String(ind.getMessageId()));
+        assertEquals(PduHeaders.STATUS_RETRIEVED, ind.getStatus());
+    }
+
+    @SmallTest
+    public void testParseSendConf() {
+        final SendConf conf = (SendConf) parse(SEND_CONF);
+        assertEquals(PduHeaders.RESPONSE_STATUS_OK, conf.getResponseStatus());
+        assertEquals("msg1", new String(conf.getMessageId()));
+    }
+
+    @SmallTest
+    public void testParseRetrieveConf() {
+        final RetrieveConf conf =
+                (RetrieveConf) new PduParser(makeRetrieveConf(), true).parse();
+        final PduBody body = conf.getBody();
+        assertEquals(3, body.getPartsNum());
+        assertEquals("<smil>", new String(body.getPart(0).getContentId()));
+        assertEquals("Look at this", new String(body.getPart(1).getData()));
+        assertEquals(32 * 1024, body.getPart(2).getData().length);
+    }
+
+    @LargeTest
+    @SuppressWarnings("deprecation")
+    public void testParseCorpusBenchmark() {
+        final byte[][] corpus = new byte[][] {
+                decode(NOTIFICATION_IND), makeRetrieveConf(), decode(DELIVERY_IND),
+                decode(SEND_CONF) };
+        final String[] names = new String[] {
+                "notification-ind", "retrieve-conf", "delivery-ind", "send-conf" };
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < corpus.length; i++) {
+                Debug.resetThreadAllocCount();
+                Debug.resetThreadAllocSize();
+                Debug.startAllocCounting();
+                final long start = SystemClock.elapsedRealtime();
+                for (int j = 0; j < BENCHMARK_ITERATIONS; j++) {
+                    assertNotNull(new PduParser(corpus[i], true).parse());
+                }
+                final long elapsed = SystemClock.elapsedRealtime() - start;
+                Debug.stopAllocCounting();
+                // The first round is a warm up
+                if (round > 0) {
+                    Log.i(TAG, names[i] + ": " + (elapsed * 1000 / BENCHMARK_ITERATIONS)
+                            + "us, " + Debug.getThreadAllocCount() / BENCHMARK_ITERATIONS
+                            + " allocations, " + Debug.getThreadAllocSize() / BENCHMARK_ITERATIONS
+                            + " bytes per parse");
+                }
+            }
+        }
+    }
+
+    private static GenericPdu parse(final String pdu) {
+        final GenericPdu result = new PduParser(decode(pdu), true).parse();
+        assertNotNull(result);
+        return result;
+    }
+
+    private static byte[] decode(final String pdu) {
+        return BaseEncoding.base16().lowerCase().decode(pdu);
+    }
+
+    /**
+     * Make a retrieve conf with a slide of text and a picture, the way an MMSC would forward
+     * a send req.
+     */
+    private byte[] makeRetrieveConf() {
+        final SendReq sendReq = PduTestHelpers.makeSendReq();
+        sendReq.setDate(1600000000L);
+        final PduBody body = new PduBody();
+        body.addPart(PduTestHelpers.makePart(ContentType.APP_SMIL, "smil.xml", "<smil>",
+                "<smil><body/></smil>".getBytes()));
+        body.addPart(PduTestHelpers.makePart(ContentType.TEXT_PLAIN, "text.txt", "<text>",
+                "Look at this".getBytes()));
+        body.addPart(PduTestHelpers.makePart(ContentType.IMAGE_JPEG, "image.jpg", "<image>",
+                PduTestHelpers.makeImage(32 * 1024, 0)));
+        sendReq.setBody(body);
+
+        final byte[] pdu = new PduComposer(getContext(), sendReq).make();
+        assertEquals(PduHeaders.MESSAGE_TYPE_SEND_REQ, pdu[1] & 0xff);
+        pdu[1] = (byte) PduHeaders.MESSAGE_TYPE_RETRIEVE_CONF;
+        return pdu;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.mmslib.pdu;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import com.android.messaging.util.ContentType;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Checks that a streaming parse of a pdu file gives the same message as parsing the pdu bytes,
+ * and compares their heap use and parse time.
+ */
+public class PduParserStreamingTest extends AndroidTestCase {
+    private static final String TAG = "PduParserStreamingTest";
+
+    private static final String TEXT = "Look at this";
+    private static final int[] BENCHMARK_SIZES = { 300 * 1024, 1024 * 1024, 5 * 1024 * 1024 };
+
+    private File mPduFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mPduFile = new File(getContext().getCacheDir(), "pdu_parser_streaming_test.pdu");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mPduFile.delete();
+        super.tearDown();
+    }
+
+    @SmallTest
+    public void testStreamingParseMatchesInMemoryParse() throws IOException {
+        final byte[] image = PduTestHelpers.makeImage(64 * 1024, 64 * 1024);
+        final byte[] pdu = writePdu(image);
+
+        final MultimediaMessagePdu expected =
+                (MultimediaMessagePdu) new PduParser(pdu, true).parse();
+        final MultimediaMessagePdu actual =
+                (MultimediaMessagePdu) new PduParser(mPduFile, true).parse();
+        assertNotNull(expected);
+        assertNotNull(actual);
+        assertEquals(new String(expected.getContentType()), new String(actual.getContentType()));
+
+        final PduBody expectedBody = expected.getBody();
+        final PduBody actualBody = actual.getBody();
+        assertEquals(expectedBody.getPartsNum(), actualBody.getPartsNum());
+        for (int i = 0; i < expectedBody.getPartsNum(); i++) {
+            final PduPart expectedPart = expectedBody.getPart(i);
+            final PduPart actualPart = actualBody.getPart(i);
+            assertEquals(new String(expectedPart.getContentType()),
+                    new String(actualPart.getContentType()));
+            assertTrue(Arrays.equals(expectedPart.getData(), readData(actualPart)));
+        }
+
+        // Only the image is left in the file
+        final PduPart textPart = actualBody.getPart(0);
+        assertFalse(textPart.hasDataSlice());
+        assertEquals(TEXT, new String(textPart.getData()));
+        final PduPart imagePart = actualBody.getPart(1);
+        assertTrue(imagePart.hasDataSlice());
+        assertNull(imagePart.getData());
+        assertEquals(image.length, imagePart.getDataSliceLength());
+    }
+
+    @SmallTest
+    public void testStreamingParseOfTruncatedFileFails() throws IOException {
+        final byte[] pdu = writePdu(PduTestHelpers.makeImage(64 * 1024, 64 * 1024));
+        Files.write(Arrays.copyOf(pdu, 100), mPduFile);
+        assertNull(new PduParser(mPduFile, true).parse());
+    }
+
+    @LargeTest
+    public void testParseBenchmark() throws IOException {
+        for (final int size : BENCHMARK_SIZES) {
+            writePdu(PduTestHelpers.makeImage(size, size));
+            for (int round = 0; round < 2; round++) {
+                final long[] inMemory = measureParse(false);
+                final long[] streaming = measureParse(true);
+                // The first round is a warm up
+                if (round > 0) {
+                    Log.i(TAG, (size / 1024) + "KB pdu: in memory " + inMemory[0] + "ms, "
+                            + (inMemory[1] / 1024) + "KB heap; streaming " + streaming[0]
+                            + "ms, " + (streaming[1] / 1024) + "KB heap");
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse the pdu file the way a downloaded message is parsed
+     * @return the parse time in ms, and the heap in use when the parse is done, holding on to
+     * the pdu and its input as the persister does
+     */
+    private long[] measureParse(final boolean streaming) throws IOException {
+        final long heapBefore = getUsedHeap();
+        final long start = SystemClock.elapsedRealtime();
+        byte[] data = null;
+        final GenericPdu pdu;
+        if (streaming) {
+            pdu = new PduParser(mPduFile, true).parse();
+        } else {
+            data = Files.toByteArray(mPduFile);
+            pdu = new PduParser(data, true).parse();
+        }
+        final long elapsed = SystemClock.elapsedRealtime() - start;
+        final long heap = getUsedHeap() - heapBefore;
+        assertNotNull(pdu);
+        assertTrue(data == null || data.length > 0);
+        return new long[] { elapsed, heap };
+    }
+
+    private static long getUsedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private byte[] writePdu(final byte[] image) throws IOException {
+        final SendReq sendReq = PduTestHelpers.makeSendReq();
+        final PduBody body = new PduBody();
+        body.addPart(PduTestHelpers.makePart(ContentType.TEXT_PLAIN, "text.txt", "<text.txt>",
+                TEXT.getBytes()));
+        body.addPart(PduTestHelpers.makePart(ContentType.IMAGE_JPEG, "image.jpg", "<image.jpg>",
+                image));
+        sendReq.setBody(body);
+
+        final byte[] pdu = new PduComposer(getContext(), sendReq).make();
+        assertNotNull(pdu);
+        Files.write(pdu, mPduFile);
+        return pdu;
+    }
+
+    private static byte[] readData(final PduPart part) throws IOException {
+        if (!part.hasDataSlice()) {
+            return part.getData();
+        }
+        final InputStream in = part.openDataSlice();
+        try {
+            return ByteStreams.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.mmslib.pdu;
+
+import java.util.Random;
+
+/**
+ * Builds the messages the pdu tests compose and parse.
+ */
+class PduTestHelpers {
+    /**
+     * @return a send req to 5550100 with a fixed transaction id in place of the time based one
+     */
+    static SendReq makeSendReq() {
+        final SendReq sendReq = new SendReq();
+        sendReq.setTransactionId("T1".getBytes());
+        sendReq.addTo(new EncodedStringValue("5550100"));
+        return sendReq;
+    }
+
+    /**
+     * @param contentId the content id of the part, or null to leave it out
+     * @param data the data of the part, or null to set it up later
+     */
+    static PduPart makePart(final String contentType, final String location,
+            final String contentId, final byte[] data) {
+        final PduPart part = new PduPart();
+        part.setCharset(CharacterSets.UTF_8);
+        part.setContentType(contentType.getBytes());
+        part.setContentLocation(location.getBytes());
+        if (contentId != null) {
+            part.setContentId(contentId.getBytes());
+        }
+        if (data != null) {
+            part.setData(data);
+        }
+        return part;
+    }
+
+    /**
+     * @return size bytes standing in for a picture, the same for the same seed
+     */
+    static byte[] makeImage(final int size, final long seed) {
+        final byte[] image = new byte[size];
+        new Random(seed).nextBytes(image);
+        return image;
+    }
+}
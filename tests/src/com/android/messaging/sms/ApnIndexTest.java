@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.sms;
+
+import android.content.ContentValues;
+import android.content.res.XmlResourceParser;
+import android.os.SystemClock;
+import android.provider.Telephony;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.util.Log;
+
+import com.android.messaging.BugleTestCase;
+import com.android.messaging.FakeFactory;
+import com.android.messaging.R;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that the bundled APN index gives the same APNs as parsing res/xml/apns.xml, and
+ * compares the time to find the APNs of one carrier both ways.
+ */
+public class ApnIndexTest extends BugleTestCase {
+    private static final String TAG = "ApnIndexTest";
+
+    private static final String[] BENCHMARK_MCC_MNCS = { "310260", "234010", "460001" };
+    private static final int BENCHMARK_ROUNDS = 5;
+
+    private ApnIndex mIndex;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        FakeFactory.register(getTestContext());
+        mIndex = ApnIndex.get(getTestContext());
+        assertNotNull(ApnIndex.ASSET_NAME + " is missing, the build did not generate it", mIndex);
+    }
+
+    @SmallTest
+    public void testRejectsOtherData() {
+        try {
+            new ApnIndex(ByteBuffer.wrap(new byte[64]));
+            fail("Read an APN index from zeros");
+        } catch (final IOException e) {
+            // Expected
+        }
+    }
+
+    @SmallTest
+    public void testUnknownCarrierHasNoApns() {
+        assertTrue(mIndex.getApns("999999").isEmpty());
+    }
+
+    @LargeTest
+    public void testSameApnsAsXml() {
+        final Map<String, List<ContentValues>> xmlApns = parseXml();
+        int count = 0;
+        for (final Map.Entry<String, List<ContentValues>> entry : xmlApns.entrySet()) {
+            assertEquals(entry.getKey(), entry.getValue(), mIndex.getApns(entry.getKey()));
+            count += entry.getValue().size();
+        }
+        assertEquals(count, mIndex.getApnCount());
+    }
+
+    /**
+     * Time finding the APNs of a carrier by parsing apns.xml, as building the local APN table
+     * did, against looking them up in the index.
+     */
+    @LargeTest
+    public void testLookupBenchmark() {
+        long xmlMillis = 0;
+        long indexNanos = 0;
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            long start = SystemClock.elapsedRealtime();
+            final Map<String, List<ContentValues>> xmlApns = parseXml();
+            xmlMillis += SystemClock.elapsedRealtime() - start;
+
+            start = System.nanoTime();
+            for (final String mccMnc : BENCHMARK_MCC_MNCS) {
+                mIndex.getApns(mccMnc);
+            }
+            indexNanos += System.nanoTime() - start;
+            assertFalse(xmlApns.isEmpty());
+        }
+        Log.i(TAG, "Finding the APNs of " + BENCHMARK_MCC_MNCS.length + " carriers: parsing XML "
+                + xmlMillis / BENCHMARK_ROUNDS + "ms, index "
+                + indexNanos / BENCHMARK_ROUNDS / 1000 + "us");
+    }
+
+    private Map<String, List<ContentValues>> parseXml() {
+        final Map<String, List<ContentValues>> apns =
+                new LinkedHashMap<String, List<ContentValues>>();
+        final XmlResourceParser parser = getTestContext().getResources().getXml(R.xml.apns);
+        try {
+            ApnsXmlProcessor.get(parser).setApnHandler(new ApnsXmlProcessor.ApnHandler() {
+                @Override
+                public void process(final ContentValues apnValues) {
+                    final String numeric = apnValues.getAsString(Telephony.Carriers.NUMERIC);
+                    List<ContentValues> carrierApns = apns.get(numeric);
+                    if (carrierApns == null) {
+                        carrierApns = new ArrayList<ContentValues>();
+                        apns.put(numeric, carrierApns);
+                    }
+                    // The processor reuses one ContentValues for every APN
+                    carrierApns.add(new ContentValues(apnValues));
+                }
+            }).process();
+        } finally {
+            parser.close();
+        }
+        return apns;
+    }
+}
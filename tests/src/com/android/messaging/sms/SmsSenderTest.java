@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.sms;
+
+import android.app.Activity;
+import android.telephony.SmsManager;
+import android.test.AndroidTestCase;
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.messaging.sms.SmsSender.SendCallback;
+import com.android.messaging.sms.SmsSender.SendResult;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests how {@link SendResult} collects the sent status of the parts of a message.
+ */
+@SmallTest
+public class SmsSenderTest extends AndroidTestCase {
+    private static final int THREADS = 8;
+    private static final int PARTS_PER_THREAD = 50;
+
+    public void testPartsFromManyThreads() throws Exception {
+        final AtomicInteger callbacks = new AtomicInteger();
+        final SendResult result = new SendResult(THREADS * PARTS_PER_THREAD,
+                new SendCallback() {
+                    @Override
+                    public void onSendComplete(final SendResult result) {
+                        callbacks.incrementAndGet();
+                    }
+                });
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            final boolean failOne = (i == THREADS / 2);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < PARTS_PER_THREAD; j++) {
+                        result.setPartResult(failOne && j == 0
+                                ? SmsManager.RESULT_ERROR_NO_SERVICE : Activity.RESULT_OK);
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertTrue(result.isComplete());
+        assertFalse(result.hasPending());
+        assertEquals(1, callbacks.get());
+        assertEquals(SendResult.FAILURE_LEVEL_TEMPORARY, result.getHighestFailureLevel());
+        assertTrue(result.getLatencyMs() >= 0);
+        assertEquals(MmsUtils.MMS_REQUEST_AUTO_RETRY, MmsUtils.getSmsSendStatus(result));
+    }
+
+    public void testHighestFailureLevelWins() {
+        final SendResult result = new SendResult(3);
+        result.setPartResult(SmsManager.RESULT_ERROR_GENERIC_FAILURE);
+        result.setPartResult(SmsManager.RESULT_ERROR_NO_SERVICE);
+        assertFalse(result.isComplete());
+        assertEquals(-1, result.getLatencyMs());
+        result.setPartResult(Activity.RESULT_OK);
+        assertEquals(SendResult.FAILURE_LEVEL_PERMANENT, result.getHighestFailureLevel());
+        assertEquals(MmsUtils.MMS_REQUEST_MANUAL_RETRY, MmsUtils.getSmsSendStatus(result));
+    }
+
+    public void testTimeOut() {
+        final AtomicInteger callbacks = new AtomicInteger();
+        final SendResult result = new SendResult(2, new SendCallback() {
+            @Override
+            public void onSendComplete(final SendResult result) {
+                callbacks.incrementAndGet();
+            }
+        });
+        result.setPartResult(Activity.RESULT_OK);
+        assertTrue(result.timeOut());
+        assertTrue(result.isComplete());
+        assertTrue(result.hasPending());
+        assertEquals(MmsUtils.MMS_REQUEST_MANUAL_RETRY, MmsUtils.getSmsSendStatus(result));
+
+        // A late part doesn't complete it again
+        result.setPartResult(Activity.RESULT_OK);
+        assertFalse(result.timeOut());
+        assertEquals(1, callbacks.get());
+    }
+}
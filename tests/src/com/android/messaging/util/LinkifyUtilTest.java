@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.util;
+
+import android.os.SystemClock;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.text.SpannableString;
+import android.text.util.Linkify;
+import android.util.Log;
+
+import com.android.messaging.BugleTestCase;
+import com.android.messaging.FakeFactory;
+
+import java.util.List;
+
+/**
+ * Checks that skipping the link patterns a text cannot match, as found by a single scan of the
+ * text, gives the same links as running every pattern, and measures the time saved.
+ */
+public class LinkifyUtilTest extends BugleTestCase {
+    private static final String TAG = "LinkifyUtilTest";
+
+    private static final int BENCHMARK_WARMUP_ROUNDS = 3;
+    private static final int BENCHMARK_ROUNDS = 10;
+    private static final int BENCHMARK_CORPUS_REPEATS = 50;
+
+    // Everyday messages, most of them without any link
+    private static final String[] SMS_CORPUS = {
+        "Running 10 min late, sorry!",
+        "ok",
+        "Can you pick up milk on the way home?",
+        "Happy birthday!! Hope you have a great day.",
+        "Your verification code is 482913. Do not share it with anyone.",
+        "Lunch tomorrow? The usual place at 12:30",
+        "Your package has shipped: https://track.example.com/p/1Z999AA10123456784",
+        "Call me back at +1 (650) 555-0123 when you can.",
+        "Sent the slides to ann.lee@example.com, let me know.",
+        "Dial *#06# to see the IMEI, or #31# to hide your number",
+        "Meeting moved to 2016年03月15日 in room 4",
+        "Thanks. See you there. Bye.",
+        "Check out www.example.org/menu.html for tonight",
+        "Server is at 192.168.1.20:8080/status",
+        "你好，明天见。",
+        "Reminder: dentist appointment Thursday at 3pm",
+    };
+
+    // Texts on the edges of what the scan lets through
+    private static final String[] EDGE_CASES = {
+        "",
+        "a",
+        "a-.com",
+        "end with a dot.",
+        "dot.",
+        ".dot",
+        "see example.中国 now",
+        "1.2.3.4",
+        "x@y",
+        "me@example.com.",
+        "***",
+        "(((",
+        "+",
+        "12",
+        "1",
+        "١٢٣ ٤٥٦",
+        "年",
+        "1600 Amphitheatre Parkway, Mountain View, CA 94043",
+        "http://example.com/a.pdf文件.txt",
+        "mixed www.example.com, +44 20 7946 0958, a@b.co and 2016年01月02日",
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        FakeFactory.register(getTestContext());
+    }
+
+    @SmallTest
+    public void testScanFindsLinkFeatures() {
+        assertEquals(0, LinkifyUtil.scanLinkFeatures("Thanks. See you there."));
+        assertEquals(0, LinkifyUtil.scanLinkFeatures(""));
+        assertTrue(LinkifyUtil.scanLinkFeatures("www.example.com") != 0);
+        assertTrue(LinkifyUtil.scanLinkFeatures("a@b") != 0);
+        assertTrue(LinkifyUtil.scanLinkFeatures("*#*") != 0);
+    }
+
+    @SmallTest
+    public void testSameLinksAsAllPasses() {
+        for (final String text : SMS_CORPUS) {
+            assertSameLinks(text);
+        }
+        for (final String text : EDGE_CASES) {
+            assertSameLinks(text);
+        }
+    }
+
+    /**
+     * Time finding the links of a corpus of everyday messages, running every pattern against
+     * skipping the patterns the scan rules out.
+     */
+    @LargeTest
+    public void testComputeNewLinksBenchmark() {
+        final int corpusSize = SMS_CORPUS.length * BENCHMARK_CORPUS_REPEATS;
+        final SpannableString[] corpus = new SpannableString[corpusSize];
+        for (int i = 0; i < corpusSize; i++) {
+            corpus[i] = SpannableString.valueOf(SMS_CORPUS[i % SMS_CORPUS.length]);
+        }
+        for (int round = 0; round < BENCHMARK_WARMUP_ROUNDS; round++) {
+            timeAllPasses(corpus);
+            timeScanned(corpus);
+        }
+        long allPassesNanos = 0;
+        long scannedNanos = 0;
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            allPassesNanos += timeAllPasses(corpus);
+            scannedNanos += timeScanned(corpus);
+        }
+        final long messages = (long) corpusSize * BENCHMARK_ROUNDS;
+        Log.i(TAG, "computeNewLinks over " + corpusSize + " messages: every pattern "
+                + allPassesNanos / messages + "ns/message, scanned first "
+                + scannedNanos / messages + "ns/message");
+    }
+
+    private static long timeAllPasses(final SpannableString[] corpus) {
+        final long start = SystemClock.elapsedRealtimeNanos();
+        for (final SpannableString text : corpus) {
+            LinkifyUtil.computeNewLinksWithAllPasses(text, Linkify.ALL);
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private static long timeScanned(final SpannableString[] corpus) {
+        final long start = SystemClock.elapsedRealtimeNanos();
+        for (final SpannableString text : corpus) {
+            LinkifyUtil.computeNewLinks(text, Linkify.ALL);
+        }
+        return SystemClock.elapsedRealtimeNanos() - start;
+    }
+
+    private static void assertSameLinks(final String text) {
+        final List<LinkSpec> expected = LinkifyUtil.computeNewLinksWithAllPasses(
+                SpannableString.valueOf(text), Linkify.ALL);
+        final List<LinkSpec> actual = LinkifyUtil.computeNewLinks(
+                SpannableString.valueOf(text), Linkify.ALL);
+        assertEquals(text, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(text, expected.get(i).url, actual.get(i).url);
+            assertEquals(text, expected.get(i).start, actual.get(i).start);
+            assertEquals(text, expected.get(i).end, actual.get(i).end);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.util;
+
+import android.os.SystemClock;
+import android.test.suitebuilder.annotation.LargeTest;
+import android.test.suitebuilder.annotation.SmallTest;
+import android.text.SpannableString;
+import android.text.util.Linkify;
+import android.util.Log;
+
+import com.android.messaging.BugleTestCase;
+import com.android.messaging.FakeFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests that {@link MessageLinksCache} finds the links of a message text once, and measures
+ * the throughput of {@link LinkifyUtil#computeNewLinks} and the bind time saved by the cache.
+ */
+public class MessageLinksCacheTest extends BugleTestCase {
+    private static final String TAG = "MessageLinksCacheTest";
+
+    private static final int BENCHMARK_MESSAGES = 1000;
+    // Times each message is bound, as when its bubble scrolls in and out of view
+    private static final int BENCHMARK_BINDS = 5;
+
+    private static final String[] LINK_HEAVY_TEXTS = {
+        "See http://www.example.com/path/report.pdf and mail ann@example.com",
+        "Call me on +1 650-555-0123 or at (650) 555-0199 after 6",
+        "Tickets: https://tickets.example.org/event?id=42&seat=7 code 8841",
+        "Meet at the cafe, www.example.net/menu, or ring 6505550100",
+        "Thanks! No links in this one, just a long enough message to scan through.",
+    };
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        FakeFactory.register(getTestContext());
+    }
+
+    @SmallTest
+    public void testComputesOncePerMessageText() {
+        final MessageLinksCache cache = new MessageLinksCache(16);
+        final String text = LINK_HEAVY_TEXTS[0];
+        assertNull(cache.getCachedLinks("1", text));
+
+        final List<LinkSpec> links = cache.getLinks("1", text);
+        assertFalse(links.isEmpty());
+        assertSame(links, cache.getLinks("1", text));
+        assertSame(links, cache.getCachedLinks("1", text));
+        assertEquals(1, cache.getComputeCount());
+
+        // A different text for the same message is scanned again
+        cache.getLinks("1", LINK_HEAVY_TEXTS[1]);
+        assertEquals(2, cache.getComputeCount());
+    }
+
+    @SmallTest
+    public void testCachesMessagesWithoutLinks() {
+        final MessageLinksCache cache = new MessageLinksCache(16);
+        final String text = LINK_HEAVY_TEXTS[LINK_HEAVY_TEXTS.length - 1];
+        assertTrue(cache.getLinks("1", text).isEmpty());
+        assertNotNull(cache.getCachedLinks("1", text));
+        assertEquals(1, cache.getComputeCount());
+    }
+
+    @SmallTest
+    public void testCachedLinksMatchComputedLinks() {
+        final MessageLinksCache cache = new MessageLinksCache(16);
+        for (int i = 0; i < LINK_HEAVY_TEXTS.length; i++) {
+            final String text = LINK_HEAVY_TEXTS[i];
+            final List<LinkSpec> expected =
+                    LinkifyUtil.computeNewLinks(SpannableString.valueOf(text), Linkify.ALL);
+            cache.getLinks(Integer.toString(i), text);
+            final List<LinkSpec> cached = cache.getCachedLinks(Integer.toString(i), text);
+            assertEquals(expected.size(), cached.size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j).url, cached.get(j).url);
+                assertEquals(expected.get(j).start, cached.get(j).start);
+                assertEquals(expected.get(j).end, cached.get(j).end);
+            }
+        }
+    }
+
+    @LargeTest
+    public void testLinksBenchmark() {
+        final List<String> corpus = new ArrayList<String>(BENCHMARK_MESSAGES);
+        for (int i = 0; i < BENCHMARK_MESSAGES; i++) {
+            corpus.add(LINK_HEAVY_TEXTS[i % LINK_HEAVY_TEXTS.length] + " #" + i);
+        }
+
+        // Throughput of scanning the texts for links
+        long start = SystemClock.elapsedRealtime();
+        int linkCount = 0;
+        for (final String text : corpus) {
+            linkCount += LinkifyUtil.computeNewLinks(SpannableString.valueOf(text),
+                    Linkify.ALL).size();
+        }
+        final long computeMillis = Math.max(1, SystemClock.elapsedRealtime() - start);
+        Log.i(TAG, "computeNewLinks: " + BENCHMARK_MESSAGES + " messages, " + linkCount
+                + " links in " + computeMillis + "ms, "
+                + BENCHMARK_MESSAGES * 1000L / computeMillis + " messages/s");
+
+        // Binding every message several times, scanning on each bind as before
+        start = SystemClock.elapsedRealtime();
+        for (int bind = 0; bind < BENCHMARK_BINDS; bind++) {
+            for (final String text : corpus) {
+                final SpannableString s = SpannableString.valueOf(text);
+                LinkifyUtil.applyLinks(LinkifyUtil.computeNewLinks(s, Linkify.ALL), s);
+            }
+        }
+        final long uncachedMillis = SystemClock.elapsedRealtime() - start;
+
+        // The same binds with the links found once per message
+        final MessageLinksCache cache = new MessageLinksCache(BENCHMARK_MESSAGES);
+        start = SystemClock.elapsedRealtime();
+        for (int bind = 0; bind < BENCHMARK_BINDS; bind++) {
+            for (int i = 0; i < corpus.size(); i++) {
+                final String text = corpus.get(i);
+                final SpannableString s = SpannableString.valueOf(text);
+                LinkifyUtil.applyLinks(cache.getLinks(Integer.toString(i), text), s);
+            }
+        }
+        final long cachedMillis = SystemClock.elapsedRealtime() - start;
+        assertEquals(BENCHMARK_MESSAGES, cache.getComputeCount());
+        Log.i(TAG, BENCHMARK_BINDS + " binds of " + BENCHMARK_MESSAGES + " messages: "
+                + uncachedMillis + "ms scanning each bind, " + cachedMillis + "ms cached");
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.messaging.util;
+
+import android.test.suitebuilder.annotation.SmallTest;
+
+import com.android.messaging.BugleTestCase;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Tests the order in which {@link StartupScheduler} runs startup tasks.
+ */
+@SmallTest
+public class StartupSchedulerTest extends BugleTestCase {
+    /** Holds the tasks handed to it until the test runs them */
+    private static class QueueExecutor implements Executor {
+        final LinkedList<Runnable> mQueue = new LinkedList<Runnable>();
+
+        @Override
+        public void execute(final Runnable runnable) {
+            mQueue.add(runnable);
+        }
+
+        void runAll() {
+            while (!mQueue.isEmpty()) {
+                mQueue.removeFirst().run();
+            }
+        }
+    }
+
+    private final List<String> mRun = new ArrayList<String>();
+    private final QueueExecutor mMainThread = new QueueExecutor();
+    private final QueueExecutor mBackground = new QueueExecutor();
+
+    private Runnable record(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                mRun.add(name);
+            }
+        };
+    }
+
+    public void testDeferredTasksWaitForFirstFrame() {
+        final StartupScheduler scheduler = new StartupScheduler(mMainThread, mBackground);
+        scheduler.add("critical1", StartupScheduler.CRITICAL, record("critical1"));
+        scheduler.add("deferred", StartupScheduler.DEFERRED_BACKGROUND, record("deferred"));
+        scheduler.add("critical2", StartupScheduler.CRITICAL, record("critical2"));
+
+        scheduler.runCriticalTasks();
+        assertEquals(2, mRun.size());
+        assertEquals("critical1", mRun.get(0));
+        assertEquals("critical2", mRun.get(1));
+        assertTrue(mBackground.mQueue.isEmpty());
+        assertEquals(-1, scheduler.getStartMs("deferred"));
+
+        scheduler.startDeferredTasks("test");
+        mBackground.runAll();
+        assertEquals(3, mRun.size());
+        assertTrue(scheduler.getStartMs("deferred") >= 0);
+
+        // Starting again, e.g. at the timeout after the first frame, runs nothing more
+        scheduler.startDeferredTasks("timeout");
+        assertTrue(mBackground.mQueue.isEmpty());
+    }
+
+    public void testEarlyTasksDoNotWaitForFirstFrame() {
+        final StartupScheduler scheduler = new StartupScheduler(mMainThread, mBackground);
+        scheduler.add("critical", StartupScheduler.CRITICAL, record("critical"));
+        scheduler.add("early1", StartupScheduler.EARLY_BACKGROUND, record("early1"));
+        scheduler.add("early2", StartupScheduler.EARLY_BACKGROUND, record("early2"), "early1");
+        scheduler.add("deferred", StartupScheduler.DEFERRED_BACKGROUND, record("deferred"),
+                "early2");
+
+        scheduler.runCriticalTasks();
+        assertEquals(1, mBackground.mQueue.size());
+        mBackground.runAll();
+        assertEquals(3, mRun.size());
+        assertEquals("early1", mRun.get(1));
+        assertEquals("early2", mRun.get(2));
+        // Deferred dependents of early tasks still wait for the first frame
+        assertEquals(-1, scheduler.getStartMs("deferred"));
+
+        scheduler.startDeferredTasks("test");
+        mBackground.runAll();
+        assertEquals(4, mRun.size());
+        assertEquals("deferred", mRun.get(3));
+    }
+
+    public void testDependentsRunAfterTheirDependencies() {
+        final StartupScheduler scheduler = new StartupScheduler(mMainThread, mBackground);
+        scheduler.add("critical", StartupScheduler.CRITICAL, record("critical"));
+        scheduler.add("a", StartupScheduler.DEFERRED_BACKGROUND, record("a"), "critical");
+        scheduler.add("b", StartupScheduler.DEFERRED_MAIN_THREAD, record("b"), "a");
+        scheduler.add("c", StartupScheduler.DEFERRED_BACKGROUND, record("c"), "a", "b");
+        scheduler.add("d", StartupScheduler.DEFERRED_BACKGROUND, record("d"));
+
+        scheduler.runCriticalTasks();
+        scheduler.startDeferredTasks("test");
+        // Only the tasks whose dependencies are done are queued
+        assertEquals(2, mBackground.mQueue.size());
+        assertTrue(mMainThread.mQueue.isEmpty());
+
+        mBackground.runAll();
+        assertTrue(mRun.contains("a"));
+        assertTrue(mRun.contains("d"));
+        assertFalse(mRun.contains("c"));
+        assertEquals(1, mMainThread.mQueue.size());
+
+        mMainThread.runAll();
+        mBackground.runAll();
+        assertEquals(5, mRun.size());
+        assertEquals("b", mRun.get(3));
+        assertEquals("c", mRun.get(4));
+    }
+
+    public void testCriticalTaskAddedLateRunsBeforeEarlyAndDeferredTasks() {
+        // The same order the app adds its tasks in: the data model adds the message status fixup
+        // after the app's early and deferred tasks, and queues the pending messages behind it
+        final StartupScheduler scheduler = new StartupScheduler(mMainThread, mBackground);
+        scheduler.add("updateAppConfig", StartupScheduler.CRITICAL, record("updateAppConfig"));
+        scheduler.add("mmsConfig", StartupScheduler.EARLY_BACKGROUND, record("mmsConfig"));
+        scheduler.add("smartSdk", StartupScheduler.DEFERRED_BACKGROUND, record("smartSdk"));
+        scheduler.add("fixupMessageStatus", StartupScheduler.CRITICAL,
+                record("fixupMessageStatus"));
+        scheduler.add("processPendingMessages", StartupScheduler.DEFERRED_BACKGROUND,
+                record("processPendingMessages"), "fixupMessageStatus", "mmsConfig");
+
+        scheduler.runCriticalTasks();
+        // The fixup has run before any early task could start
+        assertEquals(2, mRun.size());
+        assertEquals("fixupMessageStatus", mRun.get(1));
+        assertEquals(1, mBackground.mQueue.size());
+
+        mBackground.runAll();
+        scheduler.startDeferredTasks("test");
+        mBackground.runAll();
+        assertEquals(5, mRun.size());
+        assertEquals("mmsConfig", mRun.get(2));
+        assertTrue(mRun.indexOf("fixupMessageStatus") < mRun.indexOf("smartSdk"));
+        assertTrue(mRun.indexOf("fixupMessageStatus")
+                < mRun.indexOf("processPendingMessages"));
+    }
+}
@@ -0,0 +1,156 @@
+#!/usr/bin/env python3
+#  Copyright (C) 2015 The Android Open Source Project
+#
+#  Licensed under the Apache License, Version 2.0 (the "License");
+#  you may not use this file except in compliance with the License.
+#  You may obtain a copy of the License at
+#
+#       http://www.apache.org/licenses/LICENSE-2.0
+#
+#  Unless required by applicable law or agreed to in writing, software
+#  distributed under the License is distributed on an "AS IS" BASIS,
+#  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+#  See the License for the specific language governing permissions and
+#  limitations under the License.
+
+"""Converts res/xml/apns.xml into the binary APN index read by
+com.android.messaging.sms.ApnIndex.
+
+usage: genapnindex.py apns.xml apns.idx
+
+The index holds the attributes of every <apn> element, grouped by the
+canonical MCC/MNC ("numeric") the app looks APNs up by. All values are
+big-endian; strings are stored once, as UTF-8:
+
+  "APNI"                       magic
+  int version, fieldCount, recordCount, keyCount, stringCount
+  int[fieldCount]              attribute names, as string indexes
+  (int numeric, int firstRecord, int recordCount)[keyCount]
+                               sorted by numeric
+  int[recordCount + 1]         record offsets, in ints into the record data
+  int[]                        record data: for each APN, a bit mask of the
+                               attributes it has, then their values as
+                               string indexes
+  int[stringCount + 1]         string offsets into the string data
+  byte[]                       string data
+
+The Gradle and Android.mk builds run it into their intermediates whenever
+apns.xml changes, and package the output as an uncompressed asset. The
+index is not checked in.
+"""
+
+import os
+import re
+import struct
+import sys
+import xml.etree.ElementTree as ElementTree
+
+MAGIC = b'APNI'
+VERSION = 1
+
+_INT_PATTERN = re.compile(r'^[+-]?[0-9]+$')
+
+
+def canonicalize_mcc_mnc(mcc, mnc):
+    """Same as PhoneUtils.canonicalizeMccMnc"""
+    if (mcc is not None and mnc is not None
+            and _INT_PATTERN.match(mcc) and _INT_PATTERN.match(mnc)):
+        return '%03d%03d' % (int(mcc), int(mnc))
+    return ('null' if mcc is None else mcc) + ('null' if mnc is None else mnc)
+
+
+def java_string_key(s):
+    """Sort key matching java.lang.String.compareTo"""
+    return s.encode('utf-16-be')
+
+
+class StringTable(object):
+    def __init__(self):
+        self.indexes = {}
+        self.strings = []
+
+    def add(self, s):
+        index = self.indexes.get(s)
+        if index is None:
+            index = len(self.strings)
+            self.indexes[s] = index
+            self.strings.append(s)
+        return index
+
+
+def build_index(apns_xml):
+    root = ElementTree.parse(apns_xml).getroot()
+    apns = [apn.attrib for apn in root.iter('apn')]
+
+    fields = []
+    for attrib in apns:
+        for name in attrib:
+            if name not in fields:
+                fields.append(name)
+    if len(fields) > 31:
+        raise ValueError('Too many APN attributes for the index: %d' % len(fields))
+
+    # Group the APNs by numeric, keeping the order of the file within each group
+    groups = {}
+    for attrib in apns:
+        numeric = canonicalize_mcc_mnc(attrib.get('mcc'), attrib.get('mnc'))
+        groups.setdefault(numeric, []).append(attrib)
+    numerics = sorted(groups, key=java_string_key)
+
+    strings = StringTable()
+    field_indexes = [strings.add(name) for name in fields]
+    keys = []
+    records = []
+    for numeric in numerics:
+        keys.append((strings.add(numeric), len(records), len(groups[numeric])))
+        for attrib in groups[numeric]:
+            mask = 0
+            values = []
+            for i, name in enumerate(fields):
+                if name in attrib:
+                    mask |= 1 << i
+                    values.append(strings.add(attrib[name]))
+            records.append([mask] + values)
+
+    out = bytearray(MAGIC)
+    out += struct.pack('>5i', VERSION, len(fields), len(records), len(keys),
+                       len(strings.strings))
+    out += struct.pack('>%di' % len(field_indexes), *field_indexes)
+    for key in keys:
+        out += struct.pack('>3i', *key)
+    offset = 0
+    for record in records:
+        out += struct.pack('>i', offset)
+        offset += len(record)
+    out += struct.pack('>i', offset)
+    for record in records:
+        out += struct.pack('>%di' % len(record), *record)
+    data = bytearray()
+    offsets = []
+    for s in strings.strings:
+        offsets.append(len(data))
+        data += s.encode('utf-8')
+    offsets.append(len(data))
+    out += struct.pack('>%di' % len(offsets), *offsets)
+    out += data
+    return out, len(records), len(keys)
+
+
+def main(argv):
+    if len(argv) != 3:
+        sys.exit('usage: genapnindex.py apns.xml apns.idx')
+    apns_xml = argv[1]
+    apns_idx = argv[2]
+
+    index, record_count, key_count = build_index(apns_xml)
+    out_dir = os.path.dirname(os.path.abspath(apns_idx))
+    if not os.path.isdir(out_dir):
+        os.makedirs(out_dir)
+    with open(apns_idx, 'wb') as f:
+        f.write(index)
+    print('%s: %d APNs for %d MCC/MNCs, %d bytes' % (apns_idx, record_count, key_count,
+                                                    len(index)))
+
+
+if __name__ == '__main__':
+    main(sys.argv)